@@ -0,0 +1,62 @@
+package com.flickfinder.bench;
+
+import java.io.File;
+import java.sql.SQLException;
+
+import com.flickfinder.util.Database;
+import com.flickfinder.util.DatasetGenerator;
+import com.flickfinder.util.SchemaOptimizer;
+
+/**
+ * The database the benchmarks run against.
+ *
+ * It is written by the {@link DatasetGenerator} with its default seed, so
+ * every run, on every machine, measures the same rows. The file is written to
+ * target/bench-data once and reused, and the indexes are added the same way
+ * the application adds them at startup.
+ */
+public final class BenchmarkData {
+
+	public static final int MOVIES = 200_000;
+	public static final int PEOPLE = 400_000;
+
+	/**
+	 * The first and last year a movie can come out in.
+	 */
+	public static final int FIRST_YEAR = 1920;
+	public static final int LAST_YEAR = 2023;
+
+	private static boolean opened;
+
+	private BenchmarkData() {
+	}
+
+	/**
+	 * Opens the benchmark database, generating it first if it does not exist.
+	 *
+	 * @return the database
+	 * @throws SQLException if the database cannot be written
+	 */
+	public static synchronized Database open() throws SQLException {
+		if (!opened) {
+			File file = new File("target/bench-data/bench-" + MOVIES + "-" + PEOPLE + ".db");
+			if (!file.isFile()) {
+				file.getParentFile().mkdirs();
+				DatasetGenerator.Options options = new DatasetGenerator.Options();
+				options.movies = MOVIES;
+				options.people = PEOPLE;
+				options.firstYear = FIRST_YEAR;
+				options.lastYear = LAST_YEAR;
+				DatasetGenerator generator = new DatasetGenerator("jdbc:sqlite:" + file.getPath());
+				try {
+					generator.generate(options);
+				} finally {
+					generator.closeConnection();
+				}
+			}
+			Database.getInstance("jdbc:sqlite:" + SchemaOptimizer.optimize(file.getPath()));
+			opened = true;
+		}
+		return Database.getInstance();
+	}
+}
@@ -0,0 +1,93 @@
+package com.flickfinder.bench;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.flickfinder.dao.MovieDAO;
+import com.flickfinder.dao.PersonDAO;
+import com.flickfinder.dao.RatingLeaderboard;
+import com.flickfinder.model.Movie;
+import com.flickfinder.model.Person;
+import com.flickfinder.util.Database;
+
+/**
+ * Benchmarks the DAO methods behind the busiest routes, against the
+ * synthetic {@link BenchmarkData} database. Each call asks for a different
+ * random id or year, so the results are not just the cost of one hot row.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DaoBenchmark {
+
+	/**
+	 * Whether getRatingsByYear answers from the leaderboard or from SQL.
+	 */
+	@Param({ "false", "true" })
+	public boolean leaderboard;
+
+	private MovieDAO movieDAO;
+	private PersonDAO personDAO;
+
+	@Setup(Level.Trial)
+	public void setUp() throws SQLException {
+		Database database = BenchmarkData.open();
+		movieDAO = new MovieDAO();
+		personDAO = new PersonDAO();
+		if (leaderboard) {
+			movieDAO.setLeaderboard(RatingLeaderboard.load(database));
+		}
+	}
+
+	/**
+	 * The random ids, one stream per benchmark thread.
+	 */
+	@State(Scope.Thread)
+	public static class Ids {
+		private final SplittableRandom random = new SplittableRandom(7);
+
+		int movie() {
+			return 1 + random.nextInt(BenchmarkData.MOVIES);
+		}
+
+		int person() {
+			return 1 + random.nextInt(BenchmarkData.PEOPLE);
+		}
+
+		int year() {
+			return random.nextInt(BenchmarkData.FIRST_YEAR, BenchmarkData.LAST_YEAR + 1);
+		}
+	}
+
+	@Benchmark
+	public Movie getMovieById(Ids ids) throws SQLException {
+		return movieDAO.getMovieById(ids.movie());
+	}
+
+	@Benchmark
+	public List<Person> getPeopleByMovieId(Ids ids) throws SQLException {
+		return movieDAO.getPeopleByMovieId(ids.movie());
+	}
+
+	@Benchmark
+	public List<Movie> getRatingsByYear(Ids ids) throws SQLException {
+		return movieDAO.getRatingsByYear(50, 1000, ids.year());
+	}
+
+	@Benchmark
+	public List<Movie> getMoviesStarringPerson(Ids ids) throws SQLException {
+		return personDAO.getMoviesStarringPerson(ids.person());
+	}
+}
@@ -0,0 +1,70 @@
+package com.flickfinder.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flickfinder.model.Movie;
+import com.flickfinder.model.MovieRating;
+import com.flickfinder.model.Person;
+
+/**
+ * Benchmarks turning the lists the routes return into JSON, with the Jackson
+ * mapper Javalin uses, for a short page and for a long list.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SerializationBenchmark {
+
+	@Param({ "50", "1000" })
+	public int size;
+
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	private List<Movie> movies;
+	private List<MovieRating> ratings;
+	private List<Person> people;
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(42);
+		movies = new ArrayList<>();
+		ratings = new ArrayList<>();
+		people = new ArrayList<>();
+		for (int i = 1; i <= size; i++) {
+			int year = 1920 + random.nextInt(104);
+			movies.add(new Movie(i, "Movie number " + random.nextInt(1_000_000), year));
+			ratings.add(new MovieRating(i, "Movie number " + random.nextInt(1_000_000), year,
+					Math.round(random.nextDouble() * 100) / 10.0, random.nextInt(3_000_000)));
+			people.add(new Person(i, "Person number " + random.nextInt(1_000_000), 1900 + random.nextInt(100)));
+		}
+	}
+
+	@Benchmark
+	public byte[] movies() throws JsonProcessingException {
+		return mapper.writeValueAsBytes(movies);
+	}
+
+	@Benchmark
+	public byte[] movieRatings() throws JsonProcessingException {
+		return mapper.writeValueAsBytes(ratings);
+	}
+
+	@Benchmark
+	public byte[] people() throws JsonProcessingException {
+		return mapper.writeValueAsBytes(people);
+	}
+}
@@ -0,0 +1,52 @@
+package com.flickfinder.bench;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.flickfinder.dao.Snapshot;
+import com.flickfinder.dao.YearStatistics;
+import com.flickfinder.util.Database;
+
+/**
+ * Benchmarks the scan behind the year statistics with different numbers of
+ * threads, to show how it scales across cores. The database scan can use no
+ * more threads than there are connections in the pool, so run with
+ * -Dflickfinder.pool.size set to at least the largest parallelism.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class YearStatisticsBenchmark {
+
+	@Param({ "1", "2", "4", "8" })
+	public int parallelism;
+
+	private Database database;
+	private Snapshot snapshot;
+
+	@Setup(Level.Trial)
+	public void setUp() throws SQLException {
+		database = BenchmarkData.open();
+		snapshot = Snapshot.load(database);
+	}
+
+	@Benchmark
+	public YearStatistics loadFromDatabase() throws SQLException {
+		return YearStatistics.load(database, parallelism);
+	}
+
+	@Benchmark
+	public YearStatistics loadFromSnapshot() {
+		return YearStatistics.of(snapshot, parallelism);
+	}
+}
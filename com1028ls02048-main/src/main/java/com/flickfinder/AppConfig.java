@@ -1,11 +1,48 @@
 package com.flickfinder;
 
+import com.flickfinder.controller.AdminController;
+import com.flickfinder.controller.AutocompleteController;
+import com.flickfinder.controller.ConditionalGet;
+import com.flickfinder.controller.FilterController;
+import com.flickfinder.controller.MetricsController;
 import com.flickfinder.controller.MovieController;
+import com.flickfinder.controller.PathController;
 import com.flickfinder.controller.PersonController;
+import com.flickfinder.controller.ResponseCache;
+import com.flickfinder.controller.SimilarMoviesController;
+import com.flickfinder.controller.StatsController;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.flickfinder.dao.AutocompleteIndex;
+import com.flickfinder.dao.CareerStatistics;
+import com.flickfinder.dao.CoStarGraph;
+import com.flickfinder.dao.MeteredMovieDAO;
+import com.flickfinder.dao.MeteredPersonDAO;
 import com.flickfinder.dao.MovieDAO;
+import com.flickfinder.dao.MovieFilterIndex;
 import com.flickfinder.dao.PersonDAO;
+import com.flickfinder.dao.RatingLeaderboard;
+import com.flickfinder.dao.SimilarMovieIndex;
+import com.flickfinder.dao.Snapshot;
+import com.flickfinder.dao.SnapshotMovieDAO;
+import com.flickfinder.dao.SnapshotPersonDAO;
+import com.flickfinder.dao.YearStatistics;
+import com.flickfinder.util.ConnectionPool;
+import com.flickfinder.util.ContentVersion;
+import com.flickfinder.util.Database;
+import com.flickfinder.util.Metrics;
+import com.flickfinder.util.SchemaOptimizer;
+import com.flickfinder.util.Settings;
+import com.flickfinder.util.SlowQueryLog;
 
 import io.javalin.Javalin;
+import io.javalin.http.Context;
+import io.javalin.http.Handler;
 import io.javalin.http.staticfiles.Location;
 
 /**
@@ -17,6 +54,8 @@ import io.javalin.http.staticfiles.Location;
 
 public class AppConfig {
 
+	private static final Logger LOG = LoggerFactory.getLogger(AppConfig.class);
+
 	/**
 	 * Sets up the routes and the static files location. As you can see, the routes
 	 * are currently incomplete. Depending on how far you get in the assessment, you
@@ -26,19 +65,182 @@ public class AppConfig {
 	 * @return The Javalin object that represents the running server.
 	 */
 	public static Javalin startServer(int port) {
+		// Every handler blocks on JDBC, so with a fixed pool of platform threads
+		// the pool size caps throughput. Virtual threads lift that cap, and the
+		// connection pool still bounds how many requests use SQLite at once.
+		// They need Java 21; on older runtimes Javalin keeps its usual pool.
+		boolean virtualThreads = Settings.getBoolean("virtualThreads", false);
+		if (virtualThreads && Runtime.version().feature() < 21) {
+			LOG.warn("Virtual threads need Java 21 or later, using platform threads");
+		}
+
+		// Every request and DAO call is counted and timed, and the totals are
+		// served at /metrics for Prometheus to scrape.
+		Metrics metrics = Settings.getBoolean("metrics", true) ? new Metrics() : null;
+		MetricsController metricsController = metrics != null ? new MetricsController(metrics) : null;
+
 		Javalin app = Javalin.create(config -> {
 			config.staticFiles.add("/public", Location.CLASSPATH);
-		}).start(port);
+			config.useVirtualThreads = virtualThreads;
+			if (metricsController != null) {
+				config.requestLogger.http(metricsController::record);
+			}
+		});
+
+		// Queries slower than the threshold are kept with their parameters and
+		// query plan for /admin/slow-queries, and written to a file as well if
+		// slowQuery.file is set.
+		SlowQueryLog slowQueryLog = null;
+		ConnectionPool pool = Database.getInstance().getPool();
+		if (Settings.getBoolean("slowQuery", true) && pool != null) {
+			slowQueryLog = SlowQueryLog.fromSettings(pool);
+			pool.setSlowQueryLog(slowQueryLog);
+			// Its thread and file are let go of when the server stops, so a
+			// server started again in the same process does not leave them behind.
+			SlowQueryLog log = slowQueryLog;
+			Runnable closeLog = () -> {
+				pool.setSlowQueryLog(null);
+				log.close();
+			};
+			app.events(event -> {
+				event.serverStopped(closeLog::run);
+				event.serverStartFailed(closeLog::run);
+			});
+		}
 
 		// Set up controllers
 		MovieDAO movieDao = new MovieDAO();
+		PersonDAO personDao = new PersonDAO();
+
+		// In snapshot mode the whole database is loaded into memory and the DAOs
+		// answer from there instead of querying SQLite.
+		Snapshot snapshot = null;
+		if (Settings.getBoolean("snapshot", false)) {
+			try {
+				snapshot = Snapshot.load(Database.getInstance());
+				movieDao = new SnapshotMovieDAO(snapshot);
+				personDao = new SnapshotPersonDAO(snapshot);
+			} catch (SQLException e) {
+				LOG.warn("Could not load the snapshot, querying the database instead", e);
+			}
+		}
+
+		// The ratings never change, so the best rated movies of each year are
+		// sorted once here rather than on every request.
+		if (Settings.getBoolean("leaderboard", true)) {
+			try {
+				movieDao.setLeaderboard(RatingLeaderboard.load(Database.getInstance()));
+			} catch (SQLException e) {
+				LOG.warn("Could not build the rating leaderboard, querying the database instead", e);
+			}
+		}
+
+		if (metrics != null) {
+			movieDao = new MeteredMovieDAO(movieDao, metrics);
+			personDao = new MeteredPersonDAO(personDao, metrics);
+		}
+
 		MovieController movieController = new MovieController(movieDao);
 
 		// Uncomment the following lines as you progress through the assessment.
 		// PersonController personController = new PersonController();
-		PersonDAO personDao = new PersonDAO();
 		PersonController personController = new PersonController(personDao);
 
+		// Typeahead is answered from an index of every title and name built
+		// here, as asking the database on every keystroke would be too slow.
+		AutocompleteController autocompleteController = null;
+		if (Settings.getBoolean("autocomplete", true)) {
+			try {
+				autocompleteController = new AutocompleteController(
+						AutocompleteIndex.loadMovies(Database.getInstance()),
+						AutocompleteIndex.loadPeople(Database.getInstance()));
+			} catch (SQLException e) {
+				LOG.warn("Could not build the autocomplete index, autocomplete is turned off", e);
+			}
+		}
+
+		// Paths between people and similar movies are both found in a graph of
+		// who starred with whom, as following the stars table one query per
+		// step would take thousands of queries.
+		PathController pathController = null;
+		SimilarMoviesController similarMoviesController = null;
+		boolean path = Settings.getBoolean("path", true);
+		boolean similar = Settings.getBoolean("similar", true);
+		if (path || similar) {
+			try {
+				CoStarGraph graph = snapshot != null ? CoStarGraph.of(snapshot)
+						: CoStarGraph.load(Database.getInstance());
+				if (path) {
+					pathController = new PathController(graph, personDao, movieDao);
+				}
+				if (similar) {
+					int bands = Settings.getInt("similar.bands", 8);
+					int rows = Settings.getInt("similar.rows", 1);
+					int maxBucket = Settings.getInt("similar.maxBucket", 1000);
+					similarMoviesController = new SimilarMoviesController(snapshot != null
+							? SimilarMovieIndex.of(snapshot, graph, bands, rows, maxBucket)
+							: SimilarMovieIndex.load(Database.getInstance(), graph, bands, rows, maxBucket), movieDao);
+				}
+			} catch (SQLException e) {
+				LOG.warn("Could not build the co-star graph, paths and similar movies are turned off", e);
+			}
+		}
+
+		// The statistics of each year and of each person's career are worked out
+		// in one parallel pass each, as they never change.
+		StatsController statsController = null;
+		if (Settings.getBoolean("stats", true)) {
+			int parallelism = Settings.getInt("stats.parallelism", Runtime.getRuntime().availableProcessors());
+			try {
+				statsController = snapshot != null
+						? new StatsController(YearStatistics.of(snapshot, parallelism),
+								CareerStatistics.of(snapshot, parallelism))
+						: new StatsController(YearStatistics.load(Database.getInstance(), parallelism),
+								CareerStatistics.load(Database.getInstance(), parallelism));
+			} catch (SQLException e) {
+				LOG.warn("Could not work out the statistics, stats are turned off", e);
+			}
+		}
+
+		// Movies are filtered by year, rating and votes with bitmap indexes, so
+		// any combination is answered without a query that scans every movie.
+		FilterController filterController = null;
+		if (Settings.getBoolean("filter", true)) {
+			try {
+				filterController = new FilterController(
+						snapshot != null ? MovieFilterIndex.of(snapshot) : MovieFilterIndex.load(Database.getInstance()),
+						movieDao);
+			} catch (SQLException e) {
+				LOG.warn("Could not build the movie filter index, filtering is turned off", e);
+			}
+		}
+
+		// The same requests come in again and again, and as the database never
+		// changes their responses can be kept and sent again as they are.
+		ResponseCache cache = null;
+		if (Settings.getBoolean("cache", true)) {
+			cache = new ResponseCache(Settings.getInt("cache.maxEntries", 10000),
+					Settings.getLong("cache.maxBytes", 64L * 1024 * 1024), Settings.getLong("cache.ttlMillis", 600000));
+		}
+
+		// Clients that poll get a 304 instead of the same response again. The
+		// ETags are tied to the contents of the database file.
+		ConditionalGet etags = null;
+		if (Settings.getBoolean("etag", true)) {
+			etags = new ConditionalGet(ContentVersion.of(Database.getInstance()));
+		}
+
+		// Search needs the full-text tables SchemaOptimizer builds into the indexed
+		// copy of the database. Without them (the optimizer is off or failed, or
+		// the database was never optimized) the search routes answer 503, rather
+		// than a database error on every query or a 400 from /movies/{id}.
+		Handler searchMovies = movieController::searchMovies;
+		Handler searchPeople = personController::searchPeople;
+		if (!hasSearchTables()) {
+			searchMovies = AppConfig::searchUnavailable;
+			searchPeople = AppConfig::searchUnavailable;
+		}
+
 		/**
 		 * Below are the routes for the application. You will need uncomment these as
 		 * you progress through the assessment. Do not: - change the strings and methods
@@ -46,17 +248,160 @@ public class AppConfig {
 		 * in Javalin, as the routes are pattern matched in the order they are defined.
 		 * Only uncomment the routes for the functionality you have implemented.
 		 */
-		app.get("/movies/ratings/{year}", movieController::getRatingsByYear);
-		app.get("/movies", movieController::getAllMovies);
-		app.get("/movies/{id}", movieController::getMovieById);
-		app.get("/movies/{id}/stars", movieController::getPeopleByMovieId);
+		app.get("/movies/ratings/{year}", wrap(cache, etags, movieController::getRatingsByYear));
+		app.get("/movies", wrap(cache, etags, movieController::getAllMovies));
+		app.get("/movies/batch", wrap(cache, etags, movieController::getMoviesByIds));
+		app.post("/movies/batch", movieController::getMoviesByIds);
+		app.get("/movies/batch/directors", wrap(cache, etags, movieController::getDirectorsByMovieIds));
+		app.post("/movies/batch/directors", movieController::getDirectorsByMovieIds);
+		app.get("/movies/search", wrap(cache, etags, searchMovies));
+		if (filterController != null) {
+			app.get("/movies/filter", wrap(cache, etags, filterController::getFilteredMovies));
+		}
+		app.get("/movies/{id}", wrap(cache, etags, movieController::getMovieById));
+		app.get("/movies/{id}/stars", wrap(cache, etags, movieController::getPeopleByMovieId));
+		app.get("/movies/{id}/directors", wrap(cache, etags, movieController::getDirectorsByMovieId));
+		if (similarMoviesController != null) {
+			app.get("/movies/{id}/similar", wrap(cache, etags, similarMoviesController::getSimilarMovies));
+		}
+
+		app.get("/people", wrap(cache, etags, personController::getAllPeople));
+		app.get("/people/batch", wrap(cache, etags, personController::getPeopleByIds));
+		app.post("/people/batch", personController::getPeopleByIds);
+		app.get("/people/batch/directed", wrap(cache, etags, personController::getMoviesDirectedByPeople));
+		app.post("/people/batch/directed", personController::getMoviesDirectedByPeople);
+		app.get("/people/search", wrap(cache, etags, searchPeople));
+		app.get("/people/{id}", wrap(cache, etags, personController::getPersonById));
+		app.get("/people/{id}/movies", wrap(cache, etags, personController::getMoviesStarringPerson));
+		app.get("/people/{id}/directed", wrap(cache, etags, personController::getMoviesDirectedByPerson));
+		if (statsController != null) {
+			app.get("/people/{id}/stats", wrap(cache, etags, statsController::getPersonStats));
+		}
+		if (pathController != null) {
+			app.get("/people/{a}/path/{b}", wrap(cache, etags, pathController::getPath));
+		}
 
-		app.get("/people", personController::getAllPeople);
-		app.get("/people/{id}", personController::getPersonById);
-		app.get("/people/{id}/movies", personController::getMoviesStarringPerson);
+		if (statsController != null) {
+			app.get("/stats/years", wrap(cache, etags, statsController::getYears));
+			app.get("/stats/years/{year}", wrap(cache, etags, statsController::getYear));
+		}
 
+		// Suggestions are quick to work out and most prefixes are only asked for
+		// once, so they are not kept in the response cache.
+		if (autocompleteController != null) {
+			app.get("/autocomplete", wrap(null, etags, autocompleteController::autocomplete));
+			app.get("/autocomplete/stats", autocompleteController::getStats);
+		}
+
+		if (metrics != null) {
+			registerGauges(metrics, cache, slowQueryLog);
+			app.get("/metrics", metricsController::getMetrics);
+		}
+
+		// The admin routes can clear the caches and show the parameters of
+		// recent queries, so they are only there if a token is set for them.
+		String adminToken = Settings.getString("admin.token", "");
+		if (!adminToken.isEmpty()) {
+			AdminController adminController = new AdminController(cache, slowQueryLog, adminToken);
+			app.before("/admin/*", adminController::authorize);
+			if (cache != null) {
+				app.get("/admin/cache", adminController::getCacheStats);
+				app.delete("/admin/cache", adminController::clearCache);
+			}
+			if (slowQueryLog != null) {
+				app.get("/admin/slow-queries", adminController::getSlowQueries);
+				app.delete("/admin/slow-queries", adminController::clearSlowQueries);
+			}
+		} else {
+			LOG.info("The admin routes are turned off, as no admin token is set");
+		}
+
+		// The server only starts listening once the indexes above are built and
+		// every route is in place, so no request is answered with a 404 while
+		// they load.
+		app.start(port);
 		return app;
 
 	}
 
+	/**
+	 * Exports the counts the connection pool and the response cache already
+	 * keep, so they are read when the metrics are scraped rather than counted
+	 * twice.
+	 */
+	private static void registerGauges(Metrics metrics, ResponseCache cache, SlowQueryLog slowQueryLog) {
+		ConnectionPool pool = Database.getInstance().getPool();
+		if (pool != null) {
+			metrics.gauge("flickfinder_db_connections", "Connections in the pool", pool::getSize, "state", "total");
+			metrics.gauge("flickfinder_db_connections", "Connections in the pool", pool::getIdleCount, "state",
+					"idle");
+			metrics.counterFunction("flickfinder_db_acquires_total", "Connections borrowed from the pool",
+					pool::getAcquireCount);
+			metrics.counterFunction("flickfinder_db_acquire_timeouts_total",
+					"Times a caller gave up waiting for a connection", pool::getTimeoutCount);
+			metrics.counterFunction("flickfinder_db_acquire_wait_seconds_total",
+					"Time spent waiting for a connection", () -> pool.getTotalWaitNanos() / 1e9);
+			metrics.counterFunction("flickfinder_db_statements_total", "Prepared statements asked for",
+					pool::getStatementCacheHits, "result", "hit");
+			metrics.counterFunction("flickfinder_db_statements_total", "Prepared statements asked for",
+					pool::getStatementCacheMisses, "result", "miss");
+			metrics.counterFunction("flickfinder_db_statement_evictions_total",
+					"Prepared statements closed to make room in a cache", pool::getStatementCacheEvictions);
+		}
+		if (cache != null) {
+			metrics.gauge("flickfinder_cache_entries", "Responses in the response cache", cache::size);
+			metrics.gauge("flickfinder_cache_bytes", "Bytes of responses in the response cache", cache::getBytes);
+			metrics.counterFunction("flickfinder_cache_requests_total", "Response cache lookups", cache::getHits,
+					"result", "hit");
+			metrics.counterFunction("flickfinder_cache_requests_total", "Response cache lookups", cache::getMisses,
+					"result", "miss");
+			metrics.counterFunction("flickfinder_cache_evictions_total", "Responses evicted from the response cache",
+					cache::getEvictions);
+		}
+		if (slowQueryLog != null) {
+			metrics.counterFunction("flickfinder_db_slow_queries_total", "Queries that took longer than the threshold",
+					slowQueryLog::getCount);
+		}
+	}
+
+	/**
+	 * Checks that the database has the full-text search tables, and logs a
+	 * warning if it does not.
+	 */
+	private static boolean hasSearchTables() {
+		try (Connection connection = Database.getInstance().getConnection()) {
+			List<String> missing = SchemaOptimizer.missingSearchTables(connection);
+			if (missing.isEmpty()) {
+				return true;
+			}
+			LOG.warn("The database has no search tables {}, search is turned off", missing);
+		} catch (SQLException e) {
+			LOG.warn("Could not check for the search tables, search is turned off", e);
+		}
+		return false;
+	}
+
+	/**
+	 * Answers a search when the database has no search tables.
+	 */
+	private static void searchUnavailable(Context ctx) {
+		ctx.status(503);
+		ctx.result("Search is not available");
+	}
+
+	/**
+	 * Puts the response cache and then the ETag check in front of a controller
+	 * method, if they are turned on, so a conditional request is answered
+	 * before the cache is even looked at.
+	 */
+	private static Handler wrap(ResponseCache cache, ConditionalGet etags, Handler handler) {
+		if (cache != null) {
+			handler = cache.wrap(handler);
+		}
+		if (etags != null) {
+			handler = etags.wrap(handler);
+		}
+		return handler;
+	}
+
 }
\ No newline at end of file
@@ -1,6 +1,8 @@
 package com.flickfinder;
 
 import com.flickfinder.util.Database;
+import com.flickfinder.util.SchemaOptimizer;
+import com.flickfinder.util.Settings;
 
 /**
  * Entry point of the application.
@@ -22,7 +24,16 @@ public class Main {
     public static void main(String[] args) {
 
         // This gives us a path to the database file, which is in the resources folder.
-        final String dbPath = "src/main/resources/movies.db";
+        String dbPath = "src/main/resources/movies.db";
+
+        /**
+         * The database has no indexes on its join tables, so we build them into
+         * a copy of the database at startup and read from that copy instead.
+         * This can be turned off with -Dflickfinder.db.optimize=false.
+         */
+        if (Settings.getBoolean("db.optimize", true)) {
+            dbPath = SchemaOptimizer.optimize(dbPath);
+        }
 
         /**
          * This sets up the database connection and starts the server.
@@ -0,0 +1,122 @@
+package com.flickfinder.controller;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.flickfinder.util.SlowQueryLog;
+
+import io.javalin.http.Context;
+
+/**
+ * The controller for the admin endpoints, which report on and manage the
+ * running server rather than serve movie data.
+ *
+ * They can clear the server's caches and show the SQL and parameters of recent
+ * queries, so every request must carry the admin token, as
+ * {@code Authorization: Bearer <token>}.
+ */
+public class AdminController {
+
+	/**
+	 * The response cache, or null if it is turned off.
+	 */
+	private final ResponseCache responseCache;
+
+	/**
+	 * The slow query log, or null if it is turned off.
+	 */
+	private final SlowQueryLog slowQueryLog;
+
+	/**
+	 * The token every request must carry.
+	 */
+	private final byte[] token;
+
+	/**
+	 * Constructs an AdminController object.
+	 *
+	 * @param responseCache the response cache to manage, or null
+	 * @param slowQueryLog  the slow query log to report on, or null
+	 * @param token         the token every request must carry
+	 */
+	public AdminController(ResponseCache responseCache, SlowQueryLog slowQueryLog, String token) {
+		if (token == null || token.isEmpty()) {
+			throw new IllegalArgumentException("The admin token must not be empty");
+		}
+		this.responseCache = responseCache;
+		this.slowQueryLog = slowQueryLog;
+		this.token = token.getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Turns away a request that does not carry the admin token, with a 401.
+	 * This runs before every admin route.
+	 *
+	 * @param ctx the Javalin context
+	 */
+	public void authorize(Context ctx) {
+		String header = ctx.header("Authorization");
+		// Compared in constant time, so the token cannot be guessed a character
+		// at a time from how long a wrong one takes to be turned away.
+		if (header == null || !header.startsWith("Bearer ")
+				|| !MessageDigest.isEqual(token, header.substring(7).getBytes(StandardCharsets.UTF_8))) {
+			ctx.skipRemainingHandlers();
+			ctx.header("WWW-Authenticate", "Bearer");
+			ctx.status(401);
+			ctx.result("Unauthorized");
+		}
+	}
+
+	/**
+	 * Returns the size and the hit, miss and eviction counts of the response
+	 * cache.
+	 *
+	 * @param ctx the Javalin context
+	 */
+	public void getCacheStats(Context ctx) {
+		Map<String, Object> stats = new LinkedHashMap<>();
+		stats.put("entries", responseCache.size());
+		stats.put("bytes", responseCache.getBytes());
+		stats.put("hits", responseCache.getHits());
+		stats.put("misses", responseCache.getMisses());
+		stats.put("evictions", responseCache.getEvictions());
+		ctx.json(stats);
+	}
+
+	/**
+	 * Empties the response cache.
+	 *
+	 * @param ctx the Javalin context
+	 */
+	public void clearCache(Context ctx) {
+		responseCache.clear();
+		ctx.status(204);
+	}
+
+	/**
+	 * Returns the latest queries that took longer than the threshold, the most
+	 * recent first, with their parameters and query plans.
+	 *
+	 * @param ctx the Javalin context
+	 */
+	public void getSlowQueries(Context ctx) {
+		Map<String, Object> result = new LinkedHashMap<>();
+		result.put("thresholdMillis", slowQueryLog.getThresholdNanos() / 1e6);
+		result.put("count", slowQueryLog.getCount());
+		result.put("dropped", slowQueryLog.getDropped());
+		result.put("queries", slowQueryLog.getRecent());
+		ctx.json(result);
+	}
+
+	/**
+	 * Empties the list of the latest slow queries. The log file is kept.
+	 *
+	 * @param ctx the Javalin context
+	 */
+	public void clearSlowQueries(Context ctx) {
+		slowQueryLog.clear();
+		ctx.status(204);
+	}
+}
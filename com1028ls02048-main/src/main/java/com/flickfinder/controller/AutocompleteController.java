@@ -0,0 +1,100 @@
+package com.flickfinder.controller;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.flickfinder.dao.AutocompleteIndex;
+import com.flickfinder.model.Movie;
+import com.flickfinder.model.Person;
+import com.flickfinder.util.Settings;
+
+import io.javalin.http.Context;
+
+/**
+ * The controller for typeahead suggestions. It answers from the in-memory
+ * {@link AutocompleteIndex} rather than the database, so it is cheap enough
+ * to call on every keystroke.
+ */
+public class AutocompleteController {
+
+	/**
+	 * The most suggestions a request may ask for.
+	 */
+	public static final int MAX_K = Settings.getInt("autocomplete.maxK", 50);
+
+	/**
+	 * The index of movie titles.
+	 */
+	private final AutocompleteIndex<Movie> movies;
+
+	/**
+	 * The index of people's names.
+	 */
+	private final AutocompleteIndex<Person> people;
+
+	/**
+	 * Constructs an AutocompleteController object.
+	 *
+	 * @param movies the index of movie titles
+	 * @param people the index of people's names
+	 */
+	public AutocompleteController(AutocompleteIndex<Movie> movies, AutocompleteIndex<Person> people) {
+		this.movies = movies;
+		this.people = people;
+	}
+
+	/**
+	 * Returns the most popular movies or people with a word starting with the
+	 * prefix query parameter. The type query parameter is movie (the default)
+	 * or person, and k is the number of suggestions, 10 by default.
+	 *
+	 * @param ctx the Javalin context
+	 */
+	public void autocomplete(Context ctx) {
+		try {
+			String prefix = ctx.queryParam("prefix");
+			if (prefix == null || prefix.isBlank()) {
+				throw new IllegalArgumentException("Missing prefix");
+			}
+			String k = ctx.queryParam("k");
+			int count = Math.min(k != null ? Integer.parseInt(k) : 10, MAX_K);
+			if (count <= 0) {
+				throw new IllegalArgumentException("Invalid k " + k);
+			}
+			String type = ctx.queryParam("type");
+			if (type == null || type.equals("movie")) {
+				ctx.json(movies.suggest(prefix, count));
+			} else if (type.equals("person")) {
+				ctx.json(people.suggest(prefix, count));
+			} else {
+				throw new IllegalArgumentException("Invalid type " + type);
+			}
+		} catch (NumberFormatException e) {
+			ctx.status(400);
+			ctx.result("Invalid query parameter");
+		} catch (IllegalArgumentException e) {
+			ctx.status(400);
+			ctx.result(e.getMessage());
+		}
+	}
+
+	/**
+	 * Returns the size and the memory footprint of each index.
+	 *
+	 * @param ctx the Javalin context
+	 */
+	public void getStats(Context ctx) {
+		Map<String, Object> stats = new LinkedHashMap<>();
+		stats.put("movie", statsOf(movies));
+		stats.put("person", statsOf(people));
+		ctx.json(stats);
+	}
+
+	private static Map<String, Object> statsOf(AutocompleteIndex<?> index) {
+		Map<String, Object> stats = new LinkedHashMap<>();
+		stats.put("rows", index.size());
+		stats.put("words", index.entries());
+		stats.put("bytes", index.memoryBytes());
+		return stats;
+	}
+}
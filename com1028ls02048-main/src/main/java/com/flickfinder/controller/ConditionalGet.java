@@ -0,0 +1,99 @@
+package com.flickfinder.controller;
+
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32C;
+
+import io.javalin.http.Context;
+import io.javalin.http.Handler;
+
+/**
+ * Adds ETags to responses and answers conditional requests.
+ *
+ * Every successful response carries a strong ETag made from the content
+ * version of the database and the request itself (path, query parameters and
+ * whether newline-delimited JSON was asked for). As the database never changes
+ * while the server is running, a client that sends the ETag back in an
+ * {@code If-None-Match} header already has the current response, so it is
+ * answered with 304 Not Modified before the controller or the DAO is called.
+ *
+ */
+public class ConditionalGet {
+
+	/**
+	 * The content version of the database.
+	 */
+	private final String version;
+
+	/**
+	 * Creates the conditional GET support for a version of the database.
+	 *
+	 * @param version the content version of the database
+	 */
+	public ConditionalGet(String version) {
+		this.version = version;
+	}
+
+	/**
+	 * Wraps a controller method so that its responses carry an ETag and
+	 * conditional requests are answered without calling it.
+	 *
+	 * @param handler the controller method
+	 * @return the wrapped handler
+	 */
+	public Handler wrap(Handler handler) {
+		return ctx -> {
+			String etag = etagOf(ctx);
+			if (matches(ctx.header("If-None-Match"), etag)) {
+				ctx.header("ETag", etag);
+				ctx.status(304);
+				return;
+			}
+			// Set before the controller runs, as a streamed response sends its
+			// headers as soon as it starts writing.
+			ctx.header("ETag", etag);
+			handler.handle(ctx);
+			if (ctx.statusCode() != 200) {
+				ctx.res().setHeader("ETag", null);
+			}
+		};
+	}
+
+	/**
+	 * Returns the ETag for a request.
+	 *
+	 * @param ctx the Javalin context
+	 * @return the ETag, including its quotes
+	 */
+	String etagOf(Context ctx) {
+		CRC32C crc = new CRC32C();
+		crc.update(ResponseCache.keyOf(ctx).getBytes(StandardCharsets.UTF_8));
+		String variant = JsonStreamWriter.wantsNdjson(ctx) ? "-n" : "";
+		return "\"" + version + "-" + Long.toHexString(crc.getValue()) + variant + "\"";
+	}
+
+	/**
+	 * Checks whether an If-None-Match header matches an ETag. The header may
+	 * list several ETags; weak ETags match their strong form, as RFC 9110 asks
+	 * for If-None-Match. A {@code *} is not matched, as that would answer 304
+	 * for ids that do not exist without asking the DAO.
+	 *
+	 * @param ifNoneMatch the If-None-Match header, or null
+	 * @param etag        the ETag of the current response
+	 * @return true if the client already has the current response
+	 */
+	static boolean matches(String ifNoneMatch, String etag) {
+		if (ifNoneMatch == null) {
+			return false;
+		}
+		for (String candidate : ifNoneMatch.split(",")) {
+			candidate = candidate.trim();
+			if (candidate.startsWith("W/")) {
+				candidate = candidate.substring(2);
+			}
+			if (candidate.equals(etag)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,116 @@
+package com.flickfinder.controller;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.flickfinder.dao.MovieDAO;
+import com.flickfinder.dao.MovieFilterIndex;
+import com.flickfinder.model.FilterResult;
+import com.flickfinder.model.Movie;
+import com.flickfinder.model.MovieRating;
+import com.flickfinder.util.Settings;
+
+import io.javalin.http.Context;
+
+/**
+ * The controller for filtering movies by their year, rating and votes. The
+ * movies are found in the in-memory {@link MovieFilterIndex}, and only those
+ * on the page are then read from the DAO.
+ */
+public class FilterController {
+
+	/**
+	 * The most movies that can be asked for in one page.
+	 */
+	public static final int MAX_LIMIT = Settings.getInt("filter.maxLimit", 100);
+
+	/**
+	 * The bitmap indexes of the movies.
+	 */
+	private final MovieFilterIndex index;
+
+	/**
+	 * The movie data access object.
+	 */
+	private final MovieDAO movieDAO;
+
+	/**
+	 * Constructs a FilterController object.
+	 *
+	 * @param index    the bitmap indexes of the movies
+	 * @param movieDAO the DAO to read the movies on a page from
+	 */
+	public FilterController(MovieFilterIndex index, MovieDAO movieDAO) {
+		this.index = index;
+		this.movieDAO = movieDAO;
+	}
+
+	/**
+	 * Returns one page of the movies that match the yearFrom, yearTo,
+	 * minRating, minVotes and rated queries, any of which may be left out,
+	 * along with how many match and the counts of each facet
+	 * The sort query orders them by id, year, rating or votes; the base case
+	 * is id
+	 * If there is a limit query then at most that many movies are returned,
+	 * up to a maximum of {@link #MAX_LIMIT}; if not the base limit is 50
+	 * The offset query skips that many movies
+	 *
+	 * @param ctx the Javalin context
+	 */
+	public void getFilteredMovies(Context ctx) {
+		try {
+			MovieFilterIndex.Filter filter = new MovieFilterIndex.Filter();
+			filter.yearFrom = intQuery(ctx, "yearFrom");
+			filter.yearTo = intQuery(ctx, "yearTo");
+			String minRating = ctx.queryParam("minRating");
+			filter.minRating = minRating != null ? Double.valueOf(minRating) : null;
+			filter.minVotes = intQuery(ctx, "minVotes");
+			String rated = ctx.queryParam("rated");
+			if (rated != null) {
+				if (!rated.equals("true") && !rated.equals("false")) {
+					throw new IllegalArgumentException("Invalid rated query " + rated);
+				}
+				filter.rated = Boolean.valueOf(rated);
+			}
+			if (ctx.queryParam("sort") != null) {
+				filter.sort = ctx.queryParam("sort");
+			}
+			Integer offset = intQuery(ctx, "offset");
+			Integer limit = intQuery(ctx, "limit");
+			filter.offset = offset != null ? offset : 0;
+			filter.limit = Math.min(limit != null ? limit : 50, MAX_LIMIT);
+
+			MovieFilterIndex.Result result = index.filter(filter);
+			// The movies come back in the order of the ids, with null for any
+			// that are not in the database
+			List<Movie> movies = movieDAO.getMoviesByIds(result.getMovieIds());
+			List<Movie> items = new ArrayList<>(result.getMovieIds().length);
+			for (int i = 0; i < result.getMovieIds().length; i++) {
+				Movie movie = movies.get(i);
+				if (movie == null) {
+					continue;
+				}
+				if (Double.isNaN(result.getRating(i))) {
+					items.add(movie);
+				} else {
+					items.add(new MovieRating(movie.getId(), movie.getTitle(), movie.getYear(), result.getRating(i),
+							result.getVotes(i)));
+				}
+			}
+			ctx.json(new FilterResult(result.getTotal(), items, result.getFacets()));
+		} catch (SQLException e) {
+			ctx.status(500);
+			ctx.result("Database error");
+			e.printStackTrace();
+		} catch (IllegalArgumentException e) {
+			ctx.status(400);
+			ctx.result("Invalid query parameter");
+		}
+	}
+
+	private static Integer intQuery(Context ctx, String name) {
+		String value = ctx.queryParam(name);
+		return value != null ? Integer.valueOf(value) : null;
+	}
+}
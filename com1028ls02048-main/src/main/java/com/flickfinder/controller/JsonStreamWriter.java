@@ -0,0 +1,203 @@
+package com.flickfinder.controller;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import java.nio.charset.StandardCharsets;
+
+import org.eclipse.jetty.server.Request;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.flickfinder.util.Settings;
+
+import io.javalin.http.Context;
+import io.javalin.json.JavalinJackson;
+import io.javalin.json.JsonMapper;
+
+/**
+ * Writes a list of objects to the response one at a time, as they are read
+ * from the database, instead of building the whole list and its JSON in
+ * memory first. Memory use stays the same however many rows are returned.
+ *
+ * The rows are written as a JSON array, or as newline-delimited JSON (one
+ * object per line) if the client sends {@code Accept: application/x-ndjson}.
+ *
+ * The rows are written with the JSON mapper Javalin is configured with, so
+ * they come out the same as a response sent with {@code ctx.json}.
+ *
+ * The response is only complete once {@link #finish()} is called. Nothing is
+ * sent until the first row is written, so a request can still be turned into
+ * an error (for example a 404 when the movie does not exist) as long as no
+ * rows have been written. If the writer is closed without being finished
+ * after rows have been sent, for example because the database failed part of
+ * the way through, the connection is broken instead, so the client cannot
+ * mistake the rows it got for the whole list.
+ *
+ */
+public class JsonStreamWriter implements Closeable {
+
+	/**
+	 * The content type of newline-delimited JSON.
+	 */
+	public static final String NDJSON = "application/x-ndjson";
+
+	/**
+	 * Lists longer than this are streamed even if the client did not ask.
+	 */
+	static final int THRESHOLD = Settings.getInt("stream.threshold", 1000);
+
+	private final Context ctx;
+	private final boolean ndjson;
+	private boolean started;
+	private boolean finished;
+
+	/**
+	 * Writes the rows if Javalin's mapper is Jackson, which it is unless it has
+	 * been replaced.
+	 */
+	private JsonGenerator generator;
+
+	/**
+	 * Writes the rows with any other mapper, one row at a time.
+	 */
+	private JsonMapper mapper;
+	private int rows;
+
+	private JsonStreamWriter(Context ctx, boolean ndjson) {
+		this.ctx = ctx;
+		this.ndjson = ndjson;
+	}
+
+	/**
+	 * Decides whether a response should be streamed. It is streamed if the
+	 * client asks for newline-delimited JSON or passes stream=true, or if the
+	 * list could be longer than the streaming threshold.
+	 *
+	 * @param ctx     the Javalin context
+	 * @param maxRows the most rows the response could hold, or 0 if unknown
+	 * @return true if the response should be streamed
+	 */
+	public static boolean wanted(Context ctx, int maxRows) {
+		return wantsNdjson(ctx) || "true".equals(ctx.queryParam("stream")) || maxRows > THRESHOLD;
+	}
+
+	/**
+	 * Checks whether the client asked for newline-delimited JSON.
+	 *
+	 * @param ctx the Javalin context
+	 * @return true if the Accept header names newline-delimited JSON
+	 */
+	static boolean wantsNdjson(Context ctx) {
+		String accept = ctx.header("Accept");
+		return accept != null && accept.contains(NDJSON);
+	}
+
+	/**
+	 * Starts a streamed response.
+	 *
+	 * @param ctx the Javalin context
+	 * @return the writer, which must be finished and then closed
+	 * @throws IOException if the response cannot be written
+	 */
+	public static JsonStreamWriter open(Context ctx) throws IOException {
+		return new JsonStreamWriter(ctx, wantsNdjson(ctx));
+	}
+
+	private void start() throws IOException {
+		started = true;
+		ctx.contentType(ndjson ? NDJSON : "application/json");
+		JsonMapper jsonMapper = ctx.jsonMapper();
+		if (jsonMapper instanceof JavalinJackson) {
+			generator = ((JavalinJackson) jsonMapper).getMapper().getFactory().createGenerator(ctx.outputStream());
+			generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+			if (ndjson) {
+				generator.setRootValueSeparator(null);
+			} else {
+				generator.writeStartArray();
+			}
+		} else {
+			mapper = jsonMapper;
+			if (!ndjson) {
+				writeRaw("[");
+			}
+		}
+	}
+
+	private void writeRaw(String text) throws IOException {
+		ctx.outputStream().write(text.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Writes one object to the response.
+	 *
+	 * @param row the object to write
+	 * @throws IOException if the response cannot be written
+	 */
+	public void write(Object row) throws IOException {
+		if (!started) {
+			start();
+		}
+		if (generator != null) {
+			generator.writeObject(row);
+			if (ndjson) {
+				generator.writeRaw('\n');
+			}
+			return;
+		}
+		String json = mapper.toJsonString(row, row.getClass());
+		if (ndjson) {
+			writeRaw(json + "\n");
+		} else {
+			writeRaw(rows > 0 ? "," + json : json);
+		}
+		rows++;
+	}
+
+	/**
+	 * Finishes the response, after every row has been written.
+	 *
+	 * @throws IOException if the response cannot be written
+	 */
+	public void finish() throws IOException {
+		if (!started) {
+			start();
+		}
+		finished = true;
+		if (generator != null) {
+			if (!ndjson) {
+				generator.writeEndArray();
+			}
+			generator.close();
+		} else if (!ndjson) {
+			writeRaw("]");
+		}
+	}
+
+	/**
+	 * Closes the writer. If it was not finished and rows have already been
+	 * sent, the connection is broken off, as the response can no longer be
+	 * turned into an error. If no rows were sent nothing happens, and the
+	 * caller can send something else instead.
+	 */
+	@Override
+	public void close() {
+		if (started && !finished) {
+			abort();
+		}
+	}
+
+	/**
+	 * Breaks off the connection without ending the response. Closing the
+	 * output stream would end it as if it were complete.
+	 */
+	private void abort() {
+		finished = true;
+		if (ctx.req() == null) {
+			return;
+		}
+		Request request = Request.getBaseRequest(ctx.req());
+		if (request != null) {
+			request.getHttpChannel().abort(new IOException("Streamed response failed part of the way through"));
+		}
+	}
+}
@@ -0,0 +1,113 @@
+package com.flickfinder.controller;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.eclipse.jetty.server.Response;
+
+import com.flickfinder.util.Metrics;
+
+import io.javalin.http.Context;
+
+/**
+ * The controller for the metrics endpoint. It also records every request, as
+ * Javalin's request logger, so that each route has a count by status, a
+ * latency histogram and the number of bytes sent.
+ */
+public class MetricsController {
+
+	/**
+	 * The metrics to export.
+	 */
+	private final Metrics metrics;
+
+	/**
+	 * The metrics of each route, by method and path pattern.
+	 */
+	private final ConcurrentMap<String, RouteMetrics> routes = new ConcurrentHashMap<>();
+
+	/**
+	 * Constructs a MetricsController object.
+	 *
+	 * @param metrics the metrics to record requests in and to export
+	 */
+	public MetricsController(Metrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Returns every metric in the Prometheus text format.
+	 *
+	 * @param ctx the Javalin context
+	 */
+	public void getMetrics(Context ctx) {
+		ctx.contentType("text/plain; version=0.0.4; charset=utf-8");
+		ctx.result(metrics.scrape());
+	}
+
+	/**
+	 * Records a request once its response has been sent. The route is the path
+	 * pattern that matched, such as /movies/{id}, so every movie counts
+	 * towards the same route.
+	 *
+	 * @param ctx            the Javalin context
+	 * @param executionMillis how long the request took
+	 */
+	public void record(Context ctx, Float executionMillis) {
+		String route;
+		try {
+			route = ctx.endpointHandlerPath();
+		} catch (RuntimeException e) {
+			route = null;
+		}
+		if (route == null || route.isEmpty() || route.equals("*")) {
+			route = "unmatched";
+		}
+		String method = ctx.method().name();
+		RouteMetrics metricsOfRoute = routes.computeIfAbsent(method + " " + route,
+				key -> new RouteMetrics(metrics, key.substring(0, key.indexOf(' ')), key.substring(key.indexOf(' ') + 1)));
+		metricsOfRoute.record(ctx.statusCode(), (long) (executionMillis * 1_000_000L), bytesWritten(ctx));
+	}
+
+	/**
+	 * Returns the number of bytes of the response body written to Jetty's
+	 * output. The channel's own count is only brought up to date once the
+	 * response is complete, which is after the request logger runs.
+	 */
+	private static long bytesWritten(Context ctx) {
+		if (ctx.res() instanceof Response) {
+			return ((Response) ctx.res()).getHttpOutput().getWritten();
+		}
+		return 0;
+	}
+
+	/**
+	 * The metrics of one route.
+	 */
+	private static class RouteMetrics {
+		final Metrics metrics;
+		final String method;
+		final String route;
+		final Metrics.Histogram duration;
+		final Metrics.Counter bytes;
+		final ConcurrentMap<Integer, Metrics.Counter> statuses = new ConcurrentHashMap<>();
+
+		RouteMetrics(Metrics metrics, String method, String route) {
+			this.metrics = metrics;
+			this.method = method;
+			this.route = route;
+			duration = metrics.histogram("flickfinder_http_request_duration_seconds", "Time taken to answer requests",
+					"method", method, "route", route);
+			bytes = metrics.counter("flickfinder_http_response_bytes_total", "Bytes of response bodies sent",
+					"method", method, "route", route);
+		}
+
+		void record(int status, long nanos, long bytesWritten) {
+			statuses.computeIfAbsent(status, code -> metrics.counter("flickfinder_http_requests_total",
+					"Requests answered, by status", "method", method, "route", route, "status", String.valueOf(code)))
+					.increment();
+			duration.observeNanos(nanos);
+			bytes.add(bytesWritten);
+		}
+	}
+}
@@ -1,8 +1,19 @@
 package com.flickfinder.controller;
 
+import java.io.IOException;
 import java.sql.SQLException;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import com.flickfinder.dao.MovieDAO;
+import com.flickfinder.model.Batch;
 import com.flickfinder.model.Movie;
+import com.flickfinder.model.Person;
+import com.flickfinder.util.Cursor;
+import com.flickfinder.util.IdList;
+import com.flickfinder.util.Settings;
 
 import io.javalin.http.Context;
 
@@ -24,6 +35,18 @@ import io.javalin.http.Context;
 
 public class MovieController {
 
+	private static final Logger LOG = LoggerFactory.getLogger(MovieController.class);
+
+	/**
+	 * The most results a search may return.
+	 */
+	public static final int SEARCH_MAX_LIMIT = Settings.getInt("search.maxLimit", 100);
+
+	/**
+	 * The most movies a page may hold when paging with after or cursor.
+	 */
+	public static final int PAGE_MAX_LIMIT = Settings.getInt("page.maxLimit", 1000);
+
 	/**
 	 * The movie data access object.
 	 */
@@ -42,20 +65,44 @@ public class MovieController {
 	 * If there is a limit query then the limit is given
 	 * If there is no limit then the base limit is 50
 	 * 
+	 * If there is an after or cursor query then one page of movies is returned
+	 * instead, along with a token for the next page, with at most
+	 * {@link #PAGE_MAX_LIMIT} movies on it
+	 * 
+	 * Long lists, or any list if the client asks for it, are streamed to the
+	 * client as they are read (see {@link JsonStreamWriter})
+	 * 
 	 * @param ctx the Javalin context
 	 */
 	public void getAllMovies(Context ctx) {
 		try {
 			String limit = ctx.queryParam("limit");
-			if (limit != null) {
-				ctx.json(movieDAO.getAllMovies(Integer.parseInt(limit)));
-			} else {
-				ctx.json(movieDAO.getAllMovies(50));
+			String after = ctx.queryParam("after");
+			String cursor = ctx.queryParam("cursor");
+			if (after != null || cursor != null) {
+				int afterId = cursor != null ? Cursor.decode(cursor) : Integer.parseInt(after);
+				ctx.json(movieDAO.getMoviesAfter(afterId,
+						Math.min(limit != null ? Integer.parseInt(limit) : 50, PAGE_MAX_LIMIT)));
+				return;
 			}
+			int rows = limit != null ? Integer.parseInt(limit) : 50;
+			if (JsonStreamWriter.wanted(ctx, rows)) {
+				try (JsonStreamWriter writer = JsonStreamWriter.open(ctx)) {
+					movieDAO.streamAllMovies(rows, writer::write);
+					writer.finish();
+				}
+				return;
+			}
+			ctx.json(movieDAO.getAllMovies(rows));
 		} catch (SQLException e) {
 			ctx.status(500);
 			ctx.result("Database error");
 			e.printStackTrace();
+		} catch (IOException e) {
+			LOG.debug("Could not write streamed response", e);
+		} catch (IllegalArgumentException e) {
+			ctx.status(400);
+			ctx.result("Invalid query parameter");
 		}
 	}
 
@@ -73,7 +120,7 @@ public class MovieController {
 				ctx.result("Movie not found");
 				return;
 			}
-			ctx.json(movieDAO.getMovieById(id));
+			ctx.json(movie);
 		} catch (SQLException e) {
 			ctx.status(500);
 			ctx.result("Database error");
@@ -82,25 +129,134 @@ public class MovieController {
 	}
 
 	/**
-	 * Returns the stars of a specific movie using its unique id Checks if the movie
-	 * exists before continuing
+	 * Searches titles for the words in the q query
+	 * The best matches come first, and each word may be the start of a longer
+	 * word so results can be shown while the user is still typing
+	 * If there is a limit query then at most that many movies are returned,
+	 * up to a maximum of {@link #SEARCH_MAX_LIMIT}; if not the base limit is 20
+	 * 
+	 * @param ctx the Javalin context
+	 */
+	public void searchMovies(Context ctx) {
+		try {
+			String limit = ctx.queryParam("limit");
+			int rows = limit != null ? Integer.parseInt(limit) : 20;
+			if (rows <= 0) {
+				rows = 20;
+			}
+			ctx.json(movieDAO.searchMovies(ctx.queryParam("q"), Math.min(rows, SEARCH_MAX_LIMIT)));
+		} catch (SQLException e) {
+			ctx.status(500);
+			ctx.result("Database error");
+			e.printStackTrace();
+		} catch (IllegalArgumentException e) {
+			ctx.status(400);
+			ctx.result(e instanceof NumberFormatException ? "Invalid query parameter" : e.getMessage());
+		}
+	}
+
+	/**
+	 * Returns the movies with the given ids, in the order they were asked for.
+	 * The ids come from the ids query parameter, or else from the request body,
+	 * as a JSON array or a comma separated list
+	 * Ids that do not match a movie are listed as missing
+	 * 
+	 * @param ctx the Javalin context
+	 */
+	public void getMoviesByIds(Context ctx) {
+		try {
+			String ids = ctx.queryParam("ids");
+			int[] movieIds = IdList.parse(ids != null ? ids : ctx.body());
+			ctx.json(Batch.of(movieIds, movieDAO.getMoviesByIds(movieIds)));
+		} catch (SQLException e) {
+			ctx.status(500);
+			ctx.result("Database error");
+			e.printStackTrace();
+		} catch (IllegalArgumentException e) {
+			ctx.status(400);
+			ctx.result(e.getMessage());
+		}
+	}
+
+	/**
+	 * Returns the stars of a specific movie using its unique id
+	 * The movie is checked for in the same query, so a missing movie is a 404
 	 * 
 	 * @param ctx the Javalin context
 	 */
 	public void getPeopleByMovieId(Context ctx) {
 		int id = Integer.parseInt(ctx.pathParam("id"));
 		try {
-			Movie movie = movieDAO.getMovieById(id);
-			if (movie == null) {
+			if (JsonStreamWriter.wanted(ctx, 0)) {
+				try (JsonStreamWriter writer = JsonStreamWriter.open(ctx)) {
+					if (movieDAO.streamPeopleByMovieId(id, writer::write)) {
+						writer.finish();
+					} else {
+						ctx.status(404);
+						ctx.result("Movie not found");
+					}
+				}
+				return;
+			}
+			List<Person> people = movieDAO.findPeopleByMovieId(id);
+			if (people == null) {
+				ctx.status(404);
+				ctx.result("Movie not found");
+				return;
+			}
+			ctx.json(people);
+		} catch (SQLException e) {
+			ctx.status(500);
+			ctx.result("Database error");
+			e.printStackTrace();
+		} catch (IOException e) {
+			LOG.debug("Could not write streamed response", e);
+		}
+	}
+
+	/**
+	 * Returns the directors of a specific movie using its unique id
+	 * The movie is checked for in the same query, so a missing movie is a 404
+	 * 
+	 * @param ctx the Javalin context
+	 */
+	public void getDirectorsByMovieId(Context ctx) {
+		int id = Integer.parseInt(ctx.pathParam("id"));
+		try {
+			List<Person> people = movieDAO.findDirectorsByMovieId(id);
+			if (people == null) {
 				ctx.status(404);
 				ctx.result("Movie not found");
 				return;
 			}
-			ctx.json(movieDAO.getPeopleByMovieId(id));
+			ctx.json(people);
+		} catch (SQLException e) {
+			ctx.status(500);
+			ctx.result("Database error");
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Returns the directors of each of the movies with the given ids, in the
+	 * order they were asked for. The ids are read as for
+	 * {@link #getMoviesByIds(Context)}
+	 * Ids that do not match a movie are listed as missing
+	 * 
+	 * @param ctx the Javalin context
+	 */
+	public void getDirectorsByMovieIds(Context ctx) {
+		try {
+			String ids = ctx.queryParam("ids");
+			int[] movieIds = IdList.parse(ids != null ? ids : ctx.body());
+			ctx.json(Batch.of(movieIds, movieDAO.getDirectorsByMovieIds(movieIds)));
 		} catch (SQLException e) {
 			ctx.status(500);
 			ctx.result("Database error");
 			e.printStackTrace();
+		} catch (IllegalArgumentException e) {
+			ctx.status(400);
+			ctx.result(e.getMessage());
 		}
 	}
 
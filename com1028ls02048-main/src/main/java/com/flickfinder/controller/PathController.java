@@ -0,0 +1,92 @@
+package com.flickfinder.controller;
+
+import java.sql.SQLException;
+
+import com.flickfinder.dao.CoStarGraph;
+import com.flickfinder.dao.MovieDAO;
+import com.flickfinder.dao.PersonDAO;
+import com.flickfinder.model.PersonPath;
+import com.flickfinder.util.Settings;
+
+import io.javalin.http.Context;
+
+/**
+ * The controller for finding how two people are connected through the movies
+ * they starred in. The path is found in the in-memory {@link CoStarGraph},
+ * and only the people and movies on it are then read from the DAOs.
+ */
+public class PathController {
+
+	/**
+	 * The most movies a path may have.
+	 */
+	public static final int MAX_HOPS = Settings.getInt("path.maxHops", 6);
+
+	/**
+	 * The graph of who starred with whom.
+	 */
+	private final CoStarGraph graph;
+
+	/**
+	 * The person data access object.
+	 */
+	private final PersonDAO personDAO;
+
+	/**
+	 * The movie data access object.
+	 */
+	private final MovieDAO movieDAO;
+
+	/**
+	 * Constructs a PathController object.
+	 *
+	 * @param graph     the graph of who starred with whom
+	 * @param personDAO the DAO to read the people on a path from
+	 * @param movieDAO  the DAO to read the movies on a path from
+	 */
+	public PathController(CoStarGraph graph, PersonDAO personDAO, MovieDAO movieDAO) {
+		this.graph = graph;
+		this.personDAO = personDAO;
+		this.movieDAO = movieDAO;
+	}
+
+	/**
+	 * Returns the shortest chain of movies from person a to person b
+	 * If there is a maxHops query then the path may have at most that many
+	 * movies, up to a maximum of {@link #MAX_HOPS}, which is also the default
+	 * Either person not existing is a 404, as is there being no path
+	 *
+	 * @param ctx the Javalin context
+	 */
+	public void getPath(Context ctx) {
+		try {
+			int from = Integer.parseInt(ctx.pathParam("a"));
+			int to = Integer.parseInt(ctx.pathParam("b"));
+			String maxHopsQuery = ctx.queryParam("maxHops");
+			int maxHops = Math.min(maxHopsQuery != null ? Integer.parseInt(maxHopsQuery) : MAX_HOPS, MAX_HOPS);
+			if (maxHops < 0) {
+				throw new NumberFormatException("Negative maxHops");
+			}
+			if (!graph.hasPerson(from) || !graph.hasPerson(to)) {
+				ctx.status(404);
+				ctx.result("Person not found");
+				return;
+			}
+			CoStarGraph.Chain chain = graph.shortestPath(from, to, maxHops);
+			if (chain == null) {
+				ctx.status(404);
+				ctx.result("No path found");
+				return;
+			}
+			ctx.json(new PersonPath(personDAO.getPeopleByIds(chain.getPersonIds()),
+					movieDAO.getMoviesByIds(chain.getMovieIds())));
+		} catch (SQLException e) {
+			ctx.status(500);
+			ctx.result("Database error");
+			e.printStackTrace();
+		} catch (NumberFormatException e) {
+			ctx.status(400);
+			ctx.result("Invalid query parameter");
+		}
+	}
+}
@@ -1,14 +1,36 @@
 package com.flickfinder.controller;
 
+import java.io.IOException;
 import java.sql.SQLException;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.flickfinder.dao.PersonDAO;
+import com.flickfinder.model.Batch;
+import com.flickfinder.model.Movie;
 import com.flickfinder.model.Person;
+import com.flickfinder.util.Cursor;
+import com.flickfinder.util.IdList;
+import com.flickfinder.util.Settings;
 
 import io.javalin.http.Context;
 
 public class PersonController {
 
+	private static final Logger LOG = LoggerFactory.getLogger(PersonController.class);
+
+	/**
+	 * The most results a search may return.
+	 */
+	public static final int SEARCH_MAX_LIMIT = Settings.getInt("search.maxLimit", 100);
+
+	/**
+	 * The most people a page may hold when paging with after or cursor.
+	 */
+	public static final int PAGE_MAX_LIMIT = Settings.getInt("page.maxLimit", 1000);
+
 	/**
 	 * The person data access object.
 	 */
@@ -26,20 +48,44 @@ public class PersonController {
 	 * If there is a limit query then the limit is given
 	 * If there is no limit then the base limit is 50
 	 * 
+	 * If there is an after or cursor query then one page of people is returned
+	 * instead, along with a token for the next page, with at most
+	 * {@link #PAGE_MAX_LIMIT} people on it
+	 * 
+	 * Long lists, or any list if the client asks for it, are streamed to the
+	 * client as they are read (see {@link JsonStreamWriter})
+	 * 
 	 * @param ctx the Javalin context
 	 */
 	public void getAllPeople(Context ctx) {
 		try {
 			String limit = ctx.queryParam("limit");
-			if (limit != null) {
-				ctx.json(personDAO.getAllPeople(Integer.parseInt(limit)));
-			} else {
-				ctx.json(personDAO.getAllPeople(50));
+			String after = ctx.queryParam("after");
+			String cursor = ctx.queryParam("cursor");
+			if (after != null || cursor != null) {
+				int afterId = cursor != null ? Cursor.decode(cursor) : Integer.parseInt(after);
+				ctx.json(personDAO.getPeopleAfter(afterId,
+						Math.min(limit != null ? Integer.parseInt(limit) : 50, PAGE_MAX_LIMIT)));
+				return;
 			}
+			int rows = limit != null ? Integer.parseInt(limit) : 50;
+			if (JsonStreamWriter.wanted(ctx, rows)) {
+				try (JsonStreamWriter writer = JsonStreamWriter.open(ctx)) {
+					personDAO.streamAllPeople(rows, writer::write);
+					writer.finish();
+				}
+				return;
+			}
+			ctx.json(personDAO.getAllPeople(rows));
 		} catch (SQLException e) {
 			ctx.status(500);
 			ctx.result("Database error");
 			e.printStackTrace();
+		} catch (IOException e) {
+			LOG.debug("Could not write streamed response", e);
+		} catch (IllegalArgumentException e) {
+			ctx.status(400);
+			ctx.result("Invalid query parameter");
 		}
 	}
 
@@ -58,34 +104,143 @@ public class PersonController {
 				ctx.result("Person not found");
 				return;
 			}
-			ctx.json(personDAO.getPersonById(id));
+			ctx.json(person);
+		} catch (SQLException e) {
+			ctx.status(500);
+			ctx.result("Database error");
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Searches names for the words in the q query
+	 * The best matches come first, and each word may be the start of a longer
+	 * word so results can be shown while the user is still typing
+	 * If there is a limit query then at most that many people are returned,
+	 * up to a maximum of {@link #SEARCH_MAX_LIMIT}; if not the base limit is 20
+	 * 
+	 * @param ctx the Javalin context
+	 */
+	public void searchPeople(Context ctx) {
+		try {
+			String limit = ctx.queryParam("limit");
+			int rows = limit != null ? Integer.parseInt(limit) : 20;
+			if (rows <= 0) {
+				rows = 20;
+			}
+			ctx.json(personDAO.searchPeople(ctx.queryParam("q"), Math.min(rows, SEARCH_MAX_LIMIT)));
+		} catch (SQLException e) {
+			ctx.status(500);
+			ctx.result("Database error");
+			e.printStackTrace();
+		} catch (IllegalArgumentException e) {
+			ctx.status(400);
+			ctx.result(e instanceof NumberFormatException ? "Invalid query parameter" : e.getMessage());
+		}
+	}
+
+	/**
+	 * Returns the people with the given ids, in the order they were asked for.
+	 * The ids come from the ids query parameter, or else from the request body,
+	 * as a JSON array or a comma separated list
+	 * Ids that do not match a person are listed as missing
+	 * 
+	 * @param ctx the Javalin context
+	 */
+	public void getPeopleByIds(Context ctx) {
+		try {
+			String ids = ctx.queryParam("ids");
+			int[] personIds = IdList.parse(ids != null ? ids : ctx.body());
+			ctx.json(Batch.of(personIds, personDAO.getPeopleByIds(personIds)));
 		} catch (SQLException e) {
 			ctx.status(500);
 			ctx.result("Database error");
 			e.printStackTrace();
+		} catch (IllegalArgumentException e) {
+			ctx.status(400);
+			ctx.result(e.getMessage());
 		}
 	}
 
 	/**
-	 * Checks if the person exists
 	 * Returns the movies that the person starred in
+	 * The person is checked for in the same query, so a missing person is a 404
 	 * 
 	 * @param ctx the Javalin context
 	 */
 	public void getMoviesStarringPerson(Context ctx) {
 		int id = Integer.parseInt(ctx.pathParam("id"));
 		try {
-			Person person = personDAO.getPersonById(id);
-			if (person == null) {
+			if (JsonStreamWriter.wanted(ctx, 0)) {
+				try (JsonStreamWriter writer = JsonStreamWriter.open(ctx)) {
+					if (personDAO.streamMoviesStarringPerson(id, writer::write)) {
+						writer.finish();
+					} else {
+						ctx.status(404);
+						ctx.result("Person not found");
+					}
+				}
+				return;
+			}
+			List<Movie> movies = personDAO.findMoviesStarringPerson(id);
+			if (movies == null) {
+				ctx.status(404);
+				ctx.result("Person not found");
+				return;
+			}
+			ctx.json(movies);
+		} catch (SQLException e) {
+			ctx.status(500);
+			ctx.result("Database error");
+			e.printStackTrace();
+		} catch (IOException e) {
+			LOG.debug("Could not write streamed response", e);
+		}
+	}
+
+	/**
+	 * Returns the movies that the person directed
+	 * The person is checked for in the same query, so a missing person is a 404
+	 * 
+	 * @param ctx the Javalin context
+	 */
+	public void getMoviesDirectedByPerson(Context ctx) {
+		int id = Integer.parseInt(ctx.pathParam("id"));
+		try {
+			List<Movie> movies = personDAO.findMoviesDirectedByPerson(id);
+			if (movies == null) {
 				ctx.status(404);
 				ctx.result("Person not found");
 				return;
 			}
-			ctx.json(personDAO.getMoviesStarringPerson(id));
+			ctx.json(movies);
+		} catch (SQLException e) {
+			ctx.status(500);
+			ctx.result("Database error");
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Returns the movies that each of the people with the given ids directed,
+	 * in the order they were asked for. The ids are read as for
+	 * {@link #getPeopleByIds(Context)}
+	 * Ids that do not match a person are listed as missing
+	 * 
+	 * @param ctx the Javalin context
+	 */
+	public void getMoviesDirectedByPeople(Context ctx) {
+		try {
+			String ids = ctx.queryParam("ids");
+			int[] personIds = IdList.parse(ids != null ? ids : ctx.body());
+			ctx.json(Batch.of(personIds, personDAO.getMoviesDirectedByPeople(personIds)));
 		} catch (SQLException e) {
 			ctx.status(500);
 			ctx.result("Database error");
 			e.printStackTrace();
+		} catch (IllegalArgumentException e) {
+			ctx.status(400);
+			ctx.result(e.getMessage());
 		}
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,244 @@
+package com.flickfinder.controller;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.javalin.http.Context;
+import io.javalin.http.Handler;
+
+/**
+ * A cache of whole responses, placed in front of the controller methods.
+ *
+ * The database is read-only, so the same request always gets the same answer,
+ * and most of our traffic asks for the same few hundred years and popular ids.
+ * {@link #wrap(Handler)} returns a handler that first looks the request up in
+ * the cache, and only calls the controller on a miss. The JSON the controller
+ * produced is stored as bytes, so a hit is answered without touching the DAO
+ * or serializing anything.
+ *
+ * Requests are keyed by their path and their query parameters, sorted by name,
+ * so {@code ?limit=5&votes=10} and {@code ?votes=10&limit=5} share an entry.
+ * The cache is bounded by both the number of entries and their total size in
+ * bytes; the least recently used entries are evicted first. Entries also
+ * expire after a fixed time.
+ *
+ * Only successful responses are cached. Streamed responses (see
+ * {@link JsonStreamWriter}) are neither cached nor answered from the cache.
+ *
+ */
+public class ResponseCache {
+
+	private final int maxEntries;
+	private final long maxBytes;
+	private final long ttlNanos;
+
+	/**
+	 * The entries, in order of last use, least recent first.
+	 */
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private long bytes;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * A cached response.
+	 */
+	static class Entry {
+		final byte[] body;
+		final String contentType;
+		final long expires;
+
+		Entry(byte[] body, String contentType, long expires) {
+			this.body = body;
+			this.contentType = contentType;
+			this.expires = expires;
+		}
+	}
+
+	/**
+	 * Creates an empty cache.
+	 *
+	 * @param maxEntries the most responses to hold
+	 * @param maxBytes   the most bytes of responses to hold
+	 * @param ttlMillis  how long a response is kept, in milliseconds
+	 */
+	public ResponseCache(int maxEntries, long maxBytes, long ttlMillis) {
+		this.maxEntries = maxEntries;
+		this.maxBytes = maxBytes;
+		this.ttlNanos = ttlMillis * 1_000_000;
+	}
+
+	/**
+	 * Wraps a controller method so that its responses are cached.
+	 *
+	 * @param handler the controller method
+	 * @return a handler that answers from the cache when it can
+	 */
+	public Handler wrap(Handler handler) {
+		return ctx -> {
+			if (JsonStreamWriter.wanted(ctx, 0)) {
+				handler.handle(ctx);
+				return;
+			}
+			String key = keyOf(ctx);
+			Entry entry = get(key);
+			if (entry != null) {
+				if (entry.contentType != null) {
+					ctx.contentType(entry.contentType);
+				}
+				ctx.result(entry.body);
+				return;
+			}
+			handler.handle(ctx);
+			if (ctx.statusCode() == 200) {
+				byte[] body = readResult(ctx);
+				if (body != null) {
+					put(key, body, ctx.res().getContentType());
+				}
+			}
+		};
+	}
+
+	/**
+	 * Reads the response the controller produced, and puts it back so it can
+	 * still be sent.
+	 */
+	private static byte[] readResult(Context ctx) throws IOException {
+		InputStream result = ctx.resultInputStream();
+		if (result == null) {
+			return null;
+		}
+		byte[] body = result.readAllBytes();
+		ctx.result(body);
+		return body;
+	}
+
+	/**
+	 * Returns the cache key of a request: its path followed by its query
+	 * parameters, sorted by name.
+	 *
+	 * @param ctx the Javalin context
+	 * @return the key
+	 */
+	static String keyOf(Context ctx) {
+		StringBuilder key = new StringBuilder(ctx.path());
+		char separator = '?';
+		for (Map.Entry<String, List<String>> param : new TreeMap<>(ctx.queryParamMap()).entrySet()) {
+			for (String value : param.getValue()) {
+				key.append(separator).append(param.getKey()).append('=').append(value);
+				separator = '&';
+			}
+		}
+		return key.toString();
+	}
+
+	/**
+	 * Looks up a response, counting a hit or a miss.
+	 *
+	 * @param key the cache key of the request
+	 * @return the response, or null if it is not cached or has expired
+	 */
+	synchronized Entry get(String key) {
+		Entry entry = entries.get(key);
+		if (entry != null && entry.expires - System.nanoTime() < 0) {
+			entries.remove(key);
+			bytes -= entry.body.length;
+			evictions.increment();
+			entry = null;
+		}
+		if (entry == null) {
+			misses.increment();
+		} else {
+			hits.increment();
+		}
+		return entry;
+	}
+
+	/**
+	 * Stores a response, evicting the least recently used responses if the
+	 * cache is full. A response larger than the whole cache is not stored.
+	 *
+	 * @param key         the cache key of the request
+	 * @param body        the body of the response
+	 * @param contentType the content type of the response
+	 */
+	synchronized void put(String key, byte[] body, String contentType) {
+		if (body.length > maxBytes) {
+			return;
+		}
+		Entry entry = new Entry(body, contentType, System.nanoTime() + ttlNanos);
+		Entry old = entries.put(key, entry);
+		if (old != null) {
+			bytes -= old.body.length;
+		}
+		bytes += entry.body.length;
+		Iterator<Entry> eldest = entries.values().iterator();
+		while (entries.size() > maxEntries || bytes > maxBytes) {
+			bytes -= eldest.next().body.length;
+			eldest.remove();
+			evictions.increment();
+		}
+	}
+
+	/**
+	 * Removes every response from the cache.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		bytes = 0;
+	}
+
+	/**
+	 * Returns the number of responses in the cache.
+	 *
+	 * @return the number of cached responses
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Returns the total size of the responses in the cache.
+	 *
+	 * @return the size of the cached responses, in bytes
+	 */
+	public synchronized long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * Returns the number of requests answered from the cache.
+	 *
+	 * @return the number of hits
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * Returns the number of requests that had to be passed to the controller.
+	 *
+	 * @return the number of misses
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * Returns the number of responses removed to make room, or because they
+	 * expired.
+	 *
+	 * @return the number of evictions
+	 */
+	public long getEvictions() {
+		return evictions.sum();
+	}
+}
@@ -0,0 +1,98 @@
+package com.flickfinder.controller;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.flickfinder.dao.MovieDAO;
+import com.flickfinder.dao.SimilarMovieIndex;
+import com.flickfinder.model.Movie;
+import com.flickfinder.model.SimilarMovie;
+import com.flickfinder.util.Settings;
+
+import io.javalin.http.Context;
+
+/**
+ * The controller for finding movies with casts like that of another movie.
+ * The movies are found in the in-memory {@link SimilarMovieIndex}, and only
+ * those returned are then read from the DAO.
+ */
+public class SimilarMoviesController {
+
+	/**
+	 * The most movies that can be asked for at once.
+	 */
+	public static final int MAX_K = Settings.getInt("similar.maxK", 100);
+
+	/**
+	 * The index of movie casts.
+	 */
+	private final SimilarMovieIndex index;
+
+	/**
+	 * The movie data access object.
+	 */
+	private final MovieDAO movieDAO;
+
+	/**
+	 * Constructs a SimilarMoviesController object.
+	 *
+	 * @param index    the index of movie casts
+	 * @param movieDAO the DAO to read the similar movies from
+	 */
+	public SimilarMoviesController(SimilarMovieIndex index, MovieDAO movieDAO) {
+		this.index = index;
+		this.movieDAO = movieDAO;
+	}
+
+	/**
+	 * Returns the movies whose casts are most like that of the given movie
+	 * If there is a k query then at most that many movies are returned, up to
+	 * a maximum of {@link #MAX_K}; if not the base k is 10
+	 * If weighted is true then movies with more votes are ranked higher
+	 * A movie with no stars has no similar movies
+	 *
+	 * @param ctx the Javalin context
+	 */
+	public void getSimilarMovies(Context ctx) {
+		try {
+			int id = Integer.parseInt(ctx.pathParam("id"));
+			String k = ctx.queryParam("k");
+			int rows = Math.min(k != null ? Integer.parseInt(k) : 10, MAX_K);
+			if (rows <= 0) {
+				throw new NumberFormatException("k must be positive");
+			}
+			List<SimilarMovieIndex.Match> matches = index.similar(id, rows,
+					Boolean.parseBoolean(ctx.queryParam("weighted")));
+			if (matches == null) {
+				ctx.status(404);
+				ctx.result("Movie not found");
+				return;
+			}
+			int[] ids = new int[matches.size()];
+			for (int i = 0; i < ids.length; i++) {
+				ids[i] = matches.get(i).getMovieId();
+			}
+			// The movies come back in the order of the ids, with null for any
+			// that are not in the database
+			List<Movie> movies = movieDAO.getMoviesByIds(ids);
+			List<SimilarMovie> similar = new ArrayList<>(matches.size());
+			for (int i = 0; i < ids.length; i++) {
+				Movie movie = movies.get(i);
+				if (movie != null) {
+					SimilarMovieIndex.Match match = matches.get(i);
+					similar.add(new SimilarMovie(movie.getId(), movie.getTitle(), movie.getYear(),
+							match.getSharedStars(), match.getSimilarity()));
+				}
+			}
+			ctx.json(similar);
+		} catch (SQLException e) {
+			ctx.status(500);
+			ctx.result("Database error");
+			e.printStackTrace();
+		} catch (NumberFormatException e) {
+			ctx.status(400);
+			ctx.result("Invalid query parameter");
+		}
+	}
+}
@@ -0,0 +1,92 @@
+package com.flickfinder.controller;
+
+import com.flickfinder.dao.CareerStatistics;
+import com.flickfinder.dao.YearStatistics;
+import com.flickfinder.model.PersonStats;
+import com.flickfinder.model.YearStats;
+
+import io.javalin.http.Context;
+
+/**
+ * The controller for the statistics of the movies of each year and of the
+ * career of each person. These are worked out once at startup by
+ * {@link YearStatistics} and {@link CareerStatistics}, so no request reads the
+ * database.
+ */
+public class StatsController {
+
+	/**
+	 * The statistics of each year.
+	 */
+	private final YearStatistics yearStatistics;
+
+	/**
+	 * The career statistics of each person.
+	 */
+	private final CareerStatistics careerStatistics;
+
+	/**
+	 * Constructs a StatsController object.
+	 *
+	 * @param yearStatistics   the statistics of each year
+	 * @param careerStatistics the career statistics of each person
+	 */
+	public StatsController(YearStatistics yearStatistics, CareerStatistics careerStatistics) {
+		this.yearStatistics = yearStatistics;
+		this.careerStatistics = careerStatistics;
+	}
+
+	/**
+	 * Returns the statistics of every year with at least one movie, earliest
+	 * first
+	 *
+	 * @param ctx the Javalin context
+	 */
+	public void getYears(Context ctx) {
+		ctx.json(yearStatistics.getYears());
+	}
+
+	/**
+	 * Returns the statistics of one year
+	 * If no movies came out that year then a 404 is returned
+	 *
+	 * @param ctx the Javalin context
+	 */
+	public void getYear(Context ctx) {
+		try {
+			YearStats stats = yearStatistics.getYear(Integer.parseInt(ctx.pathParam("year")));
+			if (stats == null) {
+				ctx.status(404);
+				ctx.result("Year not found");
+				return;
+			}
+			ctx.json(stats);
+		} catch (NumberFormatException e) {
+			ctx.status(400);
+			ctx.result("Invalid query parameter");
+		}
+	}
+
+	/**
+	 * Returns the career statistics of a person: the first and last year of
+	 * the movies they starred in or directed, how many of each, and the average
+	 * and vote-weighted rating of those movies
+	 * If the person does not exist then a 404 is returned
+	 *
+	 * @param ctx the Javalin context
+	 */
+	public void getPersonStats(Context ctx) {
+		try {
+			PersonStats stats = careerStatistics.getPerson(Integer.parseInt(ctx.pathParam("id")));
+			if (stats == null) {
+				ctx.status(404);
+				ctx.result("Person not found");
+				return;
+			}
+			ctx.json(stats);
+		} catch (NumberFormatException e) {
+			ctx.status(400);
+			ctx.result("Invalid query parameter");
+		}
+	}
+}
@@ -0,0 +1,121 @@
+package com.flickfinder.dao;
+
+import java.util.Arrays;
+
+/**
+ * A compact, read-only list of links from one set of rows to another, stored
+ * in compressed sparse row (CSR) form.
+ *
+ * For example, the stars of each movie: the people starring in the movie at
+ * index {@code i} are {@code targets[offsets[i]]} up to (but not including)
+ * {@code targets[offsets[i + 1]]}. Rows and targets are indexes into the
+ * arrays of a {@link Snapshot}, not database ids.
+ *
+ */
+public class Adjacency {
+
+	private final int[] offsets;
+	private final int[] targets;
+
+	private Adjacency(int[] offsets, int[] targets) {
+		this.offsets = offsets;
+		this.targets = targets;
+	}
+
+	/**
+	 * Builds the links from pairs of (source, target) indexes. The targets of
+	 * each source are sorted in ascending order.
+	 *
+	 * @param sourceCount the number of source rows
+	 * @param sources     the source index of each pair
+	 * @param targets     the target index of each pair
+	 * @param pairs       the number of pairs
+	 * @return the links
+	 */
+	public static Adjacency build(int sourceCount, int[] sources, int[] targets, int pairs) {
+		int[] offsets = new int[sourceCount + 1];
+		for (int i = 0; i < pairs; i++) {
+			offsets[sources[i] + 1]++;
+		}
+		for (int i = 0; i < sourceCount; i++) {
+			offsets[i + 1] += offsets[i];
+		}
+		int[] next = Arrays.copyOf(offsets, sourceCount);
+		int[] sorted = new int[pairs];
+		for (int i = 0; i < pairs; i++) {
+			sorted[next[sources[i]]++] = targets[i];
+		}
+		for (int i = 0; i < sourceCount; i++) {
+			Arrays.sort(sorted, offsets[i], offsets[i + 1]);
+		}
+		return new Adjacency(offsets, sorted);
+	}
+
+	/**
+	 * Returns the position of the first target of a row.
+	 *
+	 * @param row the source row
+	 * @return the start position, for use with {@link #target(int)}
+	 */
+	public int start(int row) {
+		return offsets[row];
+	}
+
+	/**
+	 * Returns the position after the last target of a row.
+	 *
+	 * @param row the source row
+	 * @return the end position, for use with {@link #target(int)}
+	 */
+	public int end(int row) {
+		return offsets[row + 1];
+	}
+
+	/**
+	 * Returns the number of targets of a row.
+	 *
+	 * @param row the source row
+	 * @return the number of targets
+	 */
+	public int degree(int row) {
+		return offsets[row + 1] - offsets[row];
+	}
+
+	/**
+	 * Returns the target at a position.
+	 *
+	 * @param position a position between {@link #start(int)} and
+	 *                 {@link #end(int)}
+	 * @return the target index
+	 */
+	public int target(int position) {
+		return targets[position];
+	}
+
+	/**
+	 * Returns the number of source rows.
+	 *
+	 * @return the number of rows
+	 */
+	public int rows() {
+		return offsets.length - 1;
+	}
+
+	/**
+	 * Returns the total number of links.
+	 *
+	 * @return the number of links
+	 */
+	public int size() {
+		return targets.length;
+	}
+
+	/**
+	 * Returns the approximate number of bytes used by the links.
+	 *
+	 * @return the memory used, in bytes
+	 */
+	public long memoryBytes() {
+		return 4L * offsets.length + 4L * targets.length;
+	}
+}
@@ -0,0 +1,524 @@
+package com.flickfinder.dao;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.flickfinder.model.Movie;
+import com.flickfinder.model.Person;
+import com.flickfinder.util.Database;
+import com.flickfinder.util.StringPool;
+
+/**
+ * An in-memory index for suggesting movie titles or people's names as the
+ * user types.
+ *
+ * Each title is folded to lower case without accents or punctuation, and
+ * every word in it is an entry in a sorted array, so typing "godf" finds
+ * "The Godfather" as well as any title that starts with "Godf". The entries
+ * that start with a prefix are next to each other in the array and are found
+ * with two binary searches.
+ *
+ * Every row has a popularity: the number of votes of a movie, or the total
+ * votes of the movies a person starred in. A segment tree over the entries
+ * holds the most popular entry of each range, so the k most popular matches
+ * are picked in O(k log n) steps however many entries match, without
+ * looking at the rest.
+ *
+ * The index is immutable once built.
+ *
+ * @param <T> the type of the suggestions, {@link Movie} or {@link Person}
+ */
+public class AutocompleteIndex<T> {
+
+	private static final Logger LOG = LoggerFactory.getLogger(AutocompleteIndex.class);
+
+	/**
+	 * The query that loads every movie, in order of id.
+	 */
+	static final String SELECT_MOVIES = "SELECT id, title, year FROM movies ORDER BY id";
+
+	/**
+	 * The query that loads the votes of every movie, in order of id.
+	 */
+	static final String SELECT_VOTES = "SELECT movie_id, votes FROM ratings ORDER BY movie_id";
+
+	/**
+	 * The query that loads every person, in order of id.
+	 */
+	static final String SELECT_PEOPLE = "SELECT id, name, birth FROM people ORDER BY id";
+
+	/**
+	 * The query that loads who starred in what. The votes are looked up and
+	 * added up in Java, as joining the whole stars table to the ratings in
+	 * SQLite takes several times longer than reading both tables once.
+	 */
+	static final String SELECT_STARS = "SELECT person_id, movie_id FROM stars";
+
+	/**
+	 * Creates a suggestion from the stored columns of a row.
+	 */
+	@FunctionalInterface
+	public interface RowFactory<T> {
+		T create(int id, String label, int extra);
+	}
+
+	private final RowFactory<T> factory;
+
+	private final int[] ids;
+	private final int[] extras;
+	private final int[] popularity;
+	private final StringPool labels;
+
+	/**
+	 * The folded text of every row, one after another; the text of row i runs
+	 * from {@code textStarts[i]} to {@code textStarts[i + 1]}.
+	 */
+	private final char[] text;
+	private final int[] textStarts;
+
+	/**
+	 * The entries, sorted by the folded text from the start of the word to the
+	 * end of the row: the position of the word in {@link #text}, and its row.
+	 */
+	private final int[] entryPositions;
+	private final int[] entryRows;
+
+	/**
+	 * A segment tree over the entries. Leaf {@code size + i} is entry i, and
+	 * each node holds the entry with the highest popularity below it.
+	 */
+	private final int[] tree;
+	private final int size;
+
+	private AutocompleteIndex(RowFactory<T> factory, int[] ids, int[] extras, int[] popularity, StringPool labels,
+			char[] text, int[] textStarts, int[] entryPositions, int[] entryRows) {
+		this.factory = factory;
+		this.ids = ids;
+		this.extras = extras;
+		this.popularity = popularity;
+		this.labels = labels;
+		this.text = text;
+		this.textStarts = textStarts;
+		this.entryPositions = entryPositions;
+		this.entryRows = entryRows;
+
+		int n = entryPositions.length;
+		int leaves = 1;
+		while (leaves < n) {
+			leaves <<= 1;
+		}
+		this.size = leaves;
+		this.tree = new int[2 * leaves];
+		Arrays.fill(tree, -1);
+	}
+
+	/**
+	 * Builds the index of movie titles, ranked by votes.
+	 *
+	 * @param database the database to read the movies from
+	 * @return the index
+	 * @throws SQLException if a database error occurs
+	 */
+	public static AutocompleteIndex<Movie> loadMovies(Database database) throws SQLException {
+		return load(database, SELECT_MOVIES, false, Movie::new, "movie");
+	}
+
+	/**
+	 * Builds the index of people's names, ranked by the votes of the movies
+	 * they starred in.
+	 *
+	 * @param database the database to read the people from
+	 * @return the index
+	 * @throws SQLException if a database error occurs
+	 */
+	public static AutocompleteIndex<Person> loadPeople(Database database) throws SQLException {
+		return load(database, SELECT_PEOPLE, true, Person::new, "person");
+	}
+
+	/**
+	 * Builds an index from a query for the rows, in order of id. The rows are
+	 * movies, ranked by their own votes, or people, ranked by the votes of the
+	 * movies they starred in.
+	 */
+	private static <T> AutocompleteIndex<T> load(Database database, String rowsSql, boolean people,
+			RowFactory<T> factory, String kind) throws SQLException {
+		long start = System.nanoTime();
+		int capacity = 1024;
+		int[] ids = new int[capacity];
+		int[] extras = new int[capacity];
+		StringPool labels = new StringPool(capacity);
+		StringBuilder text = new StringBuilder();
+		int[] textStarts = new int[capacity + 1];
+		int rows = 0;
+
+		long[] votes;
+		try (Connection connection = database.getConnection(); Statement stmt = connection.createStatement()) {
+			try (ResultSet rs = stmt.executeQuery(rowsSql)) {
+				while (rs.next()) {
+					if (rows == capacity) {
+						capacity *= 2;
+						ids = Arrays.copyOf(ids, capacity);
+						extras = Arrays.copyOf(extras, capacity);
+						textStarts = Arrays.copyOf(textStarts, capacity + 1);
+					}
+					ids[rows] = rs.getInt(1);
+					String label = rs.getString(2);
+					labels.add(label);
+					extras[rows] = rs.getInt(3);
+					text.append(fold(label));
+					textStarts[rows + 1] = text.length();
+					rows++;
+				}
+			}
+			int[] movieIds = new int[1024];
+			long[] movieVotes = new long[1024];
+			int movies = 0;
+			try (ResultSet rs = stmt.executeQuery(SELECT_VOTES)) {
+				while (rs.next()) {
+					if (movies == movieIds.length) {
+						movieIds = Arrays.copyOf(movieIds, movies * 2);
+						movieVotes = Arrays.copyOf(movieVotes, movies * 2);
+					}
+					movieIds[movies] = rs.getInt(1);
+					movieVotes[movies++] = rs.getLong(2);
+				}
+			}
+
+			votes = new long[rows];
+			if (people) {
+				try (ResultSet rs = stmt.executeQuery(SELECT_STARS)) {
+					while (rs.next()) {
+						int row = Arrays.binarySearch(ids, 0, rows, rs.getInt(1));
+						int movie = Arrays.binarySearch(movieIds, 0, movies, rs.getInt(2));
+						if (row >= 0 && movie >= 0) {
+							votes[row] += movieVotes[movie];
+						}
+					}
+				}
+			} else {
+				for (int row = 0; row < rows; row++) {
+					int movie = Arrays.binarySearch(movieIds, 0, movies, ids[row]);
+					votes[row] = movie >= 0 ? movieVotes[movie] : 0;
+				}
+			}
+		}
+		int[] popularity = new int[rows];
+		for (int row = 0; row < rows; row++) {
+			popularity[row] = (int) Math.min(votes[row], Integer.MAX_VALUE);
+		}
+		labels.trim();
+
+		char[] chars = new char[text.length()];
+		text.getChars(0, text.length(), chars, 0);
+		int entries = 0;
+		for (int row = 0; row < rows; row++) {
+			for (int i = textStarts[row]; i < textStarts[row + 1]; i++) {
+				if (i == textStarts[row] || chars[i - 1] == ' ') {
+					entries++;
+				}
+			}
+		}
+		int[] positions = new int[entries];
+		int[] entryRows = new int[entries];
+		int entry = 0;
+		for (int row = 0; row < rows; row++) {
+			for (int i = textStarts[row]; i < textStarts[row + 1]; i++) {
+				if (i == textStarts[row] || chars[i - 1] == ' ') {
+					positions[entry] = i;
+					entryRows[entry] = row;
+					entry++;
+				}
+			}
+		}
+
+		AutocompleteIndex<T> index = new AutocompleteIndex<>(factory, Arrays.copyOf(ids, rows),
+				Arrays.copyOf(extras, rows), popularity, labels, chars,
+				Arrays.copyOf(textStarts, rows + 1), positions, entryRows);
+		index.sortEntries();
+		index.buildTree();
+		LOG.info("Built {} autocomplete index of {} rows and {} words in {} ms ({} KB)", kind, rows, entries,
+				(System.nanoTime() - start) / 1_000_000, index.memoryBytes() / 1024);
+		return index;
+	}
+
+	/**
+	 * Folds text for matching: accents are removed, letters are made lower
+	 * case, and anything that is not a letter or a digit separates words. The
+	 * result has single spaces between words and none at either end.
+	 *
+	 * @param value the text to fold
+	 * @return the folded text
+	 */
+	static String fold(String value) {
+		if (value == null) {
+			return "";
+		}
+		String decomposed = Normalizer.normalize(value, Normalizer.Form.NFD);
+		StringBuilder folded = new StringBuilder(decomposed.length());
+		boolean space = false;
+		for (int i = 0; i < decomposed.length(); i++) {
+			char c = decomposed.charAt(i);
+			if (Character.getType(c) == Character.NON_SPACING_MARK) {
+				continue;
+			}
+			if (Character.isLetterOrDigit(c)) {
+				if (space && folded.length() > 0) {
+					folded.append(' ');
+				}
+				folded.append(Character.toLowerCase(c));
+				space = false;
+			} else {
+				space = true;
+			}
+		}
+		return folded.toString();
+	}
+
+	/**
+	 * Returns the most popular rows with a word starting with the prefix, most
+	 * popular first. The prefix may run over several words, such as
+	 * "the god".
+	 *
+	 * @param prefix the text typed so far
+	 * @param k      the largest number of suggestions to return
+	 * @return the suggestions
+	 */
+	public List<T> suggest(String prefix, int k) {
+		List<T> suggestions = new ArrayList<>(Math.max(0, Math.min(k, 64)));
+		char[] typed = fold(prefix).toCharArray();
+		if (typed.length == 0 || k <= 0) {
+			return suggestions;
+		}
+		int from = lowerBound(typed, false);
+		int to = lowerBound(typed, true);
+		if (from >= to) {
+			return suggestions;
+		}
+
+		// Each queued range is {best entry, from, to}, best first. Taking the
+		// best entry splits its range in two, so each suggestion costs two
+		// range queries on the tree.
+		PriorityQueue<int[]> ranges = new PriorityQueue<>((a, b) -> compareEntries(b[0], a[0]));
+		ranges.add(new int[] { best(from, to), from, to });
+		int[] rows = new int[Math.min(k, to - from)];
+		int found = 0;
+		while (!ranges.isEmpty() && found < rows.length) {
+			int[] range = ranges.poll();
+			int entry = range[0];
+			int row = entryRows[entry];
+			if (!contains(rows, found, row)) {
+				rows[found++] = row;
+				suggestions.add(factory.create(ids[row], labels.get(row), extras[row]));
+			}
+			if (range[1] < entry) {
+				ranges.add(new int[] { best(range[1], entry), range[1], entry });
+			}
+			if (entry + 1 < range[2]) {
+				ranges.add(new int[] { best(entry + 1, range[2]), entry + 1, range[2] });
+			}
+		}
+		return suggestions;
+	}
+
+	private static boolean contains(int[] values, int count, int value) {
+		for (int i = 0; i < count; i++) {
+			if (values[i] == value) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Finds the first entry whose text is not less than the prefix or, if
+	 * {@code after} is true, the first entry that is past every entry starting
+	 * with the prefix.
+	 */
+	private int lowerBound(char[] prefix, boolean after) {
+		int low = 0;
+		int high = entryPositions.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			int cmp = comparePrefix(mid, prefix);
+			if (cmp < 0 || (after && cmp == 0)) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Compares the start of an entry with a prefix: 0 if the entry starts with
+	 * the prefix.
+	 */
+	private int comparePrefix(int entry, char[] prefix) {
+		int position = entryPositions[entry];
+		int end = textStarts[entryRows[entry] + 1];
+		for (int i = 0; i < prefix.length; i++) {
+			if (position + i == end) {
+				return -1;
+			}
+			int cmp = Character.compare(text[position + i], prefix[i]);
+			if (cmp != 0) {
+				return cmp;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Returns the most popular entry from {@code from} up to, but not
+	 * including, {@code to}.
+	 */
+	private int best(int from, int to) {
+		int result = -1;
+		for (int low = from + size, high = to + size; low < high; low >>= 1, high >>= 1) {
+			if ((low & 1) == 1) {
+				result = better(result, tree[low++]);
+			}
+			if ((high & 1) == 1) {
+				result = better(result, tree[--high]);
+			}
+		}
+		return result;
+	}
+
+	private int better(int a, int b) {
+		if (a < 0) {
+			return b;
+		}
+		if (b < 0) {
+			return a;
+		}
+		return compareEntries(a, b) >= 0 ? a : b;
+	}
+
+	/**
+	 * Orders entries by popularity, then the shorter text, then the lower id,
+	 * so that suggestions come out in a stable order.
+	 */
+	private int compareEntries(int a, int b) {
+		int rowA = entryRows[a];
+		int rowB = entryRows[b];
+		int cmp = Integer.compare(popularity[rowA], popularity[rowB]);
+		if (cmp == 0) {
+			cmp = Integer.compare(textStarts[rowB + 1] - textStarts[rowB], textStarts[rowA + 1] - textStarts[rowA]);
+		}
+		if (cmp == 0) {
+			cmp = Integer.compare(ids[rowB], ids[rowA]);
+		}
+		return cmp;
+	}
+
+	/**
+	 * Sorts the entries by their text, with a merge sort on the two parallel
+	 * arrays so no objects are made per entry.
+	 */
+	private void sortEntries() {
+		int n = entryPositions.length;
+		int[] positions = entryPositions;
+		int[] rows = entryRows;
+		int[] positionsBuffer = new int[n];
+		int[] rowsBuffer = new int[n];
+		for (int width = 1; width < n; width *= 2) {
+			for (int low = 0; low < n; low += 2 * width) {
+				int mid = Math.min(low + width, n);
+				int high = Math.min(low + 2 * width, n);
+				int i = low;
+				int j = mid;
+				int out = low;
+				while (i < mid && j < high) {
+					if (compareText(positions[j], rows[j], positions[i], rows[i]) < 0) {
+						positionsBuffer[out] = positions[j];
+						rowsBuffer[out++] = rows[j++];
+					} else {
+						positionsBuffer[out] = positions[i];
+						rowsBuffer[out++] = rows[i++];
+					}
+				}
+				while (i < mid) {
+					positionsBuffer[out] = positions[i];
+					rowsBuffer[out++] = rows[i++];
+				}
+				while (j < high) {
+					positionsBuffer[out] = positions[j];
+					rowsBuffer[out++] = rows[j++];
+				}
+			}
+			int[] swap = positions;
+			positions = positionsBuffer;
+			positionsBuffer = swap;
+			swap = rows;
+			rows = rowsBuffer;
+			rowsBuffer = swap;
+		}
+		if (positions != entryPositions) {
+			System.arraycopy(positions, 0, entryPositions, 0, n);
+			System.arraycopy(rows, 0, entryRows, 0, n);
+		}
+	}
+
+	private int compareText(int positionA, int rowA, int positionB, int rowB) {
+		int endA = textStarts[rowA + 1];
+		int endB = textStarts[rowB + 1];
+		while (positionA < endA && positionB < endB) {
+			int cmp = Character.compare(text[positionA++], text[positionB++]);
+			if (cmp != 0) {
+				return cmp;
+			}
+		}
+		return Integer.compare(endA - positionA, endB - positionB);
+	}
+
+	/**
+	 * Fills the segment tree once the entries have been sorted.
+	 */
+	private void buildTree() {
+		for (int i = 0; i < entryPositions.length; i++) {
+			tree[size + i] = i;
+		}
+		for (int node = size - 1; node >= 1; node--) {
+			tree[node] = better(tree[2 * node], tree[2 * node + 1]);
+		}
+	}
+
+	/**
+	 * Returns the number of rows in the index.
+	 *
+	 * @return the number of movies or people
+	 */
+	public int size() {
+		return ids.length;
+	}
+
+	/**
+	 * Returns the number of words in the index.
+	 *
+	 * @return the number of entries
+	 */
+	public int entries() {
+		return entryPositions.length;
+	}
+
+	/**
+	 * Returns the approximate number of bytes used by the index.
+	 *
+	 * @return the memory used, in bytes
+	 */
+	public long memoryBytes() {
+		return 4L * ids.length * 3 + labels.memoryBytes() + 2L * text.length + 4L * textStarts.length
+				+ 4L * entryPositions.length * 2 + 4L * tree.length;
+	}
+}
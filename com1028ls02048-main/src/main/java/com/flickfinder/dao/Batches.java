@@ -0,0 +1,166 @@
+package com.flickfinder.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+import com.flickfinder.util.Database;
+import com.flickfinder.util.Settings;
+
+/**
+ * Helpers for looking up many rows by id at once.
+ *
+ * The ids are looked up with {@code id IN (?, ?, ...)} queries, a chunk at a
+ * time so the number of parameters stays small. Each chunk is padded up to one
+ * of a few fixed sizes by repeating its last id, so only a handful of
+ * different statements are ever prepared and they stay in the statement
+ * cache.
+ *
+ */
+final class Batches {
+
+	/**
+	 * The most ids looked up by one query.
+	 */
+	static final int CHUNK_SIZE = Settings.getInt("batch.chunkSize", 256);
+
+	/**
+	 * The sizes a chunk is padded up to.
+	 */
+	private static final int[] SIZES = { 1, 4, 16, 64 };
+
+	/**
+	 * Turns the current row of a result set into an object.
+	 */
+	@FunctionalInterface
+	interface RowMapper<T> {
+		T map(ResultSet rs) throws SQLException;
+	}
+
+	private Batches() {
+	}
+
+	/**
+	 * Looks up rows by id.
+	 *
+	 * @param database the database
+	 * @param select   the query without its where clause, e.g.
+	 *                 {@code select * from movies where id IN }
+	 * @param ids      the ids to look up, in any order and possibly repeated
+	 * @param mapper   turns a row into an object
+	 * @param id       returns the id of an object
+	 * @return the objects in the same order as the ids, with null for each id
+	 *         that was not found
+	 * @throws SQLException if a database error occurs
+	 */
+	static <T> List<T> lookup(Database database, String select, int[] ids, RowMapper<T> mapper, ToIntFunction<T> id)
+			throws SQLException {
+		int[] distinct = Arrays.stream(ids).distinct().sorted().toArray();
+		Map<Integer, T> found = new HashMap<>();
+		try (Connection connection = database.getConnection()) {
+			for (int from = 0; from < distinct.length; from += CHUNK_SIZE) {
+				int count = Math.min(CHUNK_SIZE, distinct.length - from);
+				int size = paddedSize(count);
+				try (PreparedStatement ps = connection.prepareStatement(select + placeholders(size))) {
+					for (int i = 0; i < size; i++) {
+						ps.setInt(i + 1, distinct[from + Math.min(i, count - 1)]);
+					}
+					try (ResultSet rs = ps.executeQuery()) {
+						while (rs.next()) {
+							T row = mapper.map(rs);
+							found.put(id.applyAsInt(row), row);
+						}
+					}
+				}
+			}
+		}
+		List<T> rows = new ArrayList<>(ids.length);
+		for (int i : ids) {
+			rows.add(found.get(i));
+		}
+		return rows;
+	}
+
+	/**
+	 * Looks up the rows linked to each id, such as the directors of each movie.
+	 *
+	 * The query must start from the table the ids belong to and LEFT JOIN the
+	 * linked rows, returning the id looked up in a column named key_id. That
+	 * way an id with no links still returns one row, with null in the linked
+	 * columns, and an id that does not exist returns no rows at all.
+	 *
+	 * @param database the database
+	 * @param select   the query without its list of ids, ending in
+	 *                 {@code IN }
+	 * @param ids      the ids to look up, in any order and possibly repeated
+	 * @param order    the ORDER BY clause added after the list of ids, which
+	 *                 should put the links of each id in the same order as
+	 *                 looking up that id on its own does
+	 * @param linked   a column of the linked rows, which is null when an id has
+	 *                 no links
+	 * @param mapper   turns a linked row into an object
+	 * @return the linked objects of each id, in the same order as the ids, with
+	 *         null for each id that was not found
+	 * @throws SQLException if a database error occurs
+	 */
+	static <T> List<List<T>> lookupLinks(Database database, String select, int[] ids, String order, String linked,
+			RowMapper<T> mapper) throws SQLException {
+		int[] distinct = Arrays.stream(ids).distinct().sorted().toArray();
+		Map<Integer, List<T>> found = new HashMap<>();
+		try (Connection connection = database.getConnection()) {
+			for (int from = 0; from < distinct.length; from += CHUNK_SIZE) {
+				int count = Math.min(CHUNK_SIZE, distinct.length - from);
+				int size = paddedSize(count);
+				try (PreparedStatement ps = connection.prepareStatement(select + placeholders(size) + " " + order)) {
+					for (int i = 0; i < size; i++) {
+						ps.setInt(i + 1, distinct[from + Math.min(i, count - 1)]);
+					}
+					try (ResultSet rs = ps.executeQuery()) {
+						while (rs.next()) {
+							List<T> links = found.computeIfAbsent(rs.getInt("key_id"), key -> new ArrayList<>());
+							rs.getInt(linked);
+							if (!rs.wasNull()) {
+								links.add(mapper.map(rs));
+							}
+						}
+					}
+				}
+			}
+		}
+		List<List<T>> rows = new ArrayList<>(ids.length);
+		for (int i : ids) {
+			rows.add(found.get(i));
+		}
+		return rows;
+	}
+
+	/**
+	 * Returns the size a chunk of ids is padded up to.
+	 *
+	 * @param count the number of ids in the chunk
+	 * @return the padded size
+	 */
+	static int paddedSize(int count) {
+		for (int size : SIZES) {
+			if (count <= size) {
+				return Math.min(size, CHUNK_SIZE);
+			}
+		}
+		return CHUNK_SIZE;
+	}
+
+	private static String placeholders(int size) {
+		StringBuilder sql = new StringBuilder("(?");
+		for (int i = 1; i < size; i++) {
+			sql.append(", ?");
+		}
+		return sql.append(')').toString();
+	}
+}
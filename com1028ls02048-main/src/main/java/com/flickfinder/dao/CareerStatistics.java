@@ -0,0 +1,326 @@
+package com.flickfinder.dao;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.flickfinder.model.PersonStats;
+import com.flickfinder.util.Database;
+
+/**
+ * The career statistics of every person, worked out once at startup.
+ *
+ * A person's films are the movies they starred in or directed, counted once
+ * if they did both. For each person the first and last year of their films,
+ * how many they starred in and directed, and the average and vote-weighted
+ * rating of the rated ones are kept in primitive arrays indexed by person,
+ * so a lookup is a binary search for the id and a few array reads.
+ *
+ * The statistics are worked out in a single pass over the people, split into
+ * ranges on a fork-join pool. Each person is only written by the range it is
+ * in, so the ranges share nothing. The movies and links read to do so are
+ * dropped once the pass is done.
+ *
+ */
+public class CareerStatistics {
+
+	private static final Logger LOG = LoggerFactory.getLogger(CareerStatistics.class);
+
+	/**
+	 * How many ranges to split the people into for each thread.
+	 */
+	private static final int RANGES_PER_THREAD = 4;
+
+	private final int[] personIds;
+	private final short[] firstYears;
+	private final short[] lastYears;
+	private final int[] starred;
+	private final int[] directed;
+	private final float[] averageRatings;
+	private final float[] weightedRatings;
+
+	private CareerStatistics(int[] personIds) {
+		int count = personIds.length;
+		this.personIds = personIds;
+		this.firstYears = new short[count];
+		this.lastYears = new short[count];
+		this.starred = new int[count];
+		this.directed = new int[count];
+		this.averageRatings = new float[count];
+		this.weightedRatings = new float[count];
+	}
+
+	/**
+	 * Works out the statistics from the database.
+	 *
+	 * @param database    the database to read
+	 * @param parallelism the number of threads to work them out on
+	 * @return the statistics
+	 * @throws SQLException if a database error occurs
+	 */
+	public static CareerStatistics load(Database database, int parallelism) throws SQLException {
+		long start = System.nanoTime();
+		int[] personIds;
+		int[] movieIds;
+		int[] years;
+		double[] ratings;
+		int[] votes;
+		Adjacency stars;
+		Adjacency directors;
+		try (Connection connection = database.getConnection(); Statement stmt = connection.createStatement()) {
+			personIds = readIds(stmt, "SELECT id FROM people ORDER BY id");
+			movieIds = readIds(stmt, "SELECT id FROM movies ORDER BY id");
+			years = new int[movieIds.length];
+			ratings = new double[movieIds.length];
+			Arrays.fill(ratings, Double.NaN);
+			votes = new int[movieIds.length];
+			try (ResultSet rs = stmt.executeQuery("SELECT id, year FROM movies ORDER BY id")) {
+				for (int i = 0; rs.next() && i < years.length; i++) {
+					years[i] = rs.getInt(2);
+				}
+			}
+			try (ResultSet rs = stmt.executeQuery("SELECT movie_id, rating, votes FROM ratings")) {
+				while (rs.next()) {
+					int movie = Arrays.binarySearch(movieIds, rs.getInt(1));
+					if (movie >= 0) {
+						ratings[movie] = rs.getDouble(2);
+						votes[movie] = rs.getInt(3);
+					}
+				}
+			}
+			stars = readLinks(stmt, "stars", personIds, movieIds);
+			directors = readLinks(stmt, "directors", personIds, movieIds);
+		}
+		CareerStatistics statistics = new CareerStatistics(personIds);
+		statistics.compute(parallelism, new Films(stars, directors, years, ratings, votes));
+		statistics.log(start, parallelism);
+		return statistics;
+	}
+
+	/**
+	 * Works out the statistics from a snapshot.
+	 *
+	 * @param snapshot    the in-memory copy of the database
+	 * @param parallelism the number of threads to work them out on
+	 * @return the statistics
+	 */
+	public static CareerStatistics of(Snapshot snapshot, int parallelism) {
+		long start = System.nanoTime();
+		int[] personIds = new int[snapshot.personCount()];
+		for (int i = 0; i < personIds.length; i++) {
+			personIds[i] = snapshot.personId(i);
+		}
+		int movies = snapshot.movieCount();
+		int[] years = new int[movies];
+		double[] ratings = new double[movies];
+		int[] votes = new int[movies];
+		for (int i = 0; i < movies; i++) {
+			years[i] = snapshot.movieYear(i);
+			ratings[i] = snapshot.movieRating(i);
+			votes[i] = snapshot.movieVotes(i);
+		}
+		CareerStatistics statistics = new CareerStatistics(personIds);
+		statistics.compute(parallelism,
+				new Films(snapshot.getPersonMovies(), snapshot.getPersonDirected(), years, ratings, votes));
+		statistics.log(start, parallelism);
+		return statistics;
+	}
+
+	private static int[] readIds(Statement stmt, String sql) throws SQLException {
+		int[] ids = new int[1024];
+		int count = 0;
+		try (ResultSet rs = stmt.executeQuery(sql)) {
+			while (rs.next()) {
+				if (count == ids.length) {
+					ids = Arrays.copyOf(ids, count * 2);
+				}
+				ids[count++] = rs.getInt(1);
+			}
+		}
+		return Arrays.copyOf(ids, count);
+	}
+
+	/**
+	 * Reads a link table as the movies of each person.
+	 */
+	private static Adjacency readLinks(Statement stmt, String table, int[] personIds, int[] movieIds)
+			throws SQLException {
+		int[] people = new int[1024];
+		int[] movies = new int[1024];
+		int pairs = 0;
+		try (ResultSet rs = stmt.executeQuery("SELECT person_id, movie_id FROM " + table)) {
+			while (rs.next()) {
+				int person = Arrays.binarySearch(personIds, rs.getInt(1));
+				int movie = Arrays.binarySearch(movieIds, rs.getInt(2));
+				if (person < 0 || movie < 0) {
+					continue;
+				}
+				if (pairs == people.length) {
+					people = Arrays.copyOf(people, pairs * 2);
+					movies = Arrays.copyOf(movies, pairs * 2);
+				}
+				people[pairs] = person;
+				movies[pairs] = movie;
+				pairs++;
+			}
+		}
+		return Adjacency.build(personIds.length, people, movies, pairs);
+	}
+
+	private void compute(int parallelism, Films films) {
+		if (parallelism <= 0) {
+			throw new IllegalArgumentException("Parallelism must be positive");
+		}
+		int chunk = Math.max(1, personIds.length / (parallelism * RANGES_PER_THREAD));
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			pool.invoke(new RangeAction(films, 0, personIds.length, chunk));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private void log(long start, int parallelism) {
+		LOG.info("Worked out career statistics of {} people on {} threads in {} ms ({} MB)", personIds.length,
+				parallelism, (System.nanoTime() - start) / 1_000_000, memoryBytes() / (1024 * 1024));
+	}
+
+	/**
+	 * Works out the statistics of one person. The films they starred in and
+	 * directed are both sorted, so they are merged to count each film once.
+	 */
+	private void computePerson(int person, Films films) {
+		Adjacency stars = films.stars;
+		Adjacency directors = films.directors;
+		int first = Integer.MAX_VALUE;
+		int last = Integer.MIN_VALUE;
+		int rated = 0;
+		double ratingSum = 0;
+		double weightedSum = 0;
+		long votes = 0;
+		int s = stars.start(person);
+		int d = directors.start(person);
+		while (s < stars.end(person) || d < directors.end(person)) {
+			int movie;
+			if (d == directors.end(person)
+					|| (s < stars.end(person) && stars.target(s) < directors.target(d))) {
+				movie = stars.target(s++);
+			} else if (s == stars.end(person) || directors.target(d) < stars.target(s)) {
+				movie = directors.target(d++);
+			} else {
+				movie = stars.target(s++);
+				d++;
+			}
+			int year = films.years[movie];
+			if (year != 0) {
+				first = Math.min(first, year);
+				last = Math.max(last, year);
+			}
+			double rating = films.ratings[movie];
+			if (!Double.isNaN(rating)) {
+				rated++;
+				ratingSum += rating;
+				weightedSum += rating * films.votes[movie];
+				votes += films.votes[movie];
+			}
+		}
+		starred[person] = stars.degree(person);
+		directed[person] = directors.degree(person);
+		firstYears[person] = (short) (first == Integer.MAX_VALUE ? 0 : first);
+		lastYears[person] = (short) (last == Integer.MIN_VALUE ? 0 : last);
+		averageRatings[person] = rated > 0 ? (float) (ratingSum / rated) : Float.NaN;
+		weightedRatings[person] = votes > 0 ? (float) (weightedSum / votes) : Float.NaN;
+	}
+
+	/**
+	 * Returns the career statistics of a person.
+	 *
+	 * @param personId the id of the person
+	 * @return the statistics, or null if there is no person with the id
+	 */
+	public PersonStats getPerson(int personId) {
+		int i = Arrays.binarySearch(personIds, personId);
+		if (i < 0) {
+			return null;
+		}
+		return new PersonStats(personId, firstYears[i] != 0 ? Integer.valueOf(firstYears[i]) : null,
+				lastYears[i] != 0 ? Integer.valueOf(lastYears[i]) : null, starred[i], directed[i],
+				round(averageRatings[i]), round(weightedRatings[i]));
+	}
+
+	/**
+	 * Rounds a rating to two decimal places, which also hides the error of
+	 * keeping it as a float.
+	 */
+	private static Double round(float rating) {
+		return Float.isNaN(rating) ? null : Math.round(rating * 100.0) / 100.0;
+	}
+
+	/**
+	 * Returns the approximate number of bytes used by the statistics.
+	 *
+	 * @return the memory used, in bytes
+	 */
+	public long memoryBytes() {
+		return 24L * personIds.length;
+	}
+
+	/**
+	 * What is known about each movie and who starred in and directed it, by
+	 * index, while the statistics are worked out.
+	 */
+	private static class Films {
+		final Adjacency stars;
+		final Adjacency directors;
+		final int[] years;
+		final double[] ratings;
+		final int[] votes;
+
+		Films(Adjacency stars, Adjacency directors, int[] years, double[] ratings, int[] votes) {
+			this.stars = stars;
+			this.directors = directors;
+			this.years = years;
+			this.ratings = ratings;
+			this.votes = votes;
+		}
+	}
+
+	/**
+	 * Works out the statistics of a range of people, splitting it in half
+	 * until it is no bigger than the chunk size.
+	 */
+	private class RangeAction extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final transient Films films;
+		private final int from;
+		private final int to;
+		private final int chunk;
+
+		RangeAction(Films films, int from, int to, int chunk) {
+			this.films = films;
+			this.from = from;
+			this.to = to;
+			this.chunk = chunk;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= chunk) {
+				for (int person = from; person < to; person++) {
+					computePerson(person, films);
+				}
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new RangeAction(films, from, middle, chunk), new RangeAction(films, middle, to, chunk));
+		}
+	}
+}
@@ -0,0 +1,390 @@
+package com.flickfinder.dao;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.flickfinder.util.Database;
+
+/**
+ * The graph of who starred with whom, held in memory so that the shortest
+ * chain of movies between two people can be found without a query per step.
+ *
+ * The stars table links people to movies, so the graph has people and movies
+ * as its nodes. It is held as two {@link Adjacency} lists, from people to
+ * their movies and from movies to their stars, over the indexes of two sorted
+ * arrays of ids. Nothing else about a person or movie is kept.
+ *
+ * The graph never changes once it is built, and each search keeps its own
+ * state, so any number of threads can search it at once.
+ *
+ */
+public class CoStarGraph {
+
+	private static final Logger LOG = LoggerFactory.getLogger(CoStarGraph.class);
+
+	private final int[] personIds;
+	private final int[] movieIds;
+	private final Adjacency personMovies;
+	private final Adjacency movieStars;
+
+	private CoStarGraph(int[] personIds, int[] movieIds, Adjacency personMovies, Adjacency movieStars) {
+		this.personIds = personIds;
+		this.movieIds = movieIds;
+		this.personMovies = personMovies;
+		this.movieStars = movieStars;
+	}
+
+	/**
+	 * Builds the graph from the ids and stars in the database.
+	 *
+	 * @param database the database to read
+	 * @return the graph
+	 * @throws SQLException if a database error occurs
+	 */
+	public static CoStarGraph load(Database database) throws SQLException {
+		long start = System.nanoTime();
+		int[] personIds;
+		int[] movieIds;
+		int[] people;
+		int[] movies;
+		int pairs = 0;
+		try (Connection connection = database.getConnection(); Statement stmt = connection.createStatement()) {
+			personIds = readIds(stmt, "SELECT id FROM people ORDER BY id");
+			movieIds = readIds(stmt, "SELECT id FROM movies ORDER BY id");
+			people = new int[1024];
+			movies = new int[1024];
+			try (ResultSet rs = stmt.executeQuery("SELECT person_id, movie_id FROM stars")) {
+				while (rs.next()) {
+					int person = Arrays.binarySearch(personIds, rs.getInt(1));
+					int movie = Arrays.binarySearch(movieIds, rs.getInt(2));
+					if (person < 0 || movie < 0) {
+						continue;
+					}
+					if (pairs == people.length) {
+						people = Arrays.copyOf(people, pairs * 2);
+						movies = Arrays.copyOf(movies, pairs * 2);
+					}
+					people[pairs] = person;
+					movies[pairs] = movie;
+					pairs++;
+				}
+			}
+		}
+		CoStarGraph graph = new CoStarGraph(personIds, movieIds,
+				Adjacency.build(personIds.length, people, movies, pairs),
+				Adjacency.build(movieIds.length, movies, people, pairs));
+		LOG.info("Built co-star graph of {} people, {} movies and {} stars in {} ms ({} MB)", personIds.length,
+				movieIds.length, pairs, (System.nanoTime() - start) / 1_000_000, graph.memoryBytes() / (1024 * 1024));
+		return graph;
+	}
+
+	/**
+	 * Builds the graph from the star lists of a snapshot, which are shared
+	 * rather than copied.
+	 *
+	 * @param snapshot the in-memory copy of the database
+	 * @return the graph
+	 */
+	public static CoStarGraph of(Snapshot snapshot) {
+		int[] personIds = new int[snapshot.personCount()];
+		for (int i = 0; i < personIds.length; i++) {
+			personIds[i] = snapshot.personId(i);
+		}
+		int[] movieIds = new int[snapshot.movieCount()];
+		for (int i = 0; i < movieIds.length; i++) {
+			movieIds[i] = snapshot.movieId(i);
+		}
+		return new CoStarGraph(personIds, movieIds, snapshot.getPersonMovies(), snapshot.getMovieStars());
+	}
+
+	private static int[] readIds(Statement stmt, String sql) throws SQLException {
+		int[] ids = new int[1024];
+		int count = 0;
+		try (ResultSet rs = stmt.executeQuery(sql)) {
+			while (rs.next()) {
+				if (count == ids.length) {
+					ids = Arrays.copyOf(ids, count * 2);
+				}
+				ids[count++] = rs.getInt(1);
+			}
+		}
+		return Arrays.copyOf(ids, count);
+	}
+
+	/**
+	 * Returns whether a person is in the graph.
+	 *
+	 * @param personId the id of the person
+	 * @return true if there is a person with the id
+	 */
+	public boolean hasPerson(int personId) {
+		return Arrays.binarySearch(personIds, personId) >= 0;
+	}
+
+	/**
+	 * Finds the shortest chain of movies from one person to another, where
+	 * each movie in the chain starred the people either side of it.
+	 *
+	 * The search is a breadth-first search from both people at once. Each step
+	 * grows whichever side has fewer links to follow, and the search stops as
+	 * soon as the two sides meet. Searching from one side only would visit
+	 * every person within the full distance of the first; meeting in the
+	 * middle only visits those within about half of it from each end.
+	 *
+	 * @param fromId  the id of the first person
+	 * @param toId    the id of the second person
+	 * @param maxHops the most movies the chain may have
+	 * @return the person and movie ids of the chain, or null if either person
+	 *         does not exist or they are not connected within maxHops movies
+	 */
+	public Chain shortestPath(int fromId, int toId, int maxHops) {
+		int from = Arrays.binarySearch(personIds, fromId);
+		int to = Arrays.binarySearch(personIds, toId);
+		if (from < 0 || to < 0) {
+			return null;
+		}
+		if (from == to) {
+			return new Chain(new int[] { fromId }, new int[0]);
+		}
+		Side forward = new Side(from);
+		Side backward = new Side(to);
+		while (forward.depth + backward.depth < maxHops) {
+			long forwardCost = forward.frontierCost();
+			long backwardCost = backward.frontierCost();
+			if (forwardCost == 0 || backwardCost == 0) {
+				return null;
+			}
+			boolean growForward = forwardCost <= backwardCost;
+			Side grow = growForward ? forward : backward;
+			Side other = growForward ? backward : forward;
+			int meet = grow.expand(other);
+			if (meet >= 0) {
+				return join(forward, forward.slotOf(grow.nodes[meet]), backward);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Joins the two halves of a search at a person both sides reached.
+	 *
+	 * @param forward     the side that started at the first person
+	 * @param forwardSlot where the meeting person is in the forward side
+	 * @param backward    the side that started at the second person
+	 */
+	private Chain join(Side forward, int forwardSlot, Side backward) {
+		int person = forward.nodes[forwardSlot];
+		int backwardSlot = backward.slotOf(person);
+		int forwardHops = forward.hops(forwardSlot);
+		int backwardHops = backward.hops(backwardSlot);
+		int[] people = new int[forwardHops + backwardHops + 1];
+		int[] movies = new int[forwardHops + backwardHops];
+
+		int slot = forwardSlot;
+		for (int i = forwardHops; i > 0; i--) {
+			people[i] = personIds[forward.nodes[slot]];
+			movies[i - 1] = movieIds[forward.via[slot]];
+			slot = forward.parents[slot];
+		}
+		people[0] = personIds[forward.nodes[slot]];
+
+		slot = backwardSlot;
+		for (int i = forwardHops; i < forwardHops + backwardHops; i++) {
+			movies[i] = movieIds[backward.via[slot]];
+			slot = backward.parents[slot];
+			people[i + 1] = personIds[backward.nodes[slot]];
+		}
+		return new Chain(people, movies);
+	}
+
+	/**
+	 * Returns the number of people.
+	 *
+	 * @return the number of people
+	 */
+	public int personCount() {
+		return personIds.length;
+	}
+
+	/**
+	 * Returns the index of a movie, or a negative number if there is no movie
+	 * with the id.
+	 */
+	int movieIndex(int movieId) {
+		return Arrays.binarySearch(movieIds, movieId);
+	}
+
+	/**
+	 * Returns the id of the movie at an index.
+	 */
+	int movieId(int index) {
+		return movieIds[index];
+	}
+
+	/**
+	 * Returns the number of movies.
+	 */
+	int movieCount() {
+		return movieIds.length;
+	}
+
+	/**
+	 * Returns the stars of each movie, by index.
+	 */
+	Adjacency getMovieStars() {
+		return movieStars;
+	}
+
+	/**
+	 * Returns the approximate number of bytes used by the graph.
+	 *
+	 * @return the memory used, in bytes
+	 */
+	public long memoryBytes() {
+		return 4L * personIds.length + 4L * movieIds.length + personMovies.memoryBytes() + movieStars.memoryBytes();
+	}
+
+	/**
+	 * One side of a search: the people it has reached, in the order it reached
+	 * them, with the person and movie each was reached through. Those of the
+	 * latest level are the frontier. The people and movies already seen are
+	 * marked in bit sets, so a search only allocates a few bytes per node in
+	 * the graph.
+	 */
+	private class Side {
+		int[] nodes = new int[64];
+		int[] parents = new int[64];
+		int[] via = new int[64];
+		int size;
+		int frontierStart;
+		int depth;
+		final long[] seenPeople = new long[(personIds.length + 63) >>> 6];
+		final long[] seenMovies = new long[(movieIds.length + 63) >>> 6];
+
+		Side(int start) {
+			add(start, -1, -1);
+			mark(seenPeople, start);
+		}
+
+		/**
+		 * Returns the number of links out of the frontier, which is how much
+		 * work growing this side would be.
+		 */
+		long frontierCost() {
+			long cost = 0;
+			for (int slot = frontierStart; slot < size; slot++) {
+				cost += personMovies.degree(nodes[slot]);
+			}
+			return cost;
+		}
+
+		/**
+		 * Grows this side by one level.
+		 *
+		 * @param other the other side
+		 * @return the slot of the first person reached that the other side had
+		 *         already reached, or -1 if the sides did not meet
+		 */
+		int expand(Side other) {
+			int end = size;
+			for (int slot = frontierStart; slot < end; slot++) {
+				int person = nodes[slot];
+				for (int m = personMovies.start(person); m < personMovies.end(person); m++) {
+					int movie = personMovies.target(m);
+					if (isMarked(seenMovies, movie)) {
+						continue;
+					}
+					mark(seenMovies, movie);
+					for (int s = movieStars.start(movie); s < movieStars.end(movie); s++) {
+						int costar = movieStars.target(s);
+						if (isMarked(seenPeople, costar)) {
+							continue;
+						}
+						mark(seenPeople, costar);
+						add(costar, slot, movie);
+						if (isMarked(other.seenPeople, costar)) {
+							depth++;
+							return size - 1;
+						}
+					}
+				}
+			}
+			frontierStart = end;
+			depth++;
+			return -1;
+		}
+
+		void add(int person, int parent, int movie) {
+			if (size == nodes.length) {
+				nodes = Arrays.copyOf(nodes, size * 2);
+				parents = Arrays.copyOf(parents, size * 2);
+				via = Arrays.copyOf(via, size * 2);
+			}
+			nodes[size] = person;
+			parents[size] = parent;
+			via[size] = movie;
+			size++;
+		}
+
+		/**
+		 * Returns the slot of a person this side has reached. This is only
+		 * needed once per search, so a scan is cheaper than keeping a map.
+		 */
+		int slotOf(int person) {
+			for (int slot = 0; slot < size; slot++) {
+				if (nodes[slot] == person) {
+					return slot;
+				}
+			}
+			throw new IllegalStateException("Person " + person + " was not reached");
+		}
+
+		/**
+		 * Returns the number of movies between the start and a slot.
+		 */
+		int hops(int slot) {
+			int hops = 0;
+			while (parents[slot] >= 0) {
+				slot = parents[slot];
+				hops++;
+			}
+			return hops;
+		}
+	}
+
+	private static void mark(long[] bits, int index) {
+		bits[index >>> 6] |= 1L << index;
+	}
+
+	private static boolean isMarked(long[] bits, int index) {
+		return (bits[index >>> 6] & (1L << index)) != 0;
+	}
+
+	/**
+	 * A chain of people linked by the movies they starred in together. The
+	 * movie at index i starred the people at i and i + 1.
+	 */
+	public static class Chain {
+		private final int[] personIds;
+		private final int[] movieIds;
+
+		Chain(int[] personIds, int[] movieIds) {
+			this.personIds = personIds;
+			this.movieIds = movieIds;
+		}
+
+		public int[] getPersonIds() {
+			return personIds;
+		}
+
+		public int[] getMovieIds() {
+			return movieIds;
+		}
+	}
+}
@@ -0,0 +1,159 @@
+package com.flickfinder.dao;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A compact, read-only set of non-negative ints, used as a bitmap index over
+ * the rows of a table.
+ *
+ * The ints are split into blocks of 65536 by their high 16 bits, in the same
+ * way as a Roaring bitmap. A block with few values keeps them as a sorted
+ * array of their low 16 bits, at two bytes each; a block with more than
+ * {@link #ARRAY_MAX} values keeps a plain bitset of 8 KB instead. A bitmap of
+ * the movies of one year or one rating is mostly made of small blocks, while
+ * one of all the rated movies is made of full ones, and each takes little more
+ * than the smaller of the two.
+ *
+ * Bitmaps are combined by OR-ing them into a plain {@code long[]} with one bit
+ * per row, which the caller can then AND with others a word at a time.
+ *
+ */
+public class CompressedBitmap {
+
+	/**
+	 * The most values a block keeps as an array. Past this a bitset is smaller.
+	 */
+	static final int ARRAY_MAX = 4096;
+
+	private static final int WORDS_PER_BLOCK = 1024;
+
+	/**
+	 * The high 16 bits of each block, in ascending order, with the block at the
+	 * same index: a char[] of low bits, or a long[] bitset.
+	 */
+	private final int[] keys;
+	private final Object[] blocks;
+	private final int cardinality;
+
+	private CompressedBitmap(int[] keys, Object[] blocks, int cardinality) {
+		this.keys = keys;
+		this.blocks = blocks;
+		this.cardinality = cardinality;
+	}
+
+	/**
+	 * Builds a bitmap from values in ascending order.
+	 *
+	 * @param values the values, in ascending order with no repeats
+	 * @param count  the number of values to take from the start of the array
+	 * @return the bitmap
+	 */
+	public static CompressedBitmap of(int[] values, int count) {
+		int[] keys = new int[8];
+		Object[] blocks = new Object[8];
+		int size = 0;
+		int start = 0;
+		while (start < count) {
+			int key = values[start] >>> 16;
+			int end = start;
+			while (end < count && values[end] >>> 16 == key) {
+				end++;
+			}
+			Object block;
+			if (end - start <= ARRAY_MAX) {
+				char[] low = new char[end - start];
+				for (int i = start; i < end; i++) {
+					low[i - start] = (char) values[i];
+				}
+				block = low;
+			} else {
+				long[] words = new long[WORDS_PER_BLOCK];
+				for (int i = start; i < end; i++) {
+					words[(values[i] & 0xFFFF) >>> 6] |= 1L << values[i];
+				}
+				block = words;
+			}
+			if (size == keys.length) {
+				keys = Arrays.copyOf(keys, size * 2);
+				blocks = Arrays.copyOf(blocks, size * 2);
+			}
+			keys[size] = key;
+			blocks[size] = block;
+			size++;
+			start = end;
+		}
+		return new CompressedBitmap(Arrays.copyOf(keys, size), Arrays.copyOf(blocks, size), count);
+	}
+
+	/**
+	 * Sets the bit of every value of this bitmap in a plain bitset.
+	 *
+	 * @param bits the bitset, big enough to hold every value
+	 */
+	public void orInto(long[] bits) {
+		for (int b = 0; b < keys.length; b++) {
+			int base = keys[b] << 16;
+			if (blocks[b] instanceof char[]) {
+				for (char low : (char[]) blocks[b]) {
+					int value = base | low;
+					bits[value >>> 6] |= 1L << value;
+				}
+			} else {
+				long[] words = (long[]) blocks[b];
+				int offset = base >>> 6;
+				int end = Math.min(WORDS_PER_BLOCK, bits.length - offset);
+				for (int w = 0; w < end; w++) {
+					bits[offset + w] |= words[w];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Passes every value of this bitmap to a consumer, in ascending order.
+	 *
+	 * @param consumer the consumer of the values
+	 */
+	public void forEach(IntConsumer consumer) {
+		for (int b = 0; b < keys.length; b++) {
+			int base = keys[b] << 16;
+			if (blocks[b] instanceof char[]) {
+				for (char low : (char[]) blocks[b]) {
+					consumer.accept(base | low);
+				}
+			} else {
+				long[] words = (long[]) blocks[b];
+				for (int w = 0; w < WORDS_PER_BLOCK; w++) {
+					long word = words[w];
+					while (word != 0) {
+						consumer.accept(base + (w << 6) + Long.numberOfTrailingZeros(word));
+						word &= word - 1;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of values in the bitmap.
+	 *
+	 * @return the number of values
+	 */
+	public int cardinality() {
+		return cardinality;
+	}
+
+	/**
+	 * Returns the approximate number of bytes used by the bitmap.
+	 *
+	 * @return the memory used, in bytes
+	 */
+	public long memoryBytes() {
+		long bytes = 4L * keys.length;
+		for (Object block : blocks) {
+			bytes += block instanceof char[] ? 2L * ((char[]) block).length : 8L * WORDS_PER_BLOCK;
+		}
+		return bytes;
+	}
+}
@@ -0,0 +1,126 @@
+package com.flickfinder.dao;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+
+import com.flickfinder.model.Movie;
+import com.flickfinder.model.Page;
+import com.flickfinder.model.Person;
+import com.flickfinder.util.Metrics;
+
+/**
+ * A movie DAO that times every call to another movie DAO, either the SQL one
+ * or the snapshot one, and counts the rows it returns.
+ */
+public class MeteredMovieDAO extends MovieDAO {
+
+	/**
+	 * The DAO that answers the calls.
+	 */
+	private final MovieDAO delegate;
+
+	private final MethodMetrics getAllMovies;
+	private final MethodMetrics streamAllMovies;
+	private final MethodMetrics getMoviesAfter;
+	private final MethodMetrics getMovieById;
+	private final MethodMetrics getMoviesByIds;
+	private final MethodMetrics getPeopleByMovieId;
+	private final MethodMetrics findPeopleByMovieId;
+	private final MethodMetrics streamPeopleByMovieId;
+	private final MethodMetrics findDirectorsByMovieId;
+	private final MethodMetrics getDirectorsByMovieIds;
+	private final MethodMetrics searchMovies;
+	private final MethodMetrics getRatingsByYear;
+
+	/**
+	 * Constructs a MeteredMovieDAO object.
+	 *
+	 * @param delegate the DAO that answers the calls
+	 * @param metrics  the metrics to record the calls in
+	 */
+	public MeteredMovieDAO(MovieDAO delegate, Metrics metrics) {
+		this.delegate = delegate;
+		getAllMovies = new MethodMetrics(metrics, "MovieDAO.getAllMovies");
+		streamAllMovies = new MethodMetrics(metrics, "MovieDAO.streamAllMovies");
+		getMoviesAfter = new MethodMetrics(metrics, "MovieDAO.getMoviesAfter");
+		getMovieById = new MethodMetrics(metrics, "MovieDAO.getMovieById");
+		getMoviesByIds = new MethodMetrics(metrics, "MovieDAO.getMoviesByIds");
+		getPeopleByMovieId = new MethodMetrics(metrics, "MovieDAO.getPeopleByMovieId");
+		findPeopleByMovieId = new MethodMetrics(metrics, "MovieDAO.findPeopleByMovieId");
+		streamPeopleByMovieId = new MethodMetrics(metrics, "MovieDAO.streamPeopleByMovieId");
+		findDirectorsByMovieId = new MethodMetrics(metrics, "MovieDAO.findDirectorsByMovieId");
+		getDirectorsByMovieIds = new MethodMetrics(metrics, "MovieDAO.getDirectorsByMovieIds");
+		searchMovies = new MethodMetrics(metrics, "MovieDAO.searchMovies");
+		getRatingsByYear = new MethodMetrics(metrics, "MovieDAO.getRatingsByYear");
+	}
+
+	@Override
+	public void setLeaderboard(RatingLeaderboard leaderboard) {
+		delegate.setLeaderboard(leaderboard);
+	}
+
+	@Override
+	public List<Movie> getAllMovies(int limit) throws SQLException {
+		return getAllMovies.time(() -> delegate.getAllMovies(limit), List::size);
+	}
+
+	@Override
+	public void streamAllMovies(int limit, RowCallback<Movie> callback) throws SQLException, IOException {
+		streamAllMovies.stream(() -> {
+			delegate.streamAllMovies(limit, streamAllMovies.counting(callback));
+			return null;
+		});
+	}
+
+	@Override
+	public Page<Movie> getMoviesAfter(int afterId, int limit) throws SQLException {
+		return getMoviesAfter.time(() -> delegate.getMoviesAfter(afterId, limit), page -> page.getItems().size());
+	}
+
+	@Override
+	public Movie getMovieById(int id) throws SQLException {
+		return getMovieById.time(() -> delegate.getMovieById(id), MethodMetrics::size);
+	}
+
+	@Override
+	public List<Movie> getMoviesByIds(int[] ids) throws SQLException {
+		return getMoviesByIds.time(() -> delegate.getMoviesByIds(ids), List::size);
+	}
+
+	@Override
+	public List<Person> getPeopleByMovieId(int movieId) throws SQLException {
+		return getPeopleByMovieId.time(() -> delegate.getPeopleByMovieId(movieId), List::size);
+	}
+
+	@Override
+	public List<Person> findPeopleByMovieId(int movieId) throws SQLException {
+		return findPeopleByMovieId.time(() -> delegate.findPeopleByMovieId(movieId), MethodMetrics::size);
+	}
+
+	@Override
+	public boolean streamPeopleByMovieId(int movieId, RowCallback<Person> callback) throws SQLException, IOException {
+		return streamPeopleByMovieId.stream(
+				() -> delegate.streamPeopleByMovieId(movieId, streamPeopleByMovieId.counting(callback)));
+	}
+
+	@Override
+	public List<Person> findDirectorsByMovieId(int movieId) throws SQLException {
+		return findDirectorsByMovieId.time(() -> delegate.findDirectorsByMovieId(movieId), MethodMetrics::size);
+	}
+
+	@Override
+	public List<List<Person>> getDirectorsByMovieIds(int[] ids) throws SQLException {
+		return getDirectorsByMovieIds.time(() -> delegate.getDirectorsByMovieIds(ids), List::size);
+	}
+
+	@Override
+	public List<Movie> searchMovies(String query, int limit) throws SQLException {
+		return searchMovies.time(() -> delegate.searchMovies(query, limit), List::size);
+	}
+
+	@Override
+	public List<Movie> getRatingsByYear(int limit, int votes, int year) throws SQLException {
+		return getRatingsByYear.time(() -> delegate.getRatingsByYear(limit, votes, year), List::size);
+	}
+}
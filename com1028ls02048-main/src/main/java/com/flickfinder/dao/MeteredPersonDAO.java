@@ -0,0 +1,116 @@
+package com.flickfinder.dao;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+
+import com.flickfinder.model.Movie;
+import com.flickfinder.model.Page;
+import com.flickfinder.model.Person;
+import com.flickfinder.util.Metrics;
+
+/**
+ * A person DAO that times every call to another person DAO, either the SQL
+ * one or the snapshot one, and counts the rows it returns.
+ */
+public class MeteredPersonDAO extends PersonDAO {
+
+	/**
+	 * The DAO that answers the calls.
+	 */
+	private final PersonDAO delegate;
+
+	private final MethodMetrics getAllPeople;
+	private final MethodMetrics streamAllPeople;
+	private final MethodMetrics getPeopleAfter;
+	private final MethodMetrics getPersonById;
+	private final MethodMetrics getPeopleByIds;
+	private final MethodMetrics searchPeople;
+	private final MethodMetrics getMoviesStarringPerson;
+	private final MethodMetrics findMoviesStarringPerson;
+	private final MethodMetrics streamMoviesStarringPerson;
+	private final MethodMetrics findMoviesDirectedByPerson;
+	private final MethodMetrics getMoviesDirectedByPeople;
+
+	/**
+	 * Constructs a MeteredPersonDAO object.
+	 *
+	 * @param delegate the DAO that answers the calls
+	 * @param metrics  the metrics to record the calls in
+	 */
+	public MeteredPersonDAO(PersonDAO delegate, Metrics metrics) {
+		this.delegate = delegate;
+		getAllPeople = new MethodMetrics(metrics, "PersonDAO.getAllPeople");
+		streamAllPeople = new MethodMetrics(metrics, "PersonDAO.streamAllPeople");
+		getPeopleAfter = new MethodMetrics(metrics, "PersonDAO.getPeopleAfter");
+		getPersonById = new MethodMetrics(metrics, "PersonDAO.getPersonById");
+		getPeopleByIds = new MethodMetrics(metrics, "PersonDAO.getPeopleByIds");
+		searchPeople = new MethodMetrics(metrics, "PersonDAO.searchPeople");
+		getMoviesStarringPerson = new MethodMetrics(metrics, "PersonDAO.getMoviesStarringPerson");
+		findMoviesStarringPerson = new MethodMetrics(metrics, "PersonDAO.findMoviesStarringPerson");
+		streamMoviesStarringPerson = new MethodMetrics(metrics, "PersonDAO.streamMoviesStarringPerson");
+		findMoviesDirectedByPerson = new MethodMetrics(metrics, "PersonDAO.findMoviesDirectedByPerson");
+		getMoviesDirectedByPeople = new MethodMetrics(metrics, "PersonDAO.getMoviesDirectedByPeople");
+	}
+
+	@Override
+	public List<Person> getAllPeople(Integer limit) throws SQLException {
+		return getAllPeople.time(() -> delegate.getAllPeople(limit), List::size);
+	}
+
+	@Override
+	public void streamAllPeople(int limit, RowCallback<Person> callback) throws SQLException, IOException {
+		streamAllPeople.stream(() -> {
+			delegate.streamAllPeople(limit, streamAllPeople.counting(callback));
+			return null;
+		});
+	}
+
+	@Override
+	public Page<Person> getPeopleAfter(int afterId, int limit) throws SQLException {
+		return getPeopleAfter.time(() -> delegate.getPeopleAfter(afterId, limit), page -> page.getItems().size());
+	}
+
+	@Override
+	public Person getPersonById(int id) throws SQLException {
+		return getPersonById.time(() -> delegate.getPersonById(id), MethodMetrics::size);
+	}
+
+	@Override
+	public List<Person> getPeopleByIds(int[] ids) throws SQLException {
+		return getPeopleByIds.time(() -> delegate.getPeopleByIds(ids), List::size);
+	}
+
+	@Override
+	public List<Person> searchPeople(String query, int limit) throws SQLException {
+		return searchPeople.time(() -> delegate.searchPeople(query, limit), List::size);
+	}
+
+	@Override
+	public List<Movie> getMoviesStarringPerson(int movieId) throws SQLException {
+		return getMoviesStarringPerson.time(() -> delegate.getMoviesStarringPerson(movieId), List::size);
+	}
+
+	@Override
+	public List<Movie> findMoviesStarringPerson(int personId) throws SQLException {
+		return findMoviesStarringPerson.time(() -> delegate.findMoviesStarringPerson(personId), MethodMetrics::size);
+	}
+
+	@Override
+	public boolean streamMoviesStarringPerson(int personId, RowCallback<Movie> callback)
+			throws SQLException, IOException {
+		return streamMoviesStarringPerson.stream(
+				() -> delegate.streamMoviesStarringPerson(personId, streamMoviesStarringPerson.counting(callback)));
+	}
+
+	@Override
+	public List<Movie> findMoviesDirectedByPerson(int personId) throws SQLException {
+		return findMoviesDirectedByPerson.time(() -> delegate.findMoviesDirectedByPerson(personId),
+				MethodMetrics::size);
+	}
+
+	@Override
+	public List<List<Movie>> getMoviesDirectedByPeople(int[] ids) throws SQLException {
+		return getMoviesDirectedByPeople.time(() -> delegate.getMoviesDirectedByPeople(ids), List::size);
+	}
+}
@@ -0,0 +1,102 @@
+package com.flickfinder.dao;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.function.ToIntFunction;
+
+import com.flickfinder.util.Metrics;
+
+/**
+ * The metrics of one DAO method: how long each call takes, how many rows it
+ * returns and how many calls fail. The counters are looked up once, when the
+ * metered DAO is created, so a call only touches its own adders.
+ */
+final class MethodMetrics {
+
+	/**
+	 * A DAO call that may throw one kind of checked exception.
+	 */
+	@FunctionalInterface
+	interface Call<T, E extends Exception> {
+		T call() throws E;
+	}
+
+	/**
+	 * A streaming DAO call, which may also fail to write a row.
+	 */
+	@FunctionalInterface
+	interface StreamCall<T> {
+		T call() throws SQLException, IOException;
+	}
+
+	private final Metrics.Histogram duration;
+	private final Metrics.Counter rows;
+	private final Metrics.Counter errors;
+
+	MethodMetrics(Metrics metrics, String method) {
+		duration = metrics.histogram("flickfinder_dao_duration_seconds", "Time spent in each DAO method", "method",
+				method);
+		rows = metrics.counter("flickfinder_dao_rows_total", "Rows returned by each DAO method", "method", method);
+		errors = metrics.counter("flickfinder_dao_errors_total", "DAO calls that threw an exception", "method",
+				method);
+	}
+
+	/**
+	 * Times a call and counts the rows in its result.
+	 */
+	<T, E extends Exception> T time(Call<T, E> call, ToIntFunction<T> rowCount) throws E {
+		long start = System.nanoTime();
+		boolean ok = false;
+		try {
+			T result = call.call();
+			rows.add(rowCount.applyAsInt(result));
+			ok = true;
+			return result;
+		} finally {
+			finish(start, ok);
+		}
+	}
+
+	/**
+	 * Times a streaming call. The rows are counted as they pass through
+	 * {@link #counting(RowCallback)}.
+	 */
+	<T> T stream(StreamCall<T> call) throws SQLException, IOException {
+		long start = System.nanoTime();
+		boolean ok = false;
+		try {
+			T result = call.call();
+			ok = true;
+			return result;
+		} finally {
+			finish(start, ok);
+		}
+	}
+
+	/**
+	 * Wraps a callback so that every row passed to it is counted.
+	 */
+	<R> RowCallback<R> counting(RowCallback<R> callback) {
+		return row -> {
+			rows.increment();
+			callback.accept(row);
+		};
+	}
+
+	private void finish(long start, boolean ok) {
+		duration.observeNanos(System.nanoTime() - start);
+		if (!ok) {
+			errors.increment();
+		}
+	}
+
+	/**
+	 * Counts a nullable list, or a nullable single row.
+	 */
+	static int size(Object result) {
+		if (result == null) {
+			return 0;
+		}
+		return result instanceof java.util.Collection ? ((java.util.Collection<?>) result).size() : 1;
+	}
+}
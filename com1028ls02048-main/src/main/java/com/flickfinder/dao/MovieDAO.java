@@ -1,5 +1,6 @@
 package com.flickfinder.dao;
 
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -7,10 +8,15 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import com.flickfinder.model.Movie;
 import com.flickfinder.model.MovieRating;
+import com.flickfinder.model.Page;
 import com.flickfinder.model.Person;
 import com.flickfinder.util.Database;
+import com.flickfinder.util.SearchQuery;
 
 /**
  * The Data Access Object for the Movie table.
@@ -21,18 +27,134 @@ import com.flickfinder.util.Database;
  */
 public class MovieDAO {
 
+	private static final Logger LOG = LoggerFactory.getLogger(MovieDAO.class);
+
+	/**
+	 * The query used by {@link #getAllMovies(int)}.
+	 */
+	public static final String SELECT_ALL_MOVIES = "select * from movies LIMIT ?";
+
+	/**
+	 * The query used by {@link #getMoviesAfter(int, int)}. It seeks on the
+	 * primary key, so every page costs the same as the first.
+	 */
+	public static final String SELECT_MOVIES_AFTER = "select * from movies WHERE id > ? ORDER BY id LIMIT ?";
+
+	/**
+	 * The query used by {@link #getMovieById(int)}.
+	 */
+	public static final String SELECT_MOVIE_BY_ID = "select * from movies where id = ?";
+
+	/**
+	 * The start of the query used by {@link #getMoviesByIds(int[])}; the list
+	 * of ids is added to the end.
+	 */
+	public static final String SELECT_MOVIES_BY_IDS = "select * from movies where id IN ";
+
+	/**
+	 * The query used by {@link #getPeopleByMovieId(int)}.
+	 */
+	public static final String SELECT_PEOPLE_BY_MOVIE_ID = "SELECT p.id, p.name, p.birth FROM people p "
+			+ "INNER JOIN stars s on p.id = s.person_id "
+			+ "INNER JOIN movies m on s.movie_id = m.id "
+			+ "WHERE m.id = ?";
+
+	/**
+	 * The query used by {@link #findPeopleByMovieId(int)}. It starts from the
+	 * movie, so a movie with no stars still returns one row, with null in the
+	 * person columns, and a movie that does not exist returns no rows at all.
+	 */
+	public static final String SELECT_MOVIE_AND_PEOPLE = "SELECT m.id AS movie_id, p.id, p.name, p.birth FROM movies m "
+			+ "LEFT JOIN stars s on s.movie_id = m.id "
+			+ "LEFT JOIN people p on p.id = s.person_id "
+			+ "WHERE m.id = ?";
+
+	/**
+	 * The query used by {@link #streamPeopleByMovieId(int, RowCallback)} to
+	 * read one chunk of stars, in order of person, after the star given by its
+	 * person id and row id. Like {@link #SELECT_MOVIE_AND_PEOPLE} it returns a
+	 * row with no star if there are no more stars, and no rows if there is no
+	 * such movie.
+	 */
+	public static final String SELECT_MOVIE_AND_PEOPLE_AFTER = "SELECT m.id AS movie_id, s.person_id AS star_id, s.rowid AS star, p.id, p.name, p.birth FROM movies m "
+			+ "LEFT JOIN stars s on s.movie_id = m.id AND (s.person_id, s.rowid) > (?, ?) "
+			+ "LEFT JOIN people p on p.id = s.person_id "
+			+ "WHERE m.id = ? "
+			+ "ORDER BY s.person_id, s.rowid "
+			+ "LIMIT ?";
+
+	/**
+	 * The query used by {@link #findDirectorsByMovieId(int)}. Like
+	 * {@link #SELECT_MOVIE_AND_PEOPLE}, it checks that the movie exists in the
+	 * same query. The directors are found through the index on
+	 * directors(movie_id, person_id).
+	 */
+	public static final String SELECT_MOVIE_AND_DIRECTORS = "SELECT m.id AS movie_id, p.id, p.name, p.birth FROM movies m "
+			+ "LEFT JOIN directors d on d.movie_id = m.id "
+			+ "LEFT JOIN people p on p.id = d.person_id "
+			+ "WHERE m.id = ? "
+			+ "ORDER BY p.id";
+
+	/**
+	 * The start of the query used by {@link #getDirectorsByMovieIds(int[])};
+	 * the list of ids is added to the end.
+	 */
+	public static final String SELECT_DIRECTORS_BY_MOVIE_IDS = "SELECT m.id AS key_id, p.id, p.name, p.birth FROM movies m "
+			+ "LEFT JOIN directors d on d.movie_id = m.id "
+			+ "LEFT JOIN people p on p.id = d.person_id "
+			+ "WHERE m.id IN ";
+
 	/**
-	 * The connection to the database.
+	 * The order of the rows of {@link #SELECT_DIRECTORS_BY_MOVIE_IDS}, the same
+	 * as {@link #SELECT_MOVIE_AND_DIRECTORS}.
 	 */
-	private final Connection connection;
+	public static final String ORDER_DIRECTORS_BY_MOVIE_IDS = "ORDER BY m.id, p.id";
+
+	/**
+	 * The query used by {@link #searchMovies(String, int)}. The best matches,
+	 * by BM25 rank, come first.
+	 */
+	public static final String SEARCH_MOVIES = "SELECT m.id, m.title, m.year FROM movies_fts f "
+			+ "INNER JOIN movies m ON m.id = f.rowid "
+			+ "WHERE movies_fts MATCH ? "
+			+ "ORDER BY f.rank, m.id "
+			+ "LIMIT ?";
+
+	/**
+	 * The query used by {@link #getRatingsByYear(int, int, int)}.
+	 */
+	public static final String SELECT_RATINGS_BY_YEAR = "SELECT m.id, m.title, r.rating, r.votes, m.year FROM movies m "
+			+ "INNER JOIN ratings r ON m.id = r.movie_id "
+			+ "WHERE r.votes >= ? AND m.year = ? "
+			+ "ORDER BY r.rating DESC, m.id "
+			+ "LIMIT ? ";
+
+	/**
+	 * The database, which lends out a connection for each query.
+	 */
+	private final Database database;
+
+	/**
+	 * The precomputed ratings of each year, if one has been built.
+	 */
+	private RatingLeaderboard leaderboard;
 
 	/**
 	 * Constructs a SQLiteMovieDAO object and gets the database connection.
 	 *
 	 */
 	public MovieDAO() {
-		Database database = Database.getInstance();
-		connection = database.getConnection();
+		database = Database.getInstance();
+	}
+
+	/**
+	 * Makes {@link #getRatingsByYear(int, int, int)} answer from a precomputed
+	 * leaderboard instead of querying the database.
+	 *
+	 * @param leaderboard the leaderboard to use, or null to query the database
+	 */
+	public void setLeaderboard(RatingLeaderboard leaderboard) {
+		this.leaderboard = leaderboard;
 	}
 
 	/**
@@ -50,16 +172,93 @@ public class MovieDAO {
 			limit = 50;
 		}
 
-		String statement = "select * from movies LIMIT ?";
-		PreparedStatement ps = connection.prepareStatement(statement);
-		ps.setInt(1, limit);
-		ResultSet rs = ps.executeQuery();
+		try (Connection connection = database.getConnection();
+				PreparedStatement ps = connection.prepareStatement(SELECT_ALL_MOVIES)) {
+			ps.setInt(1, limit);
+			try (ResultSet rs = ps.executeQuery()) {
+				while (rs.next()) {
+					movies.add(new Movie(rs.getInt("id"), rs.getString("title"), rs.getInt("year")));
+				}
+
+				return movies;
+			}
+		}
+	}
+
+	/**
+	 * Passes the first movies in the database to the callback one at a time,
+	 * in order of id. They are read a chunk at a time, and each chunk is
+	 * passed on after the connection is given back. This is the streaming
+	 * form of {@link #getAllMovies(int)}.
+	 *
+	 * @param limit    the number of movies
+	 * @param callback receives each movie
+	 * 
+	 * @throws SQLException if a database error occurs
+	 * @throws IOException  if the callback cannot write a movie
+	 */
+	public void streamAllMovies(int limit, RowCallback<Movie> callback) throws SQLException, IOException {
+		if (limit <= 0) {
+			limit = 50;
+		}
+
+		List<Movie> chunk = new ArrayList<>();
+		int afterId = Integer.MIN_VALUE;
+		while (limit > 0) {
+			int size = Math.min(limit, RowCallback.CHUNK_SIZE);
+			chunk.clear();
+			try (Connection connection = database.getConnection();
+					PreparedStatement ps = connection.prepareStatement(SELECT_MOVIES_AFTER)) {
+				ps.setInt(1, afterId);
+				ps.setInt(2, size);
+				try (ResultSet rs = ps.executeQuery()) {
+					while (rs.next()) {
+						chunk.add(new Movie(rs.getInt("id"), rs.getString("title"), rs.getInt("year")));
+					}
+				}
+			}
+			for (Movie movie : chunk) {
+				callback.accept(movie);
+			}
+			if (chunk.size() < size) {
+				return;
+			}
+			limit -= size;
+			afterId = chunk.get(size - 1).getId();
+		}
+	}
+
+	/**
+	 * Returns one page of movies, in order of id. To walk through every movie,
+	 * start with an id of 0 and then pass the id of the last movie on each
+	 * page.
+	 *
+	 * @param afterId the id after which the page starts
+	 * @param limit   the number of movies on a page
+	 * 
+	 * @return the page of movies, with a token for the next page if there is one
+	 * 
+	 * @throws SQLException if a database error occurs
+	 */
+	public Page<Movie> getMoviesAfter(int afterId, int limit) throws SQLException {
+		List<Movie> movies = new ArrayList<>();
+
+		if (limit <= 0) {
+			limit = 50;
+		}
 
-		while (rs.next()) {
-			movies.add(new Movie(rs.getInt("id"), rs.getString("title"), rs.getInt("year")));
+		try (Connection connection = database.getConnection();
+				PreparedStatement ps = connection.prepareStatement(SELECT_MOVIES_AFTER)) {
+			ps.setInt(1, afterId);
+			ps.setInt(2, Pages.fetchSize(limit));
+			try (ResultSet rs = ps.executeQuery()) {
+				while (rs.next()) {
+					movies.add(new Movie(rs.getInt("id"), rs.getString("title"), rs.getInt("year")));
+				}
+			}
 		}
 
-		return movies;
+		return Pages.of(movies, limit, Movie::getId);
 	}
 
 	/**
@@ -72,20 +271,32 @@ public class MovieDAO {
 	 * @throws SQLException if a database error occurs
 	 */
 	public Movie getMovieById(int id) throws SQLException {
-		String statement = "select * from movies where id = ?";
-		PreparedStatement ps = connection.prepareStatement(statement);
-		ps.setInt(1, id);
-		ResultSet rs = ps.executeQuery();
+		try (Connection connection = database.getConnection();
+				PreparedStatement ps = connection.prepareStatement(SELECT_MOVIE_BY_ID)) {
+			ps.setInt(1, id);
+			try (ResultSet rs = ps.executeQuery()) {
+				if (rs.next()) {
+					return new Movie(rs.getInt("id"), rs.getString("title"), rs.getInt("year"));
+				}
 
-		if (rs.next()) {
-			return new Movie(rs.getInt("id"), rs.getString("title"), rs.getInt("year"));
+				// return null if the id does not return a movie.
+				return null;
+			}
 		}
+	}
 
-		// return null if the id does not return a movie.
-		// return null;
-
-		// throw an SQLException if the id does not return a movie
-		throw new SQLException("Invalid id");
+	/**
+	 * Returns the movies with the given ids, looked up a chunk at a time
+	 * rather than one query per id.
+	 *
+	 * @param ids the ids of the movies, which may contain repeats
+	 * @return the movies in the same order as the ids, with null for each id
+	 *         that does not match a movie
+	 * @throws SQLException if a database error occurs
+	 */
+	public List<Movie> getMoviesByIds(int[] ids) throws SQLException {
+		return Batches.lookup(database, SELECT_MOVIES_BY_IDS, ids,
+				rs -> new Movie(rs.getInt("id"), rs.getString("title"), rs.getInt("year")), Movie::getId);
 	}
 
 	/**
@@ -99,20 +310,166 @@ public class MovieDAO {
 	 */
 	public List<Person> getPeopleByMovieId(int movieId) throws SQLException {
 		List<Person> people = new ArrayList<>();
+		try (Connection connection = database.getConnection();
+				PreparedStatement ps = connection.prepareStatement(SELECT_PEOPLE_BY_MOVIE_ID)) {
+			ps.setInt(1, movieId);
+			try (ResultSet rs = ps.executeQuery()) {
+				while (rs.next()) {
+					people.add(new Person(rs.getInt("id"), rs.getString("name"), rs.getInt("birth")));
+				}
+
+				return people;
+			}
+		}
+	}
+
+	/**
+	 * Returns the stars of a movie, checking that the movie exists in the same
+	 * query.
+	 *
+	 * @param movieId the id of the movie
+	 * @return the people who star in the movie, or null if there is no such
+	 *         movie
+	 * @throws SQLException if a database error occurs
+	 */
+	public List<Person> findPeopleByMovieId(int movieId) throws SQLException {
+		List<Person> people = new ArrayList<>();
+		try (Connection connection = database.getConnection();
+				PreparedStatement ps = connection.prepareStatement(SELECT_MOVIE_AND_PEOPLE)) {
+			ps.setInt(1, movieId);
+			try (ResultSet rs = ps.executeQuery()) {
+				boolean found = false;
+				while (rs.next()) {
+					found = true;
+					rs.getInt("id");
+					if (!rs.wasNull()) {
+						people.add(new Person(rs.getInt("id"), rs.getString("name"), rs.getInt("birth")));
+					}
+				}
+				return found ? people : null;
+			}
+		}
+	}
 
-		String statement = "SELECT p.id, p.name, p.birth FROM people p "
-				+ "INNER JOIN stars s on p.id = s.person_id "
-				+ "INNER JOIN movies m on s.movie_id = m.id "
-				+ "WHERE m.id = ?";
-		PreparedStatement ps = connection.prepareStatement(statement);
-		ps.setInt(1, movieId);
-		ResultSet rs = ps.executeQuery();
+	/**
+	 * Passes the stars of a movie to the callback one at a time, in order of
+	 * id. They are read a chunk at a time, and each chunk is passed on after
+	 * the connection is given back. This is the streaming form of
+	 * {@link #findPeopleByMovieId(int)}.
+	 *
+	 * @param movieId  the id of the movie
+	 * @param callback receives each star
+	 * @return true if the movie exists, or false if there is no such movie
+	 * 
+	 * @throws SQLException if a database error occurs
+	 * @throws IOException  if the callback cannot write a star
+	 */
+	public boolean streamPeopleByMovieId(int movieId, RowCallback<Person> callback) throws SQLException, IOException {
+		List<Person> chunk = new ArrayList<>();
+		boolean found = false;
+		int afterPerson = Integer.MIN_VALUE;
+		long afterStar = Long.MIN_VALUE;
+		int read;
+		do {
+			chunk.clear();
+			read = 0;
+			try (Connection connection = database.getConnection();
+					PreparedStatement ps = connection.prepareStatement(SELECT_MOVIE_AND_PEOPLE_AFTER)) {
+				ps.setInt(1, afterPerson);
+				ps.setLong(2, afterStar);
+				ps.setInt(3, movieId);
+				ps.setInt(4, RowCallback.CHUNK_SIZE);
+				try (ResultSet rs = ps.executeQuery()) {
+					while (rs.next()) {
+						found = true;
+						afterStar = rs.getLong("star");
+						if (rs.wasNull()) {
+							continue;
+						}
+						read++;
+						afterPerson = rs.getInt("star_id");
+						rs.getInt("id");
+						if (!rs.wasNull()) {
+							chunk.add(new Person(rs.getInt("id"), rs.getString("name"), rs.getInt("birth")));
+						}
+					}
+				}
+			}
+			for (Person person : chunk) {
+				callback.accept(person);
+			}
+		} while (read == RowCallback.CHUNK_SIZE);
+		return found;
+	}
 
-		while (rs.next()) {
-			people.add(new Person(rs.getInt("id"), rs.getString("name"), rs.getInt("birth")));
+	/**
+	 * Returns the directors of a movie, checking that the movie exists in the
+	 * same query.
+	 *
+	 * @param movieId the id of the movie
+	 * @return the people who directed the movie, in order of id, or null if
+	 *         there is no such movie
+	 * @throws SQLException if a database error occurs
+	 */
+	public List<Person> findDirectorsByMovieId(int movieId) throws SQLException {
+		List<Person> people = new ArrayList<>();
+		try (Connection connection = database.getConnection();
+				PreparedStatement ps = connection.prepareStatement(SELECT_MOVIE_AND_DIRECTORS)) {
+			ps.setInt(1, movieId);
+			try (ResultSet rs = ps.executeQuery()) {
+				boolean found = false;
+				while (rs.next()) {
+					found = true;
+					rs.getInt("id");
+					if (!rs.wasNull()) {
+						people.add(new Person(rs.getInt("id"), rs.getString("name"), rs.getInt("birth")));
+					}
+				}
+				return found ? people : null;
+			}
 		}
+	}
 
-		return people;
+	/**
+	 * Returns the directors of many movies, looked up a chunk at a time rather
+	 * than one query per movie.
+	 *
+	 * @param ids the ids of the movies, which may contain repeats
+	 * @return the directors of each movie in the same order as the ids, with
+	 *         null for each id that does not match a movie
+	 * @throws SQLException if a database error occurs
+	 */
+	public List<List<Person>> getDirectorsByMovieIds(int[] ids) throws SQLException {
+		return Batches.lookupLinks(database, SELECT_DIRECTORS_BY_MOVIE_IDS, ids, ORDER_DIRECTORS_BY_MOVIE_IDS, "id",
+				rs -> new Person(rs.getInt("id"), rs.getString("name"), rs.getInt("birth")));
+	}
+
+	/**
+	 * Searches movie titles. Every word of the query must appear in the title,
+	 * either in full or as the start of a longer word.
+	 *
+	 * The search uses the full-text index in the indexed copy of the database,
+	 * see {@link com.flickfinder.util.SchemaOptimizer}.
+	 *
+	 * @param query the words to search for
+	 * @param limit the largest number of movies to return
+	 * @return the matching movies, best match first
+	 * @throws SQLException             if a database error occurs
+	 * @throws IllegalArgumentException if the query has no words in it
+	 */
+	public List<Movie> searchMovies(String query, int limit) throws SQLException {
+		List<Movie> movies = new ArrayList<>();
+		try (Connection connection = database.getConnection();
+				PreparedStatement ps = connection.prepareStatement(SEARCH_MOVIES)) {
+			ps.setString(1, SearchQuery.toMatch(query));
+			ps.setInt(2, limit);
+			try (ResultSet rs = ps.executeQuery()) {
+				while (rs.next()) {
+					movies.add(new Movie(rs.getInt("id"), rs.getString("title"), rs.getInt("year")));
+				}
+				return movies;
+			}
+		}
 	}
 
 	/**
@@ -143,22 +500,26 @@ public class MovieDAO {
 			votes = 1000;
 		}
 
-		String statement = "SELECT m.id, m.title, r.rating, r.votes, m.year FROM movies m "
-				+ "INNER JOIN ratings r ON m.id = r.movie_id "
-				+ "WHERE r.votes >= ? AND m.year = ? "
-				+ "ORDER BY r.rating DESC "
-				+ "LIMIT ? ";
+		if (leaderboard != null) {
+			long start = System.nanoTime();
+			List<Movie> top = leaderboard.top(year, votes, limit);
+			LOG.debug("getRatingsByYear({}, {}, {}) answered from the leaderboard in {} us", limit, votes, year,
+					(System.nanoTime() - start) / 1000);
+			return top;
+		}
 
-		PreparedStatement ps = connection.prepareStatement(statement);
-		ps.setInt(1, votes);
-		ps.setInt(2, year);
-		ps.setInt(3, limit);
-		ResultSet rs = ps.executeQuery();
+		try (Connection connection = database.getConnection();
+				PreparedStatement ps = connection.prepareStatement(SELECT_RATINGS_BY_YEAR)) {
+			ps.setInt(1, votes);
+			ps.setInt(2, year);
+			ps.setInt(3, limit);
+			try (ResultSet rs = ps.executeQuery()) {
+				while (rs.next()) {
+					movies.add(new MovieRating(rs.getInt("id"), rs.getString("title"), rs.getInt("year"), rs.getDouble("rating"), rs.getInt("votes")));
+				}
 
-		while (rs.next()) {
-			movies.add(new MovieRating(rs.getInt("id"), rs.getString("title"), rs.getInt("year"), rs.getDouble("rating"), rs.getInt("votes")));
+				return movies;
+			}
 		}
-
-		return movies;
 	}
 }
\ No newline at end of file
@@ -0,0 +1,632 @@
+package com.flickfinder.dao;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.flickfinder.util.Database;
+
+/**
+ * Bitmap indexes over the year, rating and votes of every movie, for
+ * filtering movies by any combination of them without querying the database.
+ *
+ * There is a {@link CompressedBitmap} of the movies of each year, of each
+ * tenth of a rating from 0.0 to 10.0, of each power of ten of votes, and of
+ * all the rated movies. A filter ORs together the bitmaps of the values it
+ * allows for each field into one plain bitset per field, and ANDs those a
+ * word at a time. Ratings are as precise as a tenth, so a minimum rating is
+ * matched exactly by whole bitmaps; a minimum number of votes is matched by
+ * whole bitmaps above it, and the one bitmap it falls in is checked movie by
+ * movie.
+ *
+ * The movies are numbered by their position in id order, so walking the
+ * result bitset gives them in id order. For the other orders a list of every
+ * movie in that order is kept, and walked until the page is full.
+ *
+ * The counts of each facet are worked out over the movies that match, and
+ * come back with the page. The counts over every movie are kept, so when most
+ * movies match only those that do not are looked at.
+ *
+ */
+public class MovieFilterIndex {
+
+	private static final Logger LOG = LoggerFactory.getLogger(MovieFilterIndex.class);
+
+	/**
+	 * The query that loads the fields of every movie, in id order.
+	 */
+	static final String SELECT_MOVIE_FIELDS = "SELECT m.id, m.year, r.rating, r.votes FROM movies m "
+			+ "LEFT JOIN ratings r ON r.movie_id = m.id "
+			+ "ORDER BY m.id";
+
+	/**
+	 * The number of tenths from 0.0 to 10.0.
+	 */
+	private static final int TENTHS = 101;
+
+	/**
+	 * The number of powers of ten an int can be in.
+	 */
+	private static final int VOTE_BUCKETS = 10;
+
+	private final int[] ids;
+
+	/**
+	 * The index of the year of each movie in {@link #years}, or -1 if it has no
+	 * year.
+	 */
+	private final short[] yearSlots;
+
+	/**
+	 * The rating of each movie in tenths, or -1 if it is not rated.
+	 */
+	private final byte[] tenths;
+	private final int[] votes;
+
+	/**
+	 * The power of ten of the votes of each movie, or -1 if it is not rated.
+	 */
+	private final byte[] voteBuckets;
+
+	/**
+	 * The counts of each facet over every movie.
+	 */
+	private final FacetCounts allCounts;
+
+	/**
+	 * The distinct years, in ascending order, with the bitmap of each at the
+	 * same index.
+	 */
+	private final int[] years;
+	private final CompressedBitmap[] yearBitmaps;
+	private final CompressedBitmap[] tenthBitmaps;
+	private final CompressedBitmap[] voteBitmaps;
+	private final CompressedBitmap rated;
+
+	/**
+	 * Every movie, in each order it can be sorted in.
+	 */
+	private final int[] byYear;
+	private final int[] byRating;
+	private final int[] byVotes;
+
+	private MovieFilterIndex(int[] ids, int[] movieYears, double[] ratings, int[] movieVotes) {
+		int count = ids.length;
+		this.ids = ids;
+		this.votes = movieVotes;
+		this.years = Arrays.stream(movieYears).filter(year -> year != 0).distinct().sorted().toArray();
+		this.yearSlots = new short[count];
+		this.tenths = new byte[count];
+		this.voteBuckets = new byte[count];
+		for (int i = 0; i < count; i++) {
+			yearSlots[i] = (short) (movieYears[i] != 0 ? Arrays.binarySearch(years, movieYears[i]) : -1);
+			if (Double.isNaN(ratings[i])) {
+				tenths[i] = -1;
+				voteBuckets[i] = -1;
+			} else {
+				tenths[i] = (byte) Math.max(0, Math.min(TENTHS - 1, Math.round(ratings[i] * 10)));
+				voteBuckets[i] = (byte) voteBucket(movieVotes[i]);
+			}
+		}
+		this.allCounts = new FacetCounts(years.length);
+		for (int i = 0; i < count; i++) {
+			allCounts.add(i, 1);
+		}
+		int[] slots = new int[count];
+		for (int i = 0; i < count; i++) {
+			slots[i] = yearSlots[i];
+		}
+		this.yearBitmaps = group(slots, years.length);
+		for (int i = 0; i < count; i++) {
+			slots[i] = tenths[i];
+		}
+		this.tenthBitmaps = group(slots, TENTHS);
+		for (int i = 0; i < count; i++) {
+			slots[i] = voteBuckets[i];
+		}
+		this.voteBitmaps = group(slots, VOTE_BUCKETS);
+		for (int i = 0; i < count; i++) {
+			slots[i] = tenths[i] >= 0 ? 0 : -1;
+		}
+		this.rated = group(slots, 1)[0];
+
+		long[] keys = new long[count];
+		for (int i = 0; i < count; i++) {
+			keys[i] = (long) (yearSlots[i] >= 0 ? yearSlots[i] : Short.MAX_VALUE) << 32 | i;
+		}
+		this.byYear = order(keys);
+		for (int i = 0; i < count; i++) {
+			keys[i] = (long) (tenths[i] >= 0 ? TENTHS - 1 - tenths[i] : TENTHS) << 32 | i;
+		}
+		this.byRating = order(keys);
+		for (int i = 0; i < count; i++) {
+			keys[i] = (long) (tenths[i] >= 0 ? Integer.MAX_VALUE - 1 - movieVotes[i] : Integer.MAX_VALUE) << 32 | i;
+		}
+		this.byVotes = order(keys);
+	}
+
+	/**
+	 * Builds the index from the database.
+	 *
+	 * @param database the database to read the movies and ratings from
+	 * @return the index
+	 * @throws SQLException if a database error occurs
+	 */
+	public static MovieFilterIndex load(Database database) throws SQLException {
+		long start = System.nanoTime();
+		int capacity = 1024;
+		int[] ids = new int[capacity];
+		int[] years = new int[capacity];
+		double[] ratings = new double[capacity];
+		int[] votes = new int[capacity];
+		int count = 0;
+		try (Connection connection = database.getConnection();
+				Statement stmt = connection.createStatement();
+				ResultSet rs = stmt.executeQuery(SELECT_MOVIE_FIELDS)) {
+			while (rs.next()) {
+				if (count == ids.length) {
+					capacity = count * 2;
+					ids = Arrays.copyOf(ids, capacity);
+					years = Arrays.copyOf(years, capacity);
+					ratings = Arrays.copyOf(ratings, capacity);
+					votes = Arrays.copyOf(votes, capacity);
+				}
+				ids[count] = rs.getInt(1);
+				years[count] = rs.getInt(2);
+				double rating = rs.getDouble(3);
+				ratings[count] = rs.wasNull() ? Double.NaN : rating;
+				votes[count] = rs.getInt(4);
+				count++;
+			}
+		}
+		MovieFilterIndex index = new MovieFilterIndex(Arrays.copyOf(ids, count), Arrays.copyOf(years, count),
+				Arrays.copyOf(ratings, count), Arrays.copyOf(votes, count));
+		index.log(start);
+		return index;
+	}
+
+	/**
+	 * Builds the index from a snapshot.
+	 *
+	 * @param snapshot the in-memory copy of the database
+	 * @return the index
+	 */
+	public static MovieFilterIndex of(Snapshot snapshot) {
+		long start = System.nanoTime();
+		int count = snapshot.movieCount();
+		int[] ids = new int[count];
+		int[] years = new int[count];
+		double[] ratings = new double[count];
+		int[] votes = new int[count];
+		for (int i = 0; i < count; i++) {
+			ids[i] = snapshot.movieId(i);
+			years[i] = snapshot.movieYear(i);
+			ratings[i] = snapshot.movieRating(i);
+			votes[i] = snapshot.movieVotes(i);
+		}
+		MovieFilterIndex index = new MovieFilterIndex(ids, years, ratings, votes);
+		index.log(start);
+		return index;
+	}
+
+	private void log(long start) {
+		LOG.info("Built movie filter index of {} movies in {} ms ({} MB)", ids.length,
+				(System.nanoTime() - start) / 1_000_000, memoryBytes() / (1024 * 1024));
+	}
+
+	/**
+	 * Builds one bitmap for each group, of the movies in that group.
+	 *
+	 * @param groups the group of each movie, or -1 for none
+	 * @param count  the number of groups
+	 */
+	private static CompressedBitmap[] group(int[] groups, int count) {
+		int[] offsets = new int[count + 1];
+		for (int group : groups) {
+			if (group >= 0) {
+				offsets[group + 1]++;
+			}
+		}
+		for (int g = 0; g < count; g++) {
+			offsets[g + 1] += offsets[g];
+		}
+		int[] next = Arrays.copyOf(offsets, count);
+		int[] movies = new int[offsets[count]];
+		for (int i = 0; i < groups.length; i++) {
+			if (groups[i] >= 0) {
+				movies[next[groups[i]]++] = i;
+			}
+		}
+		CompressedBitmap[] bitmaps = new CompressedBitmap[count];
+		for (int g = 0; g < count; g++) {
+			int[] values = Arrays.copyOfRange(movies, offsets[g], offsets[g + 1]);
+			bitmaps[g] = CompressedBitmap.of(values, values.length);
+		}
+		return bitmaps;
+	}
+
+	/**
+	 * Sorts keys with a movie in their low 32 bits, and returns the movies.
+	 */
+	private static int[] order(long[] keys) {
+		long[] sorted = keys.clone();
+		Arrays.sort(sorted);
+		int[] movies = new int[sorted.length];
+		for (int i = 0; i < sorted.length; i++) {
+			movies[i] = (int) sorted[i];
+		}
+		return movies;
+	}
+
+	/**
+	 * Returns the power of ten a number of votes is in: 0 for 0 to 9, 1 for 10
+	 * to 99, and so on.
+	 */
+	private static int voteBucket(int votes) {
+		int bucket = 0;
+		for (long bound = 10; bound <= votes; bound *= 10) {
+			bucket++;
+		}
+		return bucket;
+	}
+
+	/**
+	 * Finds the movies that match a filter.
+	 *
+	 * @param filter what to filter the movies by
+	 * @return the number of movies that match, the page of them asked for and
+	 *         the counts of each facet
+	 * @throws IllegalArgumentException if the sort order is not known, or the
+	 *                                  offset or limit are negative
+	 */
+	public Result filter(Filter filter) {
+		int[] sortOrder = sortOrder(filter.sort);
+		if (filter.offset < 0 || filter.limit < 0) {
+			throw new IllegalArgumentException("Offset and limit must not be negative");
+		}
+		int words = (ids.length + 63) >>> 6;
+		long[] result = null;
+
+		if (filter.yearFrom != null || filter.yearTo != null) {
+			long[] bits = new long[words];
+			int from = lowerBound(years, filter.yearFrom != null ? filter.yearFrom : Integer.MIN_VALUE);
+			for (int slot = from; slot < years.length
+					&& (filter.yearTo == null || years[slot] <= filter.yearTo); slot++) {
+				yearBitmaps[slot].orInto(bits);
+			}
+			result = and(result, bits);
+		}
+		if (filter.minRating != null) {
+			long[] bits = new long[words];
+			for (int tenth = Math.max(0, (int) Math.ceil(filter.minRating * 10 - 1e-9)); tenth < TENTHS; tenth++) {
+				tenthBitmaps[tenth].orInto(bits);
+			}
+			result = and(result, bits);
+		}
+		if (filter.minVotes != null) {
+			long[] bits = new long[words];
+			int minVotes = filter.minVotes;
+			int boundary = voteBucket(Math.max(0, minVotes));
+			for (int bucket = boundary + 1; bucket < VOTE_BUCKETS; bucket++) {
+				voteBitmaps[bucket].orInto(bits);
+			}
+			voteBitmaps[boundary].forEach(movie -> {
+				if (votes[movie] >= minVotes) {
+					bits[movie >>> 6] |= 1L << movie;
+				}
+			});
+			result = and(result, bits);
+		}
+		if (filter.rated != null) {
+			long[] bits = new long[words];
+			rated.orInto(bits);
+			if (!filter.rated) {
+				for (int w = 0; w < words; w++) {
+					bits[w] = ~bits[w];
+				}
+				clearTail(bits);
+			}
+			result = and(result, bits);
+		}
+		if (result == null) {
+			result = new long[words];
+			Arrays.fill(result, -1L);
+			clearTail(result);
+		}
+
+		int total = 0;
+		for (long word : result) {
+			total += Long.bitCount(word);
+		}
+		Result page = new Result(total, Math.min(filter.limit, Math.max(0, total - filter.offset)));
+		int skip = filter.offset;
+		if (sortOrder == null) {
+			for (int w = 0; w < words && page.size < page.movieIds.length; w++) {
+				long word = result[w];
+				while (word != 0 && page.size < page.movieIds.length) {
+					int movie = (w << 6) + Long.numberOfTrailingZeros(word);
+					word &= word - 1;
+					if (skip > 0) {
+						skip--;
+					} else {
+						add(page, movie);
+					}
+				}
+			}
+		} else {
+			for (int i = 0; i < sortOrder.length && page.size < page.movieIds.length; i++) {
+				int movie = sortOrder[i];
+				if ((result[movie >>> 6] & (1L << movie)) != 0) {
+					if (skip > 0) {
+						skip--;
+					} else {
+						add(page, movie);
+					}
+				}
+			}
+		}
+		countFacets(result, page);
+		return page;
+	}
+
+	private int[] sortOrder(String sort) {
+		if (sort == null || sort.equals("id")) {
+			return null;
+		}
+		switch (sort) {
+		case "year":
+			return byYear;
+		case "rating":
+			return byRating;
+		case "votes":
+			return byVotes;
+		default:
+			throw new IllegalArgumentException("Unknown sort order " + sort);
+		}
+	}
+
+	private void add(Result page, int movie) {
+		page.movieIds[page.size] = ids[movie];
+		page.ratings[page.size] = tenths[movie] >= 0 ? tenths[movie] / 10.0 : Double.NaN;
+		page.votes[page.size] = votes[movie];
+		page.size++;
+	}
+
+	/**
+	 * Counts the movies that match in each year, whole rating, power of ten of
+	 * votes and whether they are rated. Only the values with at least one
+	 * movie are kept.
+	 *
+	 * When most movies match, the counts are worked out from those that do not
+	 * instead, taken away from the counts of every movie, so at most half of
+	 * the movies are ever looked at.
+	 */
+	private void countFacets(long[] result, Result page) {
+		boolean inverse = page.total > ids.length / 2;
+		FacetCounts counts = inverse ? allCounts.copy() : new FacetCounts(years.length);
+		for (int w = 0; w < result.length; w++) {
+			long word = inverse ? ~result[w] : result[w];
+			if (inverse && w == result.length - 1 && (ids.length & 63) != 0) {
+				word &= (1L << ids.length) - 1;
+			}
+			while (word != 0) {
+				counts.add((w << 6) + Long.numberOfTrailingZeros(word), inverse ? -1 : 1);
+				word &= word - 1;
+			}
+		}
+		for (int slot = 0; slot < years.length; slot++) {
+			if (counts.years[slot] > 0) {
+				page.yearCounts.put(String.valueOf(years[slot]), counts.years[slot]);
+			}
+		}
+		for (int bucket = 0; bucket < counts.ratings.length; bucket++) {
+			if (counts.ratings[bucket] > 0) {
+				page.ratingCounts.put(String.valueOf(bucket), counts.ratings[bucket]);
+			}
+		}
+		long bound = 1;
+		for (int bucket = 0; bucket < VOTE_BUCKETS; bucket++, bound *= 10) {
+			if (counts.votes[bucket] > 0) {
+				page.voteCounts.put(String.valueOf(bucket == 0 ? 0 : bound), counts.votes[bucket]);
+			}
+		}
+		page.ratedCounts.put("true", counts.rated);
+		page.ratedCounts.put("false", page.total - counts.rated);
+	}
+
+	/**
+	 * The number of movies with each value of each facet.
+	 */
+	private class FacetCounts {
+		final int[] years;
+		final int[] ratings = new int[10];
+		final int[] votes = new int[VOTE_BUCKETS];
+		int rated;
+
+		FacetCounts(int yearCount) {
+			this.years = new int[yearCount];
+		}
+
+		FacetCounts(FacetCounts other) {
+			this.years = other.years.clone();
+			System.arraycopy(other.ratings, 0, ratings, 0, ratings.length);
+			System.arraycopy(other.votes, 0, votes, 0, votes.length);
+			this.rated = other.rated;
+		}
+
+		FacetCounts copy() {
+			return new FacetCounts(this);
+		}
+
+		/**
+		 * Adds a movie to the counts, or takes it away if delta is -1.
+		 */
+		void add(int movie, int delta) {
+			if (yearSlots[movie] >= 0) {
+				years[yearSlots[movie]] += delta;
+			}
+			if (tenths[movie] >= 0) {
+				rated += delta;
+				ratings[Math.min(9, tenths[movie] / 10)] += delta;
+				votes[voteBuckets[movie]] += delta;
+			}
+		}
+	}
+
+	private static long[] and(long[] result, long[] bits) {
+		if (result == null) {
+			return bits;
+		}
+		for (int w = 0; w < result.length; w++) {
+			result[w] &= bits[w];
+		}
+		return result;
+	}
+
+	/**
+	 * Clears the bits past the last movie.
+	 */
+	private void clearTail(long[] bits) {
+		if ((ids.length & 63) != 0) {
+			bits[bits.length - 1] &= (1L << ids.length) - 1;
+		}
+	}
+
+	private static int lowerBound(int[] sorted, int key) {
+		int index = Arrays.binarySearch(sorted, key);
+		return index >= 0 ? index : -index - 1;
+	}
+
+	/**
+	 * Returns the approximate number of bytes used by the index.
+	 *
+	 * @return the memory used, in bytes
+	 */
+	public long memoryBytes() {
+		long bytes = (4L + 2 + 1 + 4 + 1 + 3 * 4) * ids.length + 4L * years.length + rated.memoryBytes();
+		for (CompressedBitmap[] bitmaps : new CompressedBitmap[][] { yearBitmaps, tenthBitmaps, voteBitmaps }) {
+			for (CompressedBitmap bitmap : bitmaps) {
+				bytes += bitmap.memoryBytes();
+			}
+		}
+		return bytes;
+	}
+
+	/**
+	 * What to filter the movies by. A field left null does not filter.
+	 */
+	public static class Filter {
+		/**
+		 * The first and last year the movies came out in, inclusive.
+		 */
+		public Integer yearFrom;
+		public Integer yearTo;
+
+		/**
+		 * The lowest rating. Only rated movies match.
+		 */
+		public Double minRating;
+
+		/**
+		 * The fewest votes. Only rated movies match.
+		 */
+		public Integer minVotes;
+
+		/**
+		 * Whether the movies must be rated, or must not be.
+		 */
+		public Boolean rated;
+
+		/**
+		 * The order of the movies: id, year (oldest first), rating (best first)
+		 * or votes (most first), each then by id.
+		 */
+		public String sort = "id";
+
+		public int offset = 0;
+		public int limit = 50;
+	}
+
+	/**
+	 * The movies that matched a filter.
+	 */
+	public static class Result {
+		private final int total;
+		private final int[] movieIds;
+		private final double[] ratings;
+		private final int[] votes;
+		private int size;
+		private final Map<String, Integer> yearCounts = new LinkedHashMap<>();
+		private final Map<String, Integer> ratingCounts = new LinkedHashMap<>();
+		private final Map<String, Integer> voteCounts = new LinkedHashMap<>();
+		private final Map<String, Integer> ratedCounts = new LinkedHashMap<>();
+
+		Result(int total, int pageSize) {
+			this.total = total;
+			this.movieIds = new int[pageSize];
+			this.ratings = new double[pageSize];
+			this.votes = new int[pageSize];
+		}
+
+		/**
+		 * Returns the number of movies that matched, on every page.
+		 *
+		 * @return the number of movies
+		 */
+		public int getTotal() {
+			return total;
+		}
+
+		/**
+		 * Returns the ids of the movies on the page, in order.
+		 *
+		 * @return the movie ids
+		 */
+		public int[] getMovieIds() {
+			return movieIds;
+		}
+
+		/**
+		 * Returns the rating of a movie on the page.
+		 *
+		 * @param i the position of the movie on the page
+		 * @return the rating, or NaN if it is not rated
+		 */
+		public double getRating(int i) {
+			return ratings[i];
+		}
+
+		/**
+		 * Returns the votes of a movie on the page.
+		 *
+		 * @param i the position of the movie on the page
+		 * @return the number of votes
+		 */
+		public int getVotes(int i) {
+			return votes[i];
+		}
+
+		/**
+		 * Returns the counts of each facet, by the name of the facet: years,
+		 * ratings (by whole number), votes (by the power of ten they are at
+		 * least) and rated.
+		 *
+		 * @return the facet counts
+		 */
+		public Map<String, Map<String, Integer>> getFacets() {
+			Map<String, Map<String, Integer>> facets = new LinkedHashMap<>();
+			facets.put("years", yearCounts);
+			facets.put("ratings", ratingCounts);
+			facets.put("votes", voteCounts);
+			facets.put("rated", ratedCounts);
+			return facets;
+		}
+	}
+}
@@ -0,0 +1,47 @@
+package com.flickfinder.dao;
+
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+import com.flickfinder.model.Page;
+import com.flickfinder.util.Cursor;
+
+/**
+ * Helpers for keyset pagination.
+ *
+ * A page query asks for one more row than the limit. If that extra row comes
+ * back there is another page, so it is dropped and a token pointing after the
+ * last kept row is added to the page.
+ *
+ */
+final class Pages {
+
+	private Pages() {
+	}
+
+	/**
+	 * Returns the number of rows a page query should fetch.
+	 *
+	 * @param limit the number of rows on a page
+	 * @return the number of rows to fetch
+	 */
+	static int fetchSize(int limit) {
+		return limit == Integer.MAX_VALUE ? limit : limit + 1;
+	}
+
+	/**
+	 * Turns the rows fetched by a page query into a page.
+	 *
+	 * @param rows  the rows fetched, up to one more than the limit
+	 * @param limit the number of rows on a page
+	 * @param id    returns the id of a row
+	 * @return the page
+	 */
+	static <T> Page<T> of(List<T> rows, int limit, ToIntFunction<T> id) {
+		if (rows.size() <= limit) {
+			return new Page<>(rows, null);
+		}
+		List<T> items = rows.subList(0, limit);
+		return new Page<>(items, Cursor.encode(id.applyAsInt(items.get(limit - 1))));
+	}
+}
@@ -1,5 +1,6 @@
 package com.flickfinder.dao;
 
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -8,8 +9,10 @@ import java.util.ArrayList;
 import java.util.List;
 
 import com.flickfinder.model.Movie;
+import com.flickfinder.model.Page;
 import com.flickfinder.model.Person;
 import com.flickfinder.util.Database;
+import com.flickfinder.util.SearchQuery;
 
 /**
  * TODO: Implement this class
@@ -18,17 +21,107 @@ import com.flickfinder.util.Database;
 public class PersonDAO {
 	
 	/**
-	 * The connection to the database.
+	 * The query used by {@link #getAllPeople(Integer)}.
 	 */
-	private final Connection connection;
+	public static final String SELECT_ALL_PEOPLE = "select * from people LIMIT ?";
+
+	/**
+	 * The query used by {@link #getPeopleAfter(int, int)}. It seeks on the
+	 * primary key, so every page costs the same as the first.
+	 */
+	public static final String SELECT_PEOPLE_AFTER = "select * from people WHERE id > ? ORDER BY id LIMIT ?";
+
+	/**
+	 * The query used by {@link #getPersonById(int)}.
+	 */
+	public static final String SELECT_PERSON_BY_ID = "select * from people where id = ?";
+
+	/**
+	 * The start of the query used by {@link #getPeopleByIds(int[])}; the list
+	 * of ids is added to the end.
+	 */
+	public static final String SELECT_PEOPLE_BY_IDS = "select * from people where id IN ";
+
+	/**
+	 * The query used by {@link #getMoviesStarringPerson(int)}.
+	 */
+	public static final String SELECT_MOVIES_STARRING_PERSON = "SELECT m.id, m.title , m.year FROM movies m "
+			+ "INNER JOIN stars s on m.id = s.movie_id "
+			+ "INNER JOIN people p on s.person_id = p.id "
+			+ "WHERE p.id = ?";
+
+	/**
+	 * The query used by {@link #findMoviesStarringPerson(int)}. It starts from
+	 * the person, so a person with no movies still returns one row, with null
+	 * in the movie columns, and a person that does not exist returns no rows.
+	 */
+	public static final String SELECT_PERSON_AND_MOVIES = "SELECT p.id AS person_id, m.id, m.title, m.year FROM people p "
+			+ "LEFT JOIN stars s on s.person_id = p.id "
+			+ "LEFT JOIN movies m on m.id = s.movie_id "
+			+ "WHERE p.id = ?";
+
+	/**
+	 * The query used by {@link #streamMoviesStarringPerson(int, RowCallback)}
+	 * to read one chunk of movies, in order of movie, after the star given by
+	 * its movie id and row id. Like {@link #SELECT_PERSON_AND_MOVIES} it
+	 * returns a row with no star if there are no more movies, and no rows if
+	 * there is no such person.
+	 */
+	public static final String SELECT_PERSON_AND_MOVIES_AFTER = "SELECT p.id AS person_id, s.movie_id AS star_id, s.rowid AS star, m.id, m.title, m.year FROM people p "
+			+ "LEFT JOIN stars s on s.person_id = p.id AND (s.movie_id, s.rowid) > (?, ?) "
+			+ "LEFT JOIN movies m on m.id = s.movie_id "
+			+ "WHERE p.id = ? "
+			+ "ORDER BY s.movie_id, s.rowid "
+			+ "LIMIT ?";
+
+	/**
+	 * The query used by {@link #findMoviesDirectedByPerson(int)}. Like
+	 * {@link #SELECT_PERSON_AND_MOVIES}, it checks that the person exists in
+	 * the same query. The movies are found through the index on
+	 * directors(person_id, movie_id).
+	 */
+	public static final String SELECT_PERSON_AND_DIRECTED = "SELECT p.id AS person_id, m.id, m.title, m.year FROM people p "
+			+ "LEFT JOIN directors d on d.person_id = p.id "
+			+ "LEFT JOIN movies m on m.id = d.movie_id "
+			+ "WHERE p.id = ? "
+			+ "ORDER BY m.id";
+
+	/**
+	 * The start of the query used by {@link #getMoviesDirectedByPeople(int[])};
+	 * the list of ids is added to the end.
+	 */
+	public static final String SELECT_DIRECTED_BY_PERSON_IDS = "SELECT p.id AS key_id, m.id, m.title, m.year FROM people p "
+			+ "LEFT JOIN directors d on d.person_id = p.id "
+			+ "LEFT JOIN movies m on m.id = d.movie_id "
+			+ "WHERE p.id IN ";
+
+	/**
+	 * The order of the rows of {@link #SELECT_DIRECTED_BY_PERSON_IDS}, the same
+	 * as {@link #SELECT_PERSON_AND_DIRECTED}.
+	 */
+	public static final String ORDER_DIRECTED_BY_PERSON_IDS = "ORDER BY p.id, m.id";
+
+	/**
+	 * The query used by {@link #searchPeople(String, int)}. The best matches,
+	 * by BM25 rank, come first.
+	 */
+	public static final String SEARCH_PEOPLE = "SELECT p.id, p.name, p.birth FROM people_fts f "
+			+ "INNER JOIN people p ON p.id = f.rowid "
+			+ "WHERE people_fts MATCH ? "
+			+ "ORDER BY f.rank, p.id "
+			+ "LIMIT ?";
+
+	/**
+	 * The database, which lends out a connection for each query.
+	 */
+	private final Database database;
 
 	/**
 	 * Constructs a SQLiteMovieDAO object and gets the database connection.
 	 * 
 	 */
 	public PersonDAO() {
-		Database database = Database.getInstance();
-		connection = database.getConnection();
+		database = Database.getInstance();
 	}
 
 	/**
@@ -44,16 +137,90 @@ public class PersonDAO {
 			limit = 50;
 		}
 		
-		String statement = "select * from people LIMIT ?";
-		PreparedStatement ps = connection.prepareStatement(statement);
-		ps.setInt(1, limit);
-		ResultSet rs = ps.executeQuery();
+		try (Connection connection = database.getConnection();
+				PreparedStatement ps = connection.prepareStatement(SELECT_ALL_PEOPLE)) {
+			ps.setInt(1, limit);
+			try (ResultSet rs = ps.executeQuery()) {
+				while (rs.next()) {
+					people.add(new Person(rs.getInt("id"), rs.getString("name"), rs.getInt("birth")));
+				}
+		
+				return people;
+			}
+		}
+	}
+
+	/**
+	 * Passes the first people in the database to the callback one at a time,
+	 * in order of id. They are read a chunk at a time, and each chunk is
+	 * passed on after the connection is given back. This is the streaming
+	 * form of {@link #getAllPeople(Integer)}.
+	 * 
+	 * @param limit    the number of people
+	 * @param callback receives each person
+	 * @throws SQLException if a database error occurs
+	 * @throws IOException  if the callback cannot write a person
+	 */
+	public void streamAllPeople(int limit, RowCallback<Person> callback) throws SQLException, IOException {
+		if (limit <= 0) {
+			limit = 50;
+		}
+
+		List<Person> chunk = new ArrayList<>();
+		int afterId = Integer.MIN_VALUE;
+		while (limit > 0) {
+			int size = Math.min(limit, RowCallback.CHUNK_SIZE);
+			chunk.clear();
+			try (Connection connection = database.getConnection();
+					PreparedStatement ps = connection.prepareStatement(SELECT_PEOPLE_AFTER)) {
+				ps.setInt(1, afterId);
+				ps.setInt(2, size);
+				try (ResultSet rs = ps.executeQuery()) {
+					while (rs.next()) {
+						chunk.add(new Person(rs.getInt("id"), rs.getString("name"), rs.getInt("birth")));
+					}
+				}
+			}
+			for (Person person : chunk) {
+				callback.accept(person);
+			}
+			if (chunk.size() < size) {
+				return;
+			}
+			limit -= size;
+			afterId = chunk.get(size - 1).getId();
+		}
+	}
+
+	/**
+	 * Returns one page of people, in order of id. To walk through every person,
+	 * start with an id of 0 and then pass the id of the last person on each
+	 * page.
+	 * 
+	 * @param afterId the id after which the page starts
+	 * @param limit   the number of people on a page
+	 * @return the page of people, with a token for the next page if there is one
+	 * @throws SQLException if a database error occurs
+	 */
+	public Page<Person> getPeopleAfter(int afterId, int limit) throws SQLException {
+		List<Person> people = new ArrayList<>();
+		
+		if (limit <= 0) {
+			limit = 50;
+		}
 		
-		while (rs.next()) {
-			people.add(new Person(rs.getInt("id"), rs.getString("name"), rs.getInt("birth")));
+		try (Connection connection = database.getConnection();
+				PreparedStatement ps = connection.prepareStatement(SELECT_PEOPLE_AFTER)) {
+			ps.setInt(1, afterId);
+			ps.setInt(2, Pages.fetchSize(limit));
+			try (ResultSet rs = ps.executeQuery()) {
+				while (rs.next()) {
+					people.add(new Person(rs.getInt("id"), rs.getString("name"), rs.getInt("birth")));
+				}
+			}
 		}
 		
-		return people;
+		return Pages.of(people, limit, Person::getId);
 	}
 
 	/**
@@ -64,22 +231,62 @@ public class PersonDAO {
 	 * @throws SQLException if a database error occurs
 	 */
 	public Person getPersonById(int id) throws SQLException {
-		String statement = "select * from people where id = ?";
-		PreparedStatement ps = connection.prepareStatement(statement);
-		ps.setInt(1, id);
-		ResultSet rs = ps.executeQuery();
-
-		if (rs.next()) {
-			return new Person(rs.getInt("id"), rs.getString("name"), rs.getInt("birth"));
-		}
+		try (Connection connection = database.getConnection();
+				PreparedStatement ps = connection.prepareStatement(SELECT_PERSON_BY_ID)) {
+			ps.setInt(1, id);
+			try (ResultSet rs = ps.executeQuery()) {
+				if (rs.next()) {
+					return new Person(rs.getInt("id"), rs.getString("name"), rs.getInt("birth"));
+				}
 		
-		// return null if the id does not return a person.
-		// return null;
-		
-		// Throws a SQLException if the id does not return a person
-		throw new SQLException("Invalid id");
+				// return null if the id does not return a person.
+				return null;
+			}
+		}
 	}
 	
+	/**
+	 * Returns the people with the given ids, looked up a chunk at a time
+	 * rather than one query per id.
+	 * 
+	 * @param ids the ids of the people, which may contain repeats
+	 * @return the people in the same order as the ids, with null for each id
+	 *         that does not match a person
+	 * @throws SQLException if a database error occurs
+	 */
+	public List<Person> getPeopleByIds(int[] ids) throws SQLException {
+		return Batches.lookup(database, SELECT_PEOPLE_BY_IDS, ids,
+				rs -> new Person(rs.getInt("id"), rs.getString("name"), rs.getInt("birth")), Person::getId);
+	}
+
+	/**
+	 * Searches people's names. Every word of the query must appear in the name,
+	 * either in full or as the start of a longer word.
+	 * 
+	 * The search uses the full-text index in the indexed copy of the database,
+	 * see {@link com.flickfinder.util.SchemaOptimizer}.
+	 * 
+	 * @param query the words to search for
+	 * @param limit the largest number of people to return
+	 * @return the matching people, best match first
+	 * @throws SQLException             if a database error occurs
+	 * @throws IllegalArgumentException if the query has no words in it
+	 */
+	public List<Person> searchPeople(String query, int limit) throws SQLException {
+		List<Person> people = new ArrayList<>();
+		try (Connection connection = database.getConnection();
+				PreparedStatement ps = connection.prepareStatement(SEARCH_PEOPLE)) {
+			ps.setString(1, SearchQuery.toMatch(query));
+			ps.setInt(2, limit);
+			try (ResultSet rs = ps.executeQuery()) {
+				while (rs.next()) {
+					people.add(new Person(rs.getInt("id"), rs.getString("name"), rs.getInt("birth")));
+				}
+				return people;
+			}
+		}
+	}
+
 	/**
 	 * Returns the movies the person starred in
 	 * The person is found / specified with its unique id
@@ -91,18 +298,137 @@ public class PersonDAO {
 	public List<Movie> getMoviesStarringPerson(int movieId) throws SQLException {
 		List<Movie> movies = new ArrayList<>();
 		
-		String statement = "SELECT m.id, m.title , m.year FROM movies m "
-				+ "INNER JOIN stars s on m.id = s.movie_id "
-				+ "INNER JOIN people p on s.person_id = p.id "
-				+ "WHERE p.id = ?";
-		PreparedStatement ps = connection.prepareStatement(statement);
-		ps.setInt(1, movieId);
-		ResultSet rs = ps.executeQuery();
+		try (Connection connection = database.getConnection();
+				PreparedStatement ps = connection.prepareStatement(SELECT_MOVIES_STARRING_PERSON)) {
+			ps.setInt(1, movieId);
+			try (ResultSet rs = ps.executeQuery()) {
+				while (rs.next()) {
+					movies.add(new Movie(rs.getInt("id"), rs.getString("title"), rs.getInt("year")));
+				}
 		
-		while (rs.next()) {
-			movies.add(new Movie(rs.getInt("id"), rs.getString("title"), rs.getInt("year")));
+				return movies;
+			}
 		}
-		
-		return movies;
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Returns the movies a person starred in, checking that the person exists
+	 * in the same query.
+	 * 
+	 * @param personId the id of the person
+	 * @return the movies the person starred in, or null if there is no such
+	 *         person
+	 * @throws SQLException if a database error occurs
+	 */
+	public List<Movie> findMoviesStarringPerson(int personId) throws SQLException {
+		List<Movie> movies = new ArrayList<>();
+		try (Connection connection = database.getConnection();
+				PreparedStatement ps = connection.prepareStatement(SELECT_PERSON_AND_MOVIES)) {
+			ps.setInt(1, personId);
+			try (ResultSet rs = ps.executeQuery()) {
+				boolean found = false;
+				while (rs.next()) {
+					found = true;
+					rs.getInt("id");
+					if (!rs.wasNull()) {
+						movies.add(new Movie(rs.getInt("id"), rs.getString("title"), rs.getInt("year")));
+					}
+				}
+				return found ? movies : null;
+			}
+		}
+	}
+
+	/**
+	 * Passes the movies a person starred in to the callback one at a time, in
+	 * order of id. They are read a chunk at a time, and each chunk is passed on
+	 * after the connection is given back. This is the streaming form of
+	 * {@link #findMoviesStarringPerson(int)}.
+	 * 
+	 * @param personId the id of the person
+	 * @param callback receives each movie
+	 * @return true if the person exists, or false if there is no such person
+	 * @throws SQLException if a database error occurs
+	 * @throws IOException  if the callback cannot write a movie
+	 */
+	public boolean streamMoviesStarringPerson(int personId, RowCallback<Movie> callback)
+			throws SQLException, IOException {
+		List<Movie> chunk = new ArrayList<>();
+		boolean found = false;
+		int afterMovie = Integer.MIN_VALUE;
+		long afterStar = Long.MIN_VALUE;
+		int read;
+		do {
+			chunk.clear();
+			read = 0;
+			try (Connection connection = database.getConnection();
+					PreparedStatement ps = connection.prepareStatement(SELECT_PERSON_AND_MOVIES_AFTER)) {
+				ps.setInt(1, afterMovie);
+				ps.setLong(2, afterStar);
+				ps.setInt(3, personId);
+				ps.setInt(4, RowCallback.CHUNK_SIZE);
+				try (ResultSet rs = ps.executeQuery()) {
+					while (rs.next()) {
+						found = true;
+						afterStar = rs.getLong("star");
+						if (rs.wasNull()) {
+							continue;
+						}
+						read++;
+						afterMovie = rs.getInt("star_id");
+						rs.getInt("id");
+						if (!rs.wasNull()) {
+							chunk.add(new Movie(rs.getInt("id"), rs.getString("title"), rs.getInt("year")));
+						}
+					}
+				}
+			}
+			for (Movie movie : chunk) {
+				callback.accept(movie);
+			}
+		} while (read == RowCallback.CHUNK_SIZE);
+		return found;
+	}
+
+	/**
+	 * Returns the movies a person directed, checking that the person exists
+	 * in the same query.
+	 * 
+	 * @param personId the id of the person
+	 * @return the movies the person directed, in order of id, or null if there
+	 *         is no such person
+	 * @throws SQLException if a database error occurs
+	 */
+	public List<Movie> findMoviesDirectedByPerson(int personId) throws SQLException {
+		List<Movie> movies = new ArrayList<>();
+		try (Connection connection = database.getConnection();
+				PreparedStatement ps = connection.prepareStatement(SELECT_PERSON_AND_DIRECTED)) {
+			ps.setInt(1, personId);
+			try (ResultSet rs = ps.executeQuery()) {
+				boolean found = false;
+				while (rs.next()) {
+					found = true;
+					rs.getInt("id");
+					if (!rs.wasNull()) {
+						movies.add(new Movie(rs.getInt("id"), rs.getString("title"), rs.getInt("year")));
+					}
+				}
+				return found ? movies : null;
+			}
+		}
+	}
+
+	/**
+	 * Returns the movies many people directed, looked up a chunk at a time
+	 * rather than one query per person.
+	 * 
+	 * @param ids the ids of the people, which may contain repeats
+	 * @return the movies each person directed in the same order as the ids,
+	 *         with null for each id that does not match a person
+	 * @throws SQLException if a database error occurs
+	 */
+	public List<List<Movie>> getMoviesDirectedByPeople(int[] ids) throws SQLException {
+		return Batches.lookupLinks(database, SELECT_DIRECTED_BY_PERSON_IDS, ids, ORDER_DIRECTED_BY_PERSON_IDS, "id",
+				rs -> new Movie(rs.getInt("id"), rs.getString("title"), rs.getInt("year")));
+	}
+}
@@ -0,0 +1,166 @@
+package com.flickfinder.dao;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.flickfinder.model.Movie;
+import com.flickfinder.model.MovieRating;
+import com.flickfinder.util.Database;
+import com.flickfinder.util.StringPool;
+
+/**
+ * A precomputed list of the rated movies of each year, best rated first.
+ *
+ * {@link MovieDAO#getRatingsByYear(int, int, int)} asks for the best rated
+ * movies of a year with at least a given number of votes. As the ratings never
+ * change, the movies of each year are sorted once at startup. A query then
+ * walks down the list for its year, skipping movies with too few votes, and
+ * stops as soon as it has enough results, so no sorting is done per request.
+ *
+ * Movies with the same rating are ordered by id, which matches the order of
+ * {@link MovieDAO#SELECT_RATINGS_BY_YEAR}.
+ *
+ */
+public class RatingLeaderboard {
+
+	private static final Logger LOG = LoggerFactory.getLogger(RatingLeaderboard.class);
+
+	/**
+	 * The query that loads every rated movie, in leaderboard order.
+	 */
+	static final String SELECT_LEADERBOARD = "SELECT m.id, m.title, m.year, r.rating, r.votes FROM movies m "
+			+ "INNER JOIN ratings r ON m.id = r.movie_id "
+			+ "WHERE m.year IS NOT NULL "
+			+ "ORDER BY m.year, r.rating DESC, m.id";
+
+	/**
+	 * The distinct years, in ascending order.
+	 */
+	private final int[] years;
+
+	/**
+	 * The position of the first movie of each year; the movies of year
+	 * {@code years[i]} run from {@code yearStarts[i]} to
+	 * {@code yearStarts[i + 1]}.
+	 */
+	private final int[] yearStarts;
+
+	private final int[] ids;
+	private final double[] ratings;
+	private final int[] votes;
+	private final StringPool titles;
+
+	private RatingLeaderboard(int[] years, int[] yearStarts, int[] ids, double[] ratings, int[] votes,
+			StringPool titles) {
+		this.years = years;
+		this.yearStarts = yearStarts;
+		this.ids = ids;
+		this.ratings = ratings;
+		this.votes = votes;
+		this.titles = titles;
+	}
+
+	/**
+	 * Builds the leaderboard from the database.
+	 *
+	 * @param database the database to read the ratings from
+	 * @return the leaderboard
+	 * @throws SQLException if a database error occurs
+	 */
+	public static RatingLeaderboard load(Database database) throws SQLException {
+		long start = System.nanoTime();
+		int capacity = 1024;
+		int[] ids = new int[capacity];
+		int[] entryYears = new int[capacity];
+		double[] ratings = new double[capacity];
+		int[] votes = new int[capacity];
+		StringPool titles = new StringPool(capacity);
+		int size = 0;
+
+		try (Connection connection = database.getConnection();
+				Statement stmt = connection.createStatement();
+				ResultSet rs = stmt.executeQuery(SELECT_LEADERBOARD)) {
+			while (rs.next()) {
+				if (size == capacity) {
+					capacity *= 2;
+					ids = Arrays.copyOf(ids, capacity);
+					entryYears = Arrays.copyOf(entryYears, capacity);
+					ratings = Arrays.copyOf(ratings, capacity);
+					votes = Arrays.copyOf(votes, capacity);
+				}
+				ids[size] = rs.getInt(1);
+				titles.add(rs.getString(2));
+				entryYears[size] = rs.getInt(3);
+				ratings[size] = rs.getDouble(4);
+				votes[size] = rs.getInt(5);
+				size++;
+			}
+		}
+		titles.trim();
+
+		int yearCount = 0;
+		for (int i = 0; i < size; i++) {
+			if (i == 0 || entryYears[i] != entryYears[i - 1]) {
+				yearCount++;
+			}
+		}
+		int[] years = new int[yearCount];
+		int[] yearStarts = new int[yearCount + 1];
+		int year = 0;
+		for (int i = 0; i < size; i++) {
+			if (i == 0 || entryYears[i] != entryYears[i - 1]) {
+				years[year] = entryYears[i];
+				yearStarts[year] = i;
+				year++;
+			}
+		}
+		yearStarts[yearCount] = size;
+
+		RatingLeaderboard leaderboard = new RatingLeaderboard(years, yearStarts, Arrays.copyOf(ids, size),
+				Arrays.copyOf(ratings, size), Arrays.copyOf(votes, size), titles);
+		LOG.info("Built rating leaderboard of {} movies over {} years in {} ms", size, yearCount,
+				(System.nanoTime() - start) / 1_000_000);
+		return leaderboard;
+	}
+
+	/**
+	 * Returns the best rated movies of a year that have at least the given
+	 * number of votes, best rated first.
+	 *
+	 * @param year     the year of the movies
+	 * @param minVotes the fewest votes a movie may have
+	 * @param limit    the largest number of movies to return
+	 * @return the movies, as {@link MovieRating} objects
+	 */
+	public List<Movie> top(int year, int minVotes, int limit) {
+		List<Movie> movies = new ArrayList<>();
+		int y = Arrays.binarySearch(years, year);
+		if (y < 0) {
+			return movies;
+		}
+		int end = yearStarts[y + 1];
+		for (int i = yearStarts[y]; i < end && movies.size() < limit; i++) {
+			if (votes[i] >= minVotes) {
+				movies.add(new MovieRating(ids[i], titles.get(i), year, ratings[i], votes[i]));
+			}
+		}
+		return movies;
+	}
+
+	/**
+	 * Returns the number of movies in the leaderboard.
+	 *
+	 * @return the number of rated movies
+	 */
+	public int size() {
+		return ids.length;
+	}
+}
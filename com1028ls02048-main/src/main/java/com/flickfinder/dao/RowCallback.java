@@ -0,0 +1,33 @@
+package com.flickfinder.dao;
+
+import java.io.IOException;
+
+import com.flickfinder.util.Settings;
+
+/**
+ * Receives the rows of a query one at a time, as they are read from the
+ * database. This lets a caller write each row out (for example, to an HTTP
+ * response) without holding the whole result in memory.
+ *
+ * The DAOs read the rows in chunks of at most {@link #CHUNK_SIZE}, and give
+ * the connection back to the pool before passing a chunk on, so a slow
+ * client does not keep a connection borrowed while it reads.
+ *
+ * @param <T> the type of the rows
+ */
+@FunctionalInterface
+public interface RowCallback<T> {
+
+	/**
+	 * The most rows read with one connection before they are passed on.
+	 */
+	int CHUNK_SIZE = Settings.getInt("stream.chunkSize", 256);
+
+	/**
+	 * Handles one row.
+	 *
+	 * @param row the row
+	 * @throws IOException if the row cannot be written
+	 */
+	void accept(T row) throws IOException;
+}
@@ -0,0 +1,360 @@
+package com.flickfinder.dao;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.flickfinder.util.Database;
+
+/**
+ * An index for finding the movies whose casts are most like the cast of a
+ * given movie.
+ *
+ * How alike two casts are is measured by their Jaccard similarity: the number
+ * of stars they share divided by the number of stars in either. Working that
+ * out against every movie on each request would be far too slow, so the index
+ * uses MinHash with locality-sensitive hashing to find a few candidates first.
+ *
+ * Each movie gets a signature of bands * rows numbers. Each number is the
+ * smallest hash of any of its stars under one of a fixed set of hash
+ * functions, so two movies get the same number with a chance equal to their
+ * similarity. The numbers of each band are hashed together into a bucket key,
+ * and the movies of each band are sorted by key. A query works out the
+ * signature of its movie, takes the movies in the same bucket in any band as
+ * candidates, and then ranks those by their exact similarity. Movies that
+ * share a lot of their cast are almost always found, while those that share
+ * little of it are only found now and then.
+ *
+ * Only the bucket keys are kept, not the signatures, as the signature of the
+ * movie being asked about is quick to work out again from its stars. The stars
+ * themselves come from the {@link CoStarGraph}, which is shared.
+ *
+ */
+public class SimilarMovieIndex {
+
+	private static final Logger LOG = LoggerFactory.getLogger(SimilarMovieIndex.class);
+
+	private final CoStarGraph graph;
+	private final int[] votes;
+	private final int bands;
+	private final int rows;
+	private final int maxBucket;
+
+	/**
+	 * The bucket key of each movie in each band, sorted, with the index of the
+	 * movie at the same position in {@link #bucketMovies}.
+	 */
+	private final int[][] bucketKeys;
+	private final int[][] bucketMovies;
+
+	private SimilarMovieIndex(CoStarGraph graph, int[] votes, int bands, int rows, int maxBucket) {
+		this.graph = graph;
+		this.votes = votes;
+		this.bands = bands;
+		this.rows = rows;
+		this.maxBucket = maxBucket;
+		this.bucketKeys = new int[bands][];
+		this.bucketMovies = new int[bands][];
+	}
+
+	/**
+	 * Builds the index over the movies of a graph, reading the votes of each
+	 * movie from the database.
+	 *
+	 * @param database  the database to read the votes from
+	 * @param graph     the graph of who starred in what
+	 * @param bands     the number of bands
+	 * @param rows      the number of signature values in each band
+	 * @param maxBucket the most movies of one bucket to take as candidates
+	 * @return the index
+	 * @throws SQLException if a database error occurs
+	 */
+	public static SimilarMovieIndex load(Database database, CoStarGraph graph, int bands, int rows, int maxBucket)
+			throws SQLException {
+		int[] votes = new int[graph.movieCount()];
+		try (Connection connection = database.getConnection();
+				Statement stmt = connection.createStatement();
+				ResultSet rs = stmt.executeQuery("SELECT movie_id, votes FROM ratings")) {
+			while (rs.next()) {
+				int index = graph.movieIndex(rs.getInt(1));
+				if (index >= 0) {
+					votes[index] = rs.getInt(2);
+				}
+			}
+		}
+		return build(graph, votes, bands, rows, maxBucket);
+	}
+
+	/**
+	 * Builds the index over the movies of a graph made from a snapshot, taking
+	 * the votes of each movie from the snapshot.
+	 *
+	 * @param snapshot  the snapshot the graph was made from
+	 * @param graph     the graph of who starred in what
+	 * @param bands     the number of bands
+	 * @param rows      the number of signature values in each band
+	 * @param maxBucket the most movies of one bucket to take as candidates
+	 * @return the index
+	 */
+	public static SimilarMovieIndex of(Snapshot snapshot, CoStarGraph graph, int bands, int rows, int maxBucket) {
+		int[] votes = new int[graph.movieCount()];
+		for (int i = 0; i < votes.length; i++) {
+			votes[i] = snapshot.movieVotes(i);
+		}
+		return build(graph, votes, bands, rows, maxBucket);
+	}
+
+	private static SimilarMovieIndex build(CoStarGraph graph, int[] votes, int bands, int rows, int maxBucket) {
+		if (bands <= 0 || rows <= 0) {
+			throw new IllegalArgumentException("Bands and rows must be positive");
+		}
+		long start = System.nanoTime();
+		SimilarMovieIndex index = new SimilarMovieIndex(graph, votes, bands, rows, maxBucket);
+		Adjacency stars = graph.getMovieStars();
+
+		int[] movies = new int[graph.movieCount()];
+		int count = 0;
+		for (int movie = 0; movie < movies.length; movie++) {
+			if (stars.degree(movie) > 0) {
+				movies[count++] = movie;
+			}
+		}
+
+		// The keys of every band are worked out in one pass over the stars,
+		// then each band is sorted by packing its key and movie into a long.
+		int[][] keys = new int[bands][count];
+		int[] signature = new int[bands * rows];
+		for (int i = 0; i < count; i++) {
+			index.signature(movies[i], signature);
+			for (int band = 0; band < bands; band++) {
+				keys[band][i] = index.bucketKey(signature, band);
+			}
+		}
+		long[] packed = new long[count];
+		for (int band = 0; band < bands; band++) {
+			for (int i = 0; i < count; i++) {
+				packed[i] = ((long) keys[band][i] << 32) | movies[i];
+			}
+			keys[band] = null;
+			Arrays.sort(packed);
+			int[] sortedKeys = new int[count];
+			int[] sortedMovies = new int[count];
+			for (int i = 0; i < count; i++) {
+				sortedKeys[i] = (int) (packed[i] >> 32);
+				sortedMovies[i] = (int) packed[i];
+			}
+			index.bucketKeys[band] = sortedKeys;
+			index.bucketMovies[band] = sortedMovies;
+		}
+		LOG.info("Built similar movie index of {} movies in {} bands of {} in {} ms ({} MB)", count, bands, rows,
+				(System.nanoTime() - start) / 1_000_000, index.memoryBytes() / (1024 * 1024));
+		return index;
+	}
+
+	/**
+	 * Returns whether a movie is in the index.
+	 *
+	 * @param movieId the id of the movie
+	 * @return true if there is a movie with the id
+	 */
+	public boolean hasMovie(int movieId) {
+		return graph.movieIndex(movieId) >= 0;
+	}
+
+	/**
+	 * Finds the movies whose casts are most like the cast of a movie.
+	 *
+	 * The movies are ranked by their Jaccard similarity to the movie. If
+	 * weighted is true, the similarity is scaled by the logarithm of the number
+	 * of votes of each movie, so that well known movies come before obscure
+	 * ones with the same overlap. Ties are broken by id.
+	 *
+	 * @param movieId  the id of the movie
+	 * @param k        the most movies to return
+	 * @param weighted whether to weight the similarity by votes
+	 * @return the most similar movies, most similar first, or null if there is
+	 *         no movie with the id
+	 */
+	public List<Match> similar(int movieId, int k, boolean weighted) {
+		int movie = graph.movieIndex(movieId);
+		if (movie < 0) {
+			return null;
+		}
+		Adjacency stars = graph.getMovieStars();
+		if (k <= 0 || stars.degree(movie) == 0) {
+			return new ArrayList<>();
+		}
+
+		int[] signature = new int[bands * rows];
+		signature(movie, signature);
+		int[] candidates = new int[64];
+		int count = 0;
+		for (int band = 0; band < bands; band++) {
+			int[] sortedKeys = bucketKeys[band];
+			int[] sortedMovies = bucketMovies[band];
+			int key = bucketKey(signature, band);
+			int from = lowerBound(sortedKeys, key);
+			int to = Math.min(sortedKeys.length, from + maxBucket);
+			for (int i = from; i < to && sortedKeys[i] == key; i++) {
+				if (sortedMovies[i] == movie) {
+					continue;
+				}
+				if (count == candidates.length) {
+					candidates = Arrays.copyOf(candidates, count * 2);
+				}
+				candidates[count++] = sortedMovies[i];
+			}
+		}
+		Arrays.sort(candidates, 0, count);
+
+		List<Match> matches = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			int candidate = candidates[i];
+			if (i > 0 && candidates[i - 1] == candidate) {
+				continue;
+			}
+			int shared = sharedStars(stars, movie, candidate);
+			if (shared == 0) {
+				continue;
+			}
+			double similarity = (double) shared / (stars.degree(movie) + stars.degree(candidate) - shared);
+			double score = weighted ? similarity * (1 + Math.log10(1 + votes[candidate])) : similarity;
+			matches.add(new Match(graph.movieId(candidate), shared, similarity, score));
+		}
+		matches.sort((a, b) -> a.score != b.score ? Double.compare(b.score, a.score)
+				: Integer.compare(a.movieId, b.movieId));
+		return matches.size() > k ? new ArrayList<>(matches.subList(0, k)) : matches;
+	}
+
+	/**
+	 * Counts the stars two movies share. The stars of each movie are sorted,
+	 * so this is a merge of the two lists.
+	 */
+	private static int sharedStars(Adjacency stars, int a, int b) {
+		int i = stars.start(a);
+		int iEnd = stars.end(a);
+		int j = stars.start(b);
+		int jEnd = stars.end(b);
+		int shared = 0;
+		while (i < iEnd && j < jEnd) {
+			int x = stars.target(i);
+			int y = stars.target(j);
+			if (x == y) {
+				shared++;
+				i++;
+				j++;
+			} else if (x < y) {
+				i++;
+			} else {
+				j++;
+			}
+		}
+		return shared;
+	}
+
+	/**
+	 * Works out the MinHash signature of a movie from its stars.
+	 */
+	private void signature(int movie, int[] signature) {
+		Adjacency stars = graph.getMovieStars();
+		Arrays.fill(signature, Integer.MAX_VALUE);
+		for (int s = stars.start(movie); s < stars.end(movie); s++) {
+			int person = stars.target(s);
+			for (int h = 0; h < signature.length; h++) {
+				int hash = mix(person * 0x9E3779B1 + (h + 1) * 0x85EBCA6B);
+				if (hash < signature[h]) {
+					signature[h] = hash;
+				}
+			}
+		}
+	}
+
+	private int bucketKey(int[] signature, int band) {
+		int key = band;
+		for (int row = 0; row < rows; row++) {
+			key = key * 31 + signature[band * rows + row];
+		}
+		return mix(key);
+	}
+
+	/**
+	 * The finalising step of MurmurHash3, which spreads the bits of an int so
+	 * that close inputs give unrelated hashes.
+	 */
+	private static int mix(int h) {
+		h ^= h >>> 16;
+		h *= 0x85EBCA6B;
+		h ^= h >>> 13;
+		h *= 0xC2B2AE35;
+		h ^= h >>> 16;
+		return h;
+	}
+
+	private static int lowerBound(int[] sorted, int key) {
+		int low = 0;
+		int high = sorted.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (sorted[mid] < key) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Returns the approximate number of bytes used by the index, not counting
+	 * the graph it shares.
+	 *
+	 * @return the memory used, in bytes
+	 */
+	public long memoryBytes() {
+		long bytes = 4L * votes.length;
+		for (int band = 0; band < bands; band++) {
+			bytes += 4L * bucketKeys[band].length + 4L * bucketMovies[band].length;
+		}
+		return bytes;
+	}
+
+	/**
+	 * A movie found to be like another, with how alike they are.
+	 */
+	public static class Match {
+		private final int movieId;
+		private final int sharedStars;
+		private final double similarity;
+		private final double score;
+
+		Match(int movieId, int sharedStars, double similarity, double score) {
+			this.movieId = movieId;
+			this.sharedStars = sharedStars;
+			this.similarity = similarity;
+			this.score = score;
+		}
+
+		public int getMovieId() {
+			return movieId;
+		}
+
+		public int getSharedStars() {
+			return sharedStars;
+		}
+
+		public double getSimilarity() {
+			return similarity;
+		}
+
+		public double getScore() {
+			return score;
+		}
+	}
+}
@@ -0,0 +1,396 @@
+package com.flickfinder.dao;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.flickfinder.model.Movie;
+import com.flickfinder.model.MovieRating;
+import com.flickfinder.model.Person;
+import com.flickfinder.util.Database;
+import com.flickfinder.util.StringPool;
+
+/**
+ * An in-memory copy of the whole movies database.
+ *
+ * The database is read-only, so it can be loaded once at startup and queried
+ * without going back to SQLite. The data is held column by column in
+ * primitive arrays, sorted by id, so a row is found with a binary search and
+ * no objects are kept per row. Titles and names are held in a
+ * {@link StringPool}, and the stars and directors tables are held as
+ * {@link Adjacency} lists in both directions.
+ *
+ * Rows are referred to by their index in these arrays; use
+ * {@link #movieIndex(int)} and {@link #personIndex(int)} to turn an id into an
+ * index.
+ *
+ */
+public class Snapshot {
+
+	private static final Logger LOG = LoggerFactory.getLogger(Snapshot.class);
+
+	private int[] movieIds;
+	private int[] movieYears;
+	private double[] movieRatings;
+	private int[] movieVotes;
+	private StringPool movieTitles;
+
+	private int[] personIds;
+	private int[] personBirths;
+	private StringPool personNames;
+
+	private Adjacency movieStars;
+	private Adjacency personMovies;
+	private Adjacency movieDirectors;
+	private Adjacency personDirected;
+
+	private Snapshot() {
+	}
+
+	/**
+	 * Loads the whole database into memory.
+	 *
+	 * @param database the database to load
+	 * @return the snapshot
+	 * @throws SQLException if a database error occurs
+	 */
+	public static Snapshot load(Database database) throws SQLException {
+		long start = System.nanoTime();
+		Snapshot snapshot = new Snapshot();
+		try (Connection connection = database.getConnection(); Statement stmt = connection.createStatement()) {
+			snapshot.loadMovies(stmt);
+			snapshot.loadRatings(stmt);
+			snapshot.loadPeople(stmt);
+			Adjacency[] stars = snapshot.loadLinks(stmt, "stars");
+			snapshot.movieStars = stars[0];
+			snapshot.personMovies = stars[1];
+			Adjacency[] directors = snapshot.loadLinks(stmt, "directors");
+			snapshot.movieDirectors = directors[0];
+			snapshot.personDirected = directors[1];
+		}
+		LOG.info("Loaded snapshot of {} movies, {} people and {} stars in {} ms ({} MB)", snapshot.movieCount(),
+				snapshot.personCount(), snapshot.movieStars.size(), (System.nanoTime() - start) / 1_000_000,
+				snapshot.memoryBytes() / (1024 * 1024));
+		return snapshot;
+	}
+
+	private void loadMovies(Statement stmt) throws SQLException {
+		int count = count(stmt, "movies");
+		movieIds = new int[count];
+		movieYears = new int[count];
+		movieTitles = new StringPool(count);
+		int i = 0;
+		try (ResultSet rs = stmt.executeQuery("SELECT id, title, year FROM movies ORDER BY id")) {
+			while (rs.next() && i < count) {
+				movieIds[i] = rs.getInt(1);
+				movieTitles.add(rs.getString(2));
+				movieYears[i] = rs.getInt(3);
+				i++;
+			}
+		}
+		movieTitles.trim();
+		movieRatings = new double[count];
+		Arrays.fill(movieRatings, Double.NaN);
+		movieVotes = new int[count];
+	}
+
+	private void loadRatings(Statement stmt) throws SQLException {
+		try (ResultSet rs = stmt.executeQuery("SELECT movie_id, rating, votes FROM ratings")) {
+			while (rs.next()) {
+				int index = movieIndex(rs.getInt(1));
+				if (index >= 0) {
+					movieRatings[index] = rs.getDouble(2);
+					movieVotes[index] = rs.getInt(3);
+				}
+			}
+		}
+	}
+
+	private void loadPeople(Statement stmt) throws SQLException {
+		int count = count(stmt, "people");
+		personIds = new int[count];
+		personBirths = new int[count];
+		personNames = new StringPool(count);
+		int i = 0;
+		try (ResultSet rs = stmt.executeQuery("SELECT id, name, birth FROM people ORDER BY id")) {
+			while (rs.next() && i < count) {
+				personIds[i] = rs.getInt(1);
+				personNames.add(rs.getString(2));
+				personBirths[i] = rs.getInt(3);
+				i++;
+			}
+		}
+		personNames.trim();
+	}
+
+	/**
+	 * Loads a link table (stars or directors) in both directions: from movies
+	 * to people, and from people to movies. Links to movies or people that are
+	 * not in the database are dropped, just as an inner join would.
+	 */
+	private Adjacency[] loadLinks(Statement stmt, String table) throws SQLException {
+		int count = count(stmt, table);
+		int[] movies = new int[count];
+		int[] people = new int[count];
+		int pairs = 0;
+		try (ResultSet rs = stmt.executeQuery("SELECT movie_id, person_id FROM " + table)) {
+			while (rs.next() && pairs < count) {
+				int movie = movieIndex(rs.getInt(1));
+				int person = personIndex(rs.getInt(2));
+				if (movie < 0 || person < 0) {
+					continue;
+				}
+				movies[pairs] = movie;
+				people[pairs] = person;
+				pairs++;
+			}
+		}
+		return new Adjacency[] { Adjacency.build(movieCount(), movies, people, pairs),
+				Adjacency.build(personCount(), people, movies, pairs) };
+	}
+
+	private static int count(Statement stmt, String table) throws SQLException {
+		try (ResultSet rs = stmt.executeQuery("SELECT count(*) FROM " + table)) {
+			return rs.next() ? rs.getInt(1) : 0;
+		}
+	}
+
+	/**
+	 * Returns the index of the movie with the given id.
+	 *
+	 * @param id the id of the movie
+	 * @return the index of the movie, or -1 if there is no such movie
+	 */
+	public int movieIndex(int id) {
+		int index = Arrays.binarySearch(movieIds, id);
+		return index >= 0 ? index : -1;
+	}
+
+	/**
+	 * Returns the index of the person with the given id.
+	 *
+	 * @param id the id of the person
+	 * @return the index of the person, or -1 if there is no such person
+	 */
+	public int personIndex(int id) {
+		int index = Arrays.binarySearch(personIds, id);
+		return index >= 0 ? index : -1;
+	}
+
+	/**
+	 * Returns the index of the first movie whose id is greater than the given
+	 * id.
+	 *
+	 * @param id the id to start after
+	 * @return the index of the first later movie, or the number of movies if
+	 *         there is none
+	 */
+	public int firstMovieAfter(int id) {
+		int index = Arrays.binarySearch(movieIds, id);
+		return index >= 0 ? index + 1 : -(index + 1);
+	}
+
+	/**
+	 * Returns the index of the first person whose id is greater than the given
+	 * id.
+	 *
+	 * @param id the id to start after
+	 * @return the index of the first later person, or the number of people if
+	 *         there is none
+	 */
+	public int firstPersonAfter(int id) {
+		int index = Arrays.binarySearch(personIds, id);
+		return index >= 0 ? index + 1 : -(index + 1);
+	}
+
+	/**
+	 * Returns the number of movies.
+	 *
+	 * @return the number of movies
+	 */
+	public int movieCount() {
+		return movieIds.length;
+	}
+
+	/**
+	 * Returns the number of people.
+	 *
+	 * @return the number of people
+	 */
+	public int personCount() {
+		return personIds.length;
+	}
+
+	/**
+	 * Returns the id of the movie at the given index.
+	 *
+	 * @param index the index of the movie
+	 * @return the id of the movie
+	 */
+	public int movieId(int index) {
+		return movieIds[index];
+	}
+
+	/**
+	 * Returns the title of the movie at the given index.
+	 *
+	 * @param index the index of the movie
+	 * @return the title of the movie
+	 */
+	public String movieTitle(int index) {
+		return movieTitles.get(index);
+	}
+
+	/**
+	 * Returns the release year of the movie at the given index.
+	 *
+	 * @param index the index of the movie
+	 * @return the release year of the movie
+	 */
+	public int movieYear(int index) {
+		return movieYears[index];
+	}
+
+	/**
+	 * Returns whether the movie at the given index has a rating.
+	 *
+	 * @param index the index of the movie
+	 * @return true if the movie has a rating
+	 */
+	public boolean hasRating(int index) {
+		return !Double.isNaN(movieRatings[index]);
+	}
+
+	/**
+	 * Returns the rating of a movie, or NaN if it has no rating.
+	 *
+	 * @param index the index of the movie
+	 * @return the rating of the movie
+	 */
+	public double movieRating(int index) {
+		return movieRatings[index];
+	}
+
+	/**
+	 * Returns the number of votes of a movie, or 0 if it has no rating.
+	 *
+	 * @param index the index of the movie
+	 * @return the number of votes
+	 */
+	public int movieVotes(int index) {
+		return movieVotes[index];
+	}
+
+	/**
+	 * Returns the id of the person at the given index.
+	 *
+	 * @param index the index of the person
+	 * @return the id of the person
+	 */
+	public int personId(int index) {
+		return personIds[index];
+	}
+
+	/**
+	 * Returns the name of the person at the given index.
+	 *
+	 * @param index the index of the person
+	 * @return the name of the person
+	 */
+	public String personName(int index) {
+		return personNames.get(index);
+	}
+
+	/**
+	 * Returns the birth year of the person at the given index.
+	 *
+	 * @param index the index of the person
+	 * @return the birth year of the person
+	 */
+	public int personBirth(int index) {
+		return personBirths[index];
+	}
+
+	/**
+	 * Returns the people starring in each movie, sorted by person.
+	 *
+	 * @return the stars of each movie
+	 */
+	public Adjacency getMovieStars() {
+		return movieStars;
+	}
+
+	/**
+	 * Returns the movies each person starred in, sorted by movie.
+	 *
+	 * @return the movies of each person
+	 */
+	public Adjacency getPersonMovies() {
+		return personMovies;
+	}
+
+	/**
+	 * Returns the directors of each movie, sorted by person.
+	 *
+	 * @return the directors of each movie
+	 */
+	public Adjacency getMovieDirectors() {
+		return movieDirectors;
+	}
+
+	/**
+	 * Returns the movies each person directed, sorted by movie.
+	 *
+	 * @return the movies directed by each person
+	 */
+	public Adjacency getPersonDirected() {
+		return personDirected;
+	}
+
+	/**
+	 * Creates a Movie object for the movie at the given index.
+	 *
+	 * @param index the index of the movie
+	 * @return the movie
+	 */
+	public Movie movie(int index) {
+		return new Movie(movieIds[index], movieTitles.get(index), movieYears[index]);
+	}
+
+	/**
+	 * Creates a MovieRating object for the movie at the given index.
+	 *
+	 * @param index the index of the movie
+	 * @return the movie and its rating
+	 */
+	public MovieRating ratedMovie(int index) {
+		return new MovieRating(movieIds[index], movieTitles.get(index), movieYears[index], movieRatings[index],
+				movieVotes[index]);
+	}
+
+	/**
+	 * Creates a Person object for the person at the given index.
+	 *
+	 * @param index the index of the person
+	 * @return the person
+	 */
+	public Person person(int index) {
+		return new Person(personIds[index], personNames.get(index), personBirths[index]);
+	}
+
+	/**
+	 * Returns the approximate number of bytes used by the snapshot.
+	 *
+	 * @return the memory used, in bytes
+	 */
+	public long memoryBytes() {
+		return 4L * movieIds.length * 3 + 8L * movieRatings.length + movieTitles.memoryBytes()
+				+ 4L * personIds.length * 2 + personNames.memoryBytes() + movieStars.memoryBytes()
+				+ personMovies.memoryBytes() + movieDirectors.memoryBytes() + personDirected.memoryBytes();
+	}
+}
@@ -0,0 +1,150 @@
+package com.flickfinder.dao;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.flickfinder.model.Movie;
+import com.flickfinder.model.Page;
+import com.flickfinder.model.Person;
+
+/**
+ * A Movie Data Access Object that answers from an in-memory {@link Snapshot}
+ * of the database instead of querying SQLite.
+ *
+ * It returns the same results as {@link MovieDAO}, so the controllers can use
+ * either one. Ratings by year are answered by the {@link RatingLeaderboard},
+ * which is also held in memory.
+ *
+ */
+public class SnapshotMovieDAO extends MovieDAO {
+
+	/**
+	 * The in-memory copy of the database.
+	 */
+	private final Snapshot snapshot;
+
+	/**
+	 * Constructs a SnapshotMovieDAO object that reads from the given snapshot.
+	 *
+	 * @param snapshot the in-memory copy of the database
+	 */
+	public SnapshotMovieDAO(Snapshot snapshot) {
+		this.snapshot = snapshot;
+	}
+
+	@Override
+	public List<Movie> getAllMovies(int limit) throws SQLException {
+		if (limit <= 0) {
+			limit = 50;
+		}
+		int count = Math.min(limit, snapshot.movieCount());
+		List<Movie> movies = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			movies.add(snapshot.movie(i));
+		}
+		return movies;
+	}
+
+	@Override
+	public Page<Movie> getMoviesAfter(int afterId, int limit) throws SQLException {
+		if (limit <= 0) {
+			limit = 50;
+		}
+		int start = snapshot.firstMovieAfter(afterId);
+		int end = (int) Math.min((long) start + Pages.fetchSize(limit), snapshot.movieCount());
+		List<Movie> movies = new ArrayList<>(end - start);
+		for (int i = start; i < end; i++) {
+			movies.add(snapshot.movie(i));
+		}
+		return Pages.of(movies, limit, Movie::getId);
+	}
+
+	@Override
+	public Movie getMovieById(int id) throws SQLException {
+		int index = snapshot.movieIndex(id);
+		return index < 0 ? null : snapshot.movie(index);
+	}
+
+	@Override
+	public List<Movie> getMoviesByIds(int[] ids) throws SQLException {
+		List<Movie> movies = new ArrayList<>(ids.length);
+		for (int id : ids) {
+			int index = snapshot.movieIndex(id);
+			movies.add(index < 0 ? null : snapshot.movie(index));
+		}
+		return movies;
+	}
+
+	@Override
+	public List<Person> getPeopleByMovieId(int movieId) throws SQLException {
+		int index = snapshot.movieIndex(movieId);
+		if (index < 0) {
+			return new ArrayList<>();
+		}
+		Adjacency stars = snapshot.getMovieStars();
+		List<Person> people = new ArrayList<>(stars.degree(index));
+		for (int i = stars.start(index); i < stars.end(index); i++) {
+			people.add(snapshot.person(stars.target(i)));
+		}
+		return people;
+	}
+
+	@Override
+	public List<Person> findPeopleByMovieId(int movieId) throws SQLException {
+		if (snapshot.movieIndex(movieId) < 0) {
+			return null;
+		}
+		return getPeopleByMovieId(movieId);
+	}
+
+	@Override
+	public void streamAllMovies(int limit, RowCallback<Movie> callback) throws SQLException, IOException {
+		if (limit <= 0) {
+			limit = 50;
+		}
+		int count = Math.min(limit, snapshot.movieCount());
+		for (int i = 0; i < count; i++) {
+			callback.accept(snapshot.movie(i));
+		}
+	}
+
+	@Override
+	public boolean streamPeopleByMovieId(int movieId, RowCallback<Person> callback) throws SQLException, IOException {
+		int index = snapshot.movieIndex(movieId);
+		if (index < 0) {
+			return false;
+		}
+		Adjacency stars = snapshot.getMovieStars();
+		for (int i = stars.start(index); i < stars.end(index); i++) {
+			callback.accept(snapshot.person(stars.target(i)));
+		}
+		return true;
+	}
+
+	@Override
+	public List<Person> findDirectorsByMovieId(int movieId) throws SQLException {
+		int index = snapshot.movieIndex(movieId);
+		return index < 0 ? null : directors(index);
+	}
+
+	@Override
+	public List<List<Person>> getDirectorsByMovieIds(int[] ids) throws SQLException {
+		List<List<Person>> result = new ArrayList<>(ids.length);
+		for (int id : ids) {
+			int index = snapshot.movieIndex(id);
+			result.add(index < 0 ? null : directors(index));
+		}
+		return result;
+	}
+
+	private List<Person> directors(int index) {
+		Adjacency directors = snapshot.getMovieDirectors();
+		List<Person> people = new ArrayList<>(directors.degree(index));
+		for (int i = directors.start(index); i < directors.end(index); i++) {
+			people.add(snapshot.person(directors.target(i)));
+		}
+		return people;
+	}
+}
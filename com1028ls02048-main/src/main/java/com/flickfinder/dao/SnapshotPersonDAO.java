@@ -0,0 +1,150 @@
+package com.flickfinder.dao;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.flickfinder.model.Movie;
+import com.flickfinder.model.Page;
+import com.flickfinder.model.Person;
+
+/**
+ * A Person Data Access Object that answers from an in-memory {@link Snapshot}
+ * of the database instead of querying SQLite.
+ *
+ * It returns the same results as {@link PersonDAO}, so the controllers can use
+ * either one.
+ *
+ */
+public class SnapshotPersonDAO extends PersonDAO {
+
+	/**
+	 * The in-memory copy of the database.
+	 */
+	private final Snapshot snapshot;
+
+	/**
+	 * Constructs a SnapshotPersonDAO object that reads from the given snapshot.
+	 *
+	 * @param snapshot the in-memory copy of the database
+	 */
+	public SnapshotPersonDAO(Snapshot snapshot) {
+		this.snapshot = snapshot;
+	}
+
+	@Override
+	public List<Person> getAllPeople(Integer limit) throws SQLException {
+		if (limit <= 0) {
+			limit = 50;
+		}
+		int count = Math.min(limit, snapshot.personCount());
+		List<Person> people = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			people.add(snapshot.person(i));
+		}
+		return people;
+	}
+
+	@Override
+	public Page<Person> getPeopleAfter(int afterId, int limit) throws SQLException {
+		if (limit <= 0) {
+			limit = 50;
+		}
+		int start = snapshot.firstPersonAfter(afterId);
+		int end = (int) Math.min((long) start + Pages.fetchSize(limit), snapshot.personCount());
+		List<Person> people = new ArrayList<>(end - start);
+		for (int i = start; i < end; i++) {
+			people.add(snapshot.person(i));
+		}
+		return Pages.of(people, limit, Person::getId);
+	}
+
+	@Override
+	public Person getPersonById(int id) throws SQLException {
+		int index = snapshot.personIndex(id);
+		return index < 0 ? null : snapshot.person(index);
+	}
+
+	@Override
+	public List<Person> getPeopleByIds(int[] ids) throws SQLException {
+		List<Person> people = new ArrayList<>(ids.length);
+		for (int id : ids) {
+			int index = snapshot.personIndex(id);
+			people.add(index < 0 ? null : snapshot.person(index));
+		}
+		return people;
+	}
+
+	@Override
+	public List<Movie> getMoviesStarringPerson(int personId) throws SQLException {
+		int index = snapshot.personIndex(personId);
+		if (index < 0) {
+			return new ArrayList<>();
+		}
+		Adjacency movies = snapshot.getPersonMovies();
+		List<Movie> result = new ArrayList<>(movies.degree(index));
+		for (int i = movies.start(index); i < movies.end(index); i++) {
+			result.add(snapshot.movie(movies.target(i)));
+		}
+		return result;
+	}
+
+	@Override
+	public List<Movie> findMoviesStarringPerson(int personId) throws SQLException {
+		if (snapshot.personIndex(personId) < 0) {
+			return null;
+		}
+		return getMoviesStarringPerson(personId);
+	}
+
+	@Override
+	public void streamAllPeople(int limit, RowCallback<Person> callback) throws SQLException, IOException {
+		if (limit <= 0) {
+			limit = 50;
+		}
+		int count = Math.min(limit, snapshot.personCount());
+		for (int i = 0; i < count; i++) {
+			callback.accept(snapshot.person(i));
+		}
+	}
+
+	@Override
+	public boolean streamMoviesStarringPerson(int personId, RowCallback<Movie> callback)
+			throws SQLException, IOException {
+		int index = snapshot.personIndex(personId);
+		if (index < 0) {
+			return false;
+		}
+		Adjacency movies = snapshot.getPersonMovies();
+		for (int i = movies.start(index); i < movies.end(index); i++) {
+			callback.accept(snapshot.movie(movies.target(i)));
+		}
+		return true;
+	}
+
+	@Override
+	public List<Movie> findMoviesDirectedByPerson(int personId) throws SQLException {
+		int index = snapshot.personIndex(personId);
+		return index < 0 ? null : directed(index);
+	}
+
+	@Override
+	public List<List<Movie>> getMoviesDirectedByPeople(int[] ids) throws SQLException {
+		List<List<Movie>> result = new ArrayList<>(ids.length);
+		for (int id : ids) {
+			int index = snapshot.personIndex(id);
+			result.add(index < 0 ? null : directed(index));
+		}
+		return result;
+	}
+
+	private List<Movie> directed(int index) {
+		Adjacency directed = snapshot.getPersonDirected();
+		List<Movie> movies = new ArrayList<>(directed.degree(index));
+		for (int i = directed.start(index); i < directed.end(index); i++) {
+			movies.add(snapshot.movie(directed.target(i)));
+		}
+		return movies;
+	}
+}
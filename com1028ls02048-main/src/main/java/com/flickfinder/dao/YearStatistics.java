@@ -0,0 +1,369 @@
+package com.flickfinder.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.flickfinder.model.YearStats;
+import com.flickfinder.util.Database;
+
+/**
+ * The statistics of the movies of each year, worked out once at startup.
+ *
+ * The movies and their ratings are scanned a single time, split into ranges
+ * of ids that are scanned in parallel on a fork-join pool. Each range adds up
+ * its own totals for each year, so the threads share nothing while scanning,
+ * and the totals of the two halves of a range are merged when both are done.
+ * A range read from the database borrows its own connection from the pool.
+ *
+ * Ratings are kept as counts of each tenth from 0.0 to 10.0, which is how
+ * precise the ratings are. That is enough to work out the mean, the median
+ * and the histogram exactly, and merging two counts is just adding them.
+ *
+ * Movies with no year are left out, as they are from the leaderboard.
+ *
+ */
+public class YearStatistics {
+
+	private static final Logger LOG = LoggerFactory.getLogger(YearStatistics.class);
+
+	/**
+	 * The query that scans one range of ids.
+	 */
+	static final String SELECT_YEAR_RATINGS = "SELECT m.year, r.rating, r.votes FROM movies m "
+			+ "LEFT JOIN ratings r ON r.movie_id = m.id "
+			+ "WHERE m.id BETWEEN ? AND ?";
+
+	/**
+	 * How many ranges to split the scan into for each thread, so that a thread
+	 * that finishes early can take on more.
+	 */
+	private static final int RANGES_PER_THREAD = 4;
+
+	/**
+	 * The number of tenths from 0.0 to 10.0.
+	 */
+	private static final int TENTHS = 101;
+
+	/**
+	 * The years, in ascending order, with their statistics at the same index.
+	 */
+	private final int[] years;
+	private final List<YearStats> stats;
+
+	private YearStatistics(int[] years, List<YearStats> stats) {
+		this.years = years;
+		this.stats = stats;
+	}
+
+	/**
+	 * Works out the statistics from the database.
+	 *
+	 * @param database    the database to read the movies and ratings from
+	 * @param parallelism the number of threads to scan with
+	 * @return the statistics
+	 * @throws SQLException if a database error occurs
+	 */
+	public static YearStatistics load(Database database, int parallelism) throws SQLException {
+		long start = System.nanoTime();
+		int low;
+		int high;
+		try (Connection connection = database.getConnection();
+				Statement stmt = connection.createStatement();
+				ResultSet rs = stmt.executeQuery("SELECT min(id), max(id) FROM movies")) {
+			rs.next();
+			low = rs.getInt(1);
+			high = rs.getInt(2);
+		}
+		Totals totals;
+		try {
+			totals = scan(parallelism, new DatabaseScan(database, low, high, chunk(low, high, parallelism)));
+		} catch (ScanException e) {
+			throw e.getSQLException();
+		}
+		return build(totals, start, parallelism);
+	}
+
+	/**
+	 * Works out the statistics from a snapshot.
+	 *
+	 * @param snapshot    the in-memory copy of the database
+	 * @param parallelism the number of threads to scan with
+	 * @return the statistics
+	 */
+	public static YearStatistics of(Snapshot snapshot, int parallelism) {
+		long start = System.nanoTime();
+		int count = snapshot.movieCount();
+		Totals totals = scan(parallelism, new SnapshotScan(snapshot, 0, count - 1, chunk(0, count - 1, parallelism)));
+		return build(totals, start, parallelism);
+	}
+
+	private static int chunk(int low, int high, int parallelism) {
+		return (int) Math.max(1, ((long) high - low + 1) / ((long) parallelism * RANGES_PER_THREAD));
+	}
+
+	private static Totals scan(int parallelism, RecursiveTask<Totals> task) {
+		if (parallelism <= 0) {
+			throw new IllegalArgumentException("Parallelism must be positive");
+		}
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			return pool.invoke(task);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private static YearStatistics build(Totals totals, long start, int parallelism) {
+		int[] years = totals.years.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+		List<YearStats> stats = new ArrayList<>(years.length);
+		int movies = 0;
+		for (int year : years) {
+			YearStats yearStats = totals.years.get(year).toStats(year);
+			movies += yearStats.getMovies();
+			stats.add(yearStats);
+		}
+		LOG.info("Worked out statistics of {} movies over {} years on {} threads in {} ms", movies, years.length,
+				parallelism, (System.nanoTime() - start) / 1_000_000);
+		return new YearStatistics(years, stats);
+	}
+
+	/**
+	 * Returns the statistics of every year with at least one movie.
+	 *
+	 * @return the statistics, by year in ascending order
+	 */
+	public List<YearStats> getYears() {
+		return stats;
+	}
+
+	/**
+	 * Returns the statistics of one year.
+	 *
+	 * @param year the release year
+	 * @return the statistics, or null if no movies came out that year
+	 */
+	public YearStats getYear(int year) {
+		int index = Arrays.binarySearch(years, year);
+		return index >= 0 ? stats.get(index) : null;
+	}
+
+	/**
+	 * The totals of the movies of one year.
+	 */
+	private static class YearTotals {
+		int movies;
+		int rated;
+		long votes;
+		final int[] tenths = new int[TENTHS];
+
+		void add(boolean hasRating, double rating, int votes) {
+			movies++;
+			if (hasRating) {
+				rated++;
+				tenths[Math.max(0, Math.min(TENTHS - 1, (int) Math.round(rating * 10)))]++;
+				this.votes += votes;
+			}
+		}
+
+		void merge(YearTotals other) {
+			movies += other.movies;
+			rated += other.rated;
+			votes += other.votes;
+			for (int i = 0; i < TENTHS; i++) {
+				tenths[i] += other.tenths[i];
+			}
+		}
+
+		YearStats toStats(int year) {
+			int[] histogram = new int[10];
+			long sum = 0;
+			for (int i = 0; i < TENTHS; i++) {
+				histogram[Math.min(9, i / 10)] += tenths[i];
+				sum += (long) i * tenths[i];
+			}
+			Double mean = rated > 0 ? sum / 10.0 / rated : null;
+			Double median = rated > 0 ? (tenth(rated / 2) + tenth((rated - 1) / 2)) / 20.0 : null;
+			return new YearStats(year, movies, rated, mean, median, votes, histogram);
+		}
+
+		/**
+		 * Returns the tenth that the rating at a position in sorted order falls
+		 * in.
+		 */
+		private int tenth(int position) {
+			int seen = 0;
+			for (int i = 0; i < TENTHS; i++) {
+				seen += tenths[i];
+				if (seen > position) {
+					return i;
+				}
+			}
+			return TENTHS - 1;
+		}
+	}
+
+	/**
+	 * The totals of each year in one range of movies.
+	 */
+	private static class Totals {
+		final Map<Integer, YearTotals> years = new HashMap<>();
+
+		void add(int year, boolean hasRating, double rating, int votes) {
+			if (year != 0) {
+				years.computeIfAbsent(year, y -> new YearTotals()).add(hasRating, rating, votes);
+			}
+		}
+
+		Totals merge(Totals other) {
+			for (Map.Entry<Integer, YearTotals> entry : other.years.entrySet()) {
+				YearTotals totals = years.get(entry.getKey());
+				if (totals == null) {
+					years.put(entry.getKey(), entry.getValue());
+				} else {
+					totals.merge(entry.getValue());
+				}
+			}
+			return this;
+		}
+	}
+
+	/**
+	 * Scans a range of movies, splitting it in half until it is no bigger than
+	 * the chunk size.
+	 */
+	private abstract static class RangeScan extends RecursiveTask<Totals> {
+		private static final long serialVersionUID = 1L;
+
+		final int low;
+		final int high;
+		final int chunk;
+
+		RangeScan(int low, int high, int chunk) {
+			this.low = low;
+			this.high = high;
+			this.chunk = chunk;
+		}
+
+		@Override
+		protected Totals compute() {
+			if ((long) high - low + 1 <= chunk) {
+				return scanRange();
+			}
+			int middle = (int) (((long) low + high) >>> 1);
+			RangeScan left = split(low, middle);
+			RangeScan right = split(middle + 1, high);
+			left.fork();
+			Totals totals = right.compute();
+			return left.join().merge(totals);
+		}
+
+		abstract RangeScan split(int low, int high);
+
+		abstract Totals scanRange();
+	}
+
+	/**
+	 * Scans a range of movie ids in the database.
+	 */
+	private static class DatabaseScan extends RangeScan {
+		private static final long serialVersionUID = 1L;
+
+		private final transient Database database;
+
+		DatabaseScan(Database database, int low, int high, int chunk) {
+			super(low, high, chunk);
+			this.database = database;
+		}
+
+		@Override
+		RangeScan split(int low, int high) {
+			return new DatabaseScan(database, low, high, chunk);
+		}
+
+		@Override
+		Totals scanRange() {
+			Totals totals = new Totals();
+			try (Connection connection = database.getConnection();
+					PreparedStatement ps = connection.prepareStatement(SELECT_YEAR_RATINGS)) {
+				ps.setInt(1, low);
+				ps.setInt(2, high);
+				try (ResultSet rs = ps.executeQuery()) {
+					while (rs.next()) {
+						int year = rs.getInt(1);
+						double rating = rs.getDouble(2);
+						boolean hasRating = !rs.wasNull();
+						totals.add(year, hasRating, rating, rs.getInt(3));
+					}
+				}
+			} catch (SQLException e) {
+				throw new ScanException(e);
+			}
+			return totals;
+		}
+	}
+
+	/**
+	 * Scans a range of movie indexes in a snapshot.
+	 */
+	private static class SnapshotScan extends RangeScan {
+		private static final long serialVersionUID = 1L;
+
+		private final transient Snapshot snapshot;
+
+		SnapshotScan(Snapshot snapshot, int low, int high, int chunk) {
+			super(low, high, chunk);
+			this.snapshot = snapshot;
+		}
+
+		@Override
+		RangeScan split(int low, int high) {
+			return new SnapshotScan(snapshot, low, high, chunk);
+		}
+
+		@Override
+		Totals scanRange() {
+			Totals totals = new Totals();
+			for (int i = low; i <= high; i++) {
+				totals.add(snapshot.movieYear(i), snapshot.hasRating(i), snapshot.movieRating(i),
+						snapshot.movieVotes(i));
+			}
+			return totals;
+		}
+	}
+
+	/**
+	 * Carries an SQLException out of a fork-join task, which cannot throw it.
+	 */
+	private static class ScanException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		ScanException(SQLException cause) {
+			super(cause);
+		}
+
+		/**
+		 * Returns the SQLException, which the fork-join pool may have wrapped in
+		 * another ScanException when passing it between threads.
+		 */
+		SQLException getSQLException() {
+			Throwable cause = getCause();
+			while (!(cause instanceof SQLException)) {
+				cause = cause.getCause();
+			}
+			return (SQLException) cause;
+		}
+	}
+}
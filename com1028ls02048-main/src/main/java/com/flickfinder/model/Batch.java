@@ -0,0 +1,95 @@
+package com.flickfinder.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Represents the result of looking up many movies or people by id at once.
+ *
+ * The items are in the same order as the requested ids, with null in place of
+ * each id that was not found. Those ids are also listed in missing, so clients
+ * do not have to search the items for them.
+ *
+ * @param <T> the type of the items
+ */
+public class Batch<T> {
+
+	private List<T> items;
+	private List<Integer> missing;
+
+	/**
+	 * Constructs a Batch object with the specified items and missing ids.
+	 *
+	 * @param items   the items, with null for each id that was not found
+	 * @param missing the ids that were not found
+	 */
+	public Batch(List<T> items, List<Integer> missing) {
+		this.items = items;
+		this.missing = missing;
+	}
+
+	/**
+	 * Constructs a Batch object from the requested ids and the items looked up
+	 * for them.
+	 *
+	 * @param ids   the requested ids
+	 * @param items the items, in the same order as the ids, with null for each
+	 *              id that was not found
+	 * @return the batch
+	 */
+	public static <T> Batch<T> of(int[] ids, List<T> items) {
+		List<Integer> missing = new ArrayList<>();
+		for (int i = 0; i < ids.length; i++) {
+			if (items.get(i) == null) {
+				missing.add(ids[i]);
+			}
+		}
+		return new Batch<>(items, missing);
+	}
+
+	/**
+	 * Returns the items.
+	 *
+	 * @return the items, with null for each id that was not found
+	 */
+	public List<T> getItems() {
+		return items;
+	}
+
+	/**
+	 * Sets the items.
+	 *
+	 * @param items the items to set
+	 */
+	public void setItems(List<T> items) {
+		this.items = items;
+	}
+
+	/**
+	 * Returns the ids that were not found.
+	 *
+	 * @return the missing ids
+	 */
+	public List<Integer> getMissing() {
+		return missing;
+	}
+
+	/**
+	 * Sets the ids that were not found.
+	 *
+	 * @param missing the missing ids to set
+	 */
+	public void setMissing(List<Integer> missing) {
+		this.missing = missing;
+	}
+
+	/**
+	 * Returns a string representation of the Batch object.
+	 *
+	 * @return a string representation of the Batch object
+	 */
+	@Override
+	public String toString() {
+		return "Batch [items=" + items + ", missing=" + missing + "]";
+	}
+}
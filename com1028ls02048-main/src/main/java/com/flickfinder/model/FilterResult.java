@@ -0,0 +1,96 @@
+package com.flickfinder.model;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Represents one page of the movies that match a filter, with how many match
+ * in all and how many of those have each value of each facet.
+ *
+ * Rated movies on the page are {@link MovieRating} objects, with their rating
+ * and votes, and the others are plain {@link Movie} objects.
+ */
+public class FilterResult {
+
+	private int total;
+	private List<Movie> items;
+	private Map<String, Map<String, Integer>> facets;
+
+	/**
+	 * Constructs a FilterResult object with the specified total, items and
+	 * facets.
+	 *
+	 * @param total  the number of movies that match the filter
+	 * @param items  the movies on this page
+	 * @param facets the number of matching movies with each value, by facet
+	 */
+	public FilterResult(int total, List<Movie> items, Map<String, Map<String, Integer>> facets) {
+		this.total = total;
+		this.items = items;
+		this.facets = facets;
+	}
+
+	/**
+	 * Returns the number of movies that match the filter.
+	 *
+	 * @return the number of movies
+	 */
+	public int getTotal() {
+		return total;
+	}
+
+	/**
+	 * Sets the number of movies that match the filter.
+	 *
+	 * @param total the number of movies to set
+	 */
+	public void setTotal(int total) {
+		this.total = total;
+	}
+
+	/**
+	 * Returns the movies on this page.
+	 *
+	 * @return the movies on this page
+	 */
+	public List<Movie> getItems() {
+		return items;
+	}
+
+	/**
+	 * Sets the movies on this page.
+	 *
+	 * @param items the movies to set
+	 */
+	public void setItems(List<Movie> items) {
+		this.items = items;
+	}
+
+	/**
+	 * Returns the number of matching movies with each value, by facet.
+	 *
+	 * @return the facet counts
+	 */
+	public Map<String, Map<String, Integer>> getFacets() {
+		return facets;
+	}
+
+	/**
+	 * Sets the number of matching movies with each value, by facet.
+	 *
+	 * @param facets the facet counts to set
+	 */
+	public void setFacets(Map<String, Map<String, Integer>> facets) {
+		this.facets = facets;
+	}
+
+	/**
+	 * Returns a string representation of the FilterResult object.
+	 *
+	 * @return a string representation of the FilterResult object
+	 */
+	@Override
+	public String toString() {
+		return "FilterResult [total=" + total + ", items=" + items + ", facets=" + facets + "]";
+	}
+}
@@ -0,0 +1,75 @@
+package com.flickfinder.model;
+
+import java.util.List;
+
+/**
+ * Represents one page of a longer list of results, such as all movies or all
+ * people.
+ *
+ * The next token is opaque: clients pass it back as the cursor query parameter
+ * to get the following page. It is null on the last page.
+ *
+ * @param <T> the type of the items on the page
+ */
+public class Page<T> {
+
+	private List<T> items;
+	private String next;
+
+	/**
+	 * Constructs a Page object with the specified items and next token.
+	 *
+	 * @param items the items on this page
+	 * @param next  the token of the next page, or null if this is the last page
+	 */
+	public Page(List<T> items, String next) {
+		this.items = items;
+		this.next = next;
+	}
+
+	/**
+	 * Returns the items on this page.
+	 *
+	 * @return the items on this page
+	 */
+	public List<T> getItems() {
+		return items;
+	}
+
+	/**
+	 * Sets the items on this page.
+	 *
+	 * @param items the items to set
+	 */
+	public void setItems(List<T> items) {
+		this.items = items;
+	}
+
+	/**
+	 * Returns the token of the next page.
+	 *
+	 * @return the token of the next page, or null if this is the last page
+	 */
+	public String getNext() {
+		return next;
+	}
+
+	/**
+	 * Sets the token of the next page.
+	 *
+	 * @param next the token to set
+	 */
+	public void setNext(String next) {
+		this.next = next;
+	}
+
+	/**
+	 * Returns a string representation of the Page object.
+	 *
+	 * @return a string representation of the Page object
+	 */
+	@Override
+	public String toString() {
+		return "Page [items=" + items + ", next=" + next + "]";
+	}
+}
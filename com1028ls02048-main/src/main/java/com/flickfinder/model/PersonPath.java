@@ -0,0 +1,95 @@
+package com.flickfinder.model;
+
+import java.util.List;
+
+/**
+ * Represents the shortest chain of movies connecting two people.
+ *
+ * The chain alternates between people and movies: the movie at index i
+ * starred both the person at index i and the person at index i + 1. The first
+ * person is the one the path starts from and the last is the one it ends at,
+ * so there is always one more person than there are movies.
+ */
+public class PersonPath {
+
+	private int degrees;
+	private List<Person> people;
+	private List<Movie> movies;
+
+	/**
+	 * Constructs a PersonPath object with the specified people and movies.
+	 *
+	 * @param people the people along the path, from the first to the last
+	 * @param movies the movies linking each person to the next
+	 */
+	public PersonPath(List<Person> people, List<Movie> movies) {
+		this.degrees = movies.size();
+		this.people = people;
+		this.movies = movies;
+	}
+
+	/**
+	 * Returns the degrees of separation, which is the number of movies on the
+	 * path.
+	 *
+	 * @return the degrees of separation
+	 */
+	public int getDegrees() {
+		return degrees;
+	}
+
+	/**
+	 * Sets the degrees of separation.
+	 *
+	 * @param degrees the degrees of separation to set
+	 */
+	public void setDegrees(int degrees) {
+		this.degrees = degrees;
+	}
+
+	/**
+	 * Returns the people along the path.
+	 *
+	 * @return the people, from the first to the last
+	 */
+	public List<Person> getPeople() {
+		return people;
+	}
+
+	/**
+	 * Sets the people along the path.
+	 *
+	 * @param people the people to set
+	 */
+	public void setPeople(List<Person> people) {
+		this.people = people;
+	}
+
+	/**
+	 * Returns the movies linking each person to the next.
+	 *
+	 * @return the movies along the path
+	 */
+	public List<Movie> getMovies() {
+		return movies;
+	}
+
+	/**
+	 * Sets the movies linking each person to the next.
+	 *
+	 * @param movies the movies to set
+	 */
+	public void setMovies(List<Movie> movies) {
+		this.movies = movies;
+	}
+
+	/**
+	 * Returns a string representation of the PersonPath object.
+	 *
+	 * @return a string representation of the PersonPath object
+	 */
+	@Override
+	public String toString() {
+		return "PersonPath [degrees=" + degrees + ", people=" + people + ", movies=" + movies + "]";
+	}
+}
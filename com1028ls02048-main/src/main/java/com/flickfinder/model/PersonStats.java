@@ -0,0 +1,179 @@
+package com.flickfinder.model;
+
+/**
+ * Represents the career statistics of a person, over the movies they starred
+ * in or directed.
+ */
+public class PersonStats {
+
+	private int id;
+	private Integer firstYear;
+	private Integer lastYear;
+	private int starred;
+	private int directed;
+	private Double averageRating;
+	private Double weightedRating;
+
+	/**
+	 * Constructs a PersonStats object with the specified values.
+	 *
+	 * @param id             the unique identifier of the person
+	 * @param firstYear      the year of their first film, or null if none have
+	 *                       a year
+	 * @param lastYear       the year of their latest film, or null if none
+	 *                       have a year
+	 * @param starred        the number of movies they starred in
+	 * @param directed       the number of movies they directed
+	 * @param averageRating  the mean rating of their rated films, or null if
+	 *                       none are rated
+	 * @param weightedRating the mean rating of their rated films weighted by
+	 *                       votes, or null if none have votes
+	 */
+	public PersonStats(int id, Integer firstYear, Integer lastYear, int starred, int directed, Double averageRating,
+			Double weightedRating) {
+		this.id = id;
+		this.firstYear = firstYear;
+		this.lastYear = lastYear;
+		this.starred = starred;
+		this.directed = directed;
+		this.averageRating = averageRating;
+		this.weightedRating = weightedRating;
+	}
+
+	/**
+	 * Returns the id of the person.
+	 *
+	 * @return the id of the person
+	 */
+	public int getId() {
+		return id;
+	}
+
+	/**
+	 * Sets the id of the person.
+	 *
+	 * @param id the id of the person to set
+	 */
+	public void setId(int id) {
+		this.id = id;
+	}
+
+	/**
+	 * Returns the first year.
+	 *
+	 * @return the first year
+	 */
+	public Integer getFirstYear() {
+		return firstYear;
+	}
+
+	/**
+	 * Sets the first year.
+	 *
+	 * @param firstYear the first year to set
+	 */
+	public void setFirstYear(Integer firstYear) {
+		this.firstYear = firstYear;
+	}
+
+	/**
+	 * Returns the last year.
+	 *
+	 * @return the last year
+	 */
+	public Integer getLastYear() {
+		return lastYear;
+	}
+
+	/**
+	 * Sets the last year.
+	 *
+	 * @param lastYear the last year to set
+	 */
+	public void setLastYear(Integer lastYear) {
+		this.lastYear = lastYear;
+	}
+
+	/**
+	 * Returns the number of movies starred in.
+	 *
+	 * @return the number of movies starred in
+	 */
+	public int getStarred() {
+		return starred;
+	}
+
+	/**
+	 * Sets the number of movies starred in.
+	 *
+	 * @param starred the number of movies starred in to set
+	 */
+	public void setStarred(int starred) {
+		this.starred = starred;
+	}
+
+	/**
+	 * Returns the number of movies directed.
+	 *
+	 * @return the number of movies directed
+	 */
+	public int getDirected() {
+		return directed;
+	}
+
+	/**
+	 * Sets the number of movies directed.
+	 *
+	 * @param directed the number of movies directed to set
+	 */
+	public void setDirected(int directed) {
+		this.directed = directed;
+	}
+
+	/**
+	 * Returns the average rating.
+	 *
+	 * @return the average rating
+	 */
+	public Double getAverageRating() {
+		return averageRating;
+	}
+
+	/**
+	 * Sets the average rating.
+	 *
+	 * @param averageRating the average rating to set
+	 */
+	public void setAverageRating(Double averageRating) {
+		this.averageRating = averageRating;
+	}
+
+	/**
+	 * Returns the vote-weighted rating.
+	 *
+	 * @return the vote-weighted rating
+	 */
+	public Double getWeightedRating() {
+		return weightedRating;
+	}
+
+	/**
+	 * Sets the vote-weighted rating.
+	 *
+	 * @param weightedRating the vote-weighted rating to set
+	 */
+	public void setWeightedRating(Double weightedRating) {
+		this.weightedRating = weightedRating;
+	}
+
+	/**
+	 * Returns a string representation of the PersonStats object.
+	 *
+	 * @return a string representation of the PersonStats object
+	 */
+	@Override
+	public String toString() {
+		return "PersonStats [id=" + id + ", firstYear=" + firstYear + ", lastYear=" + lastYear + ", starred=" + starred
+				+ ", directed=" + directed + ", averageRating=" + averageRating + ", weightedRating=" + weightedRating + "]";
+	}
+}
@@ -0,0 +1,69 @@
+package com.flickfinder.model;
+
+/**
+ * Represents a movie found to have a cast like that of another movie.
+ */
+public class SimilarMovie extends Movie {
+
+	private int sharedStars;
+	private double similarity;
+
+	/**
+	 * Constructs a SimilarMovie object with the specified id, title, year,
+	 * number of shared stars and similarity.
+	 *
+	 * @param id          the unique identifier of the movie
+	 * @param title       the title of the movie
+	 * @param year        the release year of the movie
+	 * @param sharedStars the number of stars it shares with the other movie
+	 * @param similarity  the number of shared stars divided by the number of
+	 *                    stars in either movie
+	 */
+	public SimilarMovie(int id, String title, int year, int sharedStars, double similarity) {
+		super(id, title, year);
+		this.sharedStars = sharedStars;
+		this.similarity = similarity;
+	}
+
+	/**
+	 * Returns the number of stars the movie shares with the other movie.
+	 *
+	 * @return the number of shared stars
+	 */
+	public int getSharedStars() {
+		return sharedStars;
+	}
+
+	/**
+	 * Sets the number of stars the movie shares with the other movie.
+	 *
+	 * @param sharedStars the number of shared stars to set
+	 */
+	public void setSharedStars(int sharedStars) {
+		this.sharedStars = sharedStars;
+	}
+
+	/**
+	 * Returns the similarity of the two casts, from 0 to 1.
+	 *
+	 * @return the similarity
+	 */
+	public double getSimilarity() {
+		return similarity;
+	}
+
+	/**
+	 * Sets the similarity of the two casts.
+	 *
+	 * @param similarity the similarity to set
+	 */
+	public void setSimilarity(double similarity) {
+		this.similarity = similarity;
+	}
+
+	@Override
+	public String toString() {
+		return "SimilarMovie [id=" + getId() + ", title=" + getTitle() + ", year=" + getYear() + ", sharedStars="
+				+ sharedStars + ", similarity=" + similarity + "]";
+	}
+}
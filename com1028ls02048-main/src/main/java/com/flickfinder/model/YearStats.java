@@ -0,0 +1,180 @@
+package com.flickfinder.model;
+
+import java.util.Arrays;
+
+/**
+ * Represents the statistics of the movies released in one year.
+ */
+public class YearStats {
+
+	private int year;
+	private int movies;
+	private int ratedMovies;
+	private Double meanRating;
+	private Double medianRating;
+	private long totalVotes;
+	private int[] ratingHistogram;
+
+	/**
+	 * Constructs a YearStats object with the specified values.
+	 *
+	 * @param year            the release year
+	 * @param movies          the number of movies released in the year
+	 * @param ratedMovies     the number of those movies that have a rating
+	 * @param meanRating      the mean rating, or null if none are rated
+	 * @param medianRating    the median rating, or null if none are rated
+	 * @param totalVotes      the total number of votes
+	 * @param ratingHistogram the number of rated movies with a rating from 0 up
+	 *                        to 1, from 1 up to 2, and so on, with 10 counted
+	 *                        with 9
+	 */
+	public YearStats(int year, int movies, int ratedMovies, Double meanRating, Double medianRating, long totalVotes,
+			int[] ratingHistogram) {
+		this.year = year;
+		this.movies = movies;
+		this.ratedMovies = ratedMovies;
+		this.meanRating = meanRating;
+		this.medianRating = medianRating;
+		this.totalVotes = totalVotes;
+		this.ratingHistogram = ratingHistogram;
+	}
+
+	/**
+	 * Returns the release year.
+	 *
+	 * @return the year
+	 */
+	public int getYear() {
+		return year;
+	}
+
+	/**
+	 * Sets the release year.
+	 *
+	 * @param year the year to set
+	 */
+	public void setYear(int year) {
+		this.year = year;
+	}
+
+	/**
+	 * Returns the number of movies released in the year.
+	 *
+	 * @return the number of movies
+	 */
+	public int getMovies() {
+		return movies;
+	}
+
+	/**
+	 * Sets the number of movies released in the year.
+	 *
+	 * @param movies the number of movies to set
+	 */
+	public void setMovies(int movies) {
+		this.movies = movies;
+	}
+
+	/**
+	 * Returns the number of movies released in the year that have a rating.
+	 *
+	 * @return the number of rated movies
+	 */
+	public int getRatedMovies() {
+		return ratedMovies;
+	}
+
+	/**
+	 * Sets the number of movies released in the year that have a rating.
+	 *
+	 * @param ratedMovies the number of rated movies to set
+	 */
+	public void setRatedMovies(int ratedMovies) {
+		this.ratedMovies = ratedMovies;
+	}
+
+	/**
+	 * Returns the mean rating of the rated movies.
+	 *
+	 * @return the mean rating, or null if none are rated
+	 */
+	public Double getMeanRating() {
+		return meanRating;
+	}
+
+	/**
+	 * Sets the mean rating of the rated movies.
+	 *
+	 * @param meanRating the mean rating to set
+	 */
+	public void setMeanRating(Double meanRating) {
+		this.meanRating = meanRating;
+	}
+
+	/**
+	 * Returns the median rating of the rated movies.
+	 *
+	 * @return the median rating, or null if none are rated
+	 */
+	public Double getMedianRating() {
+		return medianRating;
+	}
+
+	/**
+	 * Sets the median rating of the rated movies.
+	 *
+	 * @param medianRating the median rating to set
+	 */
+	public void setMedianRating(Double medianRating) {
+		this.medianRating = medianRating;
+	}
+
+	/**
+	 * Returns the total number of votes of the movies.
+	 *
+	 * @return the total votes
+	 */
+	public long getTotalVotes() {
+		return totalVotes;
+	}
+
+	/**
+	 * Sets the total number of votes of the movies.
+	 *
+	 * @param totalVotes the total votes to set
+	 */
+	public void setTotalVotes(long totalVotes) {
+		this.totalVotes = totalVotes;
+	}
+
+	/**
+	 * Returns the number of rated movies with a rating in each whole number
+	 * band, from 0 up to 1 at index 0 to 9 up to and including 10 at index 9.
+	 *
+	 * @return the rating histogram
+	 */
+	public int[] getRatingHistogram() {
+		return ratingHistogram;
+	}
+
+	/**
+	 * Sets the rating histogram.
+	 *
+	 * @param ratingHistogram the rating histogram to set
+	 */
+	public void setRatingHistogram(int[] ratingHistogram) {
+		this.ratingHistogram = ratingHistogram;
+	}
+
+	/**
+	 * Returns a string representation of the YearStats object.
+	 *
+	 * @return a string representation of the YearStats object
+	 */
+	@Override
+	public String toString() {
+		return "YearStats [year=" + year + ", movies=" + movies + ", ratedMovies=" + ratedMovies + ", meanRating="
+				+ meanRating + ", medianRating=" + medianRating + ", totalVotes=" + totalVotes + ", ratingHistogram="
+				+ Arrays.toString(ratingHistogram) + "]";
+	}
+}
@@ -0,0 +1,372 @@
+package com.flickfinder.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.sqlite.SQLiteConfig;
+
+/**
+ * A bounded pool of read-only connections to the database.
+ *
+ * The movies database is never written to, so several connections can read
+ * from it at the same time. Each request borrows a connection, uses it, and
+ * gives it back by calling {@link Connection#close()}. The connection handed
+ * out is a thin wrapper, so closing it returns it to the pool rather than
+ * closing the underlying SQLite handle.
+ *
+ * If every connection is in use, the caller waits for up to the acquire
+ * timeout before a {@link SQLException} is thrown. The pool therefore also
+ * acts as a semaphore on the database: however many request threads there
+ * are, no more queries than connections run at the same time.
+ *
+ * Each connection has its own {@link StatementCache}, so calling
+ * prepareStatement(sql) on a borrowed connection reuses a statement prepared
+ * by an earlier caller.
+ *
+ */
+public class ConnectionPool {
+
+	/**
+	 * The connections that are not currently borrowed.
+	 */
+	private final BlockingQueue<Connection> idle;
+
+	/**
+	 * Every connection owned by the pool.
+	 */
+	private final List<Connection> all = new ArrayList<>();
+
+	/**
+	 * The statement cache of each connection.
+	 */
+	private final Map<Connection, StatementCache> caches = new IdentityHashMap<>();
+
+	/**
+	 * The largest number of statements each connection keeps prepared.
+	 */
+	private final int statementCacheSize = Settings.getInt("pool.statementCacheSize", 32);
+
+	/**
+	 * Whether the pool opened its connections itself, and so should close them.
+	 */
+	private final boolean ownsConnections;
+
+	/**
+	 * The JDBC url the connections were opened with, or null if the pool was
+	 * made around an existing connection.
+	 */
+	private final String url;
+
+	/**
+	 * How long to wait for a free connection before giving up.
+	 */
+	private final long acquireTimeoutMillis;
+
+	private final LongAdder acquireCount = new LongAdder();
+	private final LongAdder timeoutCount = new LongAdder();
+	private final LongAdder totalWaitNanos = new LongAdder();
+	private final AtomicLong maxWaitNanos = new AtomicLong();
+	private final LongAdder statementHits = new LongAdder();
+	private final LongAdder statementMisses = new LongAdder();
+	private final LongAdder statementEvictions = new LongAdder();
+
+	/**
+	 * Opens a pool of read-only connections to the database at the given url.
+	 *
+	 * @param url                  the JDBC url of the database
+	 * @param size                 the number of connections to open
+	 * @param acquireTimeoutMillis how long a caller waits for a free connection
+	 * @throws SQLException if a connection cannot be opened
+	 */
+	public ConnectionPool(String url, int size, long acquireTimeoutMillis) throws SQLException {
+		if (size <= 0) {
+			throw new IllegalArgumentException("Pool size must be positive");
+		}
+		this.idle = new ArrayBlockingQueue<>(size);
+		this.ownsConnections = true;
+		this.url = url;
+		this.acquireTimeoutMillis = acquireTimeoutMillis;
+
+		SQLiteConfig config = readOnlyConfig();
+		try {
+			for (int i = 0; i < size; i++) {
+				add(config.createConnection(url));
+			}
+		} catch (SQLException e) {
+			close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Creates a pool around a single existing connection. This is used for
+	 * testing with an in-memory database, which cannot be shared between
+	 * several connections. The pool does not close the connection.
+	 *
+	 * @param connection           the connection to share
+	 * @param acquireTimeoutMillis how long a caller waits for the connection
+	 */
+	public ConnectionPool(Connection connection, long acquireTimeoutMillis) {
+		this.idle = new ArrayBlockingQueue<>(1);
+		this.ownsConnections = false;
+		this.url = null;
+		this.acquireTimeoutMillis = acquireTimeoutMillis;
+		add(connection);
+	}
+
+	/**
+	 * Adds a connection, and a cache for its statements, to the pool.
+	 *
+	 * @param connection the connection to add
+	 */
+	private void add(Connection connection) {
+		caches.put(connection, new StatementCache(connection, statementCacheSize, statementHits, statementMisses,
+				statementEvictions));
+		all.add(connection);
+		idle.add(connection);
+	}
+
+	/**
+	 * Builds the settings used for every pooled connection. The database is
+	 * opened read-only with the shared page cache turned off, and each
+	 * connection gets its own page cache and memory map.
+	 *
+	 * @return the connection settings
+	 */
+	private static SQLiteConfig readOnlyConfig() {
+		SQLiteConfig config = new SQLiteConfig();
+		config.setReadOnly(true);
+		config.setSharedCache(false);
+		config.setCacheSize(-Settings.getInt("db.cacheSizeKib", 16384));
+		config.setTempStore(SQLiteConfig.TempStore.MEMORY);
+		config.setPragma(SQLiteConfig.Pragma.MMAP_SIZE, String.valueOf(Settings.getLong("db.mmapBytes", 268435456L)));
+		config.setBusyTimeout(Settings.getInt("db.busyTimeoutMillis", 5000));
+		return config;
+	}
+
+	/**
+	 * Borrows a connection from the pool. The connection must be closed when it
+	 * is no longer needed, which gives it back to the pool. Using
+	 * try-with-resources is the easiest way to make sure this happens.
+	 *
+	 * @return a connection to the database
+	 * @throws SQLException if no connection becomes free before the timeout
+	 */
+	public Connection borrow() throws SQLException {
+		long start = System.nanoTime();
+		Connection connection;
+		try {
+			connection = idle.poll(acquireTimeoutMillis, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while waiting for a connection", e);
+		}
+		long waited = System.nanoTime() - start;
+		totalWaitNanos.add(waited);
+		maxWaitNanos.accumulateAndGet(waited, Math::max);
+
+		if (connection == null) {
+			timeoutCount.increment();
+			throw new SQLException("Timed out waiting for a database connection");
+		}
+		acquireCount.increment();
+		return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+				new Class<?>[] { Connection.class }, new Lease(connection));
+	}
+
+	/**
+	 * Opens a connection to the same database, with the same settings, that is
+	 * not part of the pool. This is for background work that should not take
+	 * a connection away from requests. The caller must close it.
+	 *
+	 * @return the new connection, or null if the pool was made around an
+	 *         existing connection and so cannot open another
+	 * @throws SQLException if the connection cannot be opened
+	 */
+	public Connection openUnpooled() throws SQLException {
+		return url != null ? readOnlyConfig().createConnection(url) : null;
+	}
+
+	/**
+	 * Returns a connection to the pool.
+	 *
+	 * @param connection the underlying connection
+	 */
+	private void release(Connection connection) {
+		idle.offer(connection);
+	}
+
+	/**
+	 * Closes every cached statement, and every connection the pool opened.
+	 */
+	public void close() {
+		for (StatementCache cache : caches.values()) {
+			cache.clear();
+		}
+		if (!ownsConnections) {
+			return;
+		}
+		for (Connection connection : all) {
+			try {
+				connection.close();
+			} catch (SQLException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Logs the slow queries run on any connection in the pool. The log should
+	 * be set before the pool is used, as statements already handed out keep
+	 * the log they were given.
+	 *
+	 * @param slowQueryLog the slow query log, or null to stop logging
+	 */
+	public void setSlowQueryLog(SlowQueryLog slowQueryLog) {
+		for (StatementCache cache : caches.values()) {
+			cache.setSlowQueryLog(slowQueryLog);
+		}
+	}
+
+	/**
+	 * Returns the number of connections in the pool.
+	 *
+	 * @return the size of the pool
+	 */
+	public int getSize() {
+		return all.size();
+	}
+
+	/**
+	 * Returns the number of connections that are not currently borrowed.
+	 *
+	 * @return the number of idle connections
+	 */
+	public int getIdleCount() {
+		return idle.size();
+	}
+
+	/**
+	 * Returns the number of connections that have been borrowed.
+	 *
+	 * @return the number of successful borrows
+	 */
+	public long getAcquireCount() {
+		return acquireCount.sum();
+	}
+
+	/**
+	 * Returns the number of times a caller gave up waiting for a connection.
+	 *
+	 * @return the number of timeouts
+	 */
+	public long getTimeoutCount() {
+		return timeoutCount.sum();
+	}
+
+	/**
+	 * Returns the total time callers have spent waiting for a connection.
+	 *
+	 * @return the total wait time in nanoseconds
+	 */
+	public long getTotalWaitNanos() {
+		return totalWaitNanos.sum();
+	}
+
+	/**
+	 * Returns the longest time a caller has waited for a connection.
+	 *
+	 * @return the longest wait time in nanoseconds
+	 */
+	public long getMaxWaitNanos() {
+		return maxWaitNanos.get();
+	}
+
+	/**
+	 * Returns the number of statements that were found in a statement cache.
+	 *
+	 * @return the number of statement cache hits
+	 */
+	public long getStatementCacheHits() {
+		return statementHits.sum();
+	}
+
+	/**
+	 * Returns the number of statements that had to be prepared.
+	 *
+	 * @return the number of statement cache misses
+	 */
+	public long getStatementCacheMisses() {
+		return statementMisses.sum();
+	}
+
+	/**
+	 * Returns the number of statements closed to make room in a cache.
+	 *
+	 * @return the number of statement cache evictions
+	 */
+	public long getStatementCacheEvictions() {
+		return statementEvictions.sum();
+	}
+
+	/**
+	 * Hands out a borrowed connection. Calls are passed through to the
+	 * underlying connection, except for close(), which returns the connection
+	 * to the pool, and prepareStatement(sql), which uses the statement cache.
+	 */
+	private class Lease implements InvocationHandler {
+
+		private final Connection connection;
+		private boolean returned;
+
+		Lease(Connection connection) {
+			this.connection = connection;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			switch (method.getName()) {
+			case "close":
+				if (!returned) {
+					returned = true;
+					release(connection);
+				}
+				return null;
+			case "isClosed":
+				return returned || connection.isClosed();
+			case "equals":
+				return proxy == args[0];
+			case "hashCode":
+				return System.identityHashCode(proxy);
+			case "toString":
+				return "Pooled " + connection;
+			default:
+				break;
+			}
+			if (returned) {
+				throw new SQLException("Connection has already been returned to the pool");
+			}
+			if (method.getName().equals("prepareStatement") && args.length == 1) {
+				return caches.get(connection).prepare((String) args[0]);
+			}
+			try {
+				return method.invoke(connection, args);
+			} catch (InvocationTargetException e) {
+				throw e.getCause();
+			}
+		}
+	}
+}
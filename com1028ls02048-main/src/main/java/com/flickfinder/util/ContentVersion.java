@@ -0,0 +1,93 @@
+package com.flickfinder.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.zip.CRC32C;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Works out a version string for the contents of the database.
+ *
+ * The version is a checksum of the database file, so it stays the same across
+ * restarts for as long as the file is unchanged, and changes whenever the file
+ * does. It is used to build ETags, so clients can tell whether the data they
+ * already have is still current.
+ *
+ * An in-memory database has no file, so it is given a version based on the
+ * time it was first asked for, which is good for the life of the process.
+ *
+ */
+public class ContentVersion {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ContentVersion.class);
+
+	private ContentVersion() {
+	}
+
+	/**
+	 * Returns the content version of the database.
+	 *
+	 * @param database the database
+	 * @return the version, as a hex string
+	 */
+	public static String of(Database database) {
+		try {
+			File file = fileOf(database);
+			if (file != null && file.isFile()) {
+				long start = System.nanoTime();
+				String version = checksum(file);
+				LOG.info("Content version of {} is {} ({} ms)", file, version,
+						(System.nanoTime() - start) / 1_000_000);
+				return version;
+			}
+		} catch (SQLException | IOException e) {
+			LOG.warn("Could not checksum the database, using a per-process version", e);
+		}
+		return Long.toHexString(System.currentTimeMillis());
+	}
+
+	/**
+	 * Returns the CRC-32C checksum of a file.
+	 *
+	 * @param file the file
+	 * @return the checksum, as a hex string
+	 * @throws IOException if the file cannot be read
+	 */
+	public static String checksum(File file) throws IOException {
+		CRC32C crc = new CRC32C();
+		byte[] buffer = new byte[1 << 16];
+		try (InputStream in = Files.newInputStream(file.toPath())) {
+			int read;
+			while ((read = in.read(buffer)) > 0) {
+				crc.update(buffer, 0, read);
+			}
+		}
+		return Long.toHexString(file.length()) + Long.toHexString(crc.getValue());
+	}
+
+	/**
+	 * Returns the file the main database is stored in, or null if it is in
+	 * memory.
+	 */
+	private static File fileOf(Database database) throws SQLException {
+		try (Connection connection = database.getConnection();
+				Statement stmt = connection.createStatement();
+				ResultSet rs = stmt.executeQuery("PRAGMA database_list")) {
+			while (rs.next()) {
+				if ("main".equals(rs.getString("name"))) {
+					String path = rs.getString("file");
+					return path == null || path.isEmpty() ? null : new File(path);
+				}
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,55 @@
+package com.flickfinder.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Encodes and decodes the opaque tokens used to page through long lists.
+ *
+ * A token records the id of the last row on a page, so the next page can seek
+ * straight to the following id using the primary key. Clients should treat
+ * tokens as opaque strings.
+ *
+ */
+public final class Cursor {
+
+	private static final String PREFIX = "after:";
+
+	private Cursor() {
+	}
+
+	/**
+	 * Creates the token for the page after the given id.
+	 *
+	 * @param lastId the id of the last row on the current page
+	 * @return the token
+	 */
+	public static String encode(int lastId) {
+		return Base64.getUrlEncoder().withoutPadding()
+				.encodeToString((PREFIX + lastId).getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Reads the id stored in a token.
+	 *
+	 * @param token the token
+	 * @return the id of the last row on the previous page
+	 * @throws IllegalArgumentException if the token is not valid
+	 */
+	public static int decode(String token) {
+		String value;
+		try {
+			value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Invalid cursor", e);
+		}
+		if (!value.startsWith(PREFIX)) {
+			throw new IllegalArgumentException("Invalid cursor");
+		}
+		try {
+			return Integer.parseInt(value.substring(PREFIX.length()));
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid cursor", e);
+		}
+	}
+}
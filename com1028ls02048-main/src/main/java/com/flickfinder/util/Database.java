@@ -1,12 +1,17 @@
 package com.flickfinder.util;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
 /**
- * A class to handle the database connection.
- * You should not need to modify this class.
+ * A class to handle the database connections.
+ * 
+ * The database keeps a bounded pool of read-only connections. Each DAO call
+ * borrows a connection with {@link #getConnection()} and gives it back by
+ * closing it, so several requests can read from the database at once.
+ * 
+ * The pool can be tuned with the {@code flickfinder.pool.size} and
+ * {@code flickfinder.pool.acquireTimeoutMillis} system properties.
  * 
  */
 
@@ -18,15 +23,28 @@ public class Database {
 	private static Database instance;
 
 	/**
-	 * The connection to the database.
-	 * This is optional as we can also
-	 * pass in a connection to the database.
+	 * The default number of pooled connections. This is also the most queries
+	 * that run at once. With virtual threads there can be thousands of requests
+	 * in flight, and each SQLite call holds on to the carrier thread running
+	 * it, so more connections than processors would only let the database take
+	 * every carrier.
+	 */
+	public static final int DEFAULT_POOL_SIZE = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * The default time, in milliseconds, to wait for a free connection.
+	 */
+	public static final long DEFAULT_ACQUIRE_TIMEOUT_MILLIS = 5000;
+
+	/**
+	 * The pool of connections to the database.
 	 */
-	Connection connection;
+	private ConnectionPool pool;
 
 	private Database(String path) {
 		try {
-			this.connection = DriverManager.getConnection(path);
+			this.pool = new ConnectionPool(path, Settings.getInt("pool.size", DEFAULT_POOL_SIZE),
+					Settings.getLong("pool.acquireTimeoutMillis", DEFAULT_ACQUIRE_TIMEOUT_MILLIS));
 		} catch (SQLException e) {
 			e.printStackTrace();
 		}
@@ -34,13 +52,15 @@ public class Database {
 
 	/**
 	 * This allows use to pass in an existing database connection.
-	 * This is useful for testing.
+	 * This is useful for testing. The connection is shared by every caller,
+	 * one at a time, as an in-memory database cannot be pooled.
 	 * 
 	 * @param connection
 	 */
 
 	private Database(Connection connection) {
-		this.connection = connection;
+		this.pool = new ConnectionPool(connection,
+				Settings.getLong("pool.acquireTimeoutMillis", DEFAULT_ACQUIRE_TIMEOUT_MILLIS));
 	}
 
 	/**
@@ -99,13 +119,29 @@ public class Database {
 	}
 
 	/**
-	 * Returns the connection to the database.
+	 * Borrows a connection to the database from the pool.
+	 * The connection must be closed after use, which returns it to the pool,
+	 * so it is best used with try-with-resources.
 	 * 
-	 * @return
+	 * @return a connection to the database
+	 * @throws SQLException if no connection is available
 	 */
 
-	public Connection getConnection() {
-		return this.connection;
+	public Connection getConnection() throws SQLException {
+		if (this.pool == null) {
+			throw new SQLException("Database connection could not be opened");
+		}
+		return this.pool.borrow();
+	}
+
+	/**
+	 * Returns the pool of connections, which is useful for reporting how busy
+	 * the database is.
+	 * 
+	 * @return the connection pool
+	 */
+	public ConnectionPool getPool() {
+		return this.pool;
 	}
 
 }
@@ -0,0 +1,54 @@
+package com.flickfinder.util;
+
+/**
+ * Reads the list of ids sent to the batch endpoints.
+ *
+ * The ids may be sent as a JSON array, such as {@code [1, 2, 3]}, or as a
+ * plain comma separated list, such as {@code 1,2,3}, so the same reader works
+ * for a request body and for the ids query parameter.
+ *
+ */
+public final class IdList {
+
+	/**
+	 * The most ids a single batch request may ask for.
+	 */
+	public static final int MAX_IDS = Settings.getInt("batch.maxIds", 1000);
+
+	private IdList() {
+	}
+
+	/**
+	 * Reads a list of ids.
+	 *
+	 * @param text the ids, as a JSON array or a comma separated list
+	 * @return the ids, in the order they were given
+	 * @throws IllegalArgumentException if the list is missing, empty, too long
+	 *                                  or holds something that is not an id
+	 */
+	public static int[] parse(String text) {
+		if (text == null) {
+			throw new IllegalArgumentException("Missing ids");
+		}
+		String list = text.trim();
+		if (list.startsWith("[") && list.endsWith("]")) {
+			list = list.substring(1, list.length() - 1).trim();
+		}
+		if (list.isEmpty()) {
+			throw new IllegalArgumentException("Missing ids");
+		}
+		String[] parts = list.split(",");
+		if (parts.length > MAX_IDS) {
+			throw new IllegalArgumentException("Too many ids");
+		}
+		int[] ids = new int[parts.length];
+		for (int i = 0; i < parts.length; i++) {
+			try {
+				ids[i] = Integer.parseInt(parts[i].trim());
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Invalid id " + parts[i].trim(), e);
+			}
+		}
+		return ids;
+	}
+}
@@ -0,0 +1,261 @@
+package com.flickfinder.util;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+/**
+ * The counters, histograms and gauges the server keeps about itself, which
+ * are exported in the Prometheus text format.
+ *
+ * Counters and histogram buckets are {@link LongAdder}s, so threads that
+ * update the same metric at the same time do not wait for each other. A
+ * metric is found by its name and labels in a concurrent map, which is only
+ * locked the first time a metric is created. Callers on a hot path can keep
+ * the {@link Counter} or {@link Histogram} they are given and skip the map
+ * altogether.
+ *
+ * Gauges, and counters kept elsewhere (such as the connection pool's), are
+ * read from a function each time the metrics are exported.
+ *
+ */
+public class Metrics {
+
+	/**
+	 * The upper bounds of the latency histogram buckets, in seconds.
+	 */
+	public static final double[] LATENCY_BUCKETS = { 0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025,
+			0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10 };
+
+	/**
+	 * The metrics, by name. Each family holds a metric for each set of labels.
+	 */
+	private final ConcurrentMap<String, Family> families = new ConcurrentHashMap<>();
+
+	/**
+	 * Returns the counter with a name and labels, creating it if necessary.
+	 *
+	 * @param name   the name of the counter
+	 * @param help   what the counter counts
+	 * @param labels the labels, as pairs of a name and a value
+	 * @return the counter
+	 */
+	public Counter counter(String name, String help, String... labels) {
+		return (Counter) family(name, help, "counter").metrics.computeIfAbsent(labelsOf(labels),
+				key -> new Counter());
+	}
+
+	/**
+	 * Returns the latency histogram with a name and labels, creating it if
+	 * necessary. The buckets are {@link #LATENCY_BUCKETS}.
+	 *
+	 * @param name   the name of the histogram, which should end in _seconds
+	 * @param help   what the histogram measures
+	 * @param labels the labels, as pairs of a name and a value
+	 * @return the histogram
+	 */
+	public Histogram histogram(String name, String help, String... labels) {
+		return (Histogram) family(name, help, "histogram").metrics.computeIfAbsent(labelsOf(labels),
+				key -> new Histogram());
+	}
+
+	/**
+	 * Registers a gauge whose value is read when the metrics are exported.
+	 *
+	 * @param name   the name of the gauge
+	 * @param help   what the gauge measures
+	 * @param value  reads the current value
+	 * @param labels the labels, as pairs of a name and a value
+	 */
+	public void gauge(String name, String help, DoubleSupplier value, String... labels) {
+		family(name, help, "gauge").metrics.put(labelsOf(labels), value);
+	}
+
+	/**
+	 * Registers a counter that is kept elsewhere, whose value is read when the
+	 * metrics are exported.
+	 *
+	 * @param name   the name of the counter
+	 * @param help   what the counter counts
+	 * @param value  reads the current count
+	 * @param labels the labels, as pairs of a name and a value
+	 */
+	public void counterFunction(String name, String help, DoubleSupplier value, String... labels) {
+		family(name, help, "counter").metrics.put(labelsOf(labels), value);
+	}
+
+	private Family family(String name, String help, String type) {
+		Family family = families.computeIfAbsent(name, key -> new Family(help, type));
+		if (!family.type.equals(type)) {
+			throw new IllegalArgumentException(name + " is already a " + family.type);
+		}
+		return family;
+	}
+
+	/**
+	 * Writes every metric in the Prometheus text format, sorted by name.
+	 *
+	 * @return the metrics
+	 */
+	public String scrape() {
+		StringBuilder out = new StringBuilder(4096);
+		for (Map.Entry<String, Family> entry : new TreeMap<>(families).entrySet()) {
+			String name = entry.getKey();
+			Family family = entry.getValue();
+			out.append("# HELP ").append(name).append(' ').append(family.help).append('\n');
+			out.append("# TYPE ").append(name).append(' ').append(family.type).append('\n');
+			for (Map.Entry<String, Object> metric : new TreeMap<>(family.metrics).entrySet()) {
+				String labels = metric.getKey();
+				Object value = metric.getValue();
+				if (value instanceof Histogram) {
+					((Histogram) value).write(out, name, labels);
+				} else if (value instanceof Counter) {
+					sample(out, name, labels, ((Counter) value).get());
+				} else {
+					sample(out, name, labels, ((DoubleSupplier) value).getAsDouble());
+				}
+			}
+		}
+		return out.toString();
+	}
+
+	private static void sample(StringBuilder out, String name, String labels, double value) {
+		out.append(name);
+		if (!labels.isEmpty()) {
+			out.append('{').append(labels).append('}');
+		}
+		out.append(' ').append(format(value)).append('\n');
+	}
+
+	private static String format(double value) {
+		if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+			return Long.toString((long) value);
+		}
+		if (Double.isInfinite(value)) {
+			return value > 0 ? "+Inf" : "-Inf";
+		}
+		if (Double.isNaN(value)) {
+			return "NaN";
+		}
+		// Plain decimals, so that a bucket reads le="0.0001" rather than 1.0E-4
+		return BigDecimal.valueOf(value).stripTrailingZeros().toPlainString();
+	}
+
+	/**
+	 * Joins label pairs into the form they take in the exported text, such as
+	 * {@code method="GET",route="/movies"}.
+	 */
+	static String labelsOf(String... labels) {
+		if (labels.length % 2 != 0) {
+			throw new IllegalArgumentException("Labels must be pairs of a name and a value");
+		}
+		StringBuilder out = new StringBuilder();
+		for (int i = 0; i < labels.length; i += 2) {
+			if (i > 0) {
+				out.append(',');
+			}
+			out.append(labels[i]).append("=\"");
+			String value = labels[i + 1] == null ? "" : labels[i + 1];
+			for (int c = 0; c < value.length(); c++) {
+				char ch = value.charAt(c);
+				if (ch == '\\' || ch == '"') {
+					out.append('\\').append(ch);
+				} else if (ch == '\n') {
+					out.append("\\n");
+				} else {
+					out.append(ch);
+				}
+			}
+			out.append('"');
+		}
+		return out.toString();
+	}
+
+	/**
+	 * The metrics that share a name: a counter, histogram or gauge for each set
+	 * of labels.
+	 */
+	private static class Family {
+		final String help;
+		final String type;
+		final ConcurrentMap<String, Object> metrics = new ConcurrentHashMap<>();
+
+		Family(String help, String type) {
+			this.help = help;
+			this.type = type;
+		}
+	}
+
+	/**
+	 * A count that only goes up.
+	 */
+	public static class Counter {
+		private final LongAdder count = new LongAdder();
+
+		public void increment() {
+			count.increment();
+		}
+
+		public void add(long amount) {
+			count.add(amount);
+		}
+
+		public long get() {
+			return count.sum();
+		}
+	}
+
+	/**
+	 * A histogram of durations, with the {@link Metrics#LATENCY_BUCKETS}.
+	 */
+	public static class Histogram {
+		private final LongAdder[] buckets = new LongAdder[LATENCY_BUCKETS.length + 1];
+		private final LongAdder sumNanos = new LongAdder();
+
+		Histogram() {
+			for (int i = 0; i < buckets.length; i++) {
+				buckets[i] = new LongAdder();
+			}
+		}
+
+		/**
+		 * Records a duration.
+		 *
+		 * @param nanos the duration in nanoseconds
+		 */
+		public void observeNanos(long nanos) {
+			double seconds = nanos / 1e9;
+			int bucket = 0;
+			while (bucket < LATENCY_BUCKETS.length && seconds > LATENCY_BUCKETS[bucket]) {
+				bucket++;
+			}
+			buckets[bucket].increment();
+			sumNanos.add(nanos);
+		}
+
+		public long getCount() {
+			long count = 0;
+			for (LongAdder bucket : buckets) {
+				count += bucket.sum();
+			}
+			return count;
+		}
+
+		void write(StringBuilder out, String name, String labels) {
+			String prefix = labels.isEmpty() ? "" : labels + ",";
+			long cumulative = 0;
+			for (int i = 0; i < buckets.length; i++) {
+				cumulative += buckets[i].sum();
+				String le = i < LATENCY_BUCKETS.length ? format(LATENCY_BUCKETS[i]) : "+Inf";
+				sample(out, name + "_bucket", prefix + "le=\"" + le + "\"", cumulative);
+			}
+			sample(out, name + "_sum", labels, sumNanos.sum() / 1e9);
+			// The count is the +Inf bucket, so the two always agree
+			sample(out, name + "_count", labels, cumulative);
+		}
+	}
+}
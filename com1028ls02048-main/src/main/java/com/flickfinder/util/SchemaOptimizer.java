@@ -0,0 +1,320 @@
+package com.flickfinder.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.flickfinder.dao.MovieDAO;
+import com.flickfinder.dao.PersonDAO;
+
+/**
+ * Adds the indexes that the DAO queries need to the movies database.
+ *
+ * The database we are given has no indexes on the stars, directors and ratings
+ * tables, so every join on them scans millions of rows. As the original
+ * database must not be modified, the indexes are built into a copy of it (the
+ * "sidecar" database), which the application then reads from instead.
+ *
+ * The query plan of each DAO query is logged before and after the indexes are
+ * built, so the effect of the indexes can be checked.
+ *
+ * The sidecar also holds the FTS5 full-text indexes used to search movie
+ * titles and people's names.
+ *
+ */
+public class SchemaOptimizer {
+
+	private static final Logger LOG = LoggerFactory.getLogger(SchemaOptimizer.class);
+
+	/**
+	 * The indexes to build, keyed by their name. Each value is the table
+	 * followed by the indexed columns.
+	 */
+	public static final Map<String, String[]> INDEXES = new LinkedHashMap<>();
+
+	static {
+		INDEXES.put("idx_stars_movie_person", new String[] { "stars", "movie_id", "person_id" });
+		INDEXES.put("idx_stars_person_movie", new String[] { "stars", "person_id", "movie_id" });
+		INDEXES.put("idx_directors_movie_person", new String[] { "directors", "movie_id", "person_id" });
+		INDEXES.put("idx_directors_person_movie", new String[] { "directors", "person_id", "movie_id" });
+		INDEXES.put("idx_ratings_movie_votes_rating", new String[] { "ratings", "movie_id", "votes", "rating" });
+		INDEXES.put("idx_movies_year_id", new String[] { "movies", "year", "id" });
+	}
+
+	/**
+	 * The full-text search tables to build, keyed by their name. Each value is
+	 * the table and the column that is searched. The search tables only hold
+	 * the index; the text itself is read from the original table.
+	 */
+	public static final Map<String, String[]> SEARCH_TABLES = new LinkedHashMap<>();
+
+	static {
+		SEARCH_TABLES.put("movies_fts", new String[] { "movies", "title" });
+		SEARCH_TABLES.put("people_fts", new String[] { "people", "name" });
+	}
+
+	/**
+	 * The DAO queries whose plans are logged, keyed by the DAO method.
+	 */
+	public static final Map<String, String> QUERIES = new LinkedHashMap<>();
+
+	static {
+		QUERIES.put("MovieDAO.getMovieById", MovieDAO.SELECT_MOVIE_BY_ID);
+		QUERIES.put("MovieDAO.getPeopleByMovieId", MovieDAO.SELECT_PEOPLE_BY_MOVIE_ID);
+		QUERIES.put("MovieDAO.findPeopleByMovieId", MovieDAO.SELECT_MOVIE_AND_PEOPLE);
+		QUERIES.put("MovieDAO.getRatingsByYear", MovieDAO.SELECT_RATINGS_BY_YEAR);
+		QUERIES.put("MovieDAO.findDirectorsByMovieId", MovieDAO.SELECT_MOVIE_AND_DIRECTORS);
+		QUERIES.put("PersonDAO.getPersonById", PersonDAO.SELECT_PERSON_BY_ID);
+		QUERIES.put("PersonDAO.getMoviesStarringPerson", PersonDAO.SELECT_MOVIES_STARRING_PERSON);
+		QUERIES.put("PersonDAO.findMoviesStarringPerson", PersonDAO.SELECT_PERSON_AND_MOVIES);
+		QUERIES.put("PersonDAO.findMoviesDirectedByPerson", PersonDAO.SELECT_PERSON_AND_DIRECTED);
+	}
+
+	private SchemaOptimizer() {
+	}
+
+	/**
+	 * Returns the path of a database that has all of the indexes, building it
+	 * if necessary. The sidecar database sits next to the original and is
+	 * rebuilt whenever the original is newer than it, or it is missing any of
+	 * the indexes or search tables (for example one built by an older version
+	 * of the application). If the sidecar cannot be
+	 * built, the original path is returned so the application still starts.
+	 *
+	 * @param dbPath the path to the original database file
+	 * @return the path of the database to read from
+	 */
+	public static String optimize(String dbPath) {
+		File original = new File(dbPath);
+		File sidecar = sidecarFor(original);
+
+		if (!original.exists()) {
+			LOG.warn("Database {} does not exist, skipping index build", dbPath);
+			return dbPath;
+		}
+
+		try {
+			if (sidecar.exists() && sidecar.lastModified() >= original.lastModified()) {
+				try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + sidecar.getPath())) {
+					if (missingIndexes(connection).isEmpty() && missingSearchTables(connection).isEmpty()) {
+						LOG.info("Using indexed database {}", sidecar.getPath());
+						return sidecar.getPath();
+					}
+				}
+			}
+
+			long start = System.nanoTime();
+			Path building = Files.createTempFile(sidecar.getAbsoluteFile().getParentFile().toPath(), "movies", ".building");
+			try {
+				Files.copy(original.toPath(), building, StandardCopyOption.REPLACE_EXISTING);
+				try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + building)) {
+					Map<String, String> before = explainAll(connection);
+					List<String> built = createSearchTables(connection);
+					built.addAll(createIndexes(connection));
+					Map<String, String> after = explainAll(connection);
+					for (String query : before.keySet()) {
+						LOG.info("{} plan before indexing:\n{}", query, before.get(query));
+						LOG.info("{} plan after indexing:\n{}", query, after.get(query));
+					}
+					LOG.info("Built indexes {} in {} ms", built, (System.nanoTime() - start) / 1_000_000);
+				}
+				Files.move(building, sidecar.toPath(), StandardCopyOption.REPLACE_EXISTING,
+						StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				Files.deleteIfExists(building);
+			}
+			return sidecar.getPath();
+		} catch (SQLException | IOException e) {
+			LOG.warn("Could not build the indexed database, using " + dbPath, e);
+			return dbPath;
+		}
+	}
+
+	/**
+	 * Returns the sidecar file for a database, e.g. movies.indexed.db for
+	 * movies.db.
+	 *
+	 * @param original the original database file
+	 * @return the sidecar database file
+	 */
+	public static File sidecarFor(File original) {
+		String name = original.getName();
+		int dot = name.lastIndexOf('.');
+		String base = dot > 0 ? name.substring(0, dot) : name;
+		return new File(original.getAbsoluteFile().getParentFile(), base + ".indexed.db");
+	}
+
+	/**
+	 * Returns the names of the indexes that the database is missing. An index
+	 * counts as present if any index on the table starts with the same
+	 * columns, whatever it is called.
+	 *
+	 * @param connection a connection to the database
+	 * @return the names of the missing indexes
+	 * @throws SQLException if a database error occurs
+	 */
+	public static List<String> missingIndexes(Connection connection) throws SQLException {
+		List<String> missing = new ArrayList<>();
+		for (Map.Entry<String, String[]> index : INDEXES.entrySet()) {
+			String[] definition = index.getValue();
+			String[] columns = Arrays.copyOfRange(definition, 1, definition.length);
+			if (!hasIndexOn(connection, definition[0], columns)) {
+				missing.add(index.getKey());
+			}
+		}
+		return missing;
+	}
+
+	/**
+	 * Builds any missing indexes and then runs ANALYZE so the query planner
+	 * knows how selective they are.
+	 *
+	 * @param connection a writable connection to the database
+	 * @return the names of the indexes that were built
+	 * @throws SQLException if a database error occurs
+	 */
+	public static List<String> createIndexes(Connection connection) throws SQLException {
+		List<String> missing = missingIndexes(connection);
+		try (Statement stmt = connection.createStatement()) {
+			for (String name : missing) {
+				String[] definition = INDEXES.get(name);
+				String columns = String.join(", ", Arrays.copyOfRange(definition, 1, definition.length));
+				stmt.execute("CREATE INDEX IF NOT EXISTS " + name + " ON " + definition[0] + "(" + columns + ")");
+			}
+			stmt.execute("ANALYZE");
+		}
+		return missing;
+	}
+
+	/**
+	 * Returns the names of the full-text search tables that the database is
+	 * missing.
+	 *
+	 * @param connection a connection to the database
+	 * @return the names of the missing search tables
+	 * @throws SQLException if a database error occurs
+	 */
+	public static List<String> missingSearchTables(Connection connection) throws SQLException {
+		List<String> missing = new ArrayList<>();
+		try (PreparedStatement ps = connection
+				.prepareStatement("SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = ?")) {
+			for (String name : SEARCH_TABLES.keySet()) {
+				ps.setString(1, name);
+				try (ResultSet rs = ps.executeQuery()) {
+					if (!rs.next()) {
+						missing.add(name);
+					}
+				}
+			}
+		}
+		return missing;
+	}
+
+	/**
+	 * Builds any missing full-text search tables. They are FTS5 tables that
+	 * read their text from the original table, with extra prefix indexes so
+	 * that searching for the first two or three letters of a word stays fast.
+	 * Accents are ignored, so "amelie" finds "Am&eacute;lie".
+	 *
+	 * @param connection a writable connection to the database
+	 * @return the names of the search tables that were built
+	 * @throws SQLException if a database error occurs
+	 */
+	public static List<String> createSearchTables(Connection connection) throws SQLException {
+		List<String> missing = missingSearchTables(connection);
+		try (Statement stmt = connection.createStatement()) {
+			for (String name : missing) {
+				String[] definition = SEARCH_TABLES.get(name);
+				stmt.execute("CREATE VIRTUAL TABLE " + name + " USING fts5(" + definition[1] + ", content='"
+						+ definition[0] + "', content_rowid='id', tokenize='unicode61 remove_diacritics 2', "
+						+ "prefix='2 3')");
+				stmt.execute("INSERT INTO " + name + "(" + name + ") VALUES('rebuild')");
+			}
+		}
+		return missing;
+	}
+
+	/**
+	 * Returns the query plan of every DAO query.
+	 *
+	 * @param connection a connection to the database
+	 * @return the query plans, keyed by the DAO method
+	 * @throws SQLException if a database error occurs
+	 */
+	public static Map<String, String> explainAll(Connection connection) throws SQLException {
+		Map<String, String> plans = new LinkedHashMap<>();
+		for (Map.Entry<String, String> query : QUERIES.entrySet()) {
+			plans.put(query.getKey(), explain(connection, query.getValue()));
+		}
+		return plans;
+	}
+
+	/**
+	 * Returns the output of EXPLAIN QUERY PLAN for a query, one step per line.
+	 * Any parameters in the query are bound to zero.
+	 *
+	 * @param connection a connection to the database
+	 * @param sql        the query to explain
+	 * @return the query plan
+	 * @throws SQLException if a database error occurs
+	 */
+	public static String explain(Connection connection, String sql) throws SQLException {
+		StringBuilder plan = new StringBuilder();
+		try (PreparedStatement ps = connection.prepareStatement("EXPLAIN QUERY PLAN " + sql)) {
+			int parameters = ps.getParameterMetaData().getParameterCount();
+			for (int i = 1; i <= parameters; i++) {
+				ps.setInt(i, 0);
+			}
+			try (ResultSet rs = ps.executeQuery()) {
+				while (rs.next()) {
+					plan.append("  ").append(rs.getString("detail")).append('\n');
+				}
+			}
+		}
+		return plan.toString();
+	}
+
+	/**
+	 * Checks whether a table has an index whose leading columns are the given
+	 * columns.
+	 */
+	private static boolean hasIndexOn(Connection connection, String table, String[] columns) throws SQLException {
+		List<String> indexes = new ArrayList<>();
+		try (Statement stmt = connection.createStatement();
+				ResultSet rs = stmt.executeQuery("PRAGMA index_list(" + table + ")")) {
+			while (rs.next()) {
+				indexes.add(rs.getString("name"));
+			}
+		}
+		for (String index : indexes) {
+			List<String> indexed = new ArrayList<>();
+			try (Statement stmt = connection.createStatement();
+					ResultSet rs = stmt.executeQuery("PRAGMA index_info(\"" + index + "\")")) {
+				while (rs.next()) {
+					indexed.add(rs.getString("name"));
+				}
+			}
+			if (indexed.size() >= columns.length
+					&& indexed.subList(0, columns.length).equals(Arrays.asList(columns))) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,59 @@
+package com.flickfinder.util;
+
+/**
+ * Turns what a user typed into a search box into an FTS5 match expression.
+ *
+ * The text is split into words on anything that is not a letter or a digit,
+ * and each word is quoted and made a prefix search, so
+ * {@code god par} becomes {@code "god"* "par"*} and finds
+ * "The Godfather Part II". Quoting every word means that FTS5 operators such as
+ * AND, OR, NEAR or a stray quote in the input are searched for as plain words
+ * rather than breaking the query.
+ *
+ * A single letter is searched for as a whole word only: as a prefix it would
+ * match a large share of all the names, and ranking them all takes hundreds of
+ * milliseconds.
+ *
+ */
+public final class SearchQuery {
+
+	/**
+	 * The most words a search may have.
+	 */
+	static final int MAX_WORDS = 8;
+
+	private SearchQuery() {
+	}
+
+	/**
+	 * Builds the match expression for a search.
+	 *
+	 * @param text the text to search for
+	 * @return the FTS5 match expression
+	 * @throws IllegalArgumentException if the text has no words to search for
+	 */
+	public static String toMatch(String text) {
+		if (text == null) {
+			throw new IllegalArgumentException("Missing search query");
+		}
+		StringBuilder match = new StringBuilder();
+		int words = 0;
+		for (String word : text.split("[^\\p{L}\\p{N}]+")) {
+			if (word.isEmpty() || words == MAX_WORDS) {
+				continue;
+			}
+			if (match.length() > 0) {
+				match.append(' ');
+			}
+			match.append('"').append(word).append('"');
+			if (word.codePointCount(0, word.length()) > 1) {
+				match.append('*');
+			}
+			words++;
+		}
+		if (words == 0) {
+			throw new IllegalArgumentException("Missing search query");
+		}
+		return match.toString();
+	}
+}
@@ -0,0 +1,84 @@
+package com.flickfinder.util;
+
+/**
+ * A small helper for reading the tunable settings of the application.
+ *
+ * Settings are passed in as Java system properties, for example
+ * {@code -Dflickfinder.pool.size=8}. If a property is missing or cannot be
+ * parsed, the default value is used instead.
+ *
+ */
+public final class Settings {
+
+	/**
+	 * The prefix shared by all of the application's system properties.
+	 */
+	public static final String PREFIX = "flickfinder.";
+
+	private Settings() {
+	}
+
+	/**
+	 * Returns the integer value of a setting.
+	 *
+	 * @param name         the name of the setting, without the prefix
+	 * @param defaultValue the value to use if the setting is not set
+	 * @return the value of the setting
+	 */
+	public static int getInt(String name, int defaultValue) {
+		String value = System.getProperty(PREFIX + name);
+		if (value == null) {
+			return defaultValue;
+		}
+		try {
+			return Integer.parseInt(value.trim());
+		} catch (NumberFormatException e) {
+			return defaultValue;
+		}
+	}
+
+	/**
+	 * Returns the long value of a setting.
+	 *
+	 * @param name         the name of the setting, without the prefix
+	 * @param defaultValue the value to use if the setting is not set
+	 * @return the value of the setting
+	 */
+	public static long getLong(String name, long defaultValue) {
+		String value = System.getProperty(PREFIX + name);
+		if (value == null) {
+			return defaultValue;
+		}
+		try {
+			return Long.parseLong(value.trim());
+		} catch (NumberFormatException e) {
+			return defaultValue;
+		}
+	}
+
+	/**
+	 * Returns the boolean value of a setting.
+	 *
+	 * @param name         the name of the setting, without the prefix
+	 * @param defaultValue the value to use if the setting is not set
+	 * @return the value of the setting
+	 */
+	public static boolean getBoolean(String name, boolean defaultValue) {
+		String value = System.getProperty(PREFIX + name);
+		if (value == null) {
+			return defaultValue;
+		}
+		return Boolean.parseBoolean(value.trim());
+	}
+
+	/**
+	 * Returns the string value of a setting.
+	 *
+	 * @param name         the name of the setting, without the prefix
+	 * @param defaultValue the value to use if the setting is not set
+	 * @return the value of the setting
+	 */
+	public static String getString(String name, String defaultValue) {
+		return System.getProperty(PREFIX + name, defaultValue);
+	}
+}
@@ -0,0 +1,474 @@
+package com.flickfinder.util;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * A log of the queries that took longer than a threshold.
+ *
+ * Each slow query is kept with its SQL, the parameters bound to it, how long
+ * it took and how many rows it returned. The latest ones are kept in a ring
+ * buffer, which the admin endpoint reads. If a log file is given, every one
+ * is also written to it as a line of JSON. The parameters can hold what users
+ * searched for, so there is no file unless one is set.
+ *
+ * The thread that ran the query only puts it in the ring buffer and on a
+ * queue, neither of which blocks. A background thread takes it from the queue,
+ * asks SQLite for the query plan and writes the file. The plans are worked
+ * out on a connection of the thread's own, so they never hold up a request
+ * waiting for the pool. The plan of the same SQL
+ * rarely changes, so it is only worked out once per plan interval for each
+ * statement. If the queue is full the query is still in the ring buffer, but
+ * is left out of the file and counted as dropped.
+ *
+ * The file is rotated when it grows past a size: slow-queries.log becomes
+ * slow-queries.log.1, which becomes slow-queries.log.2, and so on, with the
+ * oldest deleted.
+ *
+ * The background thread runs until the log is closed, which writes out any
+ * queries still waiting and closes the file.
+ *
+ */
+public class SlowQueryLog implements Closeable {
+
+	private static final Logger LOG = LoggerFactory.getLogger(SlowQueryLog.class);
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	/**
+	 * How many slow queries can wait to be written before more are dropped.
+	 */
+	private static final int QUEUE_SIZE = 1024;
+
+	/**
+	 * Queries that take at least this long are logged.
+	 */
+	private final long thresholdNanos;
+
+	/**
+	 * The latest slow queries. The next one goes at index sequence % length.
+	 */
+	private final AtomicReferenceArray<SlowQuery> ring;
+	private final AtomicLong sequence = new AtomicLong();
+
+	/**
+	 * The slow queries waiting for their plan and to be written to the file.
+	 */
+	private final BlockingQueue<SlowQuery> queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+	private final LongAdder dropped = new LongAdder();
+
+	/**
+	 * The pool whose database the query plans are worked out on, or null for
+	 * no plans.
+	 */
+	private final ConnectionPool pool;
+
+	/**
+	 * The connection the plans are worked out on, opened by the background
+	 * thread the first time it needs one.
+	 */
+	private Connection planConnection;
+
+	/**
+	 * When the plan of each statement was last worked out, in nanoseconds.
+	 */
+	private final ConcurrentMap<String, Long> planned = new ConcurrentHashMap<>();
+	private final long planIntervalNanos;
+
+	/**
+	 * The log file, or null to only keep the ring buffer.
+	 */
+	private final File file;
+	private final long maxFileBytes;
+	private final int maxFiles;
+	private BufferedWriter writer;
+	private long fileBytes;
+
+	/**
+	 * The thread that works out the plans and writes the file.
+	 */
+	private final Thread thread;
+
+	/**
+	 * Creates a slow query log and starts the thread that writes it.
+	 *
+	 * @param thresholdMillis    queries that take at least this long are logged
+	 * @param capacity           how many of the latest slow queries to keep
+	 * @param pool               the pool whose database the query plans are
+	 *                           worked out on, or null for no plans. It must have
+	 *                           been opened from a url, so another connection can
+	 *                           be opened for the plans
+	 * @param planIntervalMillis how long to wait before working out the plan of
+	 *                           the same SQL again
+	 * @param file               the log file, or null for no file
+	 * @param maxFileBytes       the size a file is rotated at
+	 * @param maxFiles           how many rotated files to keep
+	 */
+	public SlowQueryLog(long thresholdMillis, int capacity, ConnectionPool pool, long planIntervalMillis, File file,
+			long maxFileBytes, int maxFiles) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Capacity must be positive");
+		}
+		this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+		this.ring = new AtomicReferenceArray<>(capacity);
+		this.pool = pool;
+		this.planIntervalNanos = TimeUnit.MILLISECONDS.toNanos(planIntervalMillis);
+		this.file = file;
+		this.maxFileBytes = maxFileBytes;
+		this.maxFiles = maxFiles;
+
+		this.thread = new Thread(this::drain, "slow-query-log");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Creates a slow query log from the flickfinder.slowQuery.* system
+	 * properties.
+	 *
+	 * @param pool the pool to work out query plans on
+	 * @return the slow query log
+	 */
+	public static SlowQueryLog fromSettings(ConnectionPool pool) {
+		String path = Settings.getString("slowQuery.file", "");
+		return new SlowQueryLog(Settings.getLong("slowQuery.thresholdMillis", 100),
+				Settings.getInt("slowQuery.bufferSize", 100),
+				Settings.getBoolean("slowQuery.plans", true) ? pool : null,
+				Settings.getLong("slowQuery.planIntervalMillis", 60000), path.isEmpty() ? null : new File(path),
+				Settings.getLong("slowQuery.maxFileBytes", 10L * 1024 * 1024), Settings.getInt("slowQuery.maxFiles", 5));
+	}
+
+	/**
+	 * Returns how long a query has to take to be logged.
+	 *
+	 * @return the threshold in nanoseconds
+	 */
+	public long getThresholdNanos() {
+		return thresholdNanos;
+	}
+
+	/**
+	 * Logs a query, if it took at least the threshold. This never blocks.
+	 *
+	 * @param sql        the SQL of the query
+	 * @param parameters the parameters bound to it, by index from 1
+	 * @param nanos      how long the query took
+	 * @param rows       how many rows it returned
+	 */
+	public void record(String sql, Object[] parameters, long nanos, int rows) {
+		if (nanos < thresholdNanos) {
+			return;
+		}
+		SlowQuery query = new SlowQuery(sequence.getAndIncrement(), sql, parameters, nanos, rows);
+		ring.set((int) (query.sequence % ring.length()), query);
+		if (!queue.offer(query)) {
+			dropped.increment();
+		}
+	}
+
+	/**
+	 * Returns the latest slow queries, the most recent first.
+	 *
+	 * @return the slow queries in the ring buffer
+	 */
+	public List<SlowQuery> getRecent() {
+		List<SlowQuery> queries = new ArrayList<>(ring.length());
+		for (int i = 0; i < ring.length(); i++) {
+			SlowQuery query = ring.get(i);
+			if (query != null) {
+				queries.add(query);
+			}
+		}
+		queries.sort(Comparator.comparingLong((SlowQuery query) -> query.sequence).reversed());
+		return queries;
+	}
+
+	/**
+	 * Returns the number of slow queries logged so far.
+	 *
+	 * @return the number of slow queries
+	 */
+	public long getCount() {
+		return sequence.get();
+	}
+
+	/**
+	 * Returns the number of slow queries left out of the file because it could
+	 * not keep up.
+	 *
+	 * @return the number of dropped queries
+	 */
+	public long getDropped() {
+		return dropped.sum();
+	}
+
+	/**
+	 * Empties the ring buffer.
+	 */
+	public void clear() {
+		for (int i = 0; i < ring.length(); i++) {
+			ring.set(i, null);
+		}
+	}
+
+	/**
+	 * Stops the background thread, once it has written out the queries still
+	 * waiting, and closes the file. Slow queries recorded after this are only
+	 * kept in the ring buffer.
+	 */
+	@Override
+	public void close() {
+		thread.interrupt();
+		try {
+			thread.join(TimeUnit.SECONDS.toMillis(5));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Takes slow queries from the queue, adds their plans and writes them to
+	 * the file, until the log is closed.
+	 */
+	private void drain() {
+		try {
+			while (true) {
+				SlowQuery query;
+				try {
+					query = queue.take();
+				} catch (InterruptedException e) {
+					// Closed, so write what is left without asking for plans,
+					// which would need the pool.
+					while ((query = queue.poll()) != null) {
+						write(query);
+					}
+					return;
+				}
+				do {
+					if (pool != null && shouldPlan(query.sql)) {
+						query.plan = explain(query.sql, query.parameters);
+					}
+					write(query);
+				} while ((query = queue.poll()) != null);
+				flush();
+			}
+		} finally {
+			closeFile();
+			closePlanConnection();
+		}
+	}
+
+	private boolean shouldPlan(String sql) {
+		long now = System.nanoTime();
+		Long last = planned.get(sql);
+		if (last != null && now - last < planIntervalNanos) {
+			return false;
+		}
+		planned.put(sql, now);
+		return true;
+	}
+
+	/**
+	 * Asks SQLite how it runs a query, on the background thread's own
+	 * connection.
+	 */
+	private List<String> explain(String sql, Object[] parameters) {
+		try {
+			if (planConnection == null) {
+				planConnection = pool.openUnpooled();
+				if (planConnection == null) {
+					return Collections.singletonList("Could not explain the query: no connection can be opened");
+				}
+			}
+		} catch (SQLException e) {
+			return Collections.singletonList("Could not explain the query: " + e.getMessage());
+		}
+		try (PreparedStatement ps = planConnection.prepareStatement("EXPLAIN QUERY PLAN " + sql)) {
+			for (int i = 0; i < parameters.length; i++) {
+				ps.setObject(i + 1, parameters[i]);
+			}
+			List<String> plan = new ArrayList<>();
+			try (ResultSet rs = ps.executeQuery()) {
+				while (rs.next()) {
+					plan.add(rs.getString("detail"));
+				}
+			}
+			return plan;
+		} catch (SQLException e) {
+			return Collections.singletonList("Could not explain the query: " + e.getMessage());
+		}
+	}
+
+	private void write(SlowQuery query) {
+		if (file == null) {
+			return;
+		}
+		try {
+			byte[] line = MAPPER.writeValueAsBytes(query);
+			if (writer == null) {
+				open();
+			} else if (fileBytes > 0 && fileBytes + line.length + 1 > maxFileBytes) {
+				writer.close();
+				rotate();
+				open();
+			}
+			writer.write(new String(line, StandardCharsets.UTF_8));
+			writer.write('\n');
+			fileBytes += line.length + 1;
+		} catch (IOException e) {
+			LOG.warn("Could not write to the slow query log {}", file, e);
+			writer = null;
+		}
+	}
+
+	private void open() throws IOException {
+		File parent = file.getAbsoluteFile().getParentFile();
+		if (parent != null) {
+			parent.mkdirs();
+		}
+		fileBytes = file.length();
+		writer = new BufferedWriter(
+				new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Moves each file along by one, deleting the oldest.
+	 */
+	private void rotate() {
+		new File(file.getPath() + "." + maxFiles).delete();
+		for (int i = maxFiles - 1; i >= 1; i--) {
+			new File(file.getPath() + "." + i).renameTo(new File(file.getPath() + "." + (i + 1)));
+		}
+		if (maxFiles > 0) {
+			file.renameTo(new File(file.getPath() + ".1"));
+		} else {
+			file.delete();
+		}
+	}
+
+	private void flush() {
+		if (writer == null) {
+			return;
+		}
+		try {
+			writer.flush();
+		} catch (IOException e) {
+			LOG.warn("Could not write to the slow query log {}", file, e);
+		}
+	}
+
+	private void closePlanConnection() {
+		if (planConnection == null) {
+			return;
+		}
+		try {
+			planConnection.close();
+		} catch (SQLException e) {
+			LOG.warn("Could not close the slow query log's connection", e);
+		}
+		planConnection = null;
+	}
+
+	private void closeFile() {
+		if (writer == null) {
+			return;
+		}
+		try {
+			writer.close();
+		} catch (IOException e) {
+			LOG.warn("Could not write to the slow query log {}", file, e);
+		}
+		writer = null;
+	}
+
+	/**
+	 * A query that took longer than the threshold.
+	 */
+	public static class SlowQuery {
+		private final long sequence;
+		private final long time;
+		private final String sql;
+		private final Object[] parameters;
+		private final long nanos;
+		private final int rows;
+		private final String thread;
+		private volatile List<String> plan;
+
+		SlowQuery(long sequence, String sql, Object[] parameters, long nanos, int rows) {
+			this.sequence = sequence;
+			this.time = System.currentTimeMillis();
+			this.sql = sql;
+			this.parameters = parameters;
+			this.nanos = nanos;
+			this.rows = rows;
+			this.thread = Thread.currentThread().getName();
+		}
+
+		/**
+		 * Returns when the query finished, in ISO-8601 format.
+		 *
+		 * @return the time of the query
+		 */
+		public String getTime() {
+			return Instant.ofEpochMilli(time).toString();
+		}
+
+		public String getSql() {
+			return sql;
+		}
+
+		public List<Object> getParameters() {
+			return Arrays.asList(parameters);
+		}
+
+		public double getMillis() {
+			return nanos / 1e6;
+		}
+
+		public int getRows() {
+			return rows;
+		}
+
+		public String getThread() {
+			return thread;
+		}
+
+		/**
+		 * Returns the steps of the query plan, or null if it was not worked out
+		 * for this query.
+		 *
+		 * @return the query plan
+		 */
+		public List<String> getPlan() {
+			return plan;
+		}
+	}
+}
@@ -0,0 +1,292 @@
+package com.flickfinder.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A cache of prepared statements for a single connection, keyed by the SQL
+ * text.
+ *
+ * Preparing a statement makes SQLite parse and plan the query, which is wasted
+ * work when the same query runs on every request. The cache keeps the most
+ * recently used statements open and closes the least recently used one when
+ * it is full.
+ *
+ * The statements handed out are wrappers: closing one clears its parameters
+ * and keeps it in the cache rather than closing it. A cache belongs to one
+ * pooled connection, and a pooled connection is only used by one caller at a
+ * time, so the cache does not need to be thread safe.
+ *
+ * If a {@link SlowQueryLog} is set, the wrappers also remember the parameters
+ * bound to them and time each query, from executeQuery() to the last call to
+ * next(), so that slow ones can be logged. Only the time spent in SQLite is
+ * counted, not the time the caller spends on each row.
+ *
+ */
+public class StatementCache {
+
+	/**
+	 * The connection the statements are prepared on.
+	 */
+	private final Connection connection;
+
+	/**
+	 * The cached statements, in least recently used order.
+	 */
+	private final LinkedHashMap<String, PreparedStatement> statements;
+
+	private final LongAdder hits;
+	private final LongAdder misses;
+	private final LongAdder evictions;
+
+	/**
+	 * Where slow queries are logged, or null if they are not.
+	 */
+	private volatile SlowQueryLog slowQueryLog;
+
+	/**
+	 * Creates a cache of statements for the given connection.
+	 *
+	 * @param connection the connection to prepare statements on
+	 * @param capacity   the largest number of statements to keep open
+	 * @param hits       counts the statements found in the cache
+	 * @param misses     counts the statements that had to be prepared
+	 * @param evictions  counts the statements closed to make room
+	 */
+	public StatementCache(Connection connection, int capacity, LongAdder hits, LongAdder misses,
+			LongAdder evictions) {
+		this.connection = connection;
+		this.hits = hits;
+		this.misses = misses;
+		this.evictions = evictions;
+		this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+				if (size() <= capacity) {
+					return false;
+				}
+				closeQuietly(eldest.getValue());
+				StatementCache.this.evictions.increment();
+				return true;
+			}
+		};
+	}
+
+	/**
+	 * Returns a prepared statement for the given SQL, preparing it if it is not
+	 * already in the cache. The statement should be closed after use, which
+	 * hands it back to the cache.
+	 *
+	 * @param sql the SQL of the statement
+	 * @return the prepared statement
+	 * @throws SQLException if the statement cannot be prepared
+	 */
+	public PreparedStatement prepare(String sql) throws SQLException {
+		PreparedStatement statement = statements.get(sql);
+		if (statement == null || statement.isClosed()) {
+			misses.increment();
+			statement = connection.prepareStatement(sql);
+			statements.put(sql, statement);
+		} else {
+			hits.increment();
+		}
+		return wrap(statement, sql);
+	}
+
+	/**
+	 * Sets where slow queries are logged.
+	 *
+	 * @param slowQueryLog the slow query log, or null to stop logging
+	 */
+	public void setSlowQueryLog(SlowQueryLog slowQueryLog) {
+		this.slowQueryLog = slowQueryLog;
+	}
+
+	/**
+	 * Returns the number of statements in the cache.
+	 *
+	 * @return the number of cached statements
+	 */
+	public int size() {
+		return statements.size();
+	}
+
+	/**
+	 * Closes every statement in the cache.
+	 */
+	public void clear() {
+		for (PreparedStatement statement : statements.values()) {
+			closeQuietly(statement);
+		}
+		statements.clear();
+	}
+
+	/**
+	 * Wraps a cached statement so that closing it returns it to the cache.
+	 *
+	 * @param statement the cached statement
+	 * @param sql       the SQL of the statement
+	 * @return the wrapped statement
+	 */
+	private PreparedStatement wrap(PreparedStatement statement, String sql) {
+		return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+				new Class<?>[] { PreparedStatement.class }, new Lease(statement, sql, slowQueryLog));
+	}
+
+	private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+		try {
+			return method.invoke(target, args);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Hands out a cached statement. Calls are passed through to the statement,
+	 * except for close(), which clears the parameters and keeps it open.
+	 */
+	private static class Lease implements InvocationHandler {
+
+		private final PreparedStatement statement;
+		private final String sql;
+		private final SlowQueryLog slowQueryLog;
+
+		/**
+		 * The parameters bound so far, by index from 1, when slow queries are
+		 * logged.
+		 */
+		private Object[] parameters;
+
+		Lease(PreparedStatement statement, String sql, SlowQueryLog slowQueryLog) {
+			this.statement = statement;
+			this.sql = sql;
+			this.slowQueryLog = slowQueryLog;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			switch (method.getName()) {
+			case "close":
+				statement.clearParameters();
+				return null;
+			case "equals":
+				return proxy == args[0];
+			case "hashCode":
+				return System.identityHashCode(proxy);
+			default:
+				break;
+			}
+			if (slowQueryLog == null) {
+				return StatementCache.invoke(statement, method, args);
+			}
+			if (method.getName().equals("executeQuery") && args == null) {
+				long start = System.nanoTime();
+				ResultSet rs = statement.executeQuery();
+				Object[] bound = parameters == null ? new Object[0] : parameters.clone();
+				return Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[] { ResultSet.class },
+						new TimedResults(rs, sql, bound, System.nanoTime() - start, slowQueryLog));
+			}
+			if (method.getName().equals("clearParameters")) {
+				parameters = null;
+			} else if (method.getName().startsWith("set") && args != null && args.length >= 2
+					&& args[0] instanceof Integer) {
+				bind((Integer) args[0], args[1]);
+			}
+			return StatementCache.invoke(statement, method, args);
+		}
+
+		private void bind(int index, Object value) {
+			if (index < 1) {
+				return;
+			}
+			if (parameters == null) {
+				parameters = new Object[Math.max(index, 4)];
+			} else if (parameters.length < index) {
+				parameters = Arrays.copyOf(parameters, Math.max(index, parameters.length * 2));
+			}
+			parameters[index - 1] = value;
+		}
+	}
+
+	/**
+	 * The results of a query that is being timed. The time spent in next() is
+	 * added up, and the query is handed to the slow query log when the results
+	 * are closed.
+	 */
+	private static class TimedResults implements InvocationHandler {
+
+		private final ResultSet rs;
+		private final String sql;
+		private final Object[] parameters;
+		private final SlowQueryLog slowQueryLog;
+		private long nanos;
+		private int rows;
+		private boolean finished;
+
+		TimedResults(ResultSet rs, String sql, Object[] parameters, long nanos, SlowQueryLog slowQueryLog) {
+			this.rs = rs;
+			this.sql = sql;
+			this.parameters = trim(parameters);
+			this.nanos = nanos;
+			this.slowQueryLog = slowQueryLog;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			switch (method.getName()) {
+			case "next":
+				long start = System.nanoTime();
+				boolean more = rs.next();
+				nanos += System.nanoTime() - start;
+				if (more) {
+					rows++;
+				}
+				return more;
+			case "close":
+				rs.close();
+				if (!finished) {
+					finished = true;
+					slowQueryLog.record(sql, parameters, nanos, rows);
+				}
+				return null;
+			case "equals":
+				return proxy == args[0];
+			case "hashCode":
+				return System.identityHashCode(proxy);
+			default:
+				return StatementCache.invoke(rs, method, args);
+			}
+		}
+
+		/**
+		 * Drops the unused slots at the end of the parameters.
+		 */
+		private static Object[] trim(Object[] parameters) {
+			int length = parameters.length;
+			while (length > 0 && parameters[length - 1] == null) {
+				length--;
+			}
+			return length == parameters.length ? parameters : Arrays.copyOf(parameters, length);
+		}
+	}
+
+	private static void closeQuietly(PreparedStatement statement) {
+		try {
+			statement.close();
+		} catch (SQLException e) {
+			e.printStackTrace();
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package com.flickfinder.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * A compact, append-only list of strings.
+ *
+ * Every string is stored as UTF-8 in one shared byte array, with an offset
+ * array marking where each string starts. Holding a million names this way
+ * costs a fraction of the memory of a million {@link String} objects, and the
+ * garbage collector only sees two arrays. A null string takes no bytes, and
+ * is marked in a bitset so that it comes back as null rather than empty.
+ *
+ */
+public class StringPool {
+
+	private byte[] data;
+	private int[] offsets;
+	private int size;
+	private final BitSet nulls = new BitSet();
+
+	/**
+	 * Creates an empty pool.
+	 *
+	 * @param expectedStrings the number of strings the pool is expected to hold
+	 */
+	public StringPool(int expectedStrings) {
+		this.offsets = new int[Math.max(expectedStrings, 16) + 1];
+		this.data = new byte[Math.max(expectedStrings, 16) * 16];
+	}
+
+	/**
+	 * Adds a string to the end of the pool.
+	 *
+	 * @param value the string to add, which may be null
+	 * @return the index of the string
+	 */
+	public int add(String value) {
+		if (value == null) {
+			nulls.set(size);
+		}
+		byte[] bytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+		int start = offsets[size];
+		if (start + bytes.length > data.length) {
+			data = Arrays.copyOf(data, Math.max(data.length * 2, start + bytes.length));
+		}
+		System.arraycopy(bytes, 0, data, start, bytes.length);
+		if (size + 2 > offsets.length) {
+			offsets = Arrays.copyOf(offsets, offsets.length * 2);
+		}
+		offsets[size + 1] = start + bytes.length;
+		return size++;
+	}
+
+	/**
+	 * Returns the string at the given index.
+	 *
+	 * @param index the index of the string
+	 * @return the string, or null if a null string was added
+	 */
+	public String get(int index) {
+		if (nulls.get(index)) {
+			return null;
+		}
+		int start = offsets[index];
+		return new String(data, start, offsets[index + 1] - start, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Returns the number of strings in the pool.
+	 *
+	 * @return the number of strings
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Shrinks the backing arrays to fit the strings added so far.
+	 */
+	public void trim() {
+		data = Arrays.copyOf(data, offsets[size]);
+		offsets = Arrays.copyOf(offsets, size + 1);
+	}
+
+	/**
+	 * Returns the approximate number of bytes used by the pool.
+	 *
+	 * @return the memory used, in bytes
+	 */
+	public long memoryBytes() {
+		return (long) data.length + 4L * offsets.length + nulls.size() / 8;
+	}
+}
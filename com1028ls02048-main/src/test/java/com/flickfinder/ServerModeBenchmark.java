@@ -0,0 +1,135 @@
+package com.flickfinder;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.flickfinder.util.Database;
+
+import io.javalin.Javalin;
+
+/**
+ * Compares the server on platform threads with the server on virtual threads.
+ *
+ * Each mode is started in turn against the same database file, and a fixed
+ * number of clients call the routes that block on the database, each sending
+ * its next request as soon as the last one is answered. The response cache,
+ * ETags, metrics, the slow query log and all of the in-memory indexes are
+ * turned off, so every request reaches the DAO and only the server's threads
+ * differ. Requests per second and the 50th and 99th percentile latencies are
+ * printed for each mode.
+ *
+ * This is not a unit test. Run it with the test classpath:
+ *
+ * <pre>
+ * java -cp target/classes:target/test-classes:... com.flickfinder.ServerModeBenchmark \
+ *     src/main/resources/movies.db [clients] [seconds]
+ * </pre>
+ *
+ * Virtual threads are only used on Java 21 or later.
+ */
+public class ServerModeBenchmark {
+
+	/**
+	 * The port the server under test runs on.
+	 */
+	private static final int PORT = 6200;
+
+	/**
+	 * The routes that are called, with {id} filled in with a random id.
+	 */
+	private static final String[] ROUTES = { "/movies/{id}", "/movies/{id}/stars", "/people/{id}",
+			"/people/{id}/movies", "/movies/ratings/{year}?limit=10&votes=1000" };
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 1) {
+			System.err.println("Usage: ServerModeBenchmark <database file> [clients] [seconds]");
+			return;
+		}
+		int clients = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+		int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+		System.setProperty("flickfinder.cache", "false");
+		System.setProperty("flickfinder.etag", "false");
+		System.setProperty("flickfinder.leaderboard", "false");
+		System.setProperty("flickfinder.autocomplete", "false");
+		System.setProperty("flickfinder.metrics", "false");
+		System.setProperty("flickfinder.slowQuery", "false");
+		System.setProperty("flickfinder.path", "false");
+		System.setProperty("flickfinder.similar", "false");
+		System.setProperty("flickfinder.stats", "false");
+		System.setProperty("flickfinder.filter", "false");
+		Database.getInstance("jdbc:sqlite:" + args[0]);
+
+		for (boolean virtualThreads : new boolean[] { false, true }) {
+			System.setProperty("flickfinder.virtualThreads", String.valueOf(virtualThreads));
+			Javalin app = AppConfig.startServer(PORT);
+			try {
+				// A short warm up, so the JIT and the statement caches are ready
+				run(clients, 2);
+				long[] latencies = run(clients, seconds);
+				Arrays.sort(latencies);
+				System.out.printf("%-8s clients=%d requests/s=%.0f p50=%.2fms p99=%.2fms%n",
+						virtualThreads ? "virtual" : "platform", clients, latencies.length / (double) seconds,
+						percentile(latencies, 0.50) / 1e6, percentile(latencies, 0.99) / 1e6);
+			} finally {
+				app.stop();
+			}
+		}
+	}
+
+	/**
+	 * Runs the clients for a number of seconds.
+	 *
+	 * @return the latency of every request, in nanoseconds
+	 */
+	private static long[] run(int clients, int seconds) throws InterruptedException {
+		HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+		long end = System.nanoTime() + seconds * 1_000_000_000L;
+		long[][] results = new long[clients][];
+		CountDownLatch done = new CountDownLatch(clients);
+		for (int c = 0; c < clients; c++) {
+			int client = c;
+			Thread thread = new Thread(() -> {
+				long[] latencies = new long[1024];
+				int count = 0;
+				ThreadLocalRandom random = ThreadLocalRandom.current();
+				try {
+					while (System.nanoTime() < end) {
+						String route = ROUTES[random.nextInt(ROUTES.length)]
+								.replace("{id}", String.valueOf(random.nextInt(1, 1000)))
+								.replace("{year}", String.valueOf(random.nextInt(1950, 2020)));
+						HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + PORT + route))
+								.build();
+						long start = System.nanoTime();
+						http.send(request, HttpResponse.BodyHandlers.discarding());
+						if (count == latencies.length) {
+							latencies = Arrays.copyOf(latencies, count * 2);
+						}
+						latencies[count++] = System.nanoTime() - start;
+					}
+				} catch (Exception e) {
+					e.printStackTrace();
+				} finally {
+					results[client] = Arrays.copyOf(latencies, count);
+					done.countDown();
+				}
+			});
+			thread.setDaemon(true);
+			thread.start();
+		}
+		done.await();
+		return Arrays.stream(results).flatMapToLong(Arrays::stream).toArray();
+	}
+
+	private static long percentile(long[] sorted, double fraction) {
+		if (sorted.length == 0) {
+			return 0;
+		}
+		return sorted[Math.min(sorted.length - 1, (int) (sorted.length * fraction))];
+	}
+}
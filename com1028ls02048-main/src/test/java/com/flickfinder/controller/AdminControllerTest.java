@@ -0,0 +1,74 @@
+package com.flickfinder.controller;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.javalin.http.Context;
+
+/**
+ * Test for the Admin Controller's token check.
+ */
+class AdminControllerTest {
+
+	/**
+	 * The context object, later we will mock it.
+	 */
+	private Context ctx;
+
+	/**
+	 * The admin controller.
+	 */
+	private AdminController adminController;
+
+	@BeforeEach
+	void setUp() {
+		ctx = mock(Context.class);
+		adminController = new AdminController(null, null, "secret");
+	}
+
+	/**
+	 * Tests that a request with the token is let through.
+	 */
+	@Test
+	void testAuthorizeWithToken() {
+		when(ctx.header("Authorization")).thenReturn("Bearer secret");
+		adminController.authorize(ctx);
+		verify(ctx, never()).status(401);
+		verify(ctx, never()).skipRemainingHandlers();
+	}
+
+	/**
+	 * Tests that a request with no token gets a 401.
+	 */
+	@Test
+	void testThrows401WhenNoToken() {
+		adminController.authorize(ctx);
+		verify(ctx).skipRemainingHandlers();
+		verify(ctx).status(401);
+	}
+
+	/**
+	 * Tests that a request with the wrong token gets a 401.
+	 */
+	@Test
+	void testThrows401WhenWrongToken() {
+		when(ctx.header("Authorization")).thenReturn("Bearer secre");
+		adminController.authorize(ctx);
+		verify(ctx).skipRemainingHandlers();
+		verify(ctx).status(401);
+	}
+
+	/**
+	 * Tests that an empty token is not accepted.
+	 */
+	@Test
+	void testEmptyTokenRejected() {
+		assertThrows(IllegalArgumentException.class, () -> new AdminController(null, null, ""));
+	}
+}
@@ -0,0 +1,123 @@
+package com.flickfinder.controller;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.flickfinder.dao.AutocompleteIndex;
+import com.flickfinder.model.Movie;
+import com.flickfinder.model.Person;
+
+import io.javalin.http.Context;
+
+/**
+ * Test for the Autocomplete Controller.
+ */
+class AutocompleteControllerTest {
+
+	/**
+	 * The context object, later we will mock it.
+	 */
+	private Context ctx;
+
+	/**
+	 * The index of movie titles.
+	 */
+	private AutocompleteIndex<Movie> movies;
+
+	/**
+	 * The index of people's names.
+	 */
+	private AutocompleteIndex<Person> people;
+
+	/**
+	 * The autocomplete controller.
+	 */
+	private AutocompleteController autocompleteController;
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	void setUp() {
+		ctx = mock(Context.class);
+		movies = mock(AutocompleteIndex.class);
+		people = mock(AutocompleteIndex.class);
+		autocompleteController = new AutocompleteController(movies, people);
+	}
+
+	/**
+	 * Tests that movies are suggested by default, ten at a time.
+	 */
+	@Test
+	void testAutocompleteMovies() {
+		List<Movie> suggestions = List.of(new Movie(2, "The Godfather", 1972));
+		when(ctx.queryParam("prefix")).thenReturn("god");
+		when(movies.suggest("god", 10)).thenReturn(suggestions);
+		autocompleteController.autocomplete(ctx);
+		verify(ctx).json(suggestions);
+		verify(people, never()).suggest(anyString(), anyInt());
+	}
+
+	/**
+	 * Tests that people are suggested for type=person, and that k is capped.
+	 */
+	@Test
+	void testAutocompletePeople() {
+		when(ctx.queryParam("prefix")).thenReturn("al");
+		when(ctx.queryParam("type")).thenReturn("person");
+		when(ctx.queryParam("k")).thenReturn("100000");
+		autocompleteController.autocomplete(ctx);
+		verify(people).suggest("al", AutocompleteController.MAX_K);
+	}
+
+	/**
+	 * Tests that a missing prefix returns a 400 status code.
+	 */
+	@Test
+	void testThrows400ExceptionWhenPrefixMissing() {
+		autocompleteController.autocomplete(ctx);
+		verify(ctx).status(400);
+	}
+
+	/**
+	 * Tests that a k that is not positive returns a 400 status code.
+	 */
+	@Test
+	void testThrows400ExceptionWhenKNotPositive() {
+		when(ctx.queryParam("prefix")).thenReturn("god");
+		when(ctx.queryParam("k")).thenReturn("0");
+		autocompleteController.autocomplete(ctx);
+		verify(ctx).status(400);
+		verify(movies, never()).suggest(anyString(), anyInt());
+	}
+
+	/**
+	 * Tests that a k that is not a number returns a 400 status code.
+	 */
+	@Test
+	void testThrows400ExceptionWhenKInvalid() {
+		when(ctx.queryParam("prefix")).thenReturn("god");
+		when(ctx.queryParam("k")).thenReturn("ten");
+		autocompleteController.autocomplete(ctx);
+		verify(ctx).status(400);
+		verify(ctx).result("Invalid query parameter");
+	}
+
+	/**
+	 * Tests that an unknown type returns a 400 status code.
+	 */
+	@Test
+	void testThrows400ExceptionWhenTypeUnknown() {
+		when(ctx.queryParam("prefix")).thenReturn("god");
+		when(ctx.queryParam("type")).thenReturn("studio");
+		autocompleteController.autocomplete(ctx);
+		verify(ctx).status(400);
+	}
+}
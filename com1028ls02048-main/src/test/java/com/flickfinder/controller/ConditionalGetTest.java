@@ -0,0 +1,37 @@
+package com.flickfinder.controller;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test for matching If-None-Match headers against ETags.
+ */
+class ConditionalGetTest {
+
+	private static final String ETAG = "\"1a2b-3c4d\"";
+
+	/**
+	 * Tests that the same ETag matches, and that a missing header or a different
+	 * ETag does not.
+	 */
+	@Test
+	void testMatches() {
+		assertTrue(ConditionalGet.matches(ETAG, ETAG));
+		assertFalse(ConditionalGet.matches(null, ETAG));
+		assertFalse(ConditionalGet.matches("\"1a2b-0000\"", ETAG));
+		assertFalse(ConditionalGet.matches("1a2b-3c4d", ETAG));
+	}
+
+	/**
+	 * Tests a list of ETags and a weak ETag, and that the wildcard is not
+	 * matched.
+	 */
+	@Test
+	void testMatchesListAndWeak() {
+		assertTrue(ConditionalGet.matches("\"other\", " + ETAG, ETAG));
+		assertTrue(ConditionalGet.matches("W/" + ETAG, ETAG));
+		assertFalse(ConditionalGet.matches("*", ETAG));
+	}
+}
@@ -0,0 +1,187 @@
+package com.flickfinder.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.flickfinder.dao.MovieDAO;
+import com.flickfinder.dao.MovieFilterIndex;
+import com.flickfinder.model.FilterResult;
+import com.flickfinder.model.Movie;
+import com.flickfinder.model.MovieRating;
+import com.flickfinder.util.Database;
+import com.flickfinder.util.Seeder;
+
+import io.javalin.http.Context;
+
+/**
+ * Test for the Filter Controller. The filter index is built over the seeded
+ * in-memory database, as it is what checks the sort order and the paging, and
+ * the movies on the page come from a mock DAO.
+ */
+class FilterControllerTest {
+
+	/**
+	 * The context object, later we will mock it.
+	 */
+	private Context ctx;
+
+	/**
+	 * The movie data access object.
+	 */
+	private MovieDAO movieDAO;
+
+	/**
+	 * The filter controller.
+	 */
+	private FilterController filterController;
+
+	/**
+	 * Seeder
+	 */
+	Seeder seeder;
+
+	@BeforeEach
+	void setUp() throws SQLException {
+		seeder = new Seeder("jdbc:sqlite::memory:");
+		Database.getInstance(seeder.getConnection());
+		ctx = mock(Context.class);
+		movieDAO = mock(MovieDAO.class);
+		filterController = new FilterController(MovieFilterIndex.load(Database.getInstance()), movieDAO);
+	}
+
+	/**
+	 * Tests that the matching movies are read from the DAO and returned in the
+	 * order asked for, with their ratings.
+	 */
+	@Test
+	void testGetFilteredMovies() throws SQLException {
+		when(ctx.queryParam("yearFrom")).thenReturn("1970");
+		when(ctx.queryParam("sort")).thenReturn("rating");
+		when(ctx.queryParam("limit")).thenReturn("3");
+		when(movieDAO.getMoviesByIds(new int[] { 1, 2, 3 }))
+				.thenReturn(List.of(new Movie(1, "The Shawshank Redemption", 1994), new Movie(2, "The Godfather", 1972),
+						new Movie(3, "The Godfather: Part II", 1974)));
+		filterController.getFilteredMovies(ctx);
+
+		ArgumentCaptor<FilterResult> result = ArgumentCaptor.forClass(FilterResult.class);
+		verify(ctx).json(result.capture());
+		assertEquals(4, result.getValue().getTotal());
+		List<Movie> items = result.getValue().getItems();
+		assertEquals(3, items.size());
+		assertEquals(1, items.get(0).getId());
+		assertEquals(2, items.get(1).getId());
+		assertEquals(3, items.get(2).getId());
+		assertTrue(items.get(0) instanceof MovieRating);
+		assertEquals(9.3, ((MovieRating) items.get(0)).getRating(), 1e-9);
+	}
+
+	/**
+	 * Tests that a movie the DAO does not find is left out of the page, and
+	 * the others keep their ratings.
+	 */
+	@Test
+	void testSkipsMoviesNotFound() throws SQLException {
+		when(ctx.queryParam("yearFrom")).thenReturn("1970");
+		when(ctx.queryParam("sort")).thenReturn("rating");
+		when(ctx.queryParam("limit")).thenReturn("3");
+		when(movieDAO.getMoviesByIds(new int[] { 1, 2, 3 })).thenReturn(Arrays.asList(
+				new Movie(1, "The Shawshank Redemption", 1994), null, new Movie(3, "The Godfather: Part II", 1974)));
+		filterController.getFilteredMovies(ctx);
+
+		ArgumentCaptor<FilterResult> result = ArgumentCaptor.forClass(FilterResult.class);
+		verify(ctx).json(result.capture());
+		List<Movie> items = result.getValue().getItems();
+		assertEquals(2, items.size());
+		assertEquals(1, items.get(0).getId());
+		assertEquals(3, items.get(1).getId());
+		assertEquals(9.3, ((MovieRating) items.get(0)).getRating(), 1e-9);
+	}
+
+	/**
+	 * Tests that a filter no movie matches gives an empty page, not a 404.
+	 */
+	@Test
+	void testNoMoviesMatch() throws SQLException {
+		when(ctx.queryParam("yearFrom")).thenReturn("2100");
+		when(movieDAO.getMoviesByIds(new int[0])).thenReturn(List.of());
+		filterController.getFilteredMovies(ctx);
+
+		ArgumentCaptor<FilterResult> result = ArgumentCaptor.forClass(FilterResult.class);
+		verify(ctx).json(result.capture());
+		assertEquals(0, result.getValue().getTotal());
+		assertTrue(result.getValue().getItems().isEmpty());
+		verify(ctx, never()).status(404);
+	}
+
+	/**
+	 * Tests that a negative limit returns a 400 status code.
+	 */
+	@Test
+	void testThrows400ExceptionWhenLimitNegative() throws SQLException {
+		when(ctx.queryParam("limit")).thenReturn("-1");
+		filterController.getFilteredMovies(ctx);
+		verify(ctx).status(400);
+		verify(movieDAO, never()).getMoviesByIds(any());
+	}
+
+	/**
+	 * Tests that a rated query other than true or false returns a 400 status
+	 * code.
+	 */
+	@Test
+	void testThrows400ExceptionWhenRatedInvalid() {
+		when(ctx.queryParam("rated")).thenReturn("maybe");
+		filterController.getFilteredMovies(ctx);
+		verify(ctx).status(400);
+	}
+
+	/**
+	 * Tests that an unknown sort order returns a 400 status code.
+	 */
+	@Test
+	void testThrows400ExceptionWhenSortUnknown() {
+		when(ctx.queryParam("sort")).thenReturn("title");
+		filterController.getFilteredMovies(ctx);
+		verify(ctx).status(400);
+	}
+
+	/**
+	 * Tests that a minimum rating that is not a number returns a 400 status
+	 * code.
+	 */
+	@Test
+	void testThrows400ExceptionWhenMinRatingInvalid() {
+		when(ctx.queryParam("minRating")).thenReturn("high");
+		filterController.getFilteredMovies(ctx);
+		verify(ctx).status(400);
+	}
+
+	/**
+	 * Tests that a database error returns a 500 status code.
+	 */
+	@Test
+	void testThrows500ExceptionWhenDatabaseError() throws SQLException {
+		when(movieDAO.getMoviesByIds(any())).thenThrow(new SQLException());
+		filterController.getFilteredMovies(ctx);
+		verify(ctx).status(500);
+	}
+
+	@AfterEach
+	void tearDown() {
+		seeder.closeConnection();
+	}
+}
@@ -1,17 +1,32 @@
 package com.flickfinder.controller;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.sql.SQLException;
+import java.util.List;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import com.flickfinder.dao.MovieDAO;
+import com.flickfinder.dao.RowCallback;
+import com.flickfinder.model.Movie;
+import com.flickfinder.util.Cursor;
 
 import io.javalin.http.Context;
+import io.javalin.json.JavalinJackson;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
 
 /**
  * Test for the Movie Controller.
@@ -122,6 +137,36 @@ class MovieControllerTest {
 		verify(ctx).status(404);
 	}
 	
+	/**
+	 * Test that the stars of a movie are fetched in one DAO call, and that a 404
+	 * status code is returned when the movie is not found.
+	 * 
+	 * @throws SQLException
+	 */
+	@Test
+	void testThrows404ExceptionWhenNoMovieFoundForStars() throws SQLException {
+		when(ctx.pathParam("id")).thenReturn("1");
+		when(movieDAO.findPeopleByMovieId(1)).thenReturn(null);
+		movieController.getPeopleByMovieId(ctx);
+		verify(movieDAO).findPeopleByMovieId(1);
+		verify(ctx).status(404);
+	}
+
+	/**
+	 * Tests that asking for the directors of a movie that does not exist gives
+	 * a 404.
+	 * 
+	 * @throws SQLException
+	 */
+	@Test
+	void testThrows404ExceptionWhenNoMovieFoundForDirectors() throws SQLException {
+		when(ctx.pathParam("id")).thenReturn("1");
+		when(movieDAO.findDirectorsByMovieId(1)).thenReturn(null);
+		movieController.getDirectorsByMovieId(ctx);
+		verify(movieDAO).findDirectorsByMovieId(1);
+		verify(ctx).status(404);
+	}
+
 	/**
 	 * Tests the getRatingsByYear() method.
 	 * We expect to get a list of movies with all ratings with 1000+ votes in 2020
@@ -138,4 +183,108 @@ class MovieControllerTest {
 		}
 	}
 
-}
\ No newline at end of file
+	/**
+	 * Tests that an after query returns a page of movies.
+	 */
+	@Test
+	void testGetMoviesAfter() throws SQLException {
+		when(ctx.queryParam("after")).thenReturn("10");
+		movieController.getAllMovies(ctx);
+		verify(movieDAO).getMoviesAfter(10, 50);
+	}
+
+	/**
+	 * Tests that a cursor query returns the page after the id in the cursor.
+	 */
+	@Test
+	void testGetMoviesWithCursor() throws SQLException {
+		when(ctx.queryParam("cursor")).thenReturn(Cursor.encode(25));
+		when(ctx.queryParam("limit")).thenReturn("5");
+		movieController.getAllMovies(ctx);
+		verify(movieDAO).getMoviesAfter(25, 5);
+	}
+
+	/**
+	 * Tests that the page size of an after query is capped.
+	 */
+	@Test
+	void testGetMoviesAfterLimitCapped() throws SQLException {
+		when(ctx.queryParam("after")).thenReturn("0");
+		when(ctx.queryParam("limit")).thenReturn("2000000000");
+		movieController.getAllMovies(ctx);
+		verify(movieDAO).getMoviesAfter(0, MovieController.PAGE_MAX_LIMIT);
+	}
+
+	/**
+	 * Tests that a malformed cursor returns a 400 status code.
+	 */
+	@Test
+	void testThrows400ExceptionWhenCursorInvalid() {
+		when(ctx.queryParam("cursor")).thenReturn("not a cursor");
+		movieController.getAllMovies(ctx);
+		verify(ctx).status(400);
+	}
+
+	/**
+	 * Tests that a streamed list is written as a whole JSON array, the same as
+	 * Javalin's JSON mapper would write it.
+	 */
+	@Test
+	void testStreamAllMovies() throws SQLException, IOException {
+		ByteArrayOutputStream body = streamTo();
+		doAnswer(invocation -> {
+			RowCallback<Movie> callback = invocation.getArgument(1);
+			callback.accept(new Movie(1, "The Shawshank Redemption", 1994));
+			callback.accept(new Movie(2, "The Godfather", 1972));
+			return null;
+		}).when(movieDAO).streamAllMovies(eq(50), any());
+		movieController.getAllMovies(ctx);
+		String expected = new JavalinJackson().toJsonString(
+				List.of(new Movie(1, "The Shawshank Redemption", 1994), new Movie(2, "The Godfather", 1972)),
+				List.class);
+		assertEquals(expected, body.toString(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Tests that when the database fails part of the way through a streamed
+	 * list, the array is not ended, so the rows already sent cannot pass for the
+	 * whole list.
+	 */
+	@Test
+	void testStreamNotEndedWhenDatabaseErrorPartWay() throws SQLException, IOException {
+		ByteArrayOutputStream body = streamTo();
+		doAnswer(invocation -> {
+			RowCallback<Movie> callback = invocation.getArgument(1);
+			callback.accept(new Movie(1, "The Shawshank Redemption", 1994));
+			throw new SQLException();
+		}).when(movieDAO).streamAllMovies(eq(50), any());
+		movieController.getAllMovies(ctx);
+		assertFalse(body.toString(StandardCharsets.UTF_8).endsWith("]"));
+	}
+
+	/**
+	 * Asks for the response to be streamed, and returns what is written to it.
+	 */
+	private ByteArrayOutputStream streamTo() {
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		when(ctx.queryParam("stream")).thenReturn("true");
+		when(ctx.jsonMapper()).thenReturn(new JavalinJackson());
+		when(ctx.outputStream()).thenReturn(new ServletOutputStream() {
+			@Override
+			public void write(int b) {
+				body.write(b);
+			}
+
+			@Override
+			public boolean isReady() {
+				return true;
+			}
+
+			@Override
+			public void setWriteListener(WriteListener listener) {
+			}
+		});
+		return body;
+	}
+
+}
@@ -0,0 +1,151 @@
+package com.flickfinder.controller;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.SQLException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.flickfinder.dao.CoStarGraph;
+import com.flickfinder.dao.MovieDAO;
+import com.flickfinder.dao.PersonDAO;
+import com.flickfinder.model.PersonPath;
+
+import io.javalin.http.Context;
+
+/**
+ * Test for the Path Controller.
+ */
+class PathControllerTest {
+
+	/**
+	 * The context object, later we will mock it.
+	 */
+	private Context ctx;
+
+	/**
+	 * The graph of who starred with whom.
+	 */
+	private CoStarGraph graph;
+
+	/**
+	 * The person data access object.
+	 */
+	private PersonDAO personDAO;
+
+	/**
+	 * The movie data access object.
+	 */
+	private MovieDAO movieDAO;
+
+	/**
+	 * The path controller.
+	 */
+	private PathController pathController;
+
+	@BeforeEach
+	void setUp() {
+		ctx = mock(Context.class);
+		graph = mock(CoStarGraph.class);
+		personDAO = mock(PersonDAO.class);
+		movieDAO = mock(MovieDAO.class);
+		pathController = new PathController(graph, personDAO, movieDAO);
+		when(ctx.pathParam("a")).thenReturn("1");
+		when(ctx.pathParam("b")).thenReturn("4");
+		when(graph.hasPerson(1)).thenReturn(true);
+		when(graph.hasPerson(4)).thenReturn(true);
+	}
+
+	/**
+	 * Tests that the people and movies on the path are read from the DAOs.
+	 */
+	@Test
+	void testGetPath() throws SQLException {
+		CoStarGraph.Chain chain = mock(CoStarGraph.Chain.class);
+		int[] people = { 1, 2, 4 };
+		int[] movies = { 1, 2 };
+		when(chain.getPersonIds()).thenReturn(people);
+		when(chain.getMovieIds()).thenReturn(movies);
+		when(graph.shortestPath(1, 4, PathController.MAX_HOPS)).thenReturn(chain);
+		pathController.getPath(ctx);
+		verify(personDAO).getPeopleByIds(people);
+		verify(movieDAO).getMoviesByIds(movies);
+		verify(ctx).json(any(PersonPath.class));
+	}
+
+	/**
+	 * Tests that maxHops is passed to the search, and capped.
+	 */
+	@Test
+	void testMaxHops() {
+		when(ctx.queryParam("maxHops")).thenReturn("2");
+		pathController.getPath(ctx);
+		verify(graph).shortestPath(1, 4, 2);
+
+		when(ctx.queryParam("maxHops")).thenReturn("1000");
+		pathController.getPath(ctx);
+		verify(graph).shortestPath(1, 4, PathController.MAX_HOPS);
+	}
+
+	/**
+	 * Tests that a person who does not exist returns a 404 status code.
+	 */
+	@Test
+	void testThrows404ExceptionWhenNoPersonFound() {
+		when(graph.hasPerson(4)).thenReturn(false);
+		pathController.getPath(ctx);
+		verify(ctx).status(404);
+		verify(ctx).result("Person not found");
+		verify(graph, never()).shortestPath(anyInt(), anyInt(), anyInt());
+	}
+
+	/**
+	 * Tests that two people with no path between them returns a 404 status
+	 * code.
+	 */
+	@Test
+	void testThrows404ExceptionWhenNoPathFound() {
+		pathController.getPath(ctx);
+		verify(ctx).status(404);
+		verify(ctx).result("No path found");
+	}
+
+	/**
+	 * Tests that a negative maxHops returns a 400 status code.
+	 */
+	@Test
+	void testThrows400ExceptionWhenMaxHopsNegative() {
+		when(ctx.queryParam("maxHops")).thenReturn("-1");
+		pathController.getPath(ctx);
+		verify(ctx).status(400);
+		verify(graph, never()).shortestPath(anyInt(), anyInt(), anyInt());
+	}
+
+	/**
+	 * Tests that an id that is not a number returns a 400 status code.
+	 */
+	@Test
+	void testThrows400ExceptionWhenIdInvalid() {
+		when(ctx.pathParam("b")).thenReturn("four");
+		pathController.getPath(ctx);
+		verify(ctx).status(400);
+	}
+
+	/**
+	 * Tests that a database error returns a 500 status code.
+	 */
+	@Test
+	void testThrows500ExceptionWhenDatabaseError() throws SQLException {
+		CoStarGraph.Chain chain = mock(CoStarGraph.Chain.class);
+		when(graph.shortestPath(1, 4, PathController.MAX_HOPS)).thenReturn(chain);
+		when(personDAO.getPeopleByIds(any())).thenThrow(new SQLException());
+		pathController.getPath(ctx);
+		verify(ctx).status(500);
+	}
+}
@@ -11,6 +11,7 @@ import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 
 import com.flickfinder.dao.PersonDAO;
+import com.flickfinder.util.Cursor;
 
 import io.javalin.http.Context;
 
@@ -131,9 +132,44 @@ class PersonControllerTest {
 		when(ctx.pathParam("id")).thenReturn("1");
 		personController.getMoviesStarringPerson(ctx);
 		try {
-			verify(personDAO).getMoviesStarringPerson(1);
+			verify(personDAO).findMoviesStarringPerson(1);
 		} catch (SQLException e) {
 			e.printStackTrace();
 		}
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Tests that an after query returns a page of people.
+	 */
+	@Test
+	void testGetPeopleAfter() throws SQLException {
+		when(ctx.queryParam("after")).thenReturn("10");
+		when(ctx.queryParam("limit")).thenReturn("1000");
+		personController.getAllPeople(ctx);
+		verify(personDAO).getPeopleAfter(10, 1000);
+	}
+
+	/**
+	 * Tests that the page size of a cursor query is capped.
+	 */
+	@Test
+	void testGetPeopleWithCursorLimitCapped() throws SQLException {
+		when(ctx.queryParam("cursor")).thenReturn(Cursor.encode(0));
+		when(ctx.queryParam("limit")).thenReturn(String.valueOf(Integer.MAX_VALUE));
+		personController.getAllPeople(ctx);
+		verify(personDAO).getPeopleAfter(0, PersonController.PAGE_MAX_LIMIT);
+	}
+
+	/**
+	 * Tests that asking for the movies directed by a person who does not
+	 * exist gives a 404.
+	 */
+	@Test
+	void testThrows404ExceptionWhenNoPersonFoundForDirected() throws SQLException {
+		when(ctx.pathParam("id")).thenReturn("1");
+		when(personDAO.findMoviesDirectedByPerson(1)).thenReturn(null);
+		personController.getMoviesDirectedByPerson(ctx);
+		verify(personDAO).findMoviesDirectedByPerson(1);
+		verify(ctx).status(404);
+	}
+}
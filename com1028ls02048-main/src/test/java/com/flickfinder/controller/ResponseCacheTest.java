@@ -0,0 +1,98 @@
+package com.flickfinder.controller;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test for the response cache.
+ */
+class ResponseCacheTest {
+
+	/**
+	 * Tests that a stored response is returned, and that hits and misses are
+	 * counted.
+	 */
+	@Test
+	void testGetAndPut() {
+		ResponseCache cache = new ResponseCache(10, 1000, 60000);
+		assertNull(cache.get("/movies/1"));
+		cache.put("/movies/1", new byte[] { 1, 2, 3 }, "application/json");
+
+		ResponseCache.Entry entry = cache.get("/movies/1");
+		assertNotNull(entry);
+		assertArrayEquals(new byte[] { 1, 2, 3 }, entry.body);
+		assertEquals("application/json", entry.contentType);
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+		assertEquals(1, cache.size());
+		assertEquals(3, cache.getBytes());
+	}
+
+	/**
+	 * Tests that the least recently used response is evicted once there are
+	 * too many.
+	 */
+	@Test
+	void testEvictsLeastRecentlyUsed() {
+		ResponseCache cache = new ResponseCache(2, 1000, 60000);
+		cache.put("/movies/1", new byte[1], null);
+		cache.put("/movies/2", new byte[1], null);
+		cache.get("/movies/1");
+		cache.put("/movies/3", new byte[1], null);
+
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getEvictions());
+		assertNotNull(cache.get("/movies/1"));
+		assertNull(cache.get("/movies/2"));
+		assertNotNull(cache.get("/movies/3"));
+	}
+
+	/**
+	 * Tests that responses are evicted once they take up too many bytes, and
+	 * that a response larger than the whole cache is not stored.
+	 */
+	@Test
+	void testEvictsBySize() {
+		ResponseCache cache = new ResponseCache(10, 10, 60000);
+		cache.put("/movies/1", new byte[4], null);
+		cache.put("/movies/2", new byte[4], null);
+		cache.put("/movies/3", new byte[4], null);
+		assertEquals(2, cache.size());
+		assertEquals(8, cache.getBytes());
+		assertNull(cache.get("/movies/1"));
+
+		cache.put("/movies", new byte[11], null);
+		assertNull(cache.get("/movies"));
+		assertEquals(2, cache.size());
+	}
+
+	/**
+	 * Tests that a response is not returned after it has expired.
+	 */
+	@Test
+	void testExpires() {
+		ResponseCache cache = new ResponseCache(10, 1000, 0);
+		cache.put("/movies/1", new byte[1], null);
+		assertNull(cache.get("/movies/1"));
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getBytes());
+	}
+
+	/**
+	 * Tests that clearing the cache removes every response.
+	 */
+	@Test
+	void testClear() {
+		ResponseCache cache = new ResponseCache(10, 1000, 60000);
+		cache.put("/movies/1", new byte[1], null);
+		cache.put("/movies/2", new byte[1], null);
+		cache.clear();
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getBytes());
+		assertNull(cache.get("/movies/1"));
+	}
+}
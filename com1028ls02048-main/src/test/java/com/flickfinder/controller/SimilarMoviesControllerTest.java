@@ -0,0 +1,158 @@
+package com.flickfinder.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.flickfinder.dao.MovieDAO;
+import com.flickfinder.dao.SimilarMovieIndex;
+import com.flickfinder.model.Movie;
+import com.flickfinder.model.SimilarMovie;
+
+import io.javalin.http.Context;
+
+/**
+ * Test for the Similar Movies Controller.
+ */
+class SimilarMoviesControllerTest {
+
+	/**
+	 * The context object, later we will mock it.
+	 */
+	private Context ctx;
+
+	/**
+	 * The index of movie casts.
+	 */
+	private SimilarMovieIndex index;
+
+	/**
+	 * The movie data access object.
+	 */
+	private MovieDAO movieDAO;
+
+	/**
+	 * The similar movies controller.
+	 */
+	private SimilarMoviesController similarMoviesController;
+
+	@BeforeEach
+	void setUp() {
+		ctx = mock(Context.class);
+		index = mock(SimilarMovieIndex.class);
+		movieDAO = mock(MovieDAO.class);
+		similarMoviesController = new SimilarMoviesController(index, movieDAO);
+		when(ctx.pathParam("id")).thenReturn("2");
+	}
+
+	/**
+	 * Tests that the similar movies are read from the DAO.
+	 */
+	@Test
+	void testGetSimilarMovies() throws SQLException {
+		SimilarMovieIndex.Match match = mock(SimilarMovieIndex.Match.class);
+		when(match.getMovieId()).thenReturn(3);
+		when(index.similar(2, 5, true)).thenReturn(List.of(match));
+		when(movieDAO.getMoviesByIds(new int[] { 3 })).thenReturn(List.of(new Movie(3, "The Godfather: Part II", 1974)));
+		when(ctx.queryParam("k")).thenReturn("5");
+		when(ctx.queryParam("weighted")).thenReturn("true");
+		similarMoviesController.getSimilarMovies(ctx);
+		verify(movieDAO).getMoviesByIds(new int[] { 3 });
+		verify(ctx).json(any(List.class));
+	}
+
+	/**
+	 * Tests that a similar movie the DAO does not find is left out, and the
+	 * others are matched to their scores by position.
+	 */
+	@Test
+	@SuppressWarnings("unchecked")
+	void testSkipsMoviesNotFound() throws SQLException {
+		SimilarMovieIndex.Match missing = mock(SimilarMovieIndex.Match.class);
+		when(missing.getMovieId()).thenReturn(1000);
+		SimilarMovieIndex.Match match = mock(SimilarMovieIndex.Match.class);
+		when(match.getMovieId()).thenReturn(3);
+		when(match.getSharedStars()).thenReturn(2);
+		when(index.similar(2, 10, false)).thenReturn(List.of(missing, match));
+		when(movieDAO.getMoviesByIds(new int[] { 1000, 3 }))
+				.thenReturn(Arrays.asList(null, new Movie(3, "The Godfather: Part II", 1974)));
+		similarMoviesController.getSimilarMovies(ctx);
+
+		ArgumentCaptor<List<SimilarMovie>> similar = ArgumentCaptor.forClass(List.class);
+		verify(ctx).json(similar.capture());
+		assertEquals(1, similar.getValue().size());
+		assertEquals(3, similar.getValue().get(0).getId());
+		assertEquals(2, similar.getValue().get(0).getSharedStars());
+	}
+
+	/**
+	 * Tests that k is ten by default, and capped.
+	 */
+	@Test
+	void testK() {
+		similarMoviesController.getSimilarMovies(ctx);
+		verify(index).similar(2, 10, false);
+
+		when(ctx.queryParam("k")).thenReturn("100000");
+		similarMoviesController.getSimilarMovies(ctx);
+		verify(index).similar(2, SimilarMoviesController.MAX_K, false);
+	}
+
+	/**
+	 * Tests that a movie that does not exist returns a 404 status code.
+	 */
+	@Test
+	void testThrows404ExceptionWhenNoMovieFound() {
+		when(index.similar(2, 10, false)).thenReturn(null);
+		similarMoviesController.getSimilarMovies(ctx);
+		verify(ctx).status(404);
+		verify(ctx).result("Movie not found");
+	}
+
+	/**
+	 * Tests that a k that is not positive returns a 400 status code.
+	 */
+	@Test
+	void testThrows400ExceptionWhenKNotPositive() {
+		when(ctx.queryParam("k")).thenReturn("0");
+		similarMoviesController.getSimilarMovies(ctx);
+		verify(ctx).status(400);
+		when(ctx.queryParam("k")).thenReturn("-3");
+		similarMoviesController.getSimilarMovies(ctx);
+		verify(index, never()).similar(anyInt(), anyInt(), anyBoolean());
+	}
+
+	/**
+	 * Tests that an id that is not a number returns a 400 status code.
+	 */
+	@Test
+	void testThrows400ExceptionWhenIdInvalid() {
+		when(ctx.pathParam("id")).thenReturn("two");
+		similarMoviesController.getSimilarMovies(ctx);
+		verify(ctx).status(400);
+	}
+
+	/**
+	 * Tests that a database error returns a 500 status code.
+	 */
+	@Test
+	void testThrows500ExceptionWhenDatabaseError() throws SQLException {
+		when(index.similar(2, 10, false)).thenReturn(List.of());
+		when(movieDAO.getMoviesByIds(any())).thenThrow(new SQLException());
+		similarMoviesController.getSimilarMovies(ctx);
+		verify(ctx).status(500);
+	}
+}
@@ -0,0 +1,133 @@
+package com.flickfinder.controller;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.flickfinder.dao.CareerStatistics;
+import com.flickfinder.dao.YearStatistics;
+import com.flickfinder.model.PersonStats;
+import com.flickfinder.model.YearStats;
+
+import io.javalin.http.Context;
+
+/**
+ * Test for the Stats Controller.
+ */
+class StatsControllerTest {
+
+	/**
+	 * The context object, later we will mock it.
+	 */
+	private Context ctx;
+
+	/**
+	 * The statistics of each year.
+	 */
+	private YearStatistics yearStatistics;
+
+	/**
+	 * The career statistics of each person.
+	 */
+	private CareerStatistics careerStatistics;
+
+	/**
+	 * The stats controller.
+	 */
+	private StatsController statsController;
+
+	@BeforeEach
+	void setUp() {
+		ctx = mock(Context.class);
+		yearStatistics = mock(YearStatistics.class);
+		careerStatistics = mock(CareerStatistics.class);
+		statsController = new StatsController(yearStatistics, careerStatistics);
+	}
+
+	/**
+	 * Tests the getYears method.
+	 */
+	@Test
+	void testGetYears() {
+		List<YearStats> years = List.of(new YearStats(1972, 1, 1, 9.2, 9.2, 1500000, new int[10]));
+		when(yearStatistics.getYears()).thenReturn(years);
+		statsController.getYears(ctx);
+		verify(ctx).json(years);
+	}
+
+	/**
+	 * Tests the getYear method.
+	 */
+	@Test
+	void testGetYear() {
+		YearStats stats = new YearStats(1972, 1, 1, 9.2, 9.2, 1500000, new int[10]);
+		when(ctx.pathParam("year")).thenReturn("1972");
+		when(yearStatistics.getYear(1972)).thenReturn(stats);
+		statsController.getYear(ctx);
+		verify(ctx).json(stats);
+	}
+
+	/**
+	 * Tests that a year with no movies returns a 404 status code.
+	 */
+	@Test
+	void testThrows404ExceptionWhenNoYearFound() {
+		when(ctx.pathParam("year")).thenReturn("1800");
+		statsController.getYear(ctx);
+		verify(yearStatistics).getYear(1800);
+		verify(ctx).status(404);
+	}
+
+	/**
+	 * Tests that a year that is not a number returns a 400 status code.
+	 */
+	@Test
+	void testThrows400ExceptionWhenYearInvalid() {
+		when(ctx.pathParam("year")).thenReturn("nineteen");
+		statsController.getYear(ctx);
+		verify(ctx).status(400);
+		verify(yearStatistics, never()).getYear(anyInt());
+	}
+
+	/**
+	 * Tests the getPersonStats method.
+	 */
+	@Test
+	void testGetPersonStats() {
+		PersonStats stats = new PersonStats(4, 1972, 1974, 2, 0, 9.1, 9.12);
+		when(ctx.pathParam("id")).thenReturn("4");
+		when(careerStatistics.getPerson(4)).thenReturn(stats);
+		statsController.getPersonStats(ctx);
+		verify(ctx).json(stats);
+	}
+
+	/**
+	 * Tests that a person who does not exist returns a 404 status code.
+	 */
+	@Test
+	void testThrows404ExceptionWhenNoPersonFound() {
+		when(ctx.pathParam("id")).thenReturn("1000");
+		statsController.getPersonStats(ctx);
+		verify(careerStatistics).getPerson(1000);
+		verify(ctx).status(404);
+		verify(ctx).result("Person not found");
+	}
+
+	/**
+	 * Tests that an id that is not a number returns a 400 status code.
+	 */
+	@Test
+	void testThrows400ExceptionWhenPersonIdInvalid() {
+		when(ctx.pathParam("id")).thenReturn("four");
+		statsController.getPersonStats(ctx);
+		verify(ctx).status(400);
+		verify(careerStatistics, never()).getPerson(anyInt());
+	}
+}
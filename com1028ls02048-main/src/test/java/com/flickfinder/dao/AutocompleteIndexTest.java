@@ -0,0 +1,124 @@
+package com.flickfinder.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.flickfinder.model.Movie;
+import com.flickfinder.model.Person;
+import com.flickfinder.util.Database;
+import com.flickfinder.util.Seeder;
+
+/**
+ * Test for the autocomplete index. Two extra movies are added to the seeded
+ * database: one with an accent in its title, and one with two words that
+ * start the same way.
+ */
+class AutocompleteIndexTest {
+
+	/**
+	 * The index of movie titles.
+	 */
+	private AutocompleteIndex<Movie> movies;
+
+	/**
+	 * The index of people's names.
+	 */
+	private AutocompleteIndex<Person> people;
+
+	/**
+	 * Seeder
+	 */
+	Seeder seeder;
+
+	@BeforeEach
+	void setUp() throws SQLException {
+		seeder = new Seeder("jdbc:sqlite::memory:");
+		try (Statement stmt = seeder.getConnection().createStatement()) {
+			stmt.execute("INSERT INTO movies (id, title, year) VALUES(6, 'Am\u00e9lie', 2001)");
+			stmt.execute("INSERT INTO movies (id, title, year) VALUES(7, 'The Thing', 1982)");
+			stmt.execute("INSERT INTO ratings (movie_id, rating, votes) VALUES (6, 8.3, 800000)");
+		}
+		Database.getInstance(seeder.getConnection());
+		movies = AutocompleteIndex.loadMovies(Database.getInstance());
+		people = AutocompleteIndex.loadPeople(Database.getInstance());
+	}
+
+	/**
+	 * Tests that a prefix matches the start of any word, and that the most
+	 * voted movies come first
+	 */
+	@Test
+	void testSuggestMovies() {
+		List<Movie> suggestions = movies.suggest("godf", 10);
+		assertEquals(2, suggestions.size());
+		assertEquals("The Godfather", suggestions.get(0).getTitle());
+		assertEquals(1972, suggestions.get(0).getYear());
+		assertEquals(3, suggestions.get(1).getId());
+
+		assertEquals("The Godfather: Part II", movies.suggest("part", 10).get(0).getTitle());
+		assertEquals(2, movies.suggest("The God", 10).size());
+
+		suggestions = movies.suggest("the", 2);
+		assertEquals(2, suggestions.size());
+		assertEquals(1, suggestions.get(0).getId());
+		assertEquals(4, suggestions.get(1).getId());
+	}
+
+	/**
+	 * Tests that accents and case are ignored, and that a movie is only
+	 * suggested once when several of its words match
+	 */
+	@Test
+	void testFolding() {
+		assertEquals(6, movies.suggest("AME", 10).get(0).getId());
+		assertEquals(6, movies.suggest("Am\u00e9l", 10).get(0).getId());
+
+		List<Movie> suggestions = movies.suggest("th", 10);
+		assertEquals(5, suggestions.size());
+		assertEquals(7, suggestions.get(4).getId());
+	}
+
+	/**
+	 * Tests prefixes that match nothing
+	 */
+	@Test
+	void testNoSuggestions() {
+		assertTrue(movies.suggest("zz", 10).isEmpty());
+		assertTrue(movies.suggest("  ", 10).isEmpty());
+		assertTrue(movies.suggest("godfather part iii", 10).isEmpty());
+		assertTrue(movies.suggest("the", 0).isEmpty());
+	}
+
+	/**
+	 * Tests that people are ranked by the votes of the movies they starred in
+	 */
+	@Test
+	void testSuggestPeople() {
+		List<Person> suggestions = people.suggest("al", 10);
+		assertEquals(1, suggestions.size());
+		assertEquals("Al Pacino", suggestions.get(0).getName());
+
+		suggestions = people.suggest("", 10);
+		assertTrue(suggestions.isEmpty());
+
+		// Al Pacino starred in The Godfather and Part II, 2,500,000 votes in all
+		suggestions = people.suggest("a", 10);
+		assertEquals(4, suggestions.get(0).getId());
+		assertEquals(5, people.size());
+		assertEquals(10, people.entries());
+		assertTrue(people.memoryBytes() > 0);
+	}
+
+	@AfterEach
+	void tearDown() {
+		seeder.closeConnection();
+	}
+}
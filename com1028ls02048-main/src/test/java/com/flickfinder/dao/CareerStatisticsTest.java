@@ -0,0 +1,103 @@
+package com.flickfinder.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.flickfinder.model.PersonStats;
+import com.flickfinder.util.Database;
+import com.flickfinder.util.Seeder;
+
+/**
+ * Test for the career statistics. This uses the seeded in-memory database,
+ * with Tim Robbins also directing The Shawshank Redemption and a person who
+ * has no films.
+ */
+class CareerStatisticsTest {
+
+	/**
+	 * Seeder
+	 */
+	Seeder seeder;
+
+	@BeforeEach
+	void setUp() throws SQLException {
+		seeder = new Seeder("jdbc:sqlite::memory:");
+		Database.getInstance(seeder.getConnection());
+		try (Statement stmt = seeder.getConnection().createStatement()) {
+			stmt.execute("INSERT INTO directors (movie_id, person_id) VALUES(1, 1)");
+			stmt.execute("INSERT INTO people (id, name, birth) VALUES(6, 'Nobody', 1990)");
+		}
+	}
+
+	/**
+	 * Tests a director of every movie and a star of two.
+	 */
+	@Test
+	void testGetPerson() throws SQLException {
+		CareerStatistics statistics = CareerStatistics.load(Database.getInstance(), 2);
+
+		PersonStats nolan = statistics.getPerson(3);
+		assertEquals(Integer.valueOf(1957), nolan.getFirstYear());
+		assertEquals(Integer.valueOf(2008), nolan.getLastYear());
+		assertEquals(0, nolan.getStarred());
+		assertEquals(5, nolan.getDirected());
+		assertEquals(9.04, nolan.getAverageRating(), 1e-9);
+		assertEquals(9.07, nolan.getWeightedRating(), 1e-9);
+
+		PersonStats pacino = statistics.getPerson(4);
+		assertEquals(Integer.valueOf(1972), pacino.getFirstYear());
+		assertEquals(Integer.valueOf(1974), pacino.getLastYear());
+		assertEquals(2, pacino.getStarred());
+		assertEquals(9.1, pacino.getAverageRating(), 1e-9);
+		assertEquals(9.12, pacino.getWeightedRating(), 1e-9);
+	}
+
+	/**
+	 * Tests that a movie a person both starred in and directed is only
+	 * counted once in their ratings, and a person with no films.
+	 */
+	@Test
+	void testStarredAndDirected() throws SQLException {
+		CareerStatistics statistics = CareerStatistics.load(Database.getInstance(), 1);
+
+		PersonStats robbins = statistics.getPerson(1);
+		assertEquals(1, robbins.getStarred());
+		assertEquals(1, robbins.getDirected());
+		assertEquals(9.3, robbins.getAverageRating(), 1e-9);
+
+		PersonStats nobody = statistics.getPerson(6);
+		assertEquals(0, nobody.getStarred());
+		assertNull(nobody.getFirstYear());
+		assertNull(nobody.getAverageRating());
+		assertNull(nobody.getWeightedRating());
+
+		assertNull(statistics.getPerson(1000));
+	}
+
+	/**
+	 * Tests that the statistics are the same however many threads work them
+	 * out, and when worked out from a snapshot.
+	 */
+	@Test
+	void testParallelismAndSnapshot() throws SQLException {
+		CareerStatistics expected = CareerStatistics.load(Database.getInstance(), 1);
+		CareerStatistics parallel = CareerStatistics.load(Database.getInstance(), 4);
+		CareerStatistics snapshot = CareerStatistics.of(Snapshot.load(Database.getInstance()), 3);
+		for (int id = 1; id <= 6; id++) {
+			assertEquals(expected.getPerson(id).toString(), parallel.getPerson(id).toString());
+			assertEquals(expected.getPerson(id).toString(), snapshot.getPerson(id).toString());
+		}
+	}
+
+	@AfterEach
+	void tearDown() {
+		seeder.closeConnection();
+	}
+}
@@ -0,0 +1,111 @@
+package com.flickfinder.dao;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.flickfinder.util.Database;
+import com.flickfinder.util.Seeder;
+
+/**
+ * Test for the co-star graph. This uses the seeded in-memory database, with a
+ * few extra stars added so that some people are more than one movie apart.
+ */
+class CoStarGraphTest {
+
+	/**
+	 * Seeder
+	 */
+	Seeder seeder;
+
+	@BeforeEach
+	void setUp() throws SQLException {
+		seeder = new Seeder("jdbc:sqlite::memory:");
+		Database.getInstance(seeder.getConnection());
+		// Morgan Freeman and Henry Fonda in The Dark Knight, and Al Pacino in
+		// 12 Angry Men, so Tim Robbins reaches Al Pacino in three movies.
+		try (Statement stmt = seeder.getConnection().createStatement()) {
+			stmt.execute("INSERT INTO stars (movie_id, person_id) VALUES(4, 2)");
+			stmt.execute("INSERT INTO stars (movie_id, person_id) VALUES(4, 5)");
+			stmt.execute("INSERT INTO stars (movie_id, person_id) VALUES(5, 4)");
+		}
+	}
+
+	/**
+	 * Tests paths of one movie and of none, and people who are missing or not
+	 * connected.
+	 */
+	@Test
+	void testShortPaths() throws SQLException {
+		CoStarGraph graph = CoStarGraph.load(Database.getInstance());
+		assertEquals(5, graph.personCount());
+		assertTrue(graph.hasPerson(3));
+		assertFalse(graph.hasPerson(1000));
+
+		CoStarGraph.Chain chain = graph.shortestPath(1, 2, 6);
+		assertArrayEquals(new int[] { 1, 2 }, chain.getPersonIds());
+		assertArrayEquals(new int[] { 1 }, chain.getMovieIds());
+
+		chain = graph.shortestPath(1, 1, 6);
+		assertArrayEquals(new int[] { 1 }, chain.getPersonIds());
+		assertEquals(0, chain.getMovieIds().length);
+
+		assertNull(graph.shortestPath(1, 3, 6));
+		assertNull(graph.shortestPath(1, 1000, 6));
+	}
+
+	/**
+	 * Tests a path of three movies in both directions, and that it is not
+	 * found when fewer movies are allowed.
+	 */
+	@Test
+	void testLongerPath() throws SQLException {
+		CoStarGraph graph = CoStarGraph.load(Database.getInstance());
+
+		CoStarGraph.Chain chain = graph.shortestPath(1, 4, 6);
+		assertArrayEquals(new int[] { 1, 2, 5, 4 }, chain.getPersonIds());
+		assertArrayEquals(new int[] { 1, 4, 5 }, chain.getMovieIds());
+
+		chain = graph.shortestPath(4, 1, 3);
+		assertArrayEquals(new int[] { 4, 5, 2, 1 }, chain.getPersonIds());
+		assertArrayEquals(new int[] { 5, 4, 1 }, chain.getMovieIds());
+
+		assertNull(graph.shortestPath(1, 4, 2));
+	}
+
+	/**
+	 * Tests that the graph built from a snapshot finds the same paths as the
+	 * one read from the database.
+	 */
+	@Test
+	void testSnapshotGraph() throws SQLException {
+		CoStarGraph graph = CoStarGraph.load(Database.getInstance());
+		CoStarGraph snapshotGraph = CoStarGraph.of(Snapshot.load(Database.getInstance()));
+		for (int from = 1; from <= 5; from++) {
+			for (int to = 1; to <= 5; to++) {
+				CoStarGraph.Chain expected = graph.shortestPath(from, to, 6);
+				CoStarGraph.Chain actual = snapshotGraph.shortestPath(from, to, 6);
+				if (expected == null) {
+					assertNull(actual);
+				} else {
+					assertArrayEquals(expected.getPersonIds(), actual.getPersonIds());
+					assertArrayEquals(expected.getMovieIds(), actual.getMovieIds());
+				}
+			}
+		}
+	}
+
+	@AfterEach
+	void tearDown() {
+		seeder.closeConnection();
+	}
+}
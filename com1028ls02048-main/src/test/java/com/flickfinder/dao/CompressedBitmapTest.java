@@ -0,0 +1,69 @@
+package com.flickfinder.dao;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test for the compressed bitmap, with values in both kinds of block.
+ */
+class CompressedBitmapTest {
+
+	/**
+	 * Tests that values come back out the same from sparse and dense blocks,
+	 * and past the end of the first block.
+	 */
+	@Test
+	void testSparseAndDenseBlocks() {
+		Random random = new Random(1);
+		List<Integer> list = new ArrayList<>();
+		// A dense first block, a sparse second one and a single value in a third.
+		for (int value = 0; value < 65536; value++) {
+			if (random.nextInt(4) == 0) {
+				list.add(value);
+			}
+		}
+		for (int value = 65536; value < 131072; value += 97) {
+			list.add(value);
+		}
+		list.add(200000);
+		int[] values = list.stream().mapToInt(Integer::intValue).toArray();
+
+		CompressedBitmap bitmap = CompressedBitmap.of(values, values.length);
+		assertEquals(values.length, bitmap.cardinality());
+		assertTrue(bitmap.memoryBytes() < 4L * values.length);
+
+		List<Integer> seen = new ArrayList<>();
+		bitmap.forEach(seen::add);
+		assertEquals(list, seen);
+
+		long[] bits = new long[(200001 + 63) >>> 6];
+		bitmap.orInto(bits);
+		int[] set = new int[values.length];
+		int count = 0;
+		for (int w = 0; w < bits.length; w++) {
+			for (long word = bits[w]; word != 0; word &= word - 1) {
+				set[count++] = (w << 6) + Long.numberOfTrailingZeros(word);
+			}
+		}
+		assertArrayEquals(values, set);
+	}
+
+	/**
+	 * Tests an empty bitmap.
+	 */
+	@Test
+	void testEmpty() {
+		CompressedBitmap bitmap = CompressedBitmap.of(new int[0], 0);
+		assertEquals(0, bitmap.cardinality());
+		bitmap.forEach(value -> {
+			throw new AssertionError("No values expected");
+		});
+	}
+}
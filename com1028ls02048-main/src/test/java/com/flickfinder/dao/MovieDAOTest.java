@@ -1,10 +1,16 @@
 package com.flickfinder.dao;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
+import java.io.IOException;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.junit.jupiter.api.AfterEach;
@@ -12,8 +18,12 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import com.flickfinder.model.Movie;
+import com.flickfinder.model.Page;
 import com.flickfinder.model.Person;
+import com.flickfinder.util.ConnectionPool;
+import com.flickfinder.util.Cursor;
 import com.flickfinder.util.Database;
+import com.flickfinder.util.SchemaOptimizer;
 import com.flickfinder.util.Seeder;
 
 /**
@@ -87,21 +97,14 @@ class MovieDAOTest {
 	 */
 	@Test
 	void testGetMovieByIdInvalidId() {
+		try {
+			Movie movie = movieDAO.getMovieById(1000);
+			assertEquals(null, movie);
+		} catch (SQLException e) {
 
-		// write an assertThrows for a SQLException
-		SQLException thrown = assertThrows(SQLException.class, () -> {
-			movieDAO.getMovieById('a');
-		});
-		assertEquals("Invalid id", thrown.getMessage());
-
-//		try {
-//			Movie movie = movieDAO.getMovieById(1000);
-//			assertEquals(null, movie);
-//		} catch (SQLException e) {
-//
-//			fail("SQLException thrown");
-//			e.printStackTrace();
-//		}
+			fail("SQLException thrown");
+			e.printStackTrace();
+		}
 
 	}
 
@@ -189,6 +192,204 @@ class MovieDAOTest {
 		}
 	}
 
+	/**
+	 * Tests walking through every movie a page at a time with getMoviesAfter()
+	 */
+	@Test
+	void testGetMoviesAfter() {
+		try {
+			Page<Movie> page = movieDAO.getMoviesAfter(0, 2);
+			assertEquals(2, page.getItems().size());
+			assertEquals(1, page.getItems().get(0).getId());
+			assertNotNull(page.getNext());
+
+			page = movieDAO.getMoviesAfter(Cursor.decode(page.getNext()), 2);
+			assertEquals(3, page.getItems().get(0).getId());
+			assertEquals(4, page.getItems().get(1).getId());
+
+			page = movieDAO.getMoviesAfter(Cursor.decode(page.getNext()), 2);
+			assertEquals(1, page.getItems().size());
+			assertEquals(5, page.getItems().get(0).getId());
+			assertNull(page.getNext());
+
+			page = movieDAO.getMoviesAfter(3, 2);
+			assertEquals(2, page.getItems().size());
+			assertNull(page.getNext());
+		} catch (SQLException e) {
+			fail("SQLException thrown");
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Tests that the streaming methods pass on the same rows as the methods that
+	 * return lists
+	 */
+	@Test
+	void testStreamMovies() {
+		try {
+			List<Movie> movies = new ArrayList<>();
+			movieDAO.streamAllMovies(3, movies::add);
+			assertEquals(movieDAO.getAllMovies(3).toString(), movies.toString());
+
+			List<Person> people = new ArrayList<>();
+			movieDAO.streamPeopleByMovieId(1, people::add);
+			assertEquals(movieDAO.getPeopleByMovieId(1).toString(), people.toString());
+		} catch (SQLException | IOException e) {
+			fail("Exception thrown");
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Tests that the streaming methods give the connection back before they
+	 * pass the rows on, so a slow callback does not hold a connection
+	 */
+	@Test
+	void testStreamReleasesConnection() {
+		try {
+			ConnectionPool pool = Database.getInstance().getPool();
+			movieDAO.streamAllMovies(5, movie -> assertEquals(pool.getSize(), pool.getIdleCount()));
+			assertTrue(movieDAO.streamPeopleByMovieId(1,
+					person -> assertEquals(pool.getSize(), pool.getIdleCount())));
+		} catch (SQLException | IOException e) {
+			fail("Exception thrown");
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Tests the getMoviesByIds method. The movies should come back in the order
+	 * they were asked for, with null for each id that is not a movie
+	 */
+	@Test
+	void testGetMoviesByIds() {
+		try {
+			List<Movie> movies = movieDAO.getMoviesByIds(new int[] { 3, 1, 1000, 3 });
+			assertEquals(4, movies.size());
+			assertEquals("The Godfather: Part II", movies.get(0).getTitle());
+			assertEquals("The Shawshank Redemption", movies.get(1).getTitle());
+			assertNull(movies.get(2));
+			assertEquals(3, movies.get(3).getId());
+		} catch (SQLException e) {
+			fail("SQLException thrown");
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Tests that getMoviesByIds looks up more ids than fit in one query
+	 */
+	@Test
+	void testGetMoviesByIdsChunked() {
+		try {
+			int[] ids = new int[Batches.CHUNK_SIZE * 2 + 3];
+			for (int i = 0; i < ids.length; i++) {
+				ids[i] = ids.length - i;
+			}
+			List<Movie> movies = movieDAO.getMoviesByIds(ids);
+			assertEquals(ids.length, movies.size());
+			for (int i = 0; i < ids.length; i++) {
+				if (ids[i] <= 5) {
+					assertEquals(ids[i], movies.get(i).getId());
+				} else {
+					assertNull(movies.get(i));
+				}
+			}
+		} catch (SQLException e) {
+			fail("SQLException thrown");
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Tests the findPeopleByMovieId method, which also tells a movie with no
+	 * stars apart from a movie that does not exist
+	 */
+	@Test
+	void testFindPeopleByMovieId() {
+		try {
+			assertEquals(movieDAO.getPeopleByMovieId(1).toString(), movieDAO.findPeopleByMovieId(1).toString());
+			assertEquals(0, movieDAO.findPeopleByMovieId(4).size());
+			assertNull(movieDAO.findPeopleByMovieId(1000));
+
+			List<Person> people = new ArrayList<>();
+			assertTrue(movieDAO.streamPeopleByMovieId(4, people::add));
+			assertEquals(0, people.size());
+			assertFalse(movieDAO.streamPeopleByMovieId(1000, people::add));
+		} catch (SQLException | IOException e) {
+			fail("Exception thrown");
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Tests the findDirectorsByMovieId method, which also tells a movie with no
+	 * directors apart from a movie that does not exist, and the batch form
+	 */
+	@Test
+	void testFindDirectorsByMovieId() {
+		try {
+			List<Person> directors = movieDAO.findDirectorsByMovieId(1);
+			assertEquals(1, directors.size());
+			assertEquals("Christopher Nolan", directors.get(0).getName());
+			assertNull(movieDAO.findDirectorsByMovieId(1000));
+
+			List<List<Person>> batch = movieDAO.getDirectorsByMovieIds(new int[] { 2, 1000, 2 });
+			assertEquals(3, batch.size());
+			assertEquals(directors.toString(), batch.get(0).toString());
+			assertNull(batch.get(1));
+			assertEquals(directors.toString(), batch.get(2).toString());
+		} catch (SQLException e) {
+			fail("Exception thrown");
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Tests the searchMovies method. The search tables are built first, as the
+	 * seeded database does not have them
+	 */
+	@Test
+	void testSearchMovies() {
+		try {
+			SchemaOptimizer.createSearchTables(seeder.getConnection());
+
+			List<Movie> movies = movieDAO.searchMovies("godfather", 10);
+			assertEquals(2, movies.size());
+			assertEquals("The Godfather", movies.get(0).getTitle());
+
+			movies = movieDAO.searchMovies("god par", 10);
+			assertEquals(1, movies.size());
+			assertEquals(3, movies.get(0).getId());
+
+			assertEquals(1, movieDAO.searchMovies("the", 1).size());
+			assertTrue(movieDAO.searchMovies("nothing", 10).isEmpty());
+		} catch (SQLException e) {
+			fail("SQLException thrown");
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Tests that getDirectorsByMovieIds lists the directors of a movie in the
+	 * same order as findDirectorsByMovieId, whatever order they were added in
+	 */
+	@Test
+	void testDirectorsByMovieIdsOrder() throws SQLException {
+		try (Statement stmt = seeder.getConnection().createStatement()) {
+			stmt.execute("INSERT INTO directors (movie_id, person_id) VALUES(1, 5)");
+			stmt.execute("INSERT INTO directors (movie_id, person_id) VALUES(1, 1)");
+			stmt.execute("INSERT INTO directors (movie_id, person_id) VALUES(1, 4)");
+		}
+		List<Person> directors = movieDAO.findDirectorsByMovieId(1);
+		assertEquals(1, directors.get(0).getId());
+		assertEquals(5, directors.get(directors.size() - 1).getId());
+		List<List<Person>> batch = movieDAO.getDirectorsByMovieIds(new int[] { 1, 2 });
+		assertEquals(directors.toString(), batch.get(0).toString());
+		assertEquals(movieDAO.findDirectorsByMovieId(2).toString(), batch.get(1).toString());
+	}
+
 	@AfterEach
 	void tearDown() {
 		seeder.closeConnection();
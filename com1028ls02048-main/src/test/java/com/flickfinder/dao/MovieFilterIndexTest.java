@@ -0,0 +1,155 @@
+package com.flickfinder.dao;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.flickfinder.util.Database;
+import com.flickfinder.util.DatasetGenerator;
+
+/**
+ * Test for the movie filter index. The index is built over a small generated
+ * dataset, and random filters are checked against a plain scan of a snapshot
+ * of the same data.
+ */
+class MovieFilterIndexTest {
+
+	private DatasetGenerator generator;
+
+	private Snapshot snapshot;
+
+	private MovieFilterIndex index;
+
+	@BeforeEach
+	void setUp() throws SQLException {
+		DatasetGenerator.Options options = new DatasetGenerator.Options();
+		options.movies = 5000;
+		options.people = 10000;
+		generator = new DatasetGenerator("jdbc:sqlite::memory:");
+		generator.generate(options);
+		Database.getInstance(generator.getConnection());
+		snapshot = Snapshot.load(Database.getInstance());
+		index = MovieFilterIndex.load(Database.getInstance());
+	}
+
+	/**
+	 * Tests random combinations of filters and sort orders against a scan.
+	 */
+	@Test
+	void testRandomFilters() {
+		Random random = new Random(3);
+		String[] sorts = { "id", "year", "rating", "votes" };
+		for (int run = 0; run < 200; run++) {
+			MovieFilterIndex.Filter filter = new MovieFilterIndex.Filter();
+			if (random.nextBoolean()) {
+				filter.yearFrom = 1920 + random.nextInt(110);
+			}
+			if (random.nextBoolean()) {
+				filter.yearTo = 1920 + random.nextInt(110);
+			}
+			if (random.nextInt(3) == 0) {
+				filter.minRating = random.nextInt(101) / 10.0;
+			}
+			if (random.nextInt(3) == 0) {
+				filter.minVotes = random.nextInt(5) == 0 ? 0 : (int) Math.pow(10, random.nextDouble() * 6);
+			}
+			if (random.nextInt(4) == 0) {
+				filter.rated = random.nextBoolean();
+			}
+			filter.sort = sorts[random.nextInt(sorts.length)];
+			filter.offset = random.nextInt(3) == 0 ? random.nextInt(100) : 0;
+			filter.limit = random.nextInt(60);
+
+			List<Integer> expected = scan(filter);
+			MovieFilterIndex.Result result = index.filter(filter);
+			assertEquals(expected.size(), result.getTotal());
+			int[] page = expected.subList(Math.min(filter.offset, expected.size()),
+					Math.min(filter.offset + filter.limit, expected.size())).stream()
+					.mapToInt(i -> snapshot.movieId(i)).toArray();
+			assertArrayEquals(page, result.getMovieIds());
+
+			Map<String, Map<String, Integer>> facets = result.getFacets();
+			int rated = (int) expected.stream().filter(snapshot::hasRating).count();
+			assertEquals(Integer.valueOf(rated), facets.get("rated").get("true"));
+			assertEquals(rated, facets.get("ratings").values().stream().mapToInt(Integer::intValue).sum());
+			assertEquals(rated, facets.get("votes").values().stream().mapToInt(Integer::intValue).sum());
+			assertEquals(expected.size(), facets.get("years").values().stream().mapToInt(Integer::intValue).sum());
+		}
+	}
+
+	/**
+	 * Tests that the index built from a snapshot gives the same results, and
+	 * that an unknown sort order is an error.
+	 */
+	@Test
+	void testSnapshotIndexAndBadSort() {
+		MovieFilterIndex snapshotIndex = MovieFilterIndex.of(snapshot);
+		MovieFilterIndex.Filter filter = new MovieFilterIndex.Filter();
+		filter.yearFrom = 1990;
+		filter.minRating = 6.5;
+		filter.sort = "votes";
+		assertArrayEquals(index.filter(filter).getMovieIds(), snapshotIndex.filter(filter).getMovieIds());
+		assertEquals(index.filter(filter).getFacets(), snapshotIndex.filter(filter).getFacets());
+
+		filter.sort = "title";
+		assertThrows(IllegalArgumentException.class, () -> index.filter(filter));
+	}
+
+	/**
+	 * Finds the movies that match a filter by checking every one, in the order
+	 * the filter asks for.
+	 */
+	private List<Integer> scan(MovieFilterIndex.Filter filter) {
+		List<Integer> movies = new ArrayList<>();
+		for (int i = 0; i < snapshot.movieCount(); i++) {
+			int year = snapshot.movieYear(i);
+			boolean rated = snapshot.hasRating(i);
+			if ((filter.yearFrom != null || filter.yearTo != null) && year == 0
+					|| filter.yearFrom != null && year < filter.yearFrom
+					|| filter.yearTo != null && year > filter.yearTo
+					|| filter.minRating != null && (!rated || tenths(i) < Math.round(filter.minRating * 10))
+					|| filter.minVotes != null && (!rated || snapshot.movieVotes(i) < filter.minVotes)
+					|| filter.rated != null && rated != filter.rated) {
+				continue;
+			}
+			movies.add(i);
+		}
+		Comparator<Integer> order;
+		switch (filter.sort) {
+		case "year":
+			order = Comparator.comparingInt(i -> snapshot.movieYear(i) == 0 ? Integer.MAX_VALUE : snapshot.movieYear(i));
+			break;
+		case "rating":
+			order = Comparator.comparingInt(i -> snapshot.hasRating(i) ? -tenths(i) : 1);
+			break;
+		case "votes":
+			order = Comparator
+					.comparingLong(i -> snapshot.hasRating(i) ? -(long) snapshot.movieVotes(i) : Long.MAX_VALUE);
+			break;
+		default:
+			order = Comparator.comparingInt(i -> 0);
+		}
+		movies.sort(order.thenComparingInt(i -> i));
+		return movies;
+	}
+
+	private int tenths(int i) {
+		return (int) Math.round(snapshot.movieRating(i) * 10);
+	}
+
+	@AfterEach
+	void tearDown() {
+		generator.closeConnection();
+	}
+}
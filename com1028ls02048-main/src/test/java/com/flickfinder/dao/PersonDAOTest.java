@@ -1,10 +1,15 @@
 package com.flickfinder.dao;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
+import java.io.IOException;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.junit.jupiter.api.AfterEach;
@@ -12,8 +17,12 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import com.flickfinder.model.Movie;
+import com.flickfinder.model.Page;
 import com.flickfinder.model.Person;
+import com.flickfinder.util.ConnectionPool;
+import com.flickfinder.util.Cursor;
 import com.flickfinder.util.Database;
+import com.flickfinder.util.SchemaOptimizer;
 import com.flickfinder.util.Seeder;
 
 /**
@@ -89,19 +98,13 @@ class PersonDAOTest {
 	 */
 	@Test
 	void testGetPersonByIdInvalidId() {
-		// write an assertThrows for a SQLException
-		SQLException thrown = assertThrows(SQLException.class, () -> {
-			personDAO.getPersonById('a');
-		});
-		assertEquals("Invalid id", thrown.getMessage());
-
-//		try {
-//			Person people = personDAO.getPersonById(1000);
-//			assertEquals(null, people);
-//		} catch (SQLException e) {
-//			fail("SQLException thrown");
-//			e.printStackTrace();
-//		}
+		try {
+			Person people = personDAO.getPersonById(1000);
+			assertEquals(null, people);
+		} catch (SQLException e) {
+			fail("SQLException thrown");
+			e.printStackTrace();
+		}
 
 	}
 	
@@ -163,6 +166,154 @@ class PersonDAOTest {
 		}
 	}
 
+	/**
+	 * Tests walking through every person a page at a time with getPeopleAfter()
+	 */
+	@Test
+	void testGetPeopleAfter() {
+		try {
+			Page<Person> page = personDAO.getPeopleAfter(0, 3);
+			assertEquals(3, page.getItems().size());
+			assertEquals("Tim Robbins", page.getItems().get(0).getName());
+			assertNotNull(page.getNext());
+
+			page = personDAO.getPeopleAfter(Cursor.decode(page.getNext()), 3);
+			assertEquals(2, page.getItems().size());
+			assertEquals(4, page.getItems().get(0).getId());
+			assertNull(page.getNext());
+			
+			page = personDAO.getPeopleAfter(5, 3);
+			assertEquals(0, page.getItems().size());
+		} catch (SQLException e) {
+			fail("SQLException thrown");
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Tests that the streaming methods pass on the same rows as the methods that
+	 * return lists
+	 */
+	@Test
+	void testStreamPeople() {
+		try {
+			List<Person> people = new ArrayList<>();
+			personDAO.streamAllPeople(3, people::add);
+			assertEquals(personDAO.getAllPeople(3).toString(), people.toString());
+
+			List<Movie> movies = new ArrayList<>();
+			personDAO.streamMoviesStarringPerson(4, movies::add);
+			assertEquals(personDAO.getMoviesStarringPerson(4).toString(), movies.toString());
+		} catch (SQLException | IOException e) {
+			fail("Exception thrown");
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Tests that the streaming methods give the connection back before they
+	 * pass the rows on, so a slow callback does not hold a connection
+	 */
+	@Test
+	void testStreamReleasesConnection() {
+		try {
+			ConnectionPool pool = Database.getInstance().getPool();
+			personDAO.streamAllPeople(5, person -> assertEquals(pool.getSize(), pool.getIdleCount()));
+			assertTrue(personDAO.streamMoviesStarringPerson(4,
+					movie -> assertEquals(pool.getSize(), pool.getIdleCount())));
+		} catch (SQLException | IOException e) {
+			fail("Exception thrown");
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Tests the getPeopleByIds method. The people should come back in the order
+	 * they were asked for, with null for each id that is not a person
+	 */
+	@Test
+	void testGetPeopleByIds() {
+		try {
+			List<Person> people = personDAO.getPeopleByIds(new int[] { 5, 2, 1000 });
+			assertEquals(3, people.size());
+			assertEquals(5, people.get(0).getId());
+			assertEquals("Morgan Freeman", people.get(1).getName());
+			assertNull(people.get(2));
+		} catch (SQLException e) {
+			fail("SQLException thrown");
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Tests the findMoviesStarringPerson method, which also tells a person with
+	 * no movies apart from a person that does not exist
+	 */
+	@Test
+	void testFindMoviesStarringPerson() {
+		try {
+			assertEquals(personDAO.getMoviesStarringPerson(4).toString(),
+					personDAO.findMoviesStarringPerson(4).toString());
+			assertEquals(0, personDAO.findMoviesStarringPerson(3).size());
+			assertNull(personDAO.findMoviesStarringPerson(1000));
+
+			List<Movie> movies = new ArrayList<>();
+			assertTrue(personDAO.streamMoviesStarringPerson(3, movies::add));
+			assertEquals(0, movies.size());
+			assertFalse(personDAO.streamMoviesStarringPerson(1000, movies::add));
+		} catch (SQLException | IOException e) {
+			fail("Exception thrown");
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Tests the findMoviesDirectedByPerson method, which also tells a person
+	 * who directed nothing apart from a person that does not exist, and the
+	 * batch form
+	 */
+	@Test
+	void testFindMoviesDirectedByPerson() {
+		try {
+			List<Movie> movies = personDAO.findMoviesDirectedByPerson(3);
+			assertEquals(5, movies.size());
+			for (int i = 0; i < movies.size(); i++) {
+				assertEquals(i + 1, movies.get(i).getId());
+			}
+			assertEquals(0, personDAO.findMoviesDirectedByPerson(1).size());
+			assertNull(personDAO.findMoviesDirectedByPerson(1000));
+
+			List<List<Movie>> batch = personDAO.getMoviesDirectedByPeople(new int[] { 1, 3, 1000 });
+			assertEquals(0, batch.get(0).size());
+			assertEquals(movies.toString(), batch.get(1).toString());
+			assertNull(batch.get(2));
+		} catch (SQLException e) {
+			fail("Exception thrown");
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Tests the searchPeople method. The search tables are built first, as the
+	 * seeded database does not have them
+	 */
+	@Test
+	void testSearchPeople() {
+		try {
+			SchemaOptimizer.createSearchTables(seeder.getConnection());
+
+			List<Person> people = personDAO.searchPeople("morgan", 10);
+			assertEquals(1, people.size());
+			assertEquals("Morgan Freeman", people.get(0).getName());
+
+			assertEquals(1, personDAO.searchPeople("chris nol", 10).size());
+			assertTrue(personDAO.searchPeople("nobody", 10).isEmpty());
+		} catch (SQLException e) {
+			fail("SQLException thrown");
+			e.printStackTrace();
+		}
+	}
+
 	@AfterEach
 	void tearDown() {
 		seeder.closeConnection();
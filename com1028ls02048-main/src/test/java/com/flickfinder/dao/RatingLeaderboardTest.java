@@ -0,0 +1,106 @@
+package com.flickfinder.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.flickfinder.model.Movie;
+import com.flickfinder.util.Database;
+import com.flickfinder.util.Seeder;
+
+/**
+ * Test for the rating leaderboard. Every answer is compared with the SQL query
+ * it replaces. A few extra movies are added to the seeded database so that
+ * some ratings are tied.
+ */
+class RatingLeaderboardTest {
+
+	/**
+	 * A DAO that queries the database.
+	 */
+	private MovieDAO sqlDAO;
+
+	/**
+	 * A DAO that answers from the leaderboard.
+	 */
+	private MovieDAO leaderboardDAO;
+
+	/**
+	 * Seeder
+	 */
+	Seeder seeder;
+
+	@BeforeEach
+	void setUp() throws SQLException {
+		seeder = new Seeder("jdbc:sqlite::memory:");
+		try (Statement stmt = seeder.getConnection().createStatement()) {
+			stmt.execute("INSERT INTO movies (id, title, year) VALUES(6, 'Tied Later', 1972)");
+			stmt.execute("INSERT INTO movies (id, title, year) VALUES(7, 'Tied Earlier', 1972)");
+			stmt.execute("INSERT INTO movies (id, title, year) VALUES(8, 'Few Votes', 1972)");
+			stmt.execute("INSERT INTO movies (id, title, year) VALUES(9, 'Unrated', 1972)");
+			stmt.execute("INSERT INTO ratings (movie_id, rating, votes) VALUES (6, 9.2, 5000)");
+			stmt.execute("INSERT INTO ratings (movie_id, rating, votes) VALUES (7, 9.2, 2000)");
+			stmt.execute("INSERT INTO ratings (movie_id, rating, votes) VALUES (8, 9.9, 10)");
+		}
+		Database.getInstance(seeder.getConnection());
+		sqlDAO = new MovieDAO();
+		leaderboardDAO = new MovieDAO();
+		leaderboardDAO.setLeaderboard(RatingLeaderboard.load(Database.getInstance()));
+	}
+
+	/**
+	 * Tests that the leaderboard returns exactly what the SQL query returns,
+	 * including the order of tied ratings.
+	 */
+	@Test
+	void testMatchesQuery() throws SQLException {
+		int[][] queries = { { 50, 1000, 1972 }, { 2, 1000, 1972 }, { 1, 1, 1972 }, { 50, 3000, 1972 },
+				{ 50, 1000, 1994 }, { 50, 1000, 2001 }, { 50, 5000000, 2008 } };
+		for (int[] query : queries) {
+			assertEquals(describe(sqlDAO.getRatingsByYear(query[0], query[1], query[2])),
+					describe(leaderboardDAO.getRatingsByYear(query[0], query[1], query[2])));
+		}
+	}
+
+	/**
+	 * Describes a list of rated movies, including their ids and titles, which
+	 * MovieRating.toString() leaves out.
+	 */
+	private static String describe(List<Movie> movies) {
+		StringBuilder description = new StringBuilder();
+		for (Movie movie : movies) {
+			description.append(movie.getId()).append(' ').append(movie.getTitle()).append(' ').append(movie)
+					.append('\n');
+		}
+		return description.toString();
+	}
+
+	/**
+	 * Tests the order of the results and the votes threshold.
+	 */
+	@Test
+	void testOrder() throws SQLException {
+		List<Movie> movies = leaderboardDAO.getRatingsByYear(50, 1000, 1972);
+		assertEquals(3, movies.size());
+		assertEquals(2, movies.get(0).getId());
+		assertEquals(6, movies.get(1).getId());
+		assertEquals(7, movies.get(2).getId());
+
+		movies = leaderboardDAO.getRatingsByYear(1, 1, 1972);
+		assertEquals("Few Votes", movies.get(0).getTitle());
+
+		assertTrue(leaderboardDAO.getRatingsByYear(50, 1000, 1800).isEmpty());
+	}
+
+	@AfterEach
+	void tearDown() {
+		seeder.closeConnection();
+	}
+}
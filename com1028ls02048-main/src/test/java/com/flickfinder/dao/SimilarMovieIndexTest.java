@@ -0,0 +1,124 @@
+package com.flickfinder.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.flickfinder.util.Database;
+import com.flickfinder.util.Seeder;
+
+/**
+ * Test for the similar movie index. This uses the seeded in-memory database,
+ * with a few extra stars added so that some movies share part of their cast.
+ * The index is built with many bands, so that the movies sharing stars here
+ * are all but certain to be found.
+ */
+class SimilarMovieIndexTest {
+
+	/**
+	 * Seeder
+	 */
+	Seeder seeder;
+
+	@BeforeEach
+	void setUp() throws SQLException {
+		seeder = new Seeder("jdbc:sqlite::memory:");
+		Database.getInstance(seeder.getConnection());
+		// The Dark Knight stars Tim Robbins, Morgan Freeman and Henry Fonda, and
+		// 12 Angry Men stars Henry Fonda and Tim Robbins. The Shawshank
+		// Redemption has no rating, so no votes.
+		try (Statement stmt = seeder.getConnection().createStatement()) {
+			stmt.execute("INSERT INTO stars (movie_id, person_id) VALUES(4, 1)");
+			stmt.execute("INSERT INTO stars (movie_id, person_id) VALUES(4, 2)");
+			stmt.execute("INSERT INTO stars (movie_id, person_id) VALUES(4, 5)");
+			stmt.execute("INSERT INTO stars (movie_id, person_id) VALUES(5, 1)");
+			stmt.execute("DELETE FROM ratings WHERE movie_id = 1");
+		}
+	}
+
+	private SimilarMovieIndex load() throws SQLException {
+		return SimilarMovieIndex.load(Database.getInstance(), CoStarGraph.load(Database.getInstance()), 64, 1, 1000);
+	}
+
+	/**
+	 * Tests that similar movies are ranked by their exact similarity, with ties
+	 * broken by id, and that k limits them.
+	 */
+	@Test
+	void testSimilar() throws SQLException {
+		SimilarMovieIndex index = load();
+
+		List<SimilarMovieIndex.Match> matches = index.similar(4, 10, false);
+		assertEquals(2, matches.size());
+		assertEquals(1, matches.get(0).getMovieId());
+		assertEquals(2, matches.get(0).getSharedStars());
+		assertEquals(2.0 / 3, matches.get(0).getSimilarity(), 1e-9);
+		assertEquals(5, matches.get(1).getMovieId());
+		assertEquals(2.0 / 3, matches.get(1).getSimilarity(), 1e-9);
+
+		assertEquals(1, index.similar(4, 1, false).size());
+
+		matches = index.similar(2, 10, false);
+		assertEquals(1, matches.size());
+		assertEquals(3, matches.get(0).getMovieId());
+		assertEquals(1.0, matches.get(0).getSimilarity(), 1e-9);
+	}
+
+	/**
+	 * Tests that weighting by votes puts the rated movie first.
+	 */
+	@Test
+	void testWeighted() throws SQLException {
+		List<SimilarMovieIndex.Match> matches = load().similar(4, 10, true);
+		assertEquals(5, matches.get(0).getMovieId());
+		assertEquals(1, matches.get(1).getMovieId());
+		assertTrue(matches.get(0).getScore() > matches.get(1).getScore());
+	}
+
+	/**
+	 * Tests a movie that does not exist, and one with no stars.
+	 */
+	@Test
+	void testMissingMovie() throws SQLException {
+		SimilarMovieIndex index = load();
+		assertNull(index.similar(1000, 10, false));
+		try (Statement stmt = seeder.getConnection().createStatement()) {
+			stmt.execute("DELETE FROM stars WHERE movie_id = 2");
+		}
+		index = load();
+		assertTrue(index.similar(2, 10, false).isEmpty());
+	}
+
+	/**
+	 * Tests that the index built from a snapshot finds the same movies as the
+	 * one read from the database.
+	 */
+	@Test
+	void testSnapshotIndex() throws SQLException {
+		SimilarMovieIndex index = load();
+		Snapshot snapshot = Snapshot.load(Database.getInstance());
+		SimilarMovieIndex snapshotIndex = SimilarMovieIndex.of(snapshot, CoStarGraph.of(snapshot), 64, 1, 1000);
+		for (int id = 1; id <= 5; id++) {
+			List<SimilarMovieIndex.Match> expected = index.similar(id, 10, true);
+			List<SimilarMovieIndex.Match> actual = snapshotIndex.similar(id, 10, true);
+			assertEquals(expected.size(), actual.size());
+			for (int i = 0; i < expected.size(); i++) {
+				assertEquals(expected.get(i).getMovieId(), actual.get(i).getMovieId());
+				assertEquals(expected.get(i).getScore(), actual.get(i).getScore(), 1e-9);
+			}
+		}
+	}
+
+	@AfterEach
+	void tearDown() {
+		seeder.closeConnection();
+	}
+}
@@ -0,0 +1,169 @@
+package com.flickfinder.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.flickfinder.model.Movie;
+import com.flickfinder.model.MovieRating;
+import com.flickfinder.model.Page;
+import com.flickfinder.model.Person;
+import com.flickfinder.util.Database;
+import com.flickfinder.util.Seeder;
+
+/**
+ * Test for the snapshot-backed Movie Data Access Object. The snapshot is
+ * loaded from the seeded in-memory database, and its answers are compared with
+ * the SQL-backed DAO.
+ */
+class SnapshotMovieDAOTest {
+
+	/**
+	 * The snapshot-backed movie data access object.
+	 */
+	private SnapshotMovieDAO snapshotDAO;
+
+	/**
+	 * The SQL-backed movie data access object.
+	 */
+	private MovieDAO movieDAO;
+
+	/**
+	 * Seeder
+	 */
+	Seeder seeder;
+
+	@BeforeEach
+	void setUp() throws SQLException {
+		seeder = new Seeder("jdbc:sqlite::memory:");
+		Database.getInstance(seeder.getConnection());
+		movieDAO = new MovieDAO();
+		snapshotDAO = new SnapshotMovieDAO(Snapshot.load(Database.getInstance()));
+		snapshotDAO.setLeaderboard(RatingLeaderboard.load(Database.getInstance()));
+	}
+
+	/**
+	 * Tests that getAllMovies returns the same movies as the database, and
+	 * respects the limit.
+	 */
+	@Test
+	void testGetAllMovies() throws SQLException {
+		assertEquals(movieDAO.getAllMovies(50).toString(), snapshotDAO.getAllMovies(50).toString());
+		assertEquals(2, snapshotDAO.getAllMovies(2).size());
+		assertEquals(5, snapshotDAO.getAllMovies(-1).size());
+	}
+
+	/**
+	 * Tests that getMoviesAfter returns the same pages as the database.
+	 */
+	@Test
+	void testGetMoviesAfter() throws SQLException {
+		for (int after = 0; after <= 5; after++) {
+			Page<Movie> expected = movieDAO.getMoviesAfter(after, 2);
+			Page<Movie> actual = snapshotDAO.getMoviesAfter(after, 2);
+			assertEquals(expected.toString(), actual.toString());
+		}
+	}
+
+	/**
+	 * Tests the getMovieById method, including an invalid id.
+	 */
+	@Test
+	void testGetMovieById() throws SQLException {
+		Movie movie = snapshotDAO.getMovieById(4);
+		assertEquals("The Dark Knight", movie.getTitle());
+		assertEquals(2008, movie.getYear());
+
+		assertNull(snapshotDAO.getMovieById(1000));
+	}
+
+	/**
+	 * Tests the getPeopleByMovieId method.
+	 */
+	@Test
+	void testGetPeopleByMovieId() throws SQLException {
+		List<Person> people = snapshotDAO.getPeopleByMovieId(1);
+		assertEquals(movieDAO.getPeopleByMovieId(1).toString(), people.toString());
+		assertEquals("Tim Robbins", people.get(0).getName());
+		assertEquals(1937, people.get(1).getBirth());
+		assertTrue(snapshotDAO.getPeopleByMovieId(4).isEmpty());
+		assertTrue(snapshotDAO.getPeopleByMovieId(1000).isEmpty());
+	}
+
+	/**
+	 * Tests the getRatingsByYear method, which is answered by the leaderboard.
+	 */
+	@Test
+	void testGetRatingsByYear() throws SQLException {
+		List<Movie> movies = snapshotDAO.getRatingsByYear(2, 200, 1972);
+		assertEquals(1, movies.size());
+		MovieRating rating = (MovieRating) movies.get(0);
+		assertEquals("The Godfather", rating.getTitle());
+		assertEquals(9.2, rating.getRating());
+		assertEquals(1500000, rating.getVotes());
+
+		assertTrue(snapshotDAO.getRatingsByYear(10, 3000000, 1994).isEmpty());
+	}
+
+	/**
+	 * Tests that the streaming methods match the database.
+	 */
+	@Test
+	void testStreamMovies() throws SQLException, IOException {
+		List<Movie> movies = new ArrayList<>();
+		snapshotDAO.streamAllMovies(3, movies::add);
+		assertEquals(movieDAO.getAllMovies(3).toString(), movies.toString());
+
+		List<Person> people = new ArrayList<>();
+		snapshotDAO.streamPeopleByMovieId(1, people::add);
+		assertEquals(movieDAO.getPeopleByMovieId(1).toString(), people.toString());
+	}
+
+	/**
+	 * Tests the getMoviesByIds method.
+	 */
+	@Test
+	void testGetMoviesByIds() throws SQLException {
+		int[] ids = { 3, 1, 1000, 3 };
+		assertEquals(movieDAO.getMoviesByIds(ids).toString(), snapshotDAO.getMoviesByIds(ids).toString());
+	}
+
+	/**
+	 * Tests the findPeopleByMovieId method.
+	 */
+	@Test
+	void testFindPeopleByMovieId() throws SQLException, IOException {
+		assertEquals(movieDAO.findPeopleByMovieId(1).toString(), snapshotDAO.findPeopleByMovieId(1).toString());
+		assertTrue(snapshotDAO.findPeopleByMovieId(4).isEmpty());
+		assertNull(snapshotDAO.findPeopleByMovieId(1000));
+		assertFalse(snapshotDAO.streamPeopleByMovieId(1000, person -> fail("No stars expected")));
+	}
+
+	/**
+	 * Tests the findDirectorsByMovieId and getDirectorsByMovieIds methods.
+	 */
+	@Test
+	void testFindDirectorsByMovieId() throws SQLException {
+		assertEquals(movieDAO.findDirectorsByMovieId(1).toString(), snapshotDAO.findDirectorsByMovieId(1).toString());
+		assertNull(snapshotDAO.findDirectorsByMovieId(1000));
+		int[] ids = { 3, 1000, 5 };
+		assertEquals(movieDAO.getDirectorsByMovieIds(ids).toString(),
+				snapshotDAO.getDirectorsByMovieIds(ids).toString());
+	}
+
+	@AfterEach
+	void tearDown() {
+		seeder.closeConnection();
+	}
+}
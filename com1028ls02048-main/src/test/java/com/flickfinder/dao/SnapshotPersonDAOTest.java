@@ -0,0 +1,178 @@
+package com.flickfinder.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.flickfinder.model.Movie;
+import com.flickfinder.model.Page;
+import com.flickfinder.model.Person;
+import com.flickfinder.util.Database;
+import com.flickfinder.util.Seeder;
+
+/**
+ * Test for the snapshot-backed Person Data Access Object. The snapshot is
+ * loaded from the seeded in-memory database, and its answers are compared with
+ * the SQL-backed DAO.
+ */
+class SnapshotPersonDAOTest {
+
+	/**
+	 * The snapshot-backed person data access object.
+	 */
+	private SnapshotPersonDAO snapshotDAO;
+
+	/**
+	 * The SQL-backed person data access object.
+	 */
+	private PersonDAO personDAO;
+
+	/**
+	 * Seeder
+	 */
+	Seeder seeder;
+
+	@BeforeEach
+	void setUp() throws SQLException {
+		seeder = new Seeder("jdbc:sqlite::memory:");
+		Database.getInstance(seeder.getConnection());
+		personDAO = new PersonDAO();
+		snapshotDAO = new SnapshotPersonDAO(Snapshot.load(Database.getInstance()));
+	}
+
+	/**
+	 * Tests that getAllPeople returns the same people as the database, and
+	 * respects the limit.
+	 */
+	@Test
+	void testGetAllPeople() throws SQLException {
+		assertEquals(personDAO.getAllPeople(50).toString(), snapshotDAO.getAllPeople(50).toString());
+		assertEquals(3, snapshotDAO.getAllPeople(3).size());
+		assertEquals(5, snapshotDAO.getAllPeople(0).size());
+	}
+
+	/**
+	 * Tests that getPeopleAfter returns the same pages as the database.
+	 */
+	@Test
+	void testGetPeopleAfter() throws SQLException {
+		for (int after = 0; after <= 5; after++) {
+			Page<Person> expected = personDAO.getPeopleAfter(after, 2);
+			Page<Person> actual = snapshotDAO.getPeopleAfter(after, 2);
+			assertEquals(expected.toString(), actual.toString());
+		}
+	}
+
+	/**
+	 * Tests the getPersonById method, including an invalid id.
+	 */
+	@Test
+	void testGetPersonById() throws SQLException {
+		assertEquals("Christopher Nolan", snapshotDAO.getPersonById(3).getName());
+		assertEquals(1970, snapshotDAO.getPersonById(3).getBirth());
+
+		assertNull(snapshotDAO.getPersonById(1000));
+	}
+
+	/**
+	 * Tests the getMoviesStarringPerson method.
+	 */
+	@Test
+	void testGetMoviesStarringPerson() throws SQLException {
+		List<Movie> movies = snapshotDAO.getMoviesStarringPerson(4);
+		assertEquals(personDAO.getMoviesStarringPerson(4).toString(), movies.toString());
+		assertEquals("The Godfather", movies.get(0).getTitle());
+		assertEquals("The Godfather: Part II", movies.get(1).getTitle());
+		assertTrue(snapshotDAO.getMoviesStarringPerson(3).isEmpty());
+	}
+
+	/**
+	 * Tests that the streaming methods match the database.
+	 */
+	@Test
+	void testStreamPeople() throws SQLException, IOException {
+		List<Person> people = new ArrayList<>();
+		snapshotDAO.streamAllPeople(3, people::add);
+		assertEquals(personDAO.getAllPeople(3).toString(), people.toString());
+
+		List<Movie> movies = new ArrayList<>();
+		snapshotDAO.streamMoviesStarringPerson(4, movies::add);
+		assertEquals(personDAO.getMoviesStarringPerson(4).toString(), movies.toString());
+	}
+
+	/**
+	 * Tests the getPeopleByIds method.
+	 */
+	@Test
+	void testGetPeopleByIds() throws SQLException {
+		int[] ids = { 5, 2, 1000 };
+		assertEquals(personDAO.getPeopleByIds(ids).toString(), snapshotDAO.getPeopleByIds(ids).toString());
+	}
+
+	/**
+	 * Tests the findMoviesStarringPerson method.
+	 */
+	@Test
+	void testFindMoviesStarringPerson() throws SQLException, IOException {
+		assertEquals(personDAO.findMoviesStarringPerson(4).toString(),
+				snapshotDAO.findMoviesStarringPerson(4).toString());
+		assertTrue(snapshotDAO.findMoviesStarringPerson(3).isEmpty());
+		assertNull(snapshotDAO.findMoviesStarringPerson(1000));
+		assertFalse(snapshotDAO.streamMoviesStarringPerson(1000, movie -> fail("No movies expected")));
+	}
+
+	/**
+	 * Tests the findMoviesDirectedByPerson and getMoviesDirectedByPeople
+	 * methods.
+	 */
+	@Test
+	void testFindMoviesDirectedByPerson() throws SQLException {
+		assertEquals(personDAO.findMoviesDirectedByPerson(3).toString(),
+				snapshotDAO.findMoviesDirectedByPerson(3).toString());
+		assertTrue(snapshotDAO.findMoviesDirectedByPerson(1).isEmpty());
+		assertNull(snapshotDAO.findMoviesDirectedByPerson(1000));
+		int[] ids = { 3, 1, 1000 };
+		assertEquals(personDAO.getMoviesDirectedByPeople(ids).toString(),
+				snapshotDAO.getMoviesDirectedByPeople(ids).toString());
+	}
+
+	/**
+	 * Tests that a person with no name has a null name, as they do in the
+	 * database, rather than an empty one.
+	 */
+	@Test
+	void testNullName() throws SQLException {
+		try (Statement stmt = seeder.getConnection().createStatement()) {
+			stmt.execute("CREATE TABLE people_new (id INTEGER, name TEXT, birth NUMERIC, PRIMARY KEY(id))");
+			stmt.execute("INSERT INTO people_new SELECT * FROM people");
+			stmt.execute("DROP TABLE people");
+			stmt.execute("ALTER TABLE people_new RENAME TO people");
+			stmt.execute("INSERT INTO people (id, name, birth) VALUES(6, NULL, 1990)");
+			stmt.execute("INSERT INTO people (id, name, birth) VALUES(7, '', 1991)");
+		}
+		snapshotDAO = new SnapshotPersonDAO(Snapshot.load(Database.getInstance()));
+
+		assertNull(personDAO.getPersonById(6).getName());
+		assertEquals(personDAO.getPersonById(6).toString(), snapshotDAO.getPersonById(6).toString());
+		assertNull(snapshotDAO.getPersonById(6).getName());
+		assertEquals("", snapshotDAO.getPersonById(7).getName());
+		assertEquals(personDAO.getAllPeople(50).toString(), snapshotDAO.getAllPeople(50).toString());
+	}
+
+	@AfterEach
+	void tearDown() {
+		seeder.closeConnection();
+	}
+}
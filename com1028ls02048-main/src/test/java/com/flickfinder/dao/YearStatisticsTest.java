@@ -0,0 +1,104 @@
+package com.flickfinder.dao;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.flickfinder.model.YearStats;
+import com.flickfinder.util.Database;
+import com.flickfinder.util.Seeder;
+
+/**
+ * Test for the year statistics. This uses the seeded in-memory database, with
+ * a few more movies from 1994 and one with no year.
+ */
+class YearStatisticsTest {
+
+	/**
+	 * Seeder
+	 */
+	Seeder seeder;
+
+	@BeforeEach
+	void setUp() throws SQLException {
+		seeder = new Seeder("jdbc:sqlite::memory:");
+		Database.getInstance(seeder.getConnection());
+		try (Statement stmt = seeder.getConnection().createStatement()) {
+			stmt.execute("INSERT INTO movies (id, title, year) VALUES(6, 'Speed', 1994)");
+			stmt.execute("INSERT INTO movies (id, title, year) VALUES(7, 'Clerks', 1994)");
+			stmt.execute("INSERT INTO movies (id, title, year) VALUES(8, 'Leon', 1994)");
+			stmt.execute("INSERT INTO movies (id, title) VALUES(9, 'Untitled')");
+			stmt.execute("INSERT INTO ratings (movie_id, rating, votes) VALUES (6, 7.0, 100)");
+			stmt.execute("INSERT INTO ratings (movie_id, rating, votes) VALUES (8, 8.0, 10)");
+			stmt.execute("INSERT INTO ratings (movie_id, rating, votes) VALUES (9, 5.0, 10)");
+		}
+	}
+
+	/**
+	 * Tests the statistics of a year with several movies, one of them unrated.
+	 */
+	@Test
+	void testGetYear() throws SQLException {
+		YearStats stats = YearStatistics.load(Database.getInstance(), 2).getYear(1994);
+		assertEquals(4, stats.getMovies());
+		assertEquals(3, stats.getRatedMovies());
+		assertEquals(8.1, stats.getMeanRating(), 1e-9);
+		assertEquals(8.0, stats.getMedianRating(), 1e-9);
+		assertEquals(2200110, stats.getTotalVotes());
+		assertArrayEquals(new int[] { 0, 0, 0, 0, 0, 0, 0, 1, 1, 1 }, stats.getRatingHistogram());
+	}
+
+	/**
+	 * Tests that every year with movies is listed in order, that movies with no
+	 * year are left out, and that a year with no movies is null.
+	 */
+	@Test
+	void testGetYears() throws SQLException {
+		YearStatistics statistics = YearStatistics.load(Database.getInstance(), 1);
+		assertEquals(5, statistics.getYears().size());
+		assertEquals(1957, statistics.getYears().get(0).getYear());
+		assertEquals(2008, statistics.getYears().get(4).getYear());
+		assertNull(statistics.getYear(0));
+		assertNull(statistics.getYear(2000));
+	}
+
+	/**
+	 * Tests that the median of an even number of ratings is the mean of the
+	 * middle two.
+	 */
+	@Test
+	void testEvenMedian() throws SQLException {
+		try (Statement stmt = seeder.getConnection().createStatement()) {
+			stmt.execute("INSERT INTO ratings (movie_id, rating, votes) VALUES (7, 6.5, 1)");
+		}
+		YearStats stats = YearStatistics.load(Database.getInstance(), 1).getYear(1994);
+		assertEquals(7.5, stats.getMedianRating(), 1e-9);
+	}
+
+	/**
+	 * Tests that the statistics are the same however many threads scan, and
+	 * when scanned from a snapshot.
+	 */
+	@Test
+	void testParallelismAndSnapshot() throws SQLException {
+		String expected = YearStatistics.load(Database.getInstance(), 1).getYears().toString();
+		for (int parallelism = 2; parallelism <= 8; parallelism *= 2) {
+			assertEquals(expected, YearStatistics.load(Database.getInstance(), parallelism).getYears().toString());
+		}
+		Snapshot snapshot = Snapshot.load(Database.getInstance());
+		assertEquals(expected, YearStatistics.of(snapshot, 1).getYears().toString());
+		assertEquals(expected, YearStatistics.of(snapshot, 4).getYears().toString());
+	}
+
+	@AfterEach
+	void tearDown() {
+		seeder.closeConnection();
+	}
+}
@@ -0,0 +1,113 @@
+package com.flickfinder.load;
+
+/**
+ * A histogram of latencies in the style of HdrHistogram: values are counted
+ * in buckets whose width grows with the value, so every value is kept to
+ * within about 1.6% however large it is, in a fixed and small amount of
+ * memory.
+ *
+ * Values below 128 each have their own bucket. Above that, every power of two
+ * is split into 64 buckets of equal width.
+ *
+ * A histogram is not thread safe. Each thread records into its own and they
+ * are added together at the end.
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BUCKETS = 64;
+
+	/**
+	 * The counts, enough buckets for any positive long.
+	 */
+	private final long[] counts = new long[2 * SUB_BUCKETS + 57 * SUB_BUCKETS];
+
+	private long total;
+	private long sum;
+	private long max;
+	private long min = Long.MAX_VALUE;
+
+	/**
+	 * Records a value. Negative values are recorded as 0.
+	 *
+	 * @param value the value, such as a latency in microseconds
+	 */
+	public void record(long value) {
+		value = Math.max(0, value);
+		counts[indexOf(value)]++;
+		total++;
+		sum += value;
+		max = Math.max(max, value);
+		min = Math.min(min, value);
+	}
+
+	/**
+	 * Adds the values of another histogram to this one.
+	 *
+	 * @param other the other histogram
+	 */
+	public void add(LatencyHistogram other) {
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] += other.counts[i];
+		}
+		total += other.total;
+		sum += other.sum;
+		max = Math.max(max, other.max);
+		min = Math.min(min, other.min);
+	}
+
+	/**
+	 * Returns the value at a percentile: the highest value that counts as
+	 * equal to the recorded value at that rank, as HdrHistogram reports it.
+	 *
+	 * @param percentile the percentile, from 0 to 100
+	 * @return the value, or 0 if nothing has been recorded
+	 */
+	public long getValueAtPercentile(double percentile) {
+		if (total == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return Math.min(highestEquivalent(i), max);
+			}
+		}
+		return max;
+	}
+
+	public long getTotalCount() {
+		return total;
+	}
+
+	public long getMax() {
+		return max;
+	}
+
+	public long getMin() {
+		return total == 0 ? 0 : min;
+	}
+
+	public double getMean() {
+		return total == 0 ? 0 : (double) sum / total;
+	}
+
+	static int indexOf(long value) {
+		if (value < 2 * SUB_BUCKETS) {
+			return (int) value;
+		}
+		// The shift that brings the value into [64, 128)
+		int shift = 64 - Long.numberOfLeadingZeros(value) - 7;
+		return 2 * SUB_BUCKETS + (shift - 1) * SUB_BUCKETS + (int) ((value >>> shift) - SUB_BUCKETS);
+	}
+
+	static long highestEquivalent(int index) {
+		if (index < 2 * SUB_BUCKETS) {
+			return index;
+		}
+		int shift = (index - 2 * SUB_BUCKETS) / SUB_BUCKETS + 1;
+		long mantissa = (index - 2 * SUB_BUCKETS) % SUB_BUCKETS + SUB_BUCKETS;
+		return ((mantissa + 1) << shift) - 1;
+	}
+}
@@ -0,0 +1,53 @@
+package com.flickfinder.load;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test for the latency histogram.
+ */
+class LatencyHistogramTest {
+
+	/**
+	 * Tests that small values are exact and large ones are within the stated
+	 * precision
+	 */
+	@Test
+	void testPrecision() {
+		for (long value : new long[] { 0, 1, 127, 128, 1000, 123_456, 10_000_000_000L, Long.MAX_VALUE / 2 }) {
+			int index = LatencyHistogram.indexOf(value);
+			long high = LatencyHistogram.highestEquivalent(index);
+			assertTrue(high >= value);
+			assertTrue(high - value <= value / 64);
+			if (value < 128) {
+				assertEquals(value, high);
+			}
+		}
+	}
+
+	/**
+	 * Tests the percentiles of a uniform spread of values, and adding
+	 * histograms together
+	 */
+	@Test
+	void testPercentiles() {
+		LatencyHistogram first = new LatencyHistogram();
+		LatencyHistogram second = new LatencyHistogram();
+		for (int i = 1; i <= 5000; i++) {
+			first.record(i);
+			second.record(5000 + i);
+		}
+		first.add(second);
+
+		assertEquals(10000, first.getTotalCount());
+		assertEquals(1, first.getMin());
+		assertEquals(10000, first.getMax());
+		assertEquals(5000.5, first.getMean(), 0.001);
+		assertEquals(5000, first.getValueAtPercentile(50), 5000 / 64);
+		assertEquals(9900, first.getValueAtPercentile(99), 9900 / 64);
+		assertEquals(10000, first.getValueAtPercentile(100));
+		assertEquals(0, new LatencyHistogram().getValueAtPercentile(99));
+	}
+}
@@ -0,0 +1,302 @@
+package com.flickfinder.load;
+
+import java.io.File;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import com.flickfinder.AppConfig;
+import com.flickfinder.util.Database;
+import com.flickfinder.util.DatasetGenerator;
+import com.flickfinder.util.SchemaOptimizer;
+import com.flickfinder.util.Settings;
+
+import io.javalin.Javalin;
+
+/**
+ * Load tests the server at a constant arrival rate.
+ *
+ * The server is started with {@link AppConfig#startServer(int)} against a
+ * database file, which is generated by the {@link DatasetGenerator} first if
+ * it does not exist. Requests are then sent on a fixed schedule, one every
+ * 1/rate seconds, spread over a mix of the seven routes.
+ *
+ * The load is open-loop: a slow response does not delay the requests after
+ * it. When every connection is busy, the next request goes out late, but its
+ * latency is still measured from the time it was due to be sent. A test that
+ * waits for each response before sending the next request leaves out the
+ * time requests would have spent queued behind a stall ("coordinated
+ * omission"), which hides exactly the latencies that matter. Both figures are
+ * printed, so the gap between them shows how much a stall was hidden.
+ *
+ * This is not a unit test. Run it with the test classpath, passing the path
+ * of the database file, and set the options as system properties:
+ * <ul>
+ * <li>flickfinder.load.rate: requests per second (default 500)</li>
+ * <li>flickfinder.load.seconds: how long to run (default 30)</li>
+ * <li>flickfinder.load.warmupSeconds: how long to run first without
+ * recording (default 5)</li>
+ * <li>flickfinder.load.connections: requests in flight at once (default
+ * 64)</li>
+ * <li>flickfinder.load.mix: the weight of each route, for example
+ * {@code movies=1,movie=4,stars=2,ratings=1,people=1,person=2,personMovies=2}
+ * (the default)</li>
+ * <li>flickfinder.gen.*: the size of a generated database, see
+ * {@link DatasetGenerator.Options}</li>
+ * </ul>
+ * The server's own settings, such as flickfinder.cache, apply as usual.
+ */
+public class LoadTest {
+
+	/**
+	 * The port the server under test runs on.
+	 */
+	private static final int PORT = Settings.getInt("load.port", 6300);
+
+	/**
+	 * The routes, by the names used in the mix. {id} is filled in with a random
+	 * movie or person id and {year} with a random year.
+	 */
+	private static final String[][] ROUTES = { { "movies", "/movies" }, { "movie", "/movies/{movie}" },
+			{ "stars", "/movies/{movie}/stars" }, { "ratings", "/movies/ratings/{year}" },
+			{ "people", "/people" }, { "person", "/people/{person}" }, { "personMovies", "/people/{person}/movies" } };
+
+	private static final String DEFAULT_MIX = "movies=1,movie=4,stars=2,ratings=1,people=1,person=2,personMovies=2";
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 1) {
+			System.err.println("Usage: LoadTest <database file>");
+			return;
+		}
+		int rate = Settings.getInt("load.rate", 500);
+		int seconds = Settings.getInt("load.seconds", 30);
+		int warmup = Settings.getInt("load.warmupSeconds", 5);
+		int connections = Settings.getInt("load.connections", 64);
+		int[] weights = parseMix(Settings.getString("load.mix", DEFAULT_MIX));
+
+		File file = new File(args[0]);
+		if (!file.isFile()) {
+			DatasetGenerator generator = new DatasetGenerator("jdbc:sqlite:" + file.getPath());
+			try {
+				generator.generate(DatasetGenerator.Options.fromSettings());
+			} finally {
+				generator.closeConnection();
+			}
+		}
+		Database database = Database.getInstance("jdbc:sqlite:" + SchemaOptimizer.optimize(file.getPath()));
+		Targets targets = Targets.of(database);
+
+		Javalin app = AppConfig.startServer(PORT);
+		try {
+			if (warmup > 0) {
+				run(rate, warmup, connections, weights, targets);
+			}
+			Result result = run(rate, seconds, connections, weights, targets);
+			result.print(rate, seconds);
+		} finally {
+			app.stop();
+		}
+	}
+
+	/**
+	 * Parses the weights of the routes, in the order of {@link #ROUTES}.
+	 */
+	static int[] parseMix(String mix) {
+		int[] weights = new int[ROUTES.length];
+		for (String part : mix.split(",")) {
+			String[] pair = part.trim().split("=");
+			int route = routeIndex(pair[0].trim());
+			if (route < 0 || pair.length != 2) {
+				throw new IllegalArgumentException("Invalid mix " + part);
+			}
+			weights[route] = Integer.parseInt(pair[1].trim());
+		}
+		return weights;
+	}
+
+	private static int routeIndex(String name) {
+		for (int i = 0; i < ROUTES.length; i++) {
+			if (ROUTES[i][0].equals(name)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Sends requests on a fixed schedule for a number of seconds.
+	 */
+	private static Result run(int rate, int seconds, int connections, int[] weights, Targets targets)
+			throws InterruptedException {
+		HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+				.connectTimeout(Duration.ofSeconds(5)).build();
+		long interval = 1_000_000_000L / rate;
+		long requests = (long) rate * seconds;
+		long start = System.nanoTime() + 10_000_000L;
+		AtomicLong next = new AtomicLong();
+		int totalWeight = 0;
+		for (int weight : weights) {
+			totalWeight += weight;
+		}
+		int mixTotal = totalWeight;
+
+		List<Worker> workers = new ArrayList<>();
+		for (int w = 0; w < connections; w++) {
+			Worker worker = new Worker(w, () -> {
+				Worker self = (Worker) Thread.currentThread();
+				long slot;
+				while ((slot = next.getAndIncrement()) < requests) {
+					long due = start + slot * interval;
+					long wait;
+					while ((wait = due - System.nanoTime()) > 0) {
+						LockSupport.parkNanos(wait);
+					}
+					int route = pick(self.random, weights, mixTotal);
+					String path = targets.fill(ROUTES[route][1], self.random);
+					HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + PORT + path))
+							.timeout(Duration.ofSeconds(30)).build();
+					long sent = System.nanoTime();
+					try {
+						int status = http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+						if (status >= 500) {
+							self.errors++;
+						}
+					} catch (Exception e) {
+						self.errors++;
+					}
+					long done = System.nanoTime();
+					self.corrected[route].record((done - due) / 1000);
+					self.uncorrected.record((done - sent) / 1000);
+				}
+			});
+			workers.add(worker);
+			worker.start();
+		}
+		for (Worker worker : workers) {
+			worker.join();
+		}
+		long elapsed = System.nanoTime() - start;
+
+		Result result = new Result(elapsed);
+		for (Worker worker : workers) {
+			for (int r = 0; r < ROUTES.length; r++) {
+				result.byRoute[r].add(worker.corrected[r]);
+				result.corrected.add(worker.corrected[r]);
+			}
+			result.uncorrected.add(worker.uncorrected);
+			result.errors += worker.errors;
+		}
+		return result;
+	}
+
+	private static int pick(SplittableRandom random, int[] weights, int total) {
+		int ticket = random.nextInt(total);
+		for (int i = 0; i < weights.length; i++) {
+			ticket -= weights[i];
+			if (ticket < 0) {
+				return i;
+			}
+		}
+		return weights.length - 1;
+	}
+
+	/**
+	 * A thread that sends requests, with its own histograms and random ids.
+	 */
+	private static class Worker extends Thread {
+		final SplittableRandom random;
+		final LatencyHistogram[] corrected = new LatencyHistogram[ROUTES.length];
+		final LatencyHistogram uncorrected = new LatencyHistogram();
+		long errors;
+
+		Worker(int number, Runnable body) {
+			super(body, "load-" + number);
+			random = new SplittableRandom(number);
+			for (int r = 0; r < ROUTES.length; r++) {
+				corrected[r] = new LatencyHistogram();
+			}
+			setDaemon(true);
+		}
+	}
+
+	/**
+	 * The ranges of ids and years the requests are made for.
+	 */
+	private static class Targets {
+		int maxMovie;
+		int maxPerson;
+		int firstYear;
+		int lastYear;
+
+		static Targets of(Database database) throws SQLException {
+			Targets targets = new Targets();
+			try (Connection connection = database.getConnection();
+					Statement stmt = connection.createStatement();
+					ResultSet rs = stmt.executeQuery("SELECT (SELECT MAX(id) FROM movies), (SELECT MAX(id) FROM people), "
+							+ "(SELECT MIN(year) FROM movies), (SELECT MAX(year) FROM movies)")) {
+				rs.next();
+				targets.maxMovie = Math.max(1, rs.getInt(1));
+				targets.maxPerson = Math.max(1, rs.getInt(2));
+				targets.firstYear = rs.getInt(3);
+				targets.lastYear = Math.max(targets.firstYear, rs.getInt(4));
+			}
+			return targets;
+		}
+
+		String fill(String route, SplittableRandom random) {
+			return route.replace("{movie}", String.valueOf(1 + random.nextInt(maxMovie)))
+					.replace("{person}", String.valueOf(1 + random.nextInt(maxPerson)))
+					.replace("{year}", String.valueOf(random.nextInt(firstYear, lastYear + 1)));
+		}
+	}
+
+	/**
+	 * The histograms of one run.
+	 */
+	private static class Result {
+		final long elapsedNanos;
+		final LatencyHistogram[] byRoute = new LatencyHistogram[ROUTES.length];
+		final LatencyHistogram corrected = new LatencyHistogram();
+		final LatencyHistogram uncorrected = new LatencyHistogram();
+		long errors;
+
+		Result(long elapsedNanos) {
+			this.elapsedNanos = elapsedNanos;
+			for (int r = 0; r < ROUTES.length; r++) {
+				byRoute[r] = new LatencyHistogram();
+			}
+		}
+
+		void print(int rate, int seconds) {
+			System.out.printf("target %d req/s for %d s, achieved %.0f req/s, %d requests, %d errors%n", rate,
+					seconds, corrected.getTotalCount() / (elapsedNanos / 1e9), corrected.getTotalCount(), errors);
+			System.out.printf("%-14s %8s %9s %9s %9s %9s %9s%n", "latency (ms)", "count", "p50", "p90", "p99",
+					"p99.9", "max");
+			for (int r = 0; r < ROUTES.length; r++) {
+				if (byRoute[r].getTotalCount() > 0) {
+					printRow(ROUTES[r][0], byRoute[r]);
+				}
+			}
+			printRow("all", corrected);
+			printRow("uncorrected", uncorrected);
+		}
+
+		private static void printRow(String name, LatencyHistogram histogram) {
+			System.out.printf("%-14s %8d %9.2f %9.2f %9.2f %9.2f %9.2f%n", name, histogram.getTotalCount(),
+					histogram.getValueAtPercentile(50) / 1000.0, histogram.getValueAtPercentile(90) / 1000.0,
+					histogram.getValueAtPercentile(99) / 1000.0, histogram.getValueAtPercentile(99.9) / 1000.0,
+					histogram.getMax() / 1000.0);
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package com.flickfinder.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test for the connection pool. A pool cannot share an in-memory database
+ * between connections, so these tests seed a temporary database file.
+ */
+class ConnectionPoolTest {
+
+	/**
+	 * The temporary database file.
+	 */
+	private File file;
+
+	/**
+	 * The pool under test.
+	 */
+	private ConnectionPool pool;
+
+	@BeforeEach
+	void setUp() throws IOException, SQLException {
+		file = File.createTempFile("flickfinder", ".db");
+		Seeder seeder = new Seeder("jdbc:sqlite:" + file.getAbsolutePath());
+		seeder.closeConnection();
+		pool = new ConnectionPool("jdbc:sqlite:" + file.getAbsolutePath(), 2, 100);
+	}
+
+	/**
+	 * Tests that a borrowed connection can read from the database.
+	 */
+	@Test
+	void testBorrowedConnectionReads() throws SQLException {
+		try (Connection connection = pool.borrow();
+				Statement stmt = connection.createStatement();
+				ResultSet rs = stmt.executeQuery("select count(*) from movies")) {
+			assertTrue(rs.next());
+			assertEquals(5, rs.getInt(1));
+		}
+		assertEquals(2, pool.getIdleCount());
+		assertEquals(1, pool.getAcquireCount());
+	}
+
+	/**
+	 * Tests that the pooled connections cannot change the database.
+	 */
+	@Test
+	void testConnectionsAreReadOnly() throws SQLException {
+		try (Connection connection = pool.borrow(); Statement stmt = connection.createStatement()) {
+			assertThrows(SQLException.class, () -> {
+				stmt.execute("DELETE FROM movies");
+			});
+		}
+	}
+
+	/**
+	 * Tests that a caller times out when every connection is borrowed, and
+	 * that closing a connection returns it to the pool.
+	 */
+	@Test
+	void testTimesOutWhenExhausted() throws SQLException {
+		Connection first = pool.borrow();
+		Connection second = pool.borrow();
+		assertEquals(0, pool.getIdleCount());
+
+		assertThrows(SQLException.class, () -> {
+			pool.borrow();
+		});
+		assertEquals(1, pool.getTimeoutCount());
+
+		first.close();
+		first.close();
+		assertEquals(1, pool.getIdleCount());
+		assertTrue(first.isClosed());
+		assertThrows(SQLException.class, () -> {
+			first.createStatement();
+		});
+
+		pool.borrow().close();
+		second.close();
+		assertEquals(2, pool.getIdleCount());
+	}
+
+	@AfterEach
+	void tearDown() {
+		pool.close();
+		file.delete();
+	}
+}
@@ -0,0 +1,49 @@
+package com.flickfinder.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test for the database content version.
+ */
+class ContentVersionTest {
+
+	/**
+	 * A file standing in for the database.
+	 */
+	private File file;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		file = File.createTempFile("movies", ".db");
+	}
+
+	/**
+	 * Tests that the checksum only changes when the contents of the file do.
+	 */
+	@Test
+	void testChecksum() throws IOException {
+		Files.write(file.toPath(), new byte[] { 1, 2, 3 });
+		String version = ContentVersion.checksum(file);
+		assertEquals(version, ContentVersion.checksum(file));
+
+		file.setLastModified(file.lastModified() + 10000);
+		assertEquals(version, ContentVersion.checksum(file));
+
+		Files.write(file.toPath(), new byte[] { 1, 2, 4 });
+		assertNotEquals(version, ContentVersion.checksum(file));
+	}
+
+	@AfterEach
+	void tearDown() {
+		file.delete();
+	}
+}
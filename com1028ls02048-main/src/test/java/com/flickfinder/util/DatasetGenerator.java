@@ -0,0 +1,393 @@
+package com.flickfinder.util;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Fills a database with a large synthetic dataset, for benchmarks and load
+ * tests. The tables are the ones the {@link Seeder} creates; its handful of
+ * rows are replaced with generated ones.
+ *
+ * The data is shaped like the real database rather than spread evenly:
+ * <ul>
+ * <li>The number of movies each person stars in follows a Zipf distribution,
+ * so a few people are in thousands of movies and most are in one or two. The
+ * same goes for directors.</li>
+ * <li>Cast sizes vary from one to {@link Options#maxStars}.</li>
+ * <li>Ratings cluster around the middle of the scale, and votes have a long
+ * tail, with a few movies on millions of votes.</li>
+ * <li>Later years have more movies than earlier ones.</li>
+ * </ul>
+ *
+ * Everything comes from {@link Options#seed}, so the same options always give
+ * the same database. The rows are written with batched inserts in a single
+ * transaction, with the journal and syncing turned off, as a half-written
+ * file is simply generated again.
+ *
+ * To write a file from the command line, pass its path and set any of the
+ * options as system properties, for example
+ * {@code -Dflickfinder.gen.people=2000000}.
+ */
+public class DatasetGenerator extends Seeder {
+
+	/**
+	 * How many rows are sent to SQLite in one batch.
+	 */
+	private static final int BATCH_SIZE = 10_000;
+
+	private static final String[] SYLLABLES = { "an", "bel", "cor", "da", "el", "fan", "gor", "ha", "is", "jo",
+			"ka", "lin", "mo", "nor", "os", "pe", "qui", "ra", "sen", "ta", "ul", "ver", "wen", "xa", "yo", "zed" };
+
+	/**
+	 * The sizes and shapes of the generated data.
+	 */
+	public static class Options {
+		public int movies = 500_000;
+		public int people = 1_000_000;
+
+		/**
+		 * The largest number of stars in one movie. Cast sizes are spread from
+		 * one up to this, with small casts the most common.
+		 */
+		public int maxStars = 8;
+
+		/**
+		 * The exponent of the Zipf distribution of movies per person. Higher
+		 * values put more of the movies on the most popular people.
+		 */
+		public double zipfExponent = 0.6;
+
+		/**
+		 * The share of movies that have a rating.
+		 */
+		public double ratedShare = 0.75;
+
+		/**
+		 * The exponent of the Pareto distribution of votes. Lower values give a
+		 * longer tail.
+		 */
+		public double votesExponent = 0.7;
+
+		public int firstYear = 1920;
+		public int lastYear = 2023;
+
+		/**
+		 * How strongly the years lean towards {@link #lastYear}. The number of
+		 * movies in a year grows with the years since {@link #firstYear} to this
+		 * power, so at 0 every year is as likely as any other.
+		 */
+		public double yearSkew = 2.0;
+
+		public long seed = 42;
+
+		/**
+		 * Reads the options from system properties, such as
+		 * {@code flickfinder.gen.movies}, keeping the default of any that are not
+		 * set.
+		 *
+		 * @return the options
+		 */
+		public static Options fromSettings() {
+			Options options = new Options();
+			options.movies = Settings.getInt("gen.movies", options.movies);
+			options.people = Settings.getInt("gen.people", options.people);
+			options.maxStars = Settings.getInt("gen.maxStars", options.maxStars);
+			options.zipfExponent = getDouble("gen.zipfExponent", options.zipfExponent);
+			options.ratedShare = getDouble("gen.ratedShare", options.ratedShare);
+			options.votesExponent = getDouble("gen.votesExponent", options.votesExponent);
+			options.firstYear = Settings.getInt("gen.firstYear", options.firstYear);
+			options.lastYear = Settings.getInt("gen.lastYear", options.lastYear);
+			options.yearSkew = getDouble("gen.yearSkew", options.yearSkew);
+			options.seed = Settings.getLong("gen.seed", options.seed);
+			return options;
+		}
+
+		/**
+		 * Checks that the options can be generated from. Every movie needs a
+		 * cast of different people, so there must be at least as many people
+		 * as the largest cast.
+		 *
+		 * @throws IllegalArgumentException if an option is out of range
+		 */
+		public void validate() {
+			if (maxStars < 1) {
+				throw new IllegalArgumentException("maxStars must be at least 1, not " + maxStars);
+			}
+			if (people < maxStars) {
+				throw new IllegalArgumentException("people must be at least maxStars (" + maxStars + "), not " + people);
+			}
+			if (movies < 0) {
+				throw new IllegalArgumentException("movies must not be negative, not " + movies);
+			}
+			if (firstYear > lastYear) {
+				throw new IllegalArgumentException("firstYear " + firstYear + " is after lastYear " + lastYear);
+			}
+			if (!(ratedShare >= 0 && ratedShare <= 1)) {
+				throw new IllegalArgumentException("ratedShare must be from 0 to 1, not " + ratedShare);
+			}
+			if (!(zipfExponent > 0 && zipfExponent < Double.POSITIVE_INFINITY)) {
+				throw new IllegalArgumentException("zipfExponent must be a positive number, not " + zipfExponent);
+			}
+			if (!(votesExponent > 0 && votesExponent < Double.POSITIVE_INFINITY)) {
+				throw new IllegalArgumentException("votesExponent must be a positive number, not " + votesExponent);
+			}
+		}
+
+		private static double getDouble(String name, double defaultValue) {
+			String value = Settings.getString(name, null);
+			if (value == null) {
+				return defaultValue;
+			}
+			try {
+				return Double.parseDouble(value.trim());
+			} catch (NumberFormatException e) {
+				return defaultValue;
+			}
+		}
+	}
+
+	/**
+	 * Creates the tables in the database at the given url.
+	 *
+	 * @param url the JDBC url of the database
+	 */
+	public DatasetGenerator(String url) {
+		super(url);
+	}
+
+	/**
+	 * Replaces the rows of every table with generated ones.
+	 *
+	 * @param options the sizes and shapes of the data
+	 * @throws SQLException             if the rows cannot be written
+	 * @throws IllegalArgumentException if an option is out of range
+	 */
+	public void generate(Options options) throws SQLException {
+		options.validate();
+		Connection conn = getConnection();
+		SplittableRandom random = new SplittableRandom(options.seed);
+		try (Statement stmt = conn.createStatement()) {
+			stmt.execute("PRAGMA journal_mode = OFF");
+			stmt.execute("PRAGMA synchronous = OFF");
+			for (String table : new String[] { "stars", "directors", "ratings", "people", "movies" }) {
+				stmt.execute("DELETE FROM " + table);
+			}
+		}
+
+		boolean autoCommit = conn.getAutoCommit();
+		conn.setAutoCommit(false);
+		try {
+			writePeople(conn, options, random);
+			writeMovies(conn, options, random);
+			writeCredits(conn, options, random);
+			conn.commit();
+		} catch (SQLException e) {
+			conn.rollback();
+			throw e;
+		} finally {
+			conn.setAutoCommit(autoCommit);
+		}
+	}
+
+	private static void writePeople(Connection conn, Options options, SplittableRandom random) throws SQLException {
+		try (PreparedStatement ps = conn.prepareStatement("INSERT INTO people (id, name, birth) VALUES (?, ?, ?)")) {
+			StringBuilder name = new StringBuilder();
+			for (int id = 1; id <= options.people; id++) {
+				name.setLength(0);
+				appendWords(name, random, 2);
+				ps.setInt(1, id);
+				ps.setString(2, name.toString());
+				ps.setInt(3, options.firstYear - 30 + random.nextInt(options.lastYear - options.firstYear + 1));
+				ps.addBatch();
+				if (id % BATCH_SIZE == 0) {
+					ps.executeBatch();
+				}
+			}
+			ps.executeBatch();
+		}
+	}
+
+	private static void writeMovies(Connection conn, Options options, SplittableRandom random) throws SQLException {
+		int span = options.lastYear - options.firstYear + 1;
+		try (PreparedStatement movies = conn.prepareStatement("INSERT INTO movies (id, title, year) VALUES (?, ?, ?)");
+				PreparedStatement ratings = conn
+						.prepareStatement("INSERT INTO ratings (movie_id, rating, votes) VALUES (?, ?, ?)")) {
+			StringBuilder title = new StringBuilder();
+			for (int id = 1; id <= options.movies; id++) {
+				title.setLength(0);
+				appendWords(title, random, 1 + random.nextInt(4));
+				movies.setInt(1, id);
+				movies.setString(2, title.toString());
+				int offset = (int) (span * Math.pow(random.nextDouble(), 1 / (options.yearSkew + 1)));
+				movies.setInt(3, options.firstYear + Math.min(offset, span - 1));
+				movies.addBatch();
+
+				if (random.nextDouble() < options.ratedShare) {
+					// The few ratings that fall outside one to ten are clamped to it
+					double rating = 6.5 + 1.2 * gaussian(random);
+					ratings.setInt(1, id);
+					ratings.setDouble(2, Math.round(Math.max(1, Math.min(10, rating)) * 10) / 10.0);
+					double votes = 5 / Math.pow(1 - random.nextDouble(), 1 / options.votesExponent);
+					ratings.setInt(3, (int) Math.min(votes, 3_000_000));
+					ratings.addBatch();
+				}
+				if (id % BATCH_SIZE == 0) {
+					movies.executeBatch();
+					ratings.executeBatch();
+				}
+			}
+			movies.executeBatch();
+			ratings.executeBatch();
+		}
+	}
+
+	/**
+	 * Writes the stars and directors of every movie. People are picked by a
+	 * Zipf distribution over a shuffled order of ids, so the busiest people are
+	 * spread over the id range rather than all at the start.
+	 */
+	private static void writeCredits(Connection conn, Options options, SplittableRandom random)
+			throws SQLException {
+		Zipf zipf = new Zipf(options.people, options.zipfExponent);
+		int[] byRank = shuffledIds(options.people, random);
+		try (PreparedStatement stars = conn.prepareStatement("INSERT INTO stars (movie_id, person_id) VALUES (?, ?)");
+				PreparedStatement directors = conn
+						.prepareStatement("INSERT INTO directors (movie_id, person_id) VALUES (?, ?)")) {
+			int[] cast = new int[options.maxStars];
+			for (int movie = 1; movie <= options.movies; movie++) {
+				// Cast sizes fall off geometrically, so small casts are the most common
+				int size = 1;
+				while (size < options.maxStars && random.nextDouble() < 0.75) {
+					size++;
+				}
+				for (int i = 0; i < size; i++) {
+					int person;
+					do {
+						person = byRank[zipf.sample(random)];
+					} while (contains(cast, i, person));
+					cast[i] = person;
+					stars.setInt(1, movie);
+					stars.setInt(2, person);
+					stars.addBatch();
+				}
+				directors.setInt(1, movie);
+				directors.setInt(2, byRank[zipf.sample(random)]);
+				directors.addBatch();
+				if (movie % BATCH_SIZE == 0) {
+					stars.executeBatch();
+					directors.executeBatch();
+				}
+			}
+			stars.executeBatch();
+			directors.executeBatch();
+		}
+	}
+
+	private static boolean contains(int[] values, int count, int value) {
+		for (int i = 0; i < count; i++) {
+			if (values[i] == value) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static int[] shuffledIds(int count, SplittableRandom random) {
+		int[] ids = new int[count];
+		for (int i = 0; i < count; i++) {
+			ids[i] = i + 1;
+		}
+		for (int i = count - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int swap = ids[i];
+			ids[i] = ids[j];
+			ids[j] = swap;
+		}
+		return ids;
+	}
+
+	private static void appendWords(StringBuilder text, SplittableRandom random, int words) {
+		for (int w = 0; w < words; w++) {
+			if (w > 0) {
+				text.append(' ');
+			}
+			int syllables = 1 + random.nextInt(3);
+			for (int s = 0; s < syllables; s++) {
+				String syllable = SYLLABLES[random.nextInt(SYLLABLES.length)];
+				if (s == 0) {
+					text.append(Character.toUpperCase(syllable.charAt(0))).append(syllable, 1, syllable.length());
+				} else {
+					text.append(syllable);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns a standard normal value, by the Box-Muller transform.
+	 */
+	private static double gaussian(SplittableRandom random) {
+		double u = 1 - random.nextDouble();
+		double v = random.nextDouble();
+		return Math.sqrt(-2 * Math.log(u)) * Math.cos(2 * Math.PI * v);
+	}
+
+	/**
+	 * Samples ranks from 0 to n - 1, where rank k is picked with a chance in
+	 * proportion to 1 / (k + 1)^s. The cumulative chances are worked out once
+	 * and each sample is a binary search.
+	 */
+	static class Zipf {
+
+		private final double[] cumulative;
+
+		Zipf(int n, double exponent) {
+			cumulative = new double[n];
+			double sum = 0;
+			for (int k = 0; k < n; k++) {
+				sum += 1 / Math.pow(k + 1, exponent);
+				cumulative[k] = sum;
+			}
+			for (int k = 0; k < n; k++) {
+				cumulative[k] /= sum;
+			}
+		}
+
+		int sample(SplittableRandom random) {
+			int index = Arrays.binarySearch(cumulative, random.nextDouble());
+			int rank = index >= 0 ? index : -index - 1;
+			return Math.min(rank, cumulative.length - 1);
+		}
+	}
+
+	/**
+	 * Writes a generated database to the file given as the first argument,
+	 * replacing it if it exists.
+	 *
+	 * @param args the path of the file
+	 * @throws SQLException if the rows cannot be written
+	 */
+	public static void main(String[] args) throws SQLException {
+		if (args.length < 1) {
+			System.err.println("Usage: DatasetGenerator <database file>");
+			return;
+		}
+		File file = new File(args[0]);
+		file.delete();
+		Options options = Options.fromSettings();
+		long start = System.nanoTime();
+		DatasetGenerator generator = new DatasetGenerator("jdbc:sqlite:" + file.getPath());
+		try {
+			generator.generate(options);
+		} finally {
+			generator.closeConnection();
+		}
+		System.out.printf("Wrote %d movies and %d people to %s in %d ms%n", options.movies, options.people, file,
+				(System.nanoTime() - start) / 1_000_000);
+	}
+}
@@ -0,0 +1,135 @@
+package com.flickfinder.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test for the synthetic dataset generator, with a small dataset in an
+ * in-memory database.
+ */
+class DatasetGeneratorTest {
+
+	private DatasetGenerator generator;
+
+	private DatasetGenerator.Options options;
+
+	@BeforeEach
+	void setUp() throws SQLException {
+		options = new DatasetGenerator.Options();
+		options.movies = 5000;
+		options.people = 10000;
+		generator = new DatasetGenerator("jdbc:sqlite::memory:");
+		generator.generate(options);
+	}
+
+	/**
+	 * Tests that every table is filled, and that the Seeder's rows are gone
+	 */
+	@Test
+	void testRowCounts() throws SQLException {
+		assertEquals(5000, count(generator, "SELECT COUNT(*) FROM movies"));
+		assertEquals(10000, count(generator, "SELECT COUNT(*) FROM people"));
+		assertEquals(5000, count(generator, "SELECT COUNT(*) FROM directors"));
+		assertTrue(count(generator, "SELECT COUNT(*) FROM stars") >= 5000);
+		long rated = count(generator, "SELECT COUNT(*) FROM ratings");
+		assertTrue(rated > 3500 && rated < 4000);
+		assertEquals(0, count(generator, "SELECT COUNT(*) FROM people WHERE name = 'Tim Robbins'"));
+	}
+
+	/**
+	 * Tests that the same seed gives the same data
+	 */
+	@Test
+	void testDeterministic() throws SQLException {
+		DatasetGenerator other = new DatasetGenerator("jdbc:sqlite::memory:");
+		try {
+			other.generate(options);
+			for (String sql : new String[] { "SELECT SUM(LENGTH(title) * id + year) FROM movies",
+					"SELECT SUM(movie_id * 31 + person_id) FROM stars", "SELECT SUM(votes) FROM ratings" }) {
+				assertEquals(count(generator, sql), count(other, sql));
+			}
+		} finally {
+			other.closeConnection();
+		}
+	}
+
+	/**
+	 * Tests the shape of the data: a few people star in many movies, no movie
+	 * lists the same star twice, and there are more movies in later years
+	 */
+	@Test
+	void testDistributions() throws SQLException {
+		long busiest = count(generator,
+				"SELECT MAX(n) FROM (SELECT COUNT(*) AS n FROM stars GROUP BY person_id)");
+		long stars = count(generator, "SELECT COUNT(*) FROM stars");
+		long credited = count(generator, "SELECT COUNT(DISTINCT person_id) FROM stars");
+		assertTrue(busiest > 10 * stars / credited);
+
+		assertEquals(stars, count(generator, "SELECT COUNT(*) FROM (SELECT DISTINCT movie_id, person_id FROM stars)"));
+
+		long early = count(generator, "SELECT COUNT(*) FROM movies WHERE year < 1960");
+		long late = count(generator, "SELECT COUNT(*) FROM movies WHERE year >= 1984");
+		assertTrue(late > 3 * early);
+		assertEquals(0, count(generator, "SELECT COUNT(*) FROM movies WHERE year < 1920 OR year > 2023"));
+		assertEquals(0, count(generator, "SELECT COUNT(*) FROM ratings WHERE rating < 1 OR rating > 10"));
+	}
+
+	private static long count(Seeder seeder, String sql) throws SQLException {
+		try (Statement stmt = seeder.getConnection().createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+			rs.next();
+			return rs.getLong(1);
+		}
+	}
+
+	/**
+	 * Tests that options that cannot be generated from are turned away before
+	 * any rows are touched
+	 */
+	@Test
+	void testInvalidOptions() throws SQLException {
+		options.people = options.maxStars - 1;
+		assertThrows(IllegalArgumentException.class, () -> generator.generate(options));
+		options = new DatasetGenerator.Options();
+		options.people = 0;
+		options.maxStars = 0;
+		assertThrows(IllegalArgumentException.class, () -> generator.generate(options));
+		options = new DatasetGenerator.Options();
+		options.movies = -1;
+		assertThrows(IllegalArgumentException.class, () -> generator.generate(options));
+		options = new DatasetGenerator.Options();
+		options.firstYear = 2000;
+		options.lastYear = 1999;
+		assertThrows(IllegalArgumentException.class, () -> generator.generate(options));
+		options = new DatasetGenerator.Options();
+		options.ratedShare = 1.5;
+		assertThrows(IllegalArgumentException.class, () -> generator.generate(options));
+		options.ratedShare = Double.NaN;
+		assertThrows(IllegalArgumentException.class, () -> generator.generate(options));
+		options = new DatasetGenerator.Options();
+		options.zipfExponent = 0;
+		assertThrows(IllegalArgumentException.class, () -> generator.generate(options));
+		options.zipfExponent = Double.POSITIVE_INFINITY;
+		assertThrows(IllegalArgumentException.class, () -> generator.generate(options));
+		options = new DatasetGenerator.Options();
+		options.votesExponent = -0.7;
+		assertThrows(IllegalArgumentException.class, () -> generator.generate(options));
+		options.votesExponent = Double.NaN;
+		assertThrows(IllegalArgumentException.class, () -> generator.generate(options));
+
+		assertEquals(5000, count(generator, "SELECT COUNT(*) FROM movies"));
+	}
+
+	@AfterEach
+	void tearDown() {
+		generator.closeConnection();
+	}
+}
@@ -0,0 +1,35 @@
+package com.flickfinder.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test for reading the ids sent to the batch endpoints.
+ */
+class IdListTest {
+
+	/**
+	 * Tests a JSON array and a comma separated list.
+	 */
+	@Test
+	void testParse() {
+		assertArrayEquals(new int[] { 3, 1, 2 }, IdList.parse("[3, 1, 2]"));
+		assertArrayEquals(new int[] { 3, 1, 3 }, IdList.parse("3,1,3"));
+		assertArrayEquals(new int[] { 7 }, IdList.parse(" [ 7 ] "));
+	}
+
+	/**
+	 * Tests that missing, empty, invalid and overly long lists are rejected.
+	 */
+	@Test
+	void testParseInvalid() {
+		assertThrows(IllegalArgumentException.class, () -> IdList.parse(null));
+		assertThrows(IllegalArgumentException.class, () -> IdList.parse("[]"));
+		assertThrows(IllegalArgumentException.class, () -> IdList.parse("1,two"));
+		assertThrows(IllegalArgumentException.class, () -> IdList.parse("1,,2"));
+		String tooMany = "1" + ",1".repeat(IdList.MAX_IDS);
+		assertThrows(IllegalArgumentException.class, () -> IdList.parse(tooMany));
+	}
+}
@@ -0,0 +1,89 @@
+package com.flickfinder.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test for the metrics and their Prometheus text format.
+ */
+class MetricsTest {
+
+	private Metrics metrics;
+
+	@BeforeEach
+	void setUp() {
+		metrics = new Metrics();
+	}
+
+	/**
+	 * Tests that a counter is found again by its name and labels.
+	 */
+	@Test
+	void testCounter() {
+		Metrics.Counter counter = metrics.counter("requests_total", "Requests", "route", "/movies");
+		counter.increment();
+		counter.add(2);
+		assertSame(counter, metrics.counter("requests_total", "Requests", "route", "/movies"));
+		metrics.counter("requests_total", "Requests", "route", "/people").increment();
+
+		String text = metrics.scrape();
+		assertTrue(text.contains("# TYPE requests_total counter\n"));
+		assertTrue(text.contains("requests_total{route=\"/movies\"} 3\n"));
+		assertTrue(text.contains("requests_total{route=\"/people\"} 1\n"));
+	}
+
+	/**
+	 * Tests that the buckets are cumulative and the count is the +Inf bucket.
+	 */
+	@Test
+	void testHistogram() {
+		Metrics.Histogram histogram = metrics.histogram("duration_seconds", "Durations");
+		histogram.observeNanos(50_000);
+		histogram.observeNanos(2_000_000);
+		histogram.observeNanos(60_000_000_000L);
+		assertEquals(3, histogram.getCount());
+
+		String text = metrics.scrape();
+		assertTrue(text.contains("duration_seconds_bucket{le=\"0.0001\"} 1\n"));
+		assertTrue(text.contains("duration_seconds_bucket{le=\"0.0025\"} 2\n"));
+		assertTrue(text.contains("duration_seconds_bucket{le=\"10\"} 2\n"));
+		assertTrue(text.contains("duration_seconds_bucket{le=\"+Inf\"} 3\n"));
+		assertTrue(text.contains("duration_seconds_count 3\n"));
+		assertTrue(text.contains("duration_seconds_sum 60.002"));
+	}
+
+	/**
+	 * Tests that gauges are read when the metrics are exported.
+	 */
+	@Test
+	void testGauge() {
+		int[] value = { 1 };
+		metrics.gauge("connections", "Connections", () -> value[0], "state", "idle");
+		assertTrue(metrics.scrape().contains("connections{state=\"idle\"} 1\n"));
+		value[0] = 4;
+		assertTrue(metrics.scrape().contains("connections{state=\"idle\"} 4\n"));
+	}
+
+	/**
+	 * Tests that quotes, backslashes and new lines in label values are escaped.
+	 */
+	@Test
+	void testLabelsEscaped() {
+		assertEquals("q=\"a\\\"b\\\\c\\nd\"", Metrics.labelsOf("q", "a\"b\\c\nd"));
+		assertThrows(IllegalArgumentException.class, () -> Metrics.labelsOf("q"));
+	}
+
+	/**
+	 * Tests that a name cannot be used for two types of metric.
+	 */
+	@Test
+	void testTypeConflict() {
+		metrics.counter("things", "Things");
+		assertThrows(IllegalArgumentException.class, () -> metrics.histogram("things", "Things"));
+	}
+}
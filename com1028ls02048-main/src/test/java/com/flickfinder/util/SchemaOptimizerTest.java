@@ -0,0 +1,136 @@
+package com.flickfinder.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.flickfinder.dao.PersonDAO;
+
+/**
+ * Test for the schema optimizer. This uses an in-memory database, which starts
+ * without any indexes, just like the real database.
+ */
+class SchemaOptimizerTest {
+
+	/**
+	 * The seeder.
+	 */
+	private Seeder seeder;
+
+	@BeforeEach
+	void setUp() {
+		seeder = new Seeder("jdbc:sqlite::memory:");
+	}
+
+	/**
+	 * Tests that every index is reported missing on the seeded database, and
+	 * none are missing once they have been built.
+	 */
+	@Test
+	void testCreatesMissingIndexes() throws SQLException {
+		Connection connection = seeder.getConnection();
+		assertEquals(SchemaOptimizer.INDEXES.size(), SchemaOptimizer.missingIndexes(connection).size());
+
+		List<String> built = SchemaOptimizer.createIndexes(connection);
+		assertEquals(SchemaOptimizer.INDEXES.size(), built.size());
+		assertTrue(SchemaOptimizer.missingIndexes(connection).isEmpty());
+		assertTrue(SchemaOptimizer.createIndexes(connection).isEmpty());
+	}
+
+	/**
+	 * Tests that the search tables are built once and then found.
+	 */
+	@Test
+	void testCreatesSearchTables() throws SQLException {
+		Connection connection = seeder.getConnection();
+		assertEquals(SchemaOptimizer.SEARCH_TABLES.size(), SchemaOptimizer.missingSearchTables(connection).size());
+
+		assertEquals(SchemaOptimizer.SEARCH_TABLES.size(), SchemaOptimizer.createSearchTables(connection).size());
+		assertTrue(SchemaOptimizer.missingSearchTables(connection).isEmpty());
+		assertTrue(SchemaOptimizer.createSearchTables(connection).isEmpty());
+	}
+
+	/**
+	 * Tests that the star join uses an index once the indexes are built.
+	 */
+	@Test
+	void testQueryPlanUsesIndex() throws SQLException {
+		Connection connection = seeder.getConnection();
+		String before = SchemaOptimizer.explain(connection, PersonDAO.SELECT_MOVIES_STARRING_PERSON);
+		assertFalse(before.contains("idx_stars_person_movie"));
+
+		SchemaOptimizer.createIndexes(connection);
+		String after = SchemaOptimizer.explain(connection, PersonDAO.SELECT_MOVIES_STARRING_PERSON);
+		assertTrue(after.contains("idx_stars_person_movie"), after);
+	}
+
+	/**
+	 * Tests that optimizing a database file builds an indexed sidecar copy and
+	 * leaves the original untouched.
+	 */
+	@Test
+	void testBuildsSidecarDatabase() throws IOException, SQLException {
+		File original = File.createTempFile("flickfinder", ".db");
+		File sidecar = SchemaOptimizer.sidecarFor(original);
+		try {
+			new Seeder("jdbc:sqlite:" + original.getAbsolutePath()).closeConnection();
+
+			String path = SchemaOptimizer.optimize(original.getPath());
+			assertEquals(sidecar.getPath(), path);
+
+			try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + original.getPath())) {
+				assertEquals(SchemaOptimizer.INDEXES.size(), SchemaOptimizer.missingIndexes(connection).size());
+			}
+			try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + path)) {
+				assertTrue(SchemaOptimizer.missingIndexes(connection).isEmpty());
+				assertTrue(SchemaOptimizer.missingSearchTables(connection).isEmpty());
+			}
+		} finally {
+			original.delete();
+			sidecar.delete();
+		}
+	}
+
+	/**
+	 * Tests that a sidecar with the indexes but without the search tables, as
+	 * built before search was added, is rebuilt rather than used as it is.
+	 */
+	@Test
+	void testRebuildsSidecarWithoutSearchTables() throws IOException, SQLException {
+		File original = File.createTempFile("flickfinder", ".db");
+		File sidecar = SchemaOptimizer.sidecarFor(original);
+		try {
+			new Seeder("jdbc:sqlite:" + original.getAbsolutePath()).closeConnection();
+			Seeder indexOnly = new Seeder("jdbc:sqlite:" + sidecar.getAbsolutePath());
+			SchemaOptimizer.createIndexes(indexOnly.getConnection());
+			indexOnly.closeConnection();
+			sidecar.setLastModified(original.lastModified() + 1000);
+
+			String path = SchemaOptimizer.optimize(original.getPath());
+			assertEquals(sidecar.getPath(), path);
+			try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + path)) {
+				assertTrue(SchemaOptimizer.missingIndexes(connection).isEmpty());
+				assertTrue(SchemaOptimizer.missingSearchTables(connection).isEmpty());
+			}
+		} finally {
+			original.delete();
+			sidecar.delete();
+		}
+	}
+
+	@AfterEach
+	void tearDown() {
+		seeder.closeConnection();
+	}
+}
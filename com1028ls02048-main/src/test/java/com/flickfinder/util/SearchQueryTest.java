@@ -0,0 +1,48 @@
+package com.flickfinder.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test for building FTS5 match expressions from search text.
+ */
+class SearchQueryTest {
+
+	/**
+	 * Tests that each word becomes a quoted prefix search.
+	 */
+	@Test
+	void testToMatch() {
+		assertEquals("\"god\"*", SearchQuery.toMatch("god"));
+		assertEquals("\"god\"* \"par\"*", SearchQuery.toMatch("  god  par "));
+		assertEquals("\"Am\u00e9lie\"*", SearchQuery.toMatch("Am\u00e9lie"));
+	}
+
+	/**
+	 * Tests that a single letter is only matched as a whole word.
+	 */
+	@Test
+	void testSingleLetterIsNotAPrefix() {
+		assertEquals("\"a\" \"bug\"*", SearchQuery.toMatch("a bug"));
+	}
+
+	/**
+	 * Tests that quotes and FTS5 operators are treated as plain text.
+	 */
+	@Test
+	void testToMatchEscapesOperators() {
+		assertEquals("\"ab\"* \"OR\"* \"cd\"*", SearchQuery.toMatch("ab OR cd"));
+		assertEquals("\"xy\"* \"z\"", SearchQuery.toMatch("\"xy\" -z*"));
+	}
+
+	/**
+	 * Tests that a search with no words is rejected.
+	 */
+	@Test
+	void testToMatchInvalid() {
+		assertThrows(IllegalArgumentException.class, () -> SearchQuery.toMatch(null));
+		assertThrows(IllegalArgumentException.class, () -> SearchQuery.toMatch("  \"*: "));
+	}
+}
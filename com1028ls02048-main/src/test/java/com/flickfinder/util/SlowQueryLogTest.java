@@ -0,0 +1,178 @@
+package com.flickfinder.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test for the slow query log. This uses an in-memory database for testing
+ * purposes.
+ */
+class SlowQueryLogTest {
+
+	/**
+	 * The seeder.
+	 */
+	private Seeder seeder;
+
+	/**
+	 * A directory for the log files, deleted after each test.
+	 */
+	private File directory;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		seeder = new Seeder("jdbc:sqlite::memory:");
+		directory = Files.createTempDirectory("slow-queries").toFile();
+	}
+
+	/**
+	 * Tests that only queries that reach the threshold are kept, and that the
+	 * ring buffer holds the latest ones, the most recent first.
+	 */
+	@Test
+	void testThresholdAndRingBuffer() {
+		SlowQueryLog log = new SlowQueryLog(10, 2, null, 0, null, 0, 0);
+		log.record("fast", new Object[0], 9_999_999, 1);
+		log.record("first", new Object[0], 10_000_000, 1);
+		log.record("second", new Object[0], 20_000_000, 1);
+		log.record("third", new Object[0], 30_000_000, 1);
+
+		List<SlowQueryLog.SlowQuery> recent = log.getRecent();
+		assertEquals(3, log.getCount());
+		assertEquals(2, recent.size());
+		assertEquals("third", recent.get(0).getSql());
+		assertEquals("second", recent.get(1).getSql());
+
+		log.clear();
+		assertTrue(log.getRecent().isEmpty());
+	}
+
+	/**
+	 * Tests that a query run through the statement cache is logged with its
+	 * parameters and rows, and that its plan is worked out in the background
+	 * on a connection of its own, without borrowing one from the pool.
+	 */
+	@Test
+	void testStatementCacheRecordsQuery() throws SQLException, InterruptedException {
+		String url = "jdbc:sqlite:" + new File(directory, "movies.db").getPath();
+		Seeder fileSeeder = new Seeder(url);
+		ConnectionPool pool = new ConnectionPool(url, 1, 1000);
+		SlowQueryLog log = new SlowQueryLog(0, 10, pool, 60000, null, 0, 0);
+		StatementCache cache = new StatementCache(seeder.getConnection(), 2, new LongAdder(), new LongAdder(),
+				new LongAdder());
+		cache.setSlowQueryLog(log);
+
+		try (PreparedStatement ps = cache.prepare("select * from movies where year > ? and year < ?")) {
+			ps.setInt(1, 1970);
+			ps.setInt(2, 1995);
+			try (ResultSet rs = ps.executeQuery()) {
+				while (rs.next()) {
+					assertNotNull(rs.getString("title"));
+				}
+			}
+		}
+
+		SlowQueryLog.SlowQuery query = log.getRecent().get(0);
+		assertEquals(Arrays.asList(1970, 1995), query.getParameters());
+		assertEquals(3, query.getRows());
+		waitFor(() -> query.getPlan() != null);
+		assertTrue(query.getPlan().get(0).contains("movies"));
+		assertEquals(0, pool.getAcquireCount());
+
+		log.close();
+		pool.close();
+		fileSeeder.closeConnection();
+	}
+
+	/**
+	 * Tests that the log file is written as lines of JSON and rotated when it
+	 * grows past its size.
+	 */
+	@Test
+	void testFileRotates() throws IOException, InterruptedException {
+		File file = new File(directory, "slow.log");
+		SlowQueryLog log = new SlowQueryLog(0, 10, null, 0, file, 200, 2);
+		for (int i = 0; i < 6; i++) {
+			log.record("select " + i, new Object[] { i }, 1_000_000, 1);
+		}
+		File first = new File(directory, "slow.log.1");
+		File second = new File(directory, "slow.log.2");
+		waitFor(() -> Files.exists(second.toPath()) && readQuietly(file).contains("select 5"));
+
+		assertFalse(new File(directory, "slow.log.3").exists());
+		assertTrue(readQuietly(first).startsWith("{\"time\""));
+		for (File each : new File[] { file, first, second }) {
+			assertTrue(each.length() <= 200);
+		}
+	}
+
+	/**
+	 * Tests that closing the log writes out what is waiting, closes the file
+	 * and stops the background thread.
+	 */
+	@Test
+	void testCloseStopsThread() {
+		long before = logThreads();
+		File file = new File(directory, "slow.log");
+		SlowQueryLog log = new SlowQueryLog(0, 10, null, 0, file, 1024, 1);
+		assertEquals(before + 1, logThreads());
+		log.record("select 1", new Object[0], 1_000_000, 1);
+		log.close();
+
+		assertEquals(before, logThreads());
+		assertTrue(readQuietly(file).contains("select 1"));
+		log.record("select 2", new Object[0], 1_000_000, 1);
+		assertEquals(2, log.getRecent().size());
+	}
+
+	private static long logThreads() {
+		return Thread.getAllStackTraces().keySet().stream()
+				.filter(thread -> thread.getName().equals("slow-query-log") && thread.isAlive()).count();
+	}
+
+	/**
+	 * Waits up to five seconds for the background thread to do its work.
+	 */
+	private static void waitFor(BooleanSupplier done) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (!done.getAsBoolean()) {
+			assertTrue(System.currentTimeMillis() < deadline, "Timed out waiting for the slow query log");
+			Thread.sleep(10);
+		}
+	}
+
+	private static String readQuietly(File file) {
+		try {
+			return file.exists() ? new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8) : "";
+		} catch (IOException e) {
+			return "";
+		}
+	}
+
+	@AfterEach
+	void tearDown() {
+		seeder.closeConnection();
+		for (File file : directory.listFiles()) {
+			file.delete();
+		}
+		directory.delete();
+	}
+}
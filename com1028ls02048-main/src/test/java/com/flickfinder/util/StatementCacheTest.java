@@ -0,0 +1,96 @@
+package com.flickfinder.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test for the prepared statement cache. This uses an in-memory database for
+ * testing purposes.
+ */
+class StatementCacheTest {
+
+	/**
+	 * The seeder.
+	 */
+	private Seeder seeder;
+
+	/**
+	 * The cache under test, which holds at most two statements.
+	 */
+	private StatementCache cache;
+
+	private LongAdder hits;
+	private LongAdder misses;
+	private LongAdder evictions;
+
+	@BeforeEach
+	void setUp() {
+		seeder = new Seeder("jdbc:sqlite::memory:");
+		hits = new LongAdder();
+		misses = new LongAdder();
+		evictions = new LongAdder();
+		cache = new StatementCache(seeder.getConnection(), 2, hits, misses, evictions);
+	}
+
+	/**
+	 * Tests that the same SQL reuses the cached statement, and that closing the
+	 * wrapper leaves the statement open for the next caller.
+	 */
+	@Test
+	void testReusesStatement() throws SQLException {
+		String sql = "select title from movies where id = ?";
+		try (PreparedStatement ps = cache.prepare(sql)) {
+			ps.setInt(1, 1);
+			try (ResultSet rs = ps.executeQuery()) {
+				assertTrue(rs.next());
+				assertEquals("The Shawshank Redemption", rs.getString("title"));
+			}
+		}
+		try (PreparedStatement ps = cache.prepare(sql)) {
+			assertFalse(ps.isClosed());
+			ps.setInt(1, 2);
+			try (ResultSet rs = ps.executeQuery()) {
+				assertTrue(rs.next());
+				assertEquals("The Godfather", rs.getString("title"));
+			}
+		}
+		assertEquals(1, misses.sum());
+		assertEquals(1, hits.sum());
+		assertEquals(1, cache.size());
+	}
+
+	/**
+	 * Tests that the least recently used statement is closed when the cache is
+	 * full.
+	 */
+	@Test
+	void testEvictsLeastRecentlyUsed() throws SQLException {
+		cache.prepare("select * from movies").close();
+		cache.prepare("select * from people").close();
+		cache.prepare("select * from movies").close();
+		cache.prepare("select * from stars").close();
+		assertEquals(2, cache.size());
+		assertEquals(1, evictions.sum());
+
+		// people was the least recently used, so it has to be prepared again
+		cache.prepare("select * from people").close();
+		assertEquals(4, misses.sum());
+		assertEquals(1, hits.sum());
+	}
+
+	@AfterEach
+	void tearDown() {
+		cache.clear();
+		seeder.closeConnection();
+	}
+}